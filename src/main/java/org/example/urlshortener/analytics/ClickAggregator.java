@@ -0,0 +1,68 @@
+package org.example.urlshortener.analytics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory click counts per short code and minute since the last flush. Consumers add under the
+ * read lock (they only contend on the striped {@link LongAdder}s); the flusher takes the write lock
+ * just long enough to swap in an empty generation, so no increment lands in a map being written.
+ */
+public class ClickAggregator {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Map<String, Map<Long, LongAdder>> counts = new ConcurrentHashMap<>();
+
+    public int drainFrom(ClickEventBuffer buffer, int max) {
+        lock.readLock().lock();
+        try {
+            Map<String, Map<Long, LongAdder>> current = counts;
+            return buffer.drain((shortCode, epochMinute) -> current
+                    .computeIfAbsent(shortCode, code -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(epochMinute, minute -> new LongAdder())
+                    .increment(), max);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Detaches the counts gathered so far and starts a new generation.
+     */
+    public Map<String, Map<Long, LongAdder>> takeSnapshot() {
+        lock.writeLock().lock();
+        try {
+            Map<String, Map<Long, LongAdder>> snapshot = counts;
+            counts = new ConcurrentHashMap<>();
+            return snapshot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Puts back a snapshot that could not be flushed, so it is retried with the next one.
+     */
+    public void restore(Map<String, Map<Long, LongAdder>> snapshot) {
+        lock.readLock().lock();
+        try {
+            Map<String, Map<Long, LongAdder>> current = counts;
+            snapshot.forEach((shortCode, minutes) -> minutes.forEach((epochMinute, clicks) -> current
+                    .computeIfAbsent(shortCode, code -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(epochMinute, minute -> new LongAdder())
+                    .add(clicks.sum())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Unflushed clicks per epoch minute for one code.
+     */
+    public Map<Long, LongAdder> pending(String shortCode) {
+        return counts.getOrDefault(shortCode, Map.of());
+    }
+}
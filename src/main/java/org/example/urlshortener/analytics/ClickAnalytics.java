@@ -0,0 +1,228 @@
+package org.example.urlshortener.analytics;
+
+import org.example.urlshortener.model.ClickBucketResponse;
+import org.example.urlshortener.model.ClickStatsResponse;
+import org.example.urlshortener.model.UrlClickStatsEntity;
+import org.example.urlshortener.repository.UrlClickStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Click analytics off the redirect path. {@link #record(String)} only publishes into a
+ * {@link ClickEventBuffer}; background consumers fold the events into per-code, per-minute
+ * counters, and a flusher writes them to {@code url_click_stats} as one batch of additive upserts
+ * per interval. Unflushed counts are included when stats are read.
+ */
+public class ClickAnalytics implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickAnalytics.class);
+
+    private static final int DRAIN_BATCH_SIZE = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final String UPSERT_SQL = """
+            MERGE INTO url_click_stats t
+            USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS TIMESTAMP), CAST(? AS BIGINT))) s (short_code, bucket_start, clicks)
+            ON t.short_code = s.short_code AND t.bucket_start = s.bucket_start
+            WHEN MATCHED THEN UPDATE SET clicks = t.clicks + s.clicks
+            WHEN NOT MATCHED THEN INSERT (short_code, bucket_start, clicks) VALUES (s.short_code, s.bucket_start, s.clicks)
+            """;
+
+    private final ClickEventBuffer buffer;
+    private final ClickAggregator aggregator;
+    private final UrlClickStatsRepository repository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int consumerCount;
+    private final Duration flushInterval;
+    private final int statsBuckets;
+    private final LongAdder flushed = new LongAdder();
+    // One flush at a time; a lock rather than a monitor since a flush writes to the database while holding it
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Held exclusively from taking a snapshot until its upsert commits or it is restored, so a stats read
+    // sees each click either pending or persisted, never in flight between the two
+    private final ReentrantReadWriteLock statsLock = new ReentrantReadWriteLock();
+
+    private final List<Thread> consumers = new ArrayList<>();
+    private ScheduledExecutorService flusher;
+    private volatile boolean running;
+
+    public ClickAnalytics(ClickEventBuffer buffer, ClickAggregator aggregator, UrlClickStatsRepository repository,
+                          JdbcTemplate jdbcTemplate, int consumerCount, Duration flushInterval, int statsBuckets) {
+        this.buffer = buffer;
+        this.aggregator = aggregator;
+        this.repository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.consumerCount = consumerCount;
+        this.flushInterval = flushInterval;
+        this.statsBuckets = statsBuckets;
+    }
+
+    /**
+     * Records a click on {@code shortCode}. Never blocks; drops the event if the buffer is full.
+     */
+    public void record(String shortCode) {
+        buffer.offer(shortCode, System.currentTimeMillis() / 60_000);
+    }
+
+    /**
+     * Persisted plus pending clicks on {@code shortCode}. Waits for a flush that is writing to
+     * finish, since its clicks have left the pending counts but are not committed yet.
+     */
+    public ClickStatsResponse getStats(String shortCode) {
+        Map<LocalDateTime, Long> buckets = new TreeMap<>(Comparator.reverseOrder());
+        long total;
+        statsLock.readLock().lock();
+        try {
+            total = repository.sumClicksByShortCode(shortCode);
+            for (UrlClickStatsEntity row : repository.findByIdShortCodeOrderByIdBucketStartDesc(shortCode,
+                    PageRequest.ofSize(statsBuckets))) {
+                buckets.put(row.getId().getBucketStart(), row.getClicks());
+            }
+            for (Map.Entry<Long, LongAdder> pending : aggregator.pending(shortCode).entrySet()) {
+                long clicks = pending.getValue().sum();
+                buckets.merge(bucketStart(pending.getKey()), clicks, Long::sum);
+                total += clicks;
+            }
+        } finally {
+            statsLock.readLock().unlock();
+        }
+
+        List<ClickBucketResponse> recent = new ArrayList<>(Math.min(buckets.size(), statsBuckets));
+        for (Map.Entry<LocalDateTime, Long> bucket : buckets.entrySet()) {
+            if (recent.size() == statsBuckets) {
+                break;
+            }
+            recent.add(new ClickBucketResponse(bucket.getKey(), bucket.getValue()));
+        }
+        return new ClickStatsResponse(shortCode, total, recent);
+    }
+
+    /**
+     * Drains the buffer and writes everything aggregated so far. Runs on the flusher thread and on
+     * shutdown; a failed batch is put back and retried with the next one.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushSnapshot();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushSnapshot() {
+        // Include everything published before this call, even if the consumers are parked
+        int drained;
+        do {
+            drained = aggregator.drainFrom(buffer, DRAIN_BATCH_SIZE);
+        } while (drained > 0);
+        statsLock.writeLock().lock();
+        try {
+            Map<String, Map<Long, LongAdder>> snapshot = aggregator.takeSnapshot();
+            if (snapshot.isEmpty()) {
+                return;
+            }
+            List<Object[]> rows = new ArrayList<>();
+            snapshot.forEach((shortCode, minutes) -> minutes.forEach((epochMinute, clicks) ->
+                    rows.add(new Object[]{shortCode, bucketStart(epochMinute), clicks.sum()})));
+            try {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+                flushed.add(rows.size());
+            } catch (DataAccessException e) {
+                log.warn("Click stats flush of {} bucket(s) failed, retrying with the next flush", rows.size(), e);
+                aggregator.restore(snapshot);
+            }
+        } finally {
+            statsLock.writeLock().unlock();
+        }
+    }
+
+    public long flushedBucketCount() {
+        return flushed.sum();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < consumerCount; i++) {
+            Thread consumer = new Thread(this::consume, "click-consumer-" + i);
+            consumer.setDaemon(true);
+            consumer.start();
+            consumers.add(consumer);
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "click-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        flusher.shutdown();
+        for (Thread consumer : consumers) {
+            LockSupport.unpark(consumer);
+            try {
+                consumer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        consumers.clear();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void consume() {
+        while (running) {
+            if (aggregator.drainFrom(buffer, DRAIN_BATCH_SIZE) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Click stats flush failed", e);
+        }
+    }
+
+    private static LocalDateTime bucketStart(long epochMinute) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochMinute * 60), ZoneId.systemDefault());
+    }
+}
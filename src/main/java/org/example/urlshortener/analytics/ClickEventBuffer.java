@@ -0,0 +1,105 @@
+package org.example.urlshortener.analytics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, lock-free multi-producer/multi-consumer ring buffer of click events (a short code and
+ * the epoch minute of the click). Each slot carries a sequence number that tells producers and
+ * consumers whose turn it is, so neither side ever blocks. When the buffer is full the newest
+ * event is dropped and counted: a lost click costs less than a slower redirect.
+ */
+public class ClickEventBuffer {
+
+    @FunctionalInterface
+    public interface ClickSink {
+        void accept(String shortCode, long epochMinute);
+    }
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final String[] shortCodes;
+    private final long[] epochMinutes;
+    private final AtomicLong producerPosition = new AtomicLong();
+    private final AtomicLong consumerPosition = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    public ClickEventBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        this.shortCodes = new String[capacity];
+        this.epochMinutes = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Publishes a click, or drops it if the buffer is full. Never blocks.
+     */
+    public boolean offer(String shortCode, long epochMinute) {
+        long position = producerPosition.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long lag = sequences.get(index) - position;
+            if (lag == 0) {
+                if (producerPosition.compareAndSet(position, position + 1)) {
+                    shortCodes[index] = shortCode;
+                    epochMinutes[index] = epochMinute;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = producerPosition.get();
+            } else if (lag < 0) {
+                dropped.increment();
+                return false;
+            } else {
+                position = producerPosition.get();
+            }
+        }
+    }
+
+    /**
+     * Hands up to {@code max} published events to {@code sink} and returns how many were taken.
+     */
+    public int drain(ClickSink sink, int max) {
+        int drained = 0;
+        long position = consumerPosition.get();
+        while (drained < max) {
+            int index = (int) (position & mask);
+            long lag = sequences.get(index) - (position + 1);
+            if (lag == 0) {
+                if (consumerPosition.compareAndSet(position, position + 1)) {
+                    String shortCode = shortCodes[index];
+                    long epochMinute = epochMinutes[index];
+                    shortCodes[index] = null;
+                    sequences.set(index, position + mask + 1);
+                    sink.accept(shortCode, epochMinute);
+                    drained++;
+                }
+                position = consumerPosition.get();
+            } else if (lag < 0) {
+                break;
+            } else {
+                position = consumerPosition.get();
+            }
+        }
+        return drained;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long size() {
+        return Math.max(0, producerPosition.get() - consumerPosition.get());
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+}
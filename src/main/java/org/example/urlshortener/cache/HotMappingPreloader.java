@@ -0,0 +1,108 @@
+package org.example.urlshortener.cache;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlClickStatsRepository;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warms the {@link UrlMappingCache} at startup with the mappings clicked most over the last
+ * {@code window}, as recorded by click analytics in {@code url_click_stats}. The hottest
+ * {@code topN} codes are split into batches of {@code batchSize} that {@code parallelism} threads
+ * resolve with one {@code IN} query each.
+ * <p>
+ * It runs as an {@link ApplicationRunner}, so the readiness state only turns to accepting traffic
+ * once it returns. A preload that outlives {@code timeout} is abandoned with whatever it loaded so
+ * far; a failing batch is logged and skipped. Neither stops the application from starting.
+ */
+public class HotMappingPreloader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(HotMappingPreloader.class);
+
+    private final UrlClickStatsRepository statsRepository;
+    private final UrlMappingStore repository;
+    private final UrlMappingCache cache;
+    private final int topN;
+    private final Duration window;
+    private final int batchSize;
+    private final int parallelism;
+    private final Duration timeout;
+    private final AtomicLong loaded = new AtomicLong();
+    private volatile long durationMillis;
+
+    public HotMappingPreloader(UrlClickStatsRepository statsRepository, UrlMappingStore repository,
+                               UrlMappingCache cache, int topN, Duration window, int batchSize, int parallelism,
+                               Duration timeout) {
+        this.statsRepository = statsRepository;
+        this.repository = repository;
+        this.cache = cache;
+        this.topN = topN;
+        this.window = window;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        long started = System.nanoTime();
+        List<String> hottest = statsRepository.findHottestShortCodes(LocalDateTime.now().minus(window),
+                PageRequest.ofSize(topN));
+
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "hot-mapping-preload-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int from = 0; from < hottest.size(); from += batchSize) {
+            List<String> batch = hottest.subList(from, Math.min(from + batchSize, hottest.size()));
+            executor.execute(() -> load(batch));
+        }
+        executor.shutdown();
+        boolean completed = executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        if (!completed) {
+            executor.shutdownNow();
+        }
+
+        durationMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        log.info("Preloaded {} of {} hot mappings into the redirect cache in {} ms ({} mappings/s){}",
+                loaded.get(), hottest.size(), durationMillis, loaded.get() * 1000 / durationMillis,
+                completed ? "" : ", abandoned after " + timeout);
+    }
+
+    private void load(List<String> shortCodes) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            for (UrlMappingEntity mapping : repository.findByShortCodeIn(shortCodes)) {
+                if (mapping.getExpiresAt() == null || mapping.getExpiresAt().isAfter(now)) {
+                    cache.put(mapping);
+                    loaded.incrementAndGet();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Skipped a preload batch of {} codes", shortCodes.size(), e);
+        }
+    }
+
+    public long loadedCount() {
+        return loaded.get();
+    }
+
+    public long durationMillis() {
+        return durationMillis;
+    }
+}
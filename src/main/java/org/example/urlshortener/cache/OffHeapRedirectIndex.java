@@ -0,0 +1,414 @@
+package org.example.urlshortener.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Off-heap index from short code to redirect target, sized to hold every mapping of a node
+ * without adding to the garbage collector's work.
+ * <p>
+ * Codes of {@link #CODE_LENGTH} ASCII characters (what both strategies generate) are packed into a
+ * long and stored in an open-addressing table with linear probing; each 24-byte slot holds the
+ * packed code, a reference to the URL and the expiry. URLs are appended as length-prefixed UTF-8
+ * to fixed-size slabs. Table and slabs are direct {@link ByteBuffer}s, so a hundred million
+ * mappings add a few dozen heap objects rather than hundreds of millions.
+ * <p>
+ * Lookups are lock-free: they read under a {@link StampedLock} optimistic stamp and retry under
+ * the read lock only if a write overlapped. Writers are serialized; growing the table (which also
+ * drops the URL bytes of removed or replaced entries) is done on the side and swapped in, so
+ * readers never wait for it.
+ */
+public class OffHeapRedirectIndex {
+
+    public static final int CODE_LENGTH = 8;
+
+    private static final int SLOT_BYTES = 3 * Long.BYTES;
+    private static final int SEGMENT_SLOTS = 1 << 22;
+    private static final double MAX_LOAD = 0.7;
+    private static final long REMOVED = -1;
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+    private static final int MAX_URL_BYTES = 0xFFFF;
+
+    /**
+     * Where a code redirects to; {@code expiresAt} is null for links that never expire.
+     */
+    public record Target(String originalUrl, LocalDateTime expiresAt) {
+
+        public boolean isExpiredAt(LocalDateTime now) {
+            return expiresAt != null && !now.isBefore(expiresAt);
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final int slabBytes;
+    private final LongAdder misses = new LongAdder();
+    private volatile Table table;
+    private volatile Slabs slabs;
+    private volatile boolean ready;
+
+    public OffHeapRedirectIndex(long initialCapacity, int slabBytes) {
+        if (slabBytes < MAX_URL_BYTES + 2) {
+            throw new IllegalArgumentException("slabBytes must hold the longest URL");
+        }
+        this.slabBytes = slabBytes;
+        this.table = new Table(tableCapacity(initialCapacity));
+        this.slabs = new Slabs(slabBytes);
+    }
+
+    /**
+     * Returns the redirect target for the code, or null if the code is not indexed.
+     */
+    public Target get(String shortCode) {
+        long code = pack(shortCode);
+        if (code == 0) {
+            return null;
+        }
+        Target target = null;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                target = find(code);
+            } catch (RuntimeException e) {
+                // A torn read of a concurrent write; validation fails and the read is retried
+                stamp = 0;
+            }
+        }
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                target = find(code);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (target == null && ready) {
+            misses.increment();
+        }
+        return target;
+    }
+
+    /**
+     * Indexes (or replaces) the target of a code. Returns false, leaving the index unchanged, if
+     * the code is not {@link #CODE_LENGTH} ASCII characters or the URL is too long to store.
+     */
+    public synchronized boolean put(String shortCode, String originalUrl, LocalDateTime expiresAt) {
+        return put(shortCode, originalUrl, expiresAt, true);
+    }
+
+    /**
+     * Like {@link #put} but keeps an existing entry, for bulk loads racing with live writes.
+     */
+    public synchronized boolean putIfAbsent(String shortCode, String originalUrl, LocalDateTime expiresAt) {
+        return put(shortCode, originalUrl, expiresAt, false);
+    }
+
+    public synchronized void remove(String shortCode) {
+        long code = pack(shortCode);
+        if (code == 0) {
+            return;
+        }
+        Table current = table;
+        long slot = current.slotOf(code);
+        if (slot < 0 || current.ref(slot) == REMOVED) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            slabs.release(current.ref(slot));
+            current.setRef(slot, REMOVED);
+            current.size--;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Marks the startup load as finished; until then misses are expected and not worth counting.
+     */
+    public void markReady() {
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long size() {
+        return table.size;
+    }
+
+    /**
+     * Off-heap bytes held by the table and the URL slabs.
+     */
+    public long memoryBytes() {
+        return table.capacity * SLOT_BYTES + slabs.allocatedBytes();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Packs a code of {@link #CODE_LENGTH} ASCII characters into a long, one byte per character.
+     * Returns 0 for anything else.
+     */
+    static long pack(String shortCode) {
+        if (shortCode == null || shortCode.length() != CODE_LENGTH) {
+            return 0;
+        }
+        long packed = 0;
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            char c = shortCode.charAt(i);
+            if (c == 0 || c > 0x7F) {
+                return 0;
+            }
+            packed = packed << 8 | c;
+        }
+        return packed;
+    }
+
+    private boolean put(String shortCode, String originalUrl, LocalDateTime expiresAt, boolean replace) {
+        long code = pack(shortCode);
+        byte[] url = originalUrl.getBytes(StandardCharsets.UTF_8);
+        if (code == 0 || url.length > MAX_URL_BYTES) {
+            return false;
+        }
+        Table current = table;
+        long slot = current.slotOf(code);
+        boolean present = slot >= 0 && current.ref(slot) != REMOVED;
+        if (present && !replace) {
+            return true;
+        }
+        if ((slot < 0 && current.used + 1 > current.capacity * MAX_LOAD) || slabs.mostlyReleased()) {
+            current = grow();
+        }
+        // Slab space is appended past what readers can reach, so it needs no lock
+        long ref = slabs.append(url);
+        long expiry = expiresAt == null ? NO_EXPIRY : toEpochNanos(expiresAt);
+        long stamp = lock.writeLock();
+        try {
+            slot = current.slotOf(code);
+            if (slot >= 0) {
+                if (current.ref(slot) == REMOVED) {
+                    current.size++;
+                } else {
+                    slabs.release(current.ref(slot));
+                }
+                current.set(slot, code, ref, expiry);
+            } else {
+                current.set(current.freeSlotFor(code), code, ref, expiry);
+                current.size++;
+                current.used++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return true;
+    }
+
+    private Target find(long code) {
+        Table current = table;
+        long slot = current.slotOf(code);
+        if (slot < 0) {
+            return null;
+        }
+        long ref = current.ref(slot);
+        if (ref == REMOVED) {
+            return null;
+        }
+        long expiry = current.expiry(slot);
+        return new Target(slabs.read(ref), expiry == NO_EXPIRY ? null : fromEpochNanos(expiry));
+    }
+
+    /**
+     * Rehashes the live entries into a table sized for twice as many and fresh slabs, then swaps
+     * both in. Also run once most slab bytes belong to removed or replaced entries. Runs under the writer monitor, so the source cannot change meanwhile.
+     */
+    private Table grow() {
+        Table source = table;
+        Slabs sourceSlabs = slabs;
+        Table target = new Table(tableCapacity(Math.max(source.size * 2, 16)));
+        Slabs targetSlabs = new Slabs(slabBytes);
+        for (long slot = 0; slot < source.capacity; slot++) {
+            long code = source.code(slot);
+            long ref = source.ref(slot);
+            if (code != 0 && ref != REMOVED) {
+                target.set(target.freeSlotFor(code), code, targetSlabs.copy(sourceSlabs, ref), source.expiry(slot));
+                target.size++;
+                target.used++;
+            }
+        }
+        long stamp = lock.writeLock();
+        try {
+            table = target;
+            slabs = targetSlabs;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return target;
+    }
+
+    private static long tableCapacity(long entries) {
+        return Long.highestOneBit(Math.max((long) (entries / MAX_LOAD), 16) * 2 - 1);
+    }
+
+    private static long toEpochNanos(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + timestamp.getNano();
+    }
+
+    private static LocalDateTime fromEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    private static long mix(long code) {
+        code ^= code >>> 33;
+        code *= 0xff51afd7ed558ccdL;
+        code ^= code >>> 33;
+        code *= 0xc4ceb9fe1a85ec53L;
+        return code ^ code >>> 33;
+    }
+
+    /**
+     * Slots of {@code [code, url ref, expiry]} in direct buffers of {@link #SEGMENT_SLOTS} slots.
+     * A zero code marks a free slot; removed entries keep their code so probe chains stay intact.
+     */
+    private static final class Table {
+
+        final long capacity;
+        final int segmentSlots;
+        final ByteBuffer[] segments;
+        long size;
+        long used;
+
+        Table(long capacity) {
+            this.capacity = capacity;
+            this.segmentSlots = (int) Math.min(capacity, SEGMENT_SLOTS);
+            this.segments = new ByteBuffer[(int) (capacity / segmentSlots)];
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = ByteBuffer.allocateDirect(segmentSlots * SLOT_BYTES);
+            }
+        }
+
+        long slotOf(long code) {
+            long mask = capacity - 1;
+            for (long slot = mix(code) & mask; ; slot = (slot + 1) & mask) {
+                long stored = code(slot);
+                if (stored == code) {
+                    return slot;
+                }
+                if (stored == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        long freeSlotFor(long code) {
+            long mask = capacity - 1;
+            long slot = mix(code) & mask;
+            while (code(slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        long code(long slot) {
+            return getLong(slot, 0);
+        }
+
+        long ref(long slot) {
+            return getLong(slot, 1);
+        }
+
+        long expiry(long slot) {
+            return getLong(slot, 2);
+        }
+
+        void setRef(long slot, long ref) {
+            putLong(slot, 1, ref);
+        }
+
+        void set(long slot, long code, long ref, long expiry) {
+            putLong(slot, 1, ref);
+            putLong(slot, 2, expiry);
+            putLong(slot, 0, code);
+        }
+
+        private long getLong(long slot, int field) {
+            return segments[(int) (slot / segmentSlots)]
+                    .getLong((int) (slot % segmentSlots) * SLOT_BYTES + field * Long.BYTES);
+        }
+
+        private void putLong(long slot, int field, long value) {
+            segments[(int) (slot / segmentSlots)]
+                    .putLong((int) (slot % segmentSlots) * SLOT_BYTES + field * Long.BYTES, value);
+        }
+    }
+
+    /**
+     * Append-only URL storage: {@code unsigned short length | UTF-8 bytes} records in direct
+     * buffers of a fixed size, addressed by {@code slab << 32 | offset}. Released records are only
+     * counted; their space is reclaimed when the index grows.
+     */
+    private static final class Slabs {
+
+        private final int slabBytes;
+        private volatile ByteBuffer[] buffers = new ByteBuffer[0];
+        private int position;
+        private long releasedBytes;
+
+        Slabs(int slabBytes) {
+            this.slabBytes = slabBytes;
+            this.position = slabBytes;
+        }
+
+        long append(byte[] url) {
+            ByteBuffer[] current = buffers;
+            if (position + 2 + url.length > slabBytes) {
+                current = Arrays.copyOf(current, current.length + 1);
+                current[current.length - 1] = ByteBuffer.allocateDirect(slabBytes);
+                buffers = current;
+                position = 0;
+            }
+            ByteBuffer slab = current[current.length - 1];
+            slab.putShort(position, (short) url.length);
+            slab.put(position + 2, url);
+            long ref = (long) (current.length - 1) << 32 | position;
+            position += 2 + url.length;
+            return ref;
+        }
+
+        long copy(Slabs source, long ref) {
+            ByteBuffer slab = source.buffers[(int) (ref >>> 32)];
+            int offset = (int) ref;
+            byte[] url = new byte[Short.toUnsignedInt(slab.getShort(offset))];
+            slab.get(offset + 2, url);
+            return append(url);
+        }
+
+        String read(long ref) {
+            ByteBuffer slab = buffers[(int) (ref >>> 32)];
+            int offset = (int) ref;
+            byte[] url = new byte[Short.toUnsignedInt(slab.getShort(offset))];
+            slab.get(offset + 2, url);
+            return new String(url, StandardCharsets.UTF_8);
+        }
+
+        void release(long ref) {
+            releasedBytes += 2 + Short.toUnsignedInt(buffers[(int) (ref >>> 32)].getShort((int) ref));
+        }
+
+        boolean mostlyReleased() {
+            return releasedBytes > allocatedBytes() / 2;
+        }
+
+        long allocatedBytes() {
+            return (long) buffers.length * slabBytes;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.urlshortener.cache;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+/**
+ * Fills the {@link OffHeapRedirectIndex} at startup by paging through {@code url_mapping} with a
+ * keyset on the id. Entries written by the service meanwhile are newer and are kept.
+ */
+public class OffHeapRedirectIndexLoader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapRedirectIndexLoader.class);
+
+    private final UrlMappingStore repository;
+    private final OffHeapRedirectIndex redirectIndex;
+    private final int pageSize;
+
+    public OffHeapRedirectIndexLoader(UrlMappingStore repository, OffHeapRedirectIndex redirectIndex,
+                                      int pageSize) {
+        this.repository = repository;
+        this.redirectIndex = redirectIndex;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long started = System.nanoTime();
+        long loaded = 0;
+        long afterId = 0L;
+        List<UrlMappingEntity> page;
+        do {
+            page = repository.findAllByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(pageSize));
+            for (UrlMappingEntity mapping : page) {
+                redirectIndex.putIfAbsent(mapping.getShortCode(), mapping.getOriginalUrl(), mapping.getExpiresAt());
+                afterId = mapping.getId();
+            }
+            loaded += page.size();
+        } while (page.size() == pageSize);
+
+        redirectIndex.markReady();
+        log.info("Off-heap redirect index loaded with {} mappings in {} ms ({} bytes off-heap)",
+                loaded, (System.nanoTime() - started) / 1_000_000, redirectIndex.memoryBytes());
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.urlshortener.cache;
+
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Longs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scalable Bloom filter over every persisted short code.
+ * <p>
+ * Starts with a single stage sized for {@code expectedInsertions} at the configured false-positive
+ * rate. When a stage fills up a new one is appended with twice the capacity and half the error
+ * rate, so the compound false-positive rate stays bounded by roughly twice the configured rate
+ * however far the table grows. Bits live in {@link AtomicLongArray}s so lookups and inserts are
+ * lock-free.
+ * <p>
+ * Until {@link #markReady()} is called (once the startup rebuild has finished) every code is
+ * reported as possibly present, so a partially built filter never turns a real code into a 404.
+ * The same holds after {@link #markStale()}, when codes may have been created without being added
+ * here, until a rebuild that started after it {@link #markReady(long) marks it ready} again.
+ */
+public class ShortCodeBloomFilter {
+
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final double falsePositiveRate;
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+    private final LongAdder rejections = new LongAdder();
+    private volatile boolean ready;
+    // Guarded by this
+    private long generation;
+
+    public ShortCodeBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        this.stages.add(new Stage(expectedInsertions, falsePositiveRate));
+    }
+
+    /**
+     * Returns {@code false} only when the code has definitely never been added.
+     */
+    public boolean mightContain(String shortCode) {
+        if (!ready) {
+            return true;
+        }
+        byte[] hash = hash(shortCode);
+        long h1 = Longs.fromBytes(hash[0], hash[1], hash[2], hash[3], hash[4], hash[5], hash[6], hash[7]);
+        long h2 = Longs.fromBytes(hash[8], hash[9], hash[10], hash[11], hash[12], hash[13], hash[14], hash[15]);
+        for (Stage stage : stages) {
+            if (stage.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        rejections.increment();
+        return false;
+    }
+
+    public void put(String shortCode) {
+        byte[] hash = hash(shortCode);
+        long h1 = Longs.fromBytes(hash[0], hash[1], hash[2], hash[3], hash[4], hash[5], hash[6], hash[7]);
+        long h2 = Longs.fromBytes(hash[8], hash[9], hash[10], hash[11], hash[12], hash[13], hash[14], hash[15]);
+        for (Stage stage : stages) {
+            if (stage.mightContain(h1, h2)) {
+                return;
+            }
+        }
+        currentStage().put(h1, h2);
+    }
+
+    public synchronized void markReady() {
+        this.ready = true;
+    }
+
+    /**
+     * Stops the filter rejecting codes until a rebuild started after this call has finished.
+     */
+    public synchronized void markStale() {
+        generation++;
+        this.ready = false;
+    }
+
+    /**
+     * To be taken before a rebuild and passed to {@link #markReady(long)} once it is done.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Marks the filter ready unless it was {@link #markStale() marked stale} after
+     * {@link #generation()} returned {@code generation}; returns whether it did.
+     */
+    public synchronized boolean markReady(long generation) {
+        if (generation != this.generation) {
+            return false;
+        }
+        this.ready = true;
+        return true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long approximateElementCount() {
+        return stages.stream().mapToLong(stage -> stage.count.get()).sum();
+    }
+
+    public long memoryBytes() {
+        return stages.stream().mapToLong(stage -> stage.bits.length() * (long) Long.BYTES).sum();
+    }
+
+    public int stageCount() {
+        return stages.size();
+    }
+
+    public double configuredFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * Compound false-positive probability at the current fill level of every stage.
+     */
+    public double expectedFalsePositiveRate() {
+        double allMiss = 1.0;
+        for (Stage stage : stages) {
+            allMiss *= 1.0 - stage.expectedFpp();
+        }
+        return 1.0 - allMiss;
+    }
+
+    public long rejectionCount() {
+        return rejections.sum();
+    }
+
+    private Stage currentStage() {
+        Stage last = stages.get(stages.size() - 1);
+        if (last.count.get() < last.capacity) {
+            return last;
+        }
+        synchronized (stages) {
+            last = stages.get(stages.size() - 1);
+            if (last.count.get() >= last.capacity) {
+                last = new Stage(last.capacity * GROWTH_FACTOR, last.falsePositiveRate * TIGHTENING_RATIO);
+                stages.add(last);
+            }
+            return last;
+        }
+    }
+
+    private static byte[] hash(String shortCode) {
+        return Hashing.murmur3_128().hashString(shortCode, StandardCharsets.UTF_8).asBytes();
+    }
+
+    private static final class Stage {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long numBits;
+        private final int numHashes;
+        private final AtomicLongArray bits;
+        private final AtomicLong count = new AtomicLong();
+
+        private Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long optimalBits = (long) (-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.max(1, (optimalBits + Long.SIZE - 1) / Long.SIZE);
+            this.bits = new AtomicLongArray(words);
+            this.numBits = (long) words * Long.SIZE;
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+        }
+
+        private boolean mightContain(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < numHashes; i++) {
+                long index = (combined & Long.MAX_VALUE) % numBits;
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+                combined += h2;
+            }
+            return true;
+        }
+
+        private void put(long h1, long h2) {
+            long combined = h1;
+            for (int i = 0; i < numHashes; i++) {
+                long index = (combined & Long.MAX_VALUE) % numBits;
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long current;
+                do {
+                    current = bits.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!bits.compareAndSet(word, current, current | mask));
+                combined += h2;
+            }
+            count.incrementAndGet();
+        }
+
+        private double expectedFpp() {
+            return Math.pow(1.0 - Math.exp(-numHashes * (double) count.get() / numBits), numHashes);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.urlshortener.cache;
+
+import org.example.urlshortener.model.ShortCodeView;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rebuilds the {@link ShortCodeBloomFilter} at startup by paging through {@code url_mapping}
+ * with a keyset on the id, then marks the filter ready so it may start rejecting lookups.
+ * {@link #reload()} does the same in the background while the application runs, for when the
+ * filter may have missed codes created on other nodes.
+ */
+public class ShortCodeBloomFilterLoader implements ApplicationRunner, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ShortCodeBloomFilterLoader.class);
+
+    private final UrlMappingStore repository;
+    private final ShortCodeBloomFilter bloomFilter;
+    private final int pageSize;
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bloom-filter-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ShortCodeBloomFilterLoader(UrlMappingStore repository, ShortCodeBloomFilter bloomFilter, int pageSize) {
+        this.repository = repository;
+        this.bloomFilter = bloomFilter;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        load("rebuilt");
+    }
+
+    /**
+     * Marks the filter stale, so lookups fall through to the database, and rebuilds it on a
+     * background thread. Adding codes is idempotent, so the rebuild goes over the live filter
+     * rather than a copy. Reloads requested while one runs are served by one more pass.
+     */
+    public void reload() {
+        bloomFilter.markStale();
+        reloader.execute(() -> {
+            // Already ready again: a pass that started after this request's markStale has finished
+            if (bloomFilter.isReady()) {
+                return;
+            }
+            try {
+                load("reloaded");
+            } catch (RuntimeException e) {
+                // Left stale: every lookup goes to the database until the next reload succeeds
+                log.warn("Could not reload the short code Bloom filter", e);
+            }
+        });
+    }
+
+    private void load(String action) {
+        loadLock.lock();
+        try {
+            long started = System.nanoTime();
+            long loaded;
+            long generation;
+            do {
+                // A markStale during the pass may be for a code behind the keyset; go again
+                generation = bloomFilter.generation();
+                loaded = 0;
+                long afterId = 0L;
+                List<ShortCodeView> page;
+                do {
+                    page = repository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(pageSize));
+                    for (ShortCodeView row : page) {
+                        bloomFilter.put(row.getShortCode());
+                        afterId = row.getId();
+                    }
+                    loaded += page.size();
+                } while (page.size() == pageSize);
+            } while (!bloomFilter.markReady(generation));
+            log.info("Short code Bloom filter {} with {} codes in {} ms ({} bytes, {} stage(s))", action,
+                    loaded, (System.nanoTime() - started) / 1_000_000, bloomFilter.memoryBytes(), bloomFilter.stageCount());
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        reloader.shutdownNow();
+    }
+}
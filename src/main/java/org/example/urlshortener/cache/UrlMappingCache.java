@@ -0,0 +1,113 @@
+package org.example.urlshortener.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.example.urlshortener.model.UrlMappingEntity;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Size-bounded, TTL-aware read-through cache of short code to mapping.
+ * <p>
+ * Backed by Caffeine, whose W-TinyLFU policy (a small LRU admission window in front of a
+ * segmented LRU main region) keeps the few hot codes resident under skewed traffic.
+ * Misses are cached too (as empty values) so codes that slip past the Bloom filter as false
+ * positives do not query the database on every hit; writes invalidate either kind of entry.
+ */
+public class UrlMappingCache {
+
+    private static final int INVALIDATION_STRIPES = 64;
+
+    private final Cache<String, Optional<UrlMappingEntity>> cache;
+    // Bumped before every invalidation of a code hashing to the stripe, so a load that started
+    // earlier can tell its result may be stale
+    private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    public UrlMappingCache(long maximumSize, Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached mapping for the code, filling it from the loader on a miss.
+     * Concurrent misses for the same code share a single load.
+     */
+    public Optional<UrlMappingEntity> get(String shortCode,
+                                          Function<String, Optional<UrlMappingEntity>> loader) {
+        return cache.get(shortCode, loader);
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #get} for the reactive stack. A miss subscribes to
+     * {@code loader} outside the cache, so concurrent misses each load, and the result (an empty
+     * loader caches a miss) is kept only if no code of its stripe was invalidated while it loaded;
+     * otherwise a write that landed mid-read would be undone by the row read before it.
+     */
+    public Mono<Optional<UrlMappingEntity>> getOrLoad(String shortCode,
+                                                      Function<String, Mono<UrlMappingEntity>> loader) {
+        return Mono.defer(() -> {
+            Optional<UrlMappingEntity> cached = cache.getIfPresent(shortCode);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            int stripe = stripe(shortCode);
+            long version = invalidations.get(stripe);
+            return loader.apply(shortCode)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    // An invalidation bumps the counter before it removes the entry, so either this
+                    // sees the new count or the removal runs after the entry is in
+                    .doOnNext(loaded -> cache.asMap().compute(shortCode,
+                            (code, current) -> invalidations.get(stripe) == version ? loaded : current));
+        });
+    }
+
+    /**
+     * Non-loading lookup. Returns {@code null} when nothing is cached, or an empty Optional for a
+     * cached miss.
+     */
+    public Optional<UrlMappingEntity> getIfPresent(String shortCode) {
+        return cache.getIfPresent(shortCode);
+    }
+
+    /**
+     * Caches a mapping that was found. Only positive entries are put this way: a miss cached
+     * outside the loading {@code get} methods could race with a concurrent create and outlive its
+     * invalidation.
+     */
+    public void put(UrlMappingEntity mapping) {
+        cache.put(mapping.getShortCode(), Optional.of(mapping));
+    }
+
+    public void invalidate(String shortCode) {
+        invalidations.incrementAndGet(stripe(shortCode));
+        cache.invalidate(shortCode);
+    }
+
+    public void invalidateAll() {
+        for (int stripe = 0; stripe < INVALIDATION_STRIPES; stripe++) {
+            invalidations.incrementAndGet(stripe);
+        }
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public Cache<String, Optional<UrlMappingEntity>> nativeCache() {
+        return cache;
+    }
+
+    private static int stripe(String shortCode) {
+        return shortCode.hashCode() & (INVALIDATION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,225 @@
+package org.example.urlshortener.cluster;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the per-node caches of a multi-node deployment coherent. Every write of a mapping on
+ * this node is {@link #publish published} by short code; a background thread coalesces the codes
+ * published within {@code flushInterval} (a code written ten times is sent once) and sends them
+ * in batches of at most {@code batchSize} over the {@link InvalidationTransport}. Codes received
+ * from other nodes are handed to the {@code listener}, which drops them from this node's caches.
+ * <p>
+ * A read that raced with a remote write must not put what it read back into a cache after the
+ * invalidation went through. Each received code is therefore stamped with a local version; a
+ * reader takes {@link #version()} before going to the repository and only caches the result if
+ * {@link #changedSince} says no invalidation for that code arrived in between. Versions are kept
+ * for {@code versionRetention}, which must outlast any single read.
+ * <p>
+ * Invalidations must not be lost either: until a new code reaches a node, that node's Bloom filter
+ * rejects it and its cache may hold a miss for it. A batch the transport could not send is kept,
+ * with everything queued after it, and sent again on the next flush; sequences only advance on a
+ * successful send. A receiver that sees a node's sequence skip (a datagram lost on the way) no
+ * longer knows which codes it missed, so it runs {@code resync} and treats every read that began
+ * before the gap as {@link #changedSince changed}.
+ */
+public class ClusterInvalidationBus implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterInvalidationBus.class);
+
+    private final InvalidationTransport transport;
+    private final String nodeId;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Consumer<String> listener;
+    private final Runnable resync;
+    private final AtomicLong epoch = new AtomicLong();
+    private final Cache<String, Long> versions;
+    private final Map<String, Long> lastSequences = new ConcurrentHashMap<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder sentBatches = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder gaps = new LongAdder();
+    private volatile long resyncedAt = Long.MIN_VALUE;
+
+    // Guarded by this
+    private Set<String> pending = new LinkedHashSet<>();
+    // Flusher thread only
+    private long sequence;
+    private volatile Thread flusher;
+    private volatile boolean running;
+
+    public ClusterInvalidationBus(InvalidationTransport transport, String nodeId, int batchSize, Duration flushInterval,
+                                  Duration versionRetention, Consumer<String> listener, Runnable resync) {
+        this.transport = transport;
+        this.nodeId = nodeId;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.listener = listener;
+        this.resync = resync;
+        this.versions = Caffeine.newBuilder().expireAfterWrite(versionRetention).build();
+    }
+
+    /**
+     * Queues an invalidation of {@code shortCode} on the other nodes.
+     */
+    public void publish(String shortCode) {
+        boolean full;
+        synchronized (this) {
+            pending.add(shortCode);
+            full = pending.size() >= batchSize;
+        }
+        published.increment();
+        if (full) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * The current local version, to be taken before a read that may be cached.
+     */
+    public long version() {
+        return epoch.get();
+    }
+
+    /**
+     * Whether an invalidation of {@code shortCode}, or a gap that may have hidden one, arrived after
+     * {@link #version()} returned {@code version}.
+     */
+    public boolean changedSince(String shortCode, long version) {
+        if (resyncedAt > version) {
+            return true;
+        }
+        Long changed = versions.getIfPresent(shortCode);
+        return changed != null && changed > version;
+    }
+
+    void receive(InvalidationBatch batch) {
+        if (nodeId.equals(batch.nodeId())) {
+            return;
+        }
+        Long previous = lastSequences.put(batch.nodeId(), batch.sequence());
+        if (previous != null && batch.sequence() > previous + 1) {
+            gaps.increment();
+            log.warn("Missed {} invalidation batch(es) from node {}; resyncing",
+                    batch.sequence() - previous - 1, batch.nodeId());
+            resyncedAt = epoch.incrementAndGet();
+            resync.run();
+        }
+        for (String shortCode : batch.shortCodes()) {
+            // Stamp first: a reader checking after the invalidation must see the new version
+            versions.put(shortCode, epoch.incrementAndGet());
+            listener.accept(shortCode);
+        }
+        received.add(batch.shortCodes().size());
+    }
+
+    private void flushLoop() {
+        while (running) {
+            LockSupport.parkNanos(flushInterval.toNanos());
+            flush();
+        }
+        flush();
+    }
+
+    private void flush() {
+        List<String> shortCodes;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            shortCodes = new ArrayList<>(pending);
+            pending = new LinkedHashSet<>();
+        }
+        for (int from = 0; from < shortCodes.size(); from += batchSize) {
+            List<String> batch = List.copyOf(shortCodes.subList(from, Math.min(from + batchSize, shortCodes.size())));
+            try {
+                transport.send(new InvalidationBatch(nodeId, sequence + 1, batch));
+                sequence++;
+                sentBatches.increment();
+            } catch (RuntimeException e) {
+                failedBatches.increment();
+                requeue(shortCodes.subList(from, shortCodes.size()));
+                log.warn("Could not send an invalidation batch of {} codes; {} codes kept for the next flush",
+                        batch.size(), shortCodes.size() - from, e);
+                return;
+            }
+        }
+    }
+
+    // Ahead of what was published since, so the codes keep their place
+    private synchronized void requeue(List<String> shortCodes) {
+        Set<String> merged = new LinkedHashSet<>(shortCodes);
+        merged.addAll(pending);
+        pending = merged;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public long publishedCount() {
+        return published.sum();
+    }
+
+    public long receivedCount() {
+        return received.sum();
+    }
+
+    public long sentBatchCount() {
+        return sentBatches.sum();
+    }
+
+    public long failedBatchCount() {
+        return failedBatches.sum();
+    }
+
+    public long gapCount() {
+        return gaps.sum();
+    }
+
+    @Override
+    public void start() {
+        transport.start(this::receive);
+        running = true;
+        Thread thread = new Thread(this::flushLoop, "cluster-invalidation");
+        thread.setDaemon(true);
+        flusher = thread;
+        thread.start();
+        log.info("Cluster invalidation bus started as node {}", nodeId);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = flusher;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        transport.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
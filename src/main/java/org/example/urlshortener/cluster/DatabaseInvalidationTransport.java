@@ -0,0 +1,153 @@
+package org.example.urlshortener.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Relays invalidations through the {@code cache_invalidation} table of the database the nodes
+ * share: a batch is one multi-row insert, and every node polls the rows above its cursor each
+ * {@code pollInterval}. Identity values are assigned at insert but become visible at commit, so
+ * a row can appear below ids a poll has already passed. The cursor therefore trails the highest
+ * id seen by {@link #COMMIT_GRACE}, rows above it are re-read, and the ids already delivered are
+ * remembered until the cursor passes them. Rows older than {@code retention} are deleted.
+ */
+public class DatabaseInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseInvalidationTransport.class);
+
+    // Longest an insert may take from taking its identity value to committing
+    static final Duration COMMIT_GRACE = Duration.ofSeconds(2);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration pollInterval;
+    private final Duration retention;
+    private final int graceRounds;
+
+    // Poller thread only
+    private final Set<Long> delivered = new HashSet<>();
+    private final ArrayDeque<Long> highWaterMarks = new ArrayDeque<>();
+    private long cursor;
+
+    private Consumer<InvalidationBatch> receiver;
+    private ScheduledExecutorService scheduler;
+
+    public DatabaseInvalidationTransport(JdbcTemplate jdbcTemplate, Duration pollInterval, Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+        this.graceRounds = (int) Math.max(1, Math.ceil(COMMIT_GRACE.toNanos() / (double) pollInterval.toNanos()));
+    }
+
+    @Override
+    public void start(Consumer<InvalidationBatch> receiver) {
+        this.receiver = receiver;
+        // Earlier rows predate this node's caches
+        cursor = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from cache_invalidation", Long.class);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cluster-invalidation-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollQuietly, pollInterval.toMillis(), pollInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        long pruneMillis = Math.min(retention.toMillis(), Duration.ofMinutes(1).toMillis());
+        scheduler.scheduleWithFixedDelay(this::pruneQuietly, pruneMillis, pruneMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void send(InvalidationBatch batch) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "insert into cache_invalidation (node_id, batch_sequence, short_code, created_at) values (?, ?, ?, ?)",
+                batch.shortCodes(), batch.shortCodes().size(), (statement, shortCode) -> {
+                    statement.setString(1, batch.nodeId());
+                    statement.setLong(2, batch.sequence());
+                    statement.setString(3, shortCode);
+                    statement.setTimestamp(4, now);
+                });
+    }
+
+    @Override
+    public void stop() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void poll() {
+        List<Row> rows = jdbcTemplate.query(
+                "select id, node_id, batch_sequence, short_code from cache_invalidation where id > ? order by id",
+                (resultSet, rowNum) -> new Row(resultSet.getLong(1), resultSet.getString(2), resultSet.getLong(3),
+                        resultSet.getString(4)),
+                cursor);
+        long highest = cursor;
+        Row first = null;
+        List<String> shortCodes = new ArrayList<>();
+        for (Row row : rows) {
+            highest = Math.max(highest, row.id());
+            if (!delivered.add(row.id())) {
+                continue;
+            }
+            if (first != null && !(first.nodeId().equals(row.nodeId()) && first.sequence() == row.sequence())) {
+                receiver.accept(new InvalidationBatch(first.nodeId(), first.sequence(), shortCodes));
+                shortCodes = new ArrayList<>();
+            }
+            if (shortCodes.isEmpty()) {
+                first = row;
+            }
+            shortCodes.add(row.shortCode());
+        }
+        if (!shortCodes.isEmpty()) {
+            receiver.accept(new InvalidationBatch(first.nodeId(), first.sequence(), shortCodes));
+        }
+
+        highWaterMarks.addLast(highest);
+        if (highWaterMarks.size() > graceRounds) {
+            long settled = highWaterMarks.removeFirst();
+            if (settled > cursor) {
+                cursor = settled;
+                delivered.removeIf(id -> id <= settled);
+            }
+        }
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            log.warn("Polling cache invalidations failed, retrying with the next poll", e);
+        }
+    }
+
+    private void pruneQuietly() {
+        try {
+            int deleted = jdbcTemplate.update("delete from cache_invalidation where created_at < ?",
+                    Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+            if (deleted > 0) {
+                log.debug("Pruned {} cache invalidation row(s)", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Pruning cache invalidations failed, retrying with the next prune", e);
+        }
+    }
+
+    private record Row(long id, String nodeId, long sequence, String shortCode) {
+    }
+}
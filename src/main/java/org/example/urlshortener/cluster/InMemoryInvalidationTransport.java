@@ -0,0 +1,45 @@
+package org.example.urlshortener.cluster;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Connects the nodes running in one JVM (several application contexts in a test) through a
+ * named channel. Batches are handed to every receiver on the channel synchronously, on the
+ * sender's thread.
+ */
+public class InMemoryInvalidationTransport implements InvalidationTransport {
+
+    private static final Map<String, Set<Consumer<InvalidationBatch>>> CHANNELS = new ConcurrentHashMap<>();
+
+    private final String channel;
+    private Consumer<InvalidationBatch> receiver;
+
+    public InMemoryInvalidationTransport(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void start(Consumer<InvalidationBatch> receiver) {
+        this.receiver = receiver;
+        CHANNELS.computeIfAbsent(channel, name -> new CopyOnWriteArraySet<>()).add(receiver);
+    }
+
+    @Override
+    public void send(InvalidationBatch batch) {
+        for (Consumer<InvalidationBatch> member : CHANNELS.getOrDefault(channel, Set.of())) {
+            member.accept(batch);
+        }
+    }
+
+    @Override
+    public void stop() {
+        CHANNELS.computeIfPresent(channel, (name, members) -> {
+            members.remove(receiver);
+            return members.isEmpty() ? null : members;
+        });
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.urlshortener.cluster;
+
+import java.util.List;
+
+/**
+ * Short codes written on node {@code nodeId}, in its {@code sequence}-th batch. Sequences grow by
+ * one per batch, so a receiver can tell that a batch went missing.
+ */
+public record InvalidationBatch(String nodeId, long sequence, List<String> shortCodes) {
+}
@@ -0,0 +1,21 @@
+package org.example.urlshortener.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link InvalidationBatch}es between the nodes of a deployment for the
+ * {@link ClusterInvalidationBus}. Delivery is at-least-once or best-effort depending on the
+ * implementation, and a node may receive its own batches back.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Starts delivering the batches sent by any node to {@code receiver}, on a thread of the
+     * transport's choosing.
+     */
+    void start(Consumer<InvalidationBatch> receiver);
+
+    void send(InvalidationBatch batch);
+
+    void stop();
+}
@@ -0,0 +1,178 @@
+package org.example.urlshortener.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Sends invalidations as UDP datagrams to a multicast group on the local network, for nodes
+ * that share a network segment but no database. Batches are split so no datagram exceeds
+ * {@link #MAX_DATAGRAM_BYTES}, which keeps them within a typical MTU.
+ * <p>
+ * Delivery is best-effort, so each datagram carries a sequence of its own, one more than the
+ * sender's previous datagram, in place of the batch's. A lost datagram, whether a whole batch or one
+ * part of a split one, then shows up as a sequence gap when the sender's next datagram arrives,
+ * and the receiving {@link ClusterInvalidationBus} resyncs: it drops its cached mappings and
+ * reloads its Bloom filter instead of serving what the lost datagram invalidated. Until that next
+ * datagram, the receiver's entries stay as they were.
+ */
+public class MulticastInvalidationTransport implements InvalidationTransport {
+
+    private static final Logger log = LoggerFactory.getLogger(MulticastInvalidationTransport.class);
+
+    static final int MAX_DATAGRAM_BYTES = 1400;
+    private static final int MAGIC = 0x55524c49;
+
+    private final InetSocketAddress group;
+    private final NetworkInterface networkInterface;
+    private final int timeToLive;
+
+    private final AtomicLong datagramSequence = new AtomicLong();
+
+    private MulticastSocket socket;
+    private Thread listener;
+    private volatile boolean running;
+
+    /**
+     * @param networkInterface the interface to join the group on, or {@code null} for the
+     *                         system default
+     */
+    public MulticastInvalidationTransport(InetSocketAddress group, NetworkInterface networkInterface, int timeToLive) {
+        this.group = group;
+        this.networkInterface = networkInterface;
+        this.timeToLive = timeToLive;
+    }
+
+    @Override
+    public void start(Consumer<InvalidationBatch> receiver) {
+        try {
+            socket = new MulticastSocket(group.getPort());
+            socket.setTimeToLive(timeToLive);
+            if (networkInterface != null) {
+                socket.setNetworkInterface(networkInterface);
+            }
+            socket.joinGroup(group, networkInterface);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not join multicast group " + group, e);
+        }
+        running = true;
+        listener = new Thread(() -> listen(receiver), "cluster-invalidation-multicast");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public synchronized void send(InvalidationBatch batch) {
+        // Synchronized so datagrams leave in sequence order; a send that fails midway leaves a gap
+        try {
+            for (byte[] datagram : encode(batch, datagramSequence)) {
+                socket.send(new DatagramPacket(datagram, datagram.length, group));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        // Unblocks the listener's receive
+        socket.close();
+        try {
+            listener.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void listen(Consumer<InvalidationBatch> receiver) {
+        byte[] buffer = new byte[65_535];
+        while (running) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                InvalidationBatch batch = decode(packet.getData(), packet.getLength());
+                if (batch != null) {
+                    receiver.accept(batch);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("Receiving a cache invalidation datagram failed", e);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Applying a cache invalidation datagram failed", e);
+            }
+        }
+    }
+
+    /**
+     * Datagrams of {@code magic, nodeId, sequence, count, count x shortCode}, strings in modified
+     * UTF-8 with a two-byte length. Each takes the next sequence from {@code sequences}.
+     */
+    static List<byte[]> encode(InvalidationBatch batch, AtomicLong sequences) throws IOException {
+        int headerBytes = 4 + 2 + batch.nodeId().getBytes(StandardCharsets.UTF_8).length + 8 + 2;
+        List<byte[]> datagrams = new ArrayList<>();
+        List<String> part = new ArrayList<>();
+        int partBytes = headerBytes;
+        for (String shortCode : batch.shortCodes()) {
+            int codeBytes = 2 + shortCode.getBytes(StandardCharsets.UTF_8).length;
+            if (!part.isEmpty() && partBytes + codeBytes > MAX_DATAGRAM_BYTES) {
+                datagrams.add(datagram(batch.nodeId(), sequences.incrementAndGet(), part));
+                part.clear();
+                partBytes = headerBytes;
+            }
+            part.add(shortCode);
+            partBytes += codeBytes;
+        }
+        if (!part.isEmpty()) {
+            datagrams.add(datagram(batch.nodeId(), sequences.incrementAndGet(), part));
+        }
+        return datagrams;
+    }
+
+    /**
+     * The part of a batch in a datagram, under the datagram's sequence, or {@code null} if it was not written by {@link #encode}.
+     */
+    static InvalidationBatch decode(byte[] data, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 0, length));
+        if (length < 4 || in.readInt() != MAGIC) {
+            return null;
+        }
+        String nodeId = in.readUTF();
+        long sequence = in.readLong();
+        int count = in.readUnsignedShort();
+        List<String> shortCodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            shortCodes.add(in.readUTF());
+        }
+        return new InvalidationBatch(nodeId, sequence, shortCodes);
+    }
+
+    private static byte[] datagram(String nodeId, long sequence, List<String> shortCodes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(MAX_DATAGRAM_BYTES);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeUTF(nodeId);
+        out.writeLong(sequence);
+        out.writeShort(shortCodes.size());
+        for (String shortCode : shortCodes) {
+            out.writeUTF(shortCode);
+        }
+        return bytes.toByteArray();
+    }
+}
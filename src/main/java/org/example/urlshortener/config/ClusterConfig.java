@@ -0,0 +1,112 @@
+package org.example.urlshortener.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.urlshortener.cache.OffHeapRedirectIndex;
+import org.example.urlshortener.cache.ShortCodeBloomFilter;
+import org.example.urlshortener.cache.ShortCodeBloomFilterLoader;
+import org.example.urlshortener.cache.UrlMappingCache;
+import org.example.urlshortener.cluster.ClusterInvalidationBus;
+import org.example.urlshortener.cluster.DatabaseInvalidationTransport;
+import org.example.urlshortener.cluster.InMemoryInvalidationTransport;
+import org.example.urlshortener.cluster.InvalidationTransport;
+import org.example.urlshortener.cluster.MulticastInvalidationTransport;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Cache coherence between the nodes of a deployment, active unless {@code app.cluster.transport}
+ * is {@code none}.
+ */
+@Configuration
+@ConditionalOnExpression("'${app.cluster.transport:none}' != 'none'")
+public class ClusterConfig {
+
+    @Bean
+    public ClusterInvalidationBus clusterInvalidationBus(final InvalidationTransport invalidationTransport,
+                                                         final ShortCodeBloomFilter shortCodeBloomFilter,
+                                                         final ShortCodeBloomFilterLoader shortCodeBloomFilterLoader,
+                                                         final UrlMappingCache urlMappingCache,
+                                                         final ObjectProvider<OffHeapRedirectIndex> offHeapRedirectIndex,
+                                                         @Value("${app.cluster.node-id}") final String nodeId,
+                                                         @Value("${app.cluster.batch-size}") final int batchSize,
+                                                         @Value("${app.cluster.flush-interval}") final Duration flushInterval,
+                                                         @Value("${app.cluster.version-retention}") final Duration versionRetention,
+                                                         final MeterRegistry meterRegistry) {
+        OffHeapRedirectIndex redirectIndex = offHeapRedirectIndex.getIfAvailable();
+        ClusterInvalidationBus bus = new ClusterInvalidationBus(invalidationTransport,
+                nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId, batchSize, flushInterval, versionRetention,
+                shortCode -> {
+                    // Codes created elsewhere must pass this node's filter; for updates and deletes it is harmless
+                    shortCodeBloomFilter.put(shortCode);
+                    urlMappingCache.invalidate(shortCode);
+                    if (redirectIndex != null) {
+                        redirectIndex.remove(shortCode);
+                    }
+                },
+                () -> {
+                    // Missed codes may be absent from the filter and cached as misses. The redirect
+                    // index needs nothing: it only holds existing codes, each with its expiry
+                    shortCodeBloomFilterLoader.reload();
+                    urlMappingCache.invalidateAll();
+                });
+        FunctionCounter.builder("cluster.invalidations.published", bus, ClusterInvalidationBus::publishedCount)
+                .description("Mapping writes on this node announced to the other nodes, before coalescing")
+                .register(meterRegistry);
+        FunctionCounter.builder("cluster.invalidations.received", bus, ClusterInvalidationBus::receivedCount)
+                .description("Short codes invalidated on this node by writes on other nodes")
+                .register(meterRegistry);
+        FunctionCounter.builder("cluster.invalidation.batches.sent", bus, ClusterInvalidationBus::sentBatchCount)
+                .description("Coalesced invalidation batches sent")
+                .register(meterRegistry);
+        FunctionCounter.builder("cluster.invalidation.batches.failed", bus, ClusterInvalidationBus::failedBatchCount)
+                .description("Invalidation batch sends that failed; their codes are sent again on the next flush")
+                .register(meterRegistry);
+        FunctionCounter.builder("cluster.invalidation.gaps", bus, ClusterInvalidationBus::gapCount)
+                .description("Missing batch sequences observed from other nodes")
+                .register(meterRegistry);
+        return bus;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.transport", havingValue = "database")
+    public InvalidationTransport databaseInvalidationTransport(final JdbcTemplate jdbcTemplate,
+                                                               @Value("${app.cluster.database.poll-interval}") final Duration pollInterval,
+                                                               @Value("${app.cluster.database.retention}") final Duration retention) {
+        return new DatabaseInvalidationTransport(jdbcTemplate, pollInterval, retention);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.transport", havingValue = "multicast")
+    public InvalidationTransport multicastInvalidationTransport(@Value("${app.cluster.multicast.group}") final String group,
+                                                                @Value("${app.cluster.multicast.port}") final int port,
+                                                                @Value("${app.cluster.multicast.interface}") final String interfaceName,
+                                                                @Value("${app.cluster.multicast.time-to-live}") final int timeToLive)
+            throws SocketException {
+        NetworkInterface networkInterface = null;
+        if (!interfaceName.isBlank()) {
+            networkInterface = NetworkInterface.getByName(interfaceName);
+            if (networkInterface == null) {
+                throw new IllegalArgumentException("No network interface named " + interfaceName);
+            }
+        }
+        return new MulticastInvalidationTransport(new InetSocketAddress(group, port), networkInterface, timeToLive);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.transport", havingValue = "in-memory")
+    public InvalidationTransport inMemoryInvalidationTransport(@Value("${app.cluster.in-memory.channel}") final String channel) {
+        return new InMemoryInvalidationTransport(channel);
+    }
+}
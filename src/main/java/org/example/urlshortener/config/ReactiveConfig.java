@@ -0,0 +1,123 @@
+package org.example.urlshortener.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.example.urlshortener.analytics.ClickAnalytics;
+import org.example.urlshortener.cache.OffHeapRedirectIndex;
+import org.example.urlshortener.cache.ShortCodeBloomFilter;
+import org.example.urlshortener.cache.UrlMappingCache;
+import org.example.urlshortener.cluster.ClusterInvalidationBus;
+import org.example.urlshortener.controller.ReactiveRedirectHeaders;
+import org.example.urlshortener.controller.URLShortenerHandler;
+import org.example.urlshortener.ratelimit.ClientRateLimiter;
+import org.example.urlshortener.replica.ReplicaReads;
+import org.example.urlshortener.repository.ReactiveUrlMappingRepository;
+import org.example.urlshortener.service.ReactiveURLShortenerService;
+import org.example.urlshortener.service.URLShortenerMetrics;
+import org.example.urlshortener.service.URLShortenerService;
+import org.example.urlshortener.strategy.ShortCodeStrategy;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.example.urlshortener.writebehind.WriteBehindWriter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Non-blocking WebFlux + R2DBC stack, active when the application runs as a reactive web
+ * application (the {@code reactive} profile).
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig {
+
+    /**
+     * Tomcat stays on the classpath for the default servlet stack and would otherwise win the
+     * reactive server auto-configuration; serve the event loop from Netty instead.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * {@code DataSourceAutoConfiguration} backs off as soon as an R2DBC {@code ConnectionFactory}
+     * exists, but JPA still owns the schema, the startup jobs and the blocking endpoints.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(final DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * R2DBC reads the table the JPA engine writes, so any other engine, a write-behind journal or
+     * replica reads hand the calls to the blocking service instead.
+     */
+    @Bean
+    public ReactiveURLShortenerService reactiveUrlShortenerService(final ReactiveUrlMappingRepository reactiveUrlMappingRepository,
+                                                                   final R2dbcEntityTemplate r2dbcEntityTemplate,
+                                                                   final UrlMappingCache urlMappingCache,
+                                                                   final ShortCodeBloomFilter shortCodeBloomFilter,
+                                                                   final ShortCodeStrategy shortCodeStrategy,
+                                                                   final UrlCanonicalizer urlCanonicalizer,
+                                                                   final URLShortenerMetrics urlShortenerMetrics,
+                                                                   final URLShortenerService urlShortenerService,
+                                                                   @Value("${app.storage.engine}") final String storageEngine,
+                                                                   final ObjectProvider<OffHeapRedirectIndex> offHeapRedirectIndex,
+                                                                   final ObjectProvider<ClusterInvalidationBus> clusterInvalidationBus,
+                                                                   final ObjectProvider<WriteBehindWriter> writeBehindWriter,
+                                                                   final ObjectProvider<ReplicaReads> replicaReads) {
+        if (!"jpa".equals(storageEngine) || writeBehindWriter.getIfAvailable() != null
+                || replicaReads.getIfAvailable() != null) {
+            return ReactiveURLShortenerService.offloading(urlShortenerService);
+        }
+        return new ReactiveURLShortenerService(reactiveUrlMappingRepository, r2dbcEntityTemplate, urlMappingCache,
+                shortCodeBloomFilter, shortCodeStrategy, urlCanonicalizer, urlShortenerMetrics,
+                offHeapRedirectIndex.getIfAvailable(), clusterInvalidationBus.getIfAvailable());
+    }
+
+    @Bean
+    public ReactiveRedirectHeaders reactiveRedirectHeaders(@Value("${app.redirect.status}") final int status,
+                                                           @Value("${app.redirect.cache-control}") final String cacheControl) {
+        return new ReactiveRedirectHeaders(HttpStatus.valueOf(status), cacheControl);
+    }
+
+    @Bean
+    public URLShortenerHandler urlShortenerHandler(final ReactiveURLShortenerService reactiveUrlShortenerService,
+                                                   final ClickAnalytics clickAnalytics,
+                                                   final ReactiveRedirectHeaders reactiveRedirectHeaders,
+                                                   final ObjectProvider<ClientRateLimiter> clientRateLimiter) {
+        return new URLShortenerHandler(reactiveUrlShortenerService, clickAnalytics, reactiveRedirectHeaders,
+                clientRateLimiter.getIfAvailable());
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> urlShortenerRoutes(final URLShortenerHandler handler) {
+        return routes(handler);
+    }
+
+    public static RouterFunction<ServerResponse> routes(URLShortenerHandler handler) {
+        return route(POST("/shorten"), handler::createShortUrl)
+                .andRoute(GET("/info/{shortCode}"), handler::getUrlMapping)
+                .andRoute(GET("/stats/{shortCode}"), handler::getClickStats)
+                .andRoute(GET("/{shortCode}"), handler::redirectToOriginalUrl);
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.urlshortener.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.urlshortener.replica.ReplicaReads;
+import org.example.urlshortener.replica.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read replicas of {@code spring.datasource}, active when {@code app.replica.enabled} is set.
+ * Replaces the auto-configured data source with one that sends read-only transactions to the
+ * replicas and everything else to the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.replica.enabled", havingValue = "true")
+public class ReplicaConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(final DataSourceProperties dataSourceProperties,
+                                                             @Value("${app.replica.urls}") final List<String> urls,
+                                                             @Value("${app.replica.username}") final String username,
+                                                             @Value("${app.replica.password}") final String password,
+                                                             @Value("${app.replica.pool-size}") final int poolSize,
+                                                             @Value("${app.replica.health-check-interval}") final Duration healthCheckInterval,
+                                                             @Value("${app.replica.health-check-timeout}") final Duration healthCheckTimeout,
+                                                             final MeterRegistry meterRegistry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            String name = "replica" + replicas.size();
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName(name);
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            // A replica that is down fails over to the primary after this, not Hikari's 30 seconds
+            replica.setConnectionTimeout(Math.max(250, healthCheckTimeout.toMillis()));
+            replica.setMetricRegistry(meterRegistry);
+            replicas.put(name, replica);
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, healthCheckInterval,
+                healthCheckTimeout);
+        Gauge.builder("replica.healthy", routing, ReplicaRoutingDataSource::healthyReplicaCount)
+                .description("Read replicas currently taking reads")
+                .register(meterRegistry);
+        FunctionCounter.builder("replica.failovers", routing, ReplicaRoutingDataSource::failoverCount)
+                .description("Reads sent to another replica or the primary because a replica was unavailable")
+                .register(meterRegistry);
+        for (String target : routing.targetNames()) {
+            FunctionCounter.builder("replica.connections", routing, r -> r.connectionCount(target))
+                    .tag("target", target)
+                    .description("Connections handed out by the routing data source")
+                    .register(meterRegistry);
+        }
+        return routing;
+    }
+
+    // Picks the target at the first statement, when the transaction's read-only flag is known
+    @Bean
+    @Primary
+    public DataSource dataSource(final ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaReads replicaReads(final PlatformTransactionManager transactionManager,
+                                     @Value("${app.replica.read-your-writes-window}") final Duration readYourWritesWindow,
+                                     @Value("${app.replica.read-your-writes-max-keys}") final long maxKeys,
+                                     final MeterRegistry meterRegistry) {
+        ReplicaReads replicaReads = new ReplicaReads(transactionManager, readYourWritesWindow, maxKeys);
+        FunctionCounter.builder("replica.primary.reads", replicaReads, ReplicaReads::primaryReadCount)
+                .description("Lookups read from the primary: codes written recently, or missing on a replica")
+                .register(meterRegistry);
+        return replicaReads;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.urlshortener.config;
+
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.UpgradeProtocol;
+import org.apache.coyote.http11.Http11Nio2Protocol;
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.apache.coyote.http2.Http2Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Embedded Tomcat connector settings Spring Boot has no property for: the connector
+ * implementation ({@code app.server.connector}) and the HTTP/2 limits applied when
+ * {@code server.http2.enabled} is set. Over plain HTTP that is h2c, taken up by clients through
+ * an {@code Upgrade: h2c} request or with prior knowledge. The {@code high-throughput} profile
+ * sets these together with the connection limits Spring Boot does cover under {@code server.tomcat}.
+ */
+@Configuration
+@ConditionalOnClass(Tomcat.class)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ServerConfig {
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> tomcatConnectorCustomizer(
+            @Value("${app.server.connector}") final String connector,
+            @Value("${app.server.http2.max-concurrent-streams}") final long maxConcurrentStreams,
+            @Value("${app.server.http2.max-concurrent-stream-execution}") final int maxConcurrentStreamExecution,
+            @Value("${app.server.http2.keep-alive-timeout}") final Duration keepAliveTimeout) {
+        String protocol = switch (connector) {
+            case "nio" -> Http11NioProtocol.class.getName();
+            case "nio2" -> Http11Nio2Protocol.class.getName();
+            default -> throw new IllegalArgumentException("Unknown app.server.connector: " + connector);
+        };
+        return factory -> {
+            factory.setProtocol(protocol);
+            // Runs after Spring Boot has added the HTTP/2 upgrade protocol, if enabled
+            factory.addConnectorCustomizers(tomcatConnector -> {
+                for (UpgradeProtocol upgradeProtocol : tomcatConnector.findUpgradeProtocols()) {
+                    if (upgradeProtocol instanceof Http2Protocol http2) {
+                        http2.setMaxConcurrentStreams(maxConcurrentStreams);
+                        http2.setMaxConcurrentStreamExecution(maxConcurrentStreamExecution);
+                        http2.setKeepAliveTimeout(keepAliveTimeout.toMillis());
+                    }
+                }
+            });
+        };
+    }
+}
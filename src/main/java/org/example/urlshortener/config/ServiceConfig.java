@@ -1,9 +1,75 @@
 package org.example.urlshortener.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.urlshortener.analytics.ClickAggregator;
+import org.example.urlshortener.analytics.ClickAnalytics;
+import org.example.urlshortener.analytics.ClickEventBuffer;
+import org.example.urlshortener.cache.HotMappingPreloader;
+import org.example.urlshortener.cache.OffHeapRedirectIndex;
+import org.example.urlshortener.cache.OffHeapRedirectIndexLoader;
+import org.example.urlshortener.cache.ShortCodeBloomFilter;
+import org.example.urlshortener.cache.ShortCodeBloomFilterLoader;
+import org.example.urlshortener.cache.UrlMappingCache;
+import org.example.urlshortener.cluster.ClusterInvalidationBus;
+import org.example.urlshortener.controller.RedirectFilter;
+import org.example.urlshortener.controller.RedirectHeaders;
+import org.example.urlshortener.expiry.ExpiredMappingSweeper;
+import org.example.urlshortener.migration.UrlCanonicalBackfill;
+import org.example.urlshortener.migration.UrlDigestBackfill;
+import org.example.urlshortener.ratelimit.Budget;
+import org.example.urlshortener.ratelimit.ClientRateLimiter;
+import org.example.urlshortener.ratelimit.TokenBucketRateLimiter;
+import org.example.urlshortener.replica.ReplicaReads;
+import org.example.urlshortener.repository.MigrationMarkerRepository;
+import org.example.urlshortener.repository.ShortCodeSequenceRepository;
+import org.example.urlshortener.repository.UrlClickStatsRepository;
 import org.example.urlshortener.repository.UrlMappingRepository;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.service.URLShortenerMetrics;
 import org.example.urlshortener.service.URLShortenerService;
+import org.example.urlshortener.storage.LogStructuredMappingStore;
+import org.example.urlshortener.storage.LogStructuredUrlMappingRepository;
+import org.example.urlshortener.storage.MappingJournal;
+import org.example.urlshortener.storage.ShardedUrlMappingRepository;
+import org.example.urlshortener.strategy.DatabaseIdBlockAllocator;
+import org.example.urlshortener.strategy.HashShortCodeStrategy;
+import org.example.urlshortener.strategy.RangeShortCodeStrategy;
+import org.example.urlshortener.strategy.ShortCodeStrategy;
+import org.example.urlshortener.transfer.MappingTransfer;
+import org.example.urlshortener.util.ShortCodeAlphabet;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.example.urlshortener.writebehind.WriteBehindWriter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import javax.sql.DataSource;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 
 @Configuration
@@ -12,8 +78,405 @@ public class ServiceConfig {
 
 
     @Bean
-    public URLShortenerService urlShortenerService(final UrlMappingRepository urlMappingRepository) {
-        return new URLShortenerService(urlMappingRepository);
+    public URLShortenerService urlShortenerService(final UrlMappingStore urlMappingStore,
+                                                   final UrlMappingCache urlMappingCache,
+                                                   final ShortCodeBloomFilter shortCodeBloomFilter,
+                                                   final ShortCodeStrategy shortCodeStrategy,
+                                                   final TransactionTemplate transactionTemplate,
+                                                   final URLShortenerMetrics urlShortenerMetrics,
+                                                   final UrlCanonicalizer urlCanonicalizer,
+                                                   final ObjectProvider<OffHeapRedirectIndex> offHeapRedirectIndex,
+                                                   final ObjectProvider<ClusterInvalidationBus> clusterInvalidationBus,
+                                                   final ObjectProvider<WriteBehindWriter> writeBehindWriter,
+                                                   final ObjectProvider<ReplicaReads> replicaReads) {
+        return new URLShortenerService(urlMappingStore, urlMappingCache, shortCodeBloomFilter, shortCodeStrategy,
+                transactionTemplate, urlShortenerMetrics, urlCanonicalizer, offHeapRedirectIndex.getIfAvailable(),
+                clusterInvalidationBus.getIfAvailable(), writeBehindWriter.getIfAvailable(),
+                replicaReads.getIfAvailable());
+    }
+
+    @Bean
+    public UrlCanonicalizer urlCanonicalizer(@Value("${app.canonical.sort-query}") final boolean sortQuery,
+                                             @Value("${app.canonical.strip-params}") final List<String> stripParams) {
+        return new UrlCanonicalizer(sortQuery, stripParams);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.write-behind.enabled", havingValue = "true")
+    public WriteBehindWriter writeBehindWriter(final UrlMappingStore urlMappingStore,
+                                               final TransactionTemplate transactionTemplate,
+                                               final ObjectProvider<ClusterInvalidationBus> clusterInvalidationBus,
+                                               @Value("${app.write-behind.directory}") final Path directory,
+                                               @Value("${app.write-behind.segment-size}") final DataSize segmentSize,
+                                               @Value("${app.write-behind.flush-size}") final int flushSize,
+                                               @Value("${app.write-behind.flush-interval}") final Duration flushInterval,
+                                               @Value("${app.write-behind.max-pending}") final int maxPending,
+                                               @Value("${app.write-behind.enqueue-timeout}") final Duration enqueueTimeout,
+                                               @Value("${app.write-behind.replay-timeout}") final Duration replayTimeout,
+                                               final MeterRegistry meterRegistry) {
+        WriteBehindWriter writer = new WriteBehindWriter(new MappingJournal(directory, segmentSize.toBytes()),
+                urlMappingStore, transactionTemplate, clusterInvalidationBus.getIfAvailable(), flushSize,
+                flushInterval, maxPending, enqueueTimeout, replayTimeout);
+        Gauge.builder("writebehind.pending", writer, WriteBehindWriter::pendingCount)
+                .description("Journaled mappings not yet written to the repository")
+                .register(meterRegistry);
+        FunctionCounter.builder("writebehind.journal.syncs", writer, WriteBehindWriter::journalSyncCount)
+                .description("Journal forces, each acknowledging every create waiting for it")
+                .register(meterRegistry);
+        FunctionCounter.builder("writebehind.persisted", writer, WriteBehindWriter::persistedCount)
+                .description("Journaled mappings written to the repository")
+                .register(meterRegistry);
+        FunctionCounter.builder("writebehind.flushes", writer, WriteBehindWriter::flushCount)
+                .description("Batches written to the repository, one transaction each")
+                .register(meterRegistry);
+        FunctionCounter.builder("writebehind.flushes.failed", writer, WriteBehindWriter::failedFlushCount)
+                .description("Batch writes that failed and were retried")
+                .register(meterRegistry);
+        FunctionCounter.builder("writebehind.conflicts", writer, WriteBehindWriter::conflictCount)
+                .description("Journaled mappings whose code or URL was written elsewhere first")
+                .register(meterRegistry);
+        FunctionCounter.builder("writebehind.refused", writer, WriteBehindWriter::refusedCount)
+                .description("Creates refused with 503 because max-pending mappings were waiting")
+                .register(meterRegistry);
+        return writer;
+    }
+
+    @Bean
+    public URLShortenerMetrics urlShortenerMetrics(final MeterRegistry meterRegistry) {
+        return new URLShortenerMetrics(meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.short-code.strategy", havingValue = "hash", matchIfMissing = true)
+    public ShortCodeStrategy hashShortCodeStrategy(final UrlMappingStore urlMappingStore,
+                                                   final ObjectProvider<WriteBehindWriter> writeBehindWriter,
+                                                   final MeterRegistry meterRegistry) {
+        HashShortCodeStrategy strategy = new HashShortCodeStrategy(urlMappingStore,
+                writeBehindWriter.getIfAvailable());
+        FunctionCounter.builder("shortcode.collisions", strategy, HashShortCodeStrategy::collisionCount)
+                .description("Hash candidates rejected because the code was already taken")
+                .register(meterRegistry);
+        return strategy;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.short-code.strategy", havingValue = "range")
+    public ShortCodeStrategy rangeShortCodeStrategy(final ShortCodeSequenceRepository shortCodeSequenceRepository,
+                                                    final TransactionTemplate transactionTemplate,
+                                                    @Value("${app.short-code.alphabet}") final ShortCodeAlphabet alphabet,
+                                                    @Value("${app.short-code.block-size}") final int blockSize,
+                                                    @Value("${app.short-code.shuffle}") final boolean shuffle,
+                                                    @Value("${app.short-code.shuffle-key}") final long shuffleKey) {
+        return new RangeShortCodeStrategy(new DatabaseIdBlockAllocator(shortCodeSequenceRepository, transactionTemplate),
+                alphabet, blockSize, shuffle, shuffleKey);
+    }
+
+    @Bean
+    public UrlMappingCache urlMappingCache(@Value("${app.cache.maximum-size}") final long maximumSize,
+                                           @Value("${app.cache.expire-after-write}") final Duration expireAfterWrite,
+                                           final MeterRegistry meterRegistry) {
+        UrlMappingCache cache = new UrlMappingCache(maximumSize, expireAfterWrite);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.nativeCache(), "url-mapping");
+        return cache;
+    }
+
+    @Bean
+    public ShortCodeBloomFilter shortCodeBloomFilter(@Value("${app.bloom-filter.expected-insertions}") final long expectedInsertions,
+                                                     @Value("${app.bloom-filter.false-positive-rate}") final double falsePositiveRate,
+                                                     final MeterRegistry meterRegistry) {
+        ShortCodeBloomFilter filter = new ShortCodeBloomFilter(expectedInsertions, falsePositiveRate);
+        Gauge.builder("bloom.filter.elements", filter, ShortCodeBloomFilter::approximateElementCount)
+                .description("Approximate number of short codes added to the filter")
+                .register(meterRegistry);
+        Gauge.builder("bloom.filter.memory", filter, ShortCodeBloomFilter::memoryBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("bloom.filter.stages", filter, ShortCodeBloomFilter::stageCount)
+                .register(meterRegistry);
+        Gauge.builder("bloom.filter.false.positive.rate", filter, ShortCodeBloomFilter::expectedFalsePositiveRate)
+                .description("Expected false-positive rate at the current fill level")
+                .register(meterRegistry);
+        FunctionCounter.builder("bloom.filter.rejections", filter, ShortCodeBloomFilter::rejectionCount)
+                .description("Lookups answered as not found without touching the database")
+                .register(meterRegistry);
+        return filter;
+    }
+
+    @Bean
+    public ShortCodeBloomFilterLoader shortCodeBloomFilterLoader(final UrlMappingStore urlMappingStore,
+                                                                 final ShortCodeBloomFilter shortCodeBloomFilter,
+                                                                 @Value("${app.bloom-filter.rebuild-page-size}") final int pageSize) {
+        return new ShortCodeBloomFilterLoader(urlMappingStore, shortCodeBloomFilter, pageSize);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.redirect-index.enabled", havingValue = "true")
+    public OffHeapRedirectIndex offHeapRedirectIndex(@Value("${app.redirect-index.initial-capacity}") final long initialCapacity,
+                                                     @Value("${app.redirect-index.slab-size}") final DataSize slabSize,
+                                                     final MeterRegistry meterRegistry) {
+        OffHeapRedirectIndex index = new OffHeapRedirectIndex(initialCapacity, (int) slabSize.toBytes());
+        Gauge.builder("redirect.index.entries", index, OffHeapRedirectIndex::size)
+                .description("Short codes held in the off-heap redirect index")
+                .register(meterRegistry);
+        Gauge.builder("redirect.index.memory", index, OffHeapRedirectIndex::memoryBytes)
+                .baseUnit("bytes")
+                .description("Direct memory held by the index table and URL slabs")
+                .register(meterRegistry);
+        FunctionCounter.builder("redirect.index.misses", index, OffHeapRedirectIndex::missCount)
+                .description("Redirects the index could not answer after its startup load")
+                .register(meterRegistry);
+        return index;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.redirect-index.enabled", havingValue = "true")
+    public OffHeapRedirectIndexLoader offHeapRedirectIndexLoader(final UrlMappingStore urlMappingStore,
+                                                                 final OffHeapRedirectIndex offHeapRedirectIndex,
+                                                                 @Value("${app.redirect-index.load-page-size}") final int pageSize) {
+        return new OffHeapRedirectIndexLoader(urlMappingStore, offHeapRedirectIndex, pageSize);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.preload.enabled", havingValue = "true", matchIfMissing = true)
+    public HotMappingPreloader hotMappingPreloader(final UrlClickStatsRepository urlClickStatsRepository,
+                                                   final UrlMappingStore urlMappingStore,
+                                                   final UrlMappingCache urlMappingCache,
+                                                   @Value("${app.preload.top-n}") final int topN,
+                                                   @Value("${app.preload.window}") final Duration window,
+                                                   @Value("${app.preload.batch-size}") final int batchSize,
+                                                   @Value("${app.preload.parallelism}") final int parallelism,
+                                                   @Value("${app.preload.timeout}") final Duration timeout,
+                                                   final MeterRegistry meterRegistry) {
+        HotMappingPreloader preloader = new HotMappingPreloader(urlClickStatsRepository, urlMappingStore,
+                urlMappingCache, topN, window, batchSize, parallelism, timeout);
+        Gauge.builder("cache.preload.mappings", preloader, HotMappingPreloader::loadedCount)
+                .description("Hot mappings loaded into the redirect cache before the instance reported ready")
+                .register(meterRegistry);
+        TimeGauge.builder("cache.preload.duration", preloader, TimeUnit.MILLISECONDS, HotMappingPreloader::durationMillis)
+                .description("Time the startup preload of hot mappings took")
+                .register(meterRegistry);
+        return preloader;
+    }
+
+    @Bean
+    public ClickAnalytics clickAnalytics(final UrlClickStatsRepository urlClickStatsRepository,
+                                         final JdbcTemplate jdbcTemplate,
+                                         @Value("${app.analytics.buffer-capacity}") final int bufferCapacity,
+                                         @Value("${app.analytics.consumers}") final int consumers,
+                                         @Value("${app.analytics.flush-interval}") final Duration flushInterval,
+                                         @Value("${app.analytics.stats-buckets}") final int statsBuckets,
+                                         final MeterRegistry meterRegistry) {
+        ClickEventBuffer buffer = new ClickEventBuffer(bufferCapacity);
+        ClickAnalytics analytics = new ClickAnalytics(buffer, new ClickAggregator(), urlClickStatsRepository,
+                jdbcTemplate, consumers, flushInterval, statsBuckets);
+        Gauge.builder("clicks.buffer.size", buffer, ClickEventBuffer::size)
+                .description("Click events waiting for a consumer")
+                .register(meterRegistry);
+        FunctionCounter.builder("clicks.dropped", buffer, ClickEventBuffer::droppedCount)
+                .description("Click events dropped because the buffer was full")
+                .register(meterRegistry);
+        FunctionCounter.builder("clicks.flushed.buckets", analytics, ClickAnalytics::flushedBucketCount)
+                .description("Per-code, per-minute click buckets upserted into url_click_stats")
+                .register(meterRegistry);
+        return analytics;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+    public ClientRateLimiter clientRateLimiter(@Value("${app.rate-limit.api-key-header}") final String apiKeyHeader,
+                                               @Value("${app.rate-limit.max-clients}") final long maxClients,
+                                               @Value("${app.rate-limit.create.permits-per-second}") final double createRate,
+                                               @Value("${app.rate-limit.create.burst}") final int createBurst,
+                                               @Value("${app.rate-limit.create.urls-per-permit}") final int urlsPerPermit,
+                                               @Value("${app.rate-limit.redirect.permits-per-second}") final double redirectRate,
+                                               @Value("${app.rate-limit.redirect.burst}") final int redirectBurst,
+                                               final MeterRegistry meterRegistry) {
+        ClientRateLimiter rateLimiter = new ClientRateLimiter(
+                new TokenBucketRateLimiter(createRate, createBurst, maxClients),
+                new TokenBucketRateLimiter(redirectRate, redirectBurst, maxClients), apiKeyHeader, urlsPerPermit);
+        for (Budget budget : Budget.values()) {
+            String tag = budget.name().toLowerCase(Locale.ROOT);
+            TokenBucketRateLimiter limiter = rateLimiter.limiter(budget);
+            FunctionCounter.builder("ratelimit.rejected", limiter, TokenBucketRateLimiter::rejectedCount)
+                    .tag("budget", tag)
+                    .description("Requests refused with 429 because the client had no permit left")
+                    .register(meterRegistry);
+            Gauge.builder("ratelimit.clients", limiter, TokenBucketRateLimiter::clientCount)
+                    .tag("budget", tag)
+                    .description("Clients with a token bucket held in memory")
+                    .register(meterRegistry);
+        }
+        return rateLimiter;
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public RedirectHeaders redirectHeaders(@Value("${app.redirect.status}") final int status,
+                                           @Value("${app.redirect.cache-control}") final String cacheControl) {
+        return new RedirectHeaders(HttpStatus.valueOf(status), cacheControl);
+    }
+
+    // Ahead of every other filter: redirects skip the MVC dispatcher and the request observation
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(name = "app.redirect.fast-path", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<RedirectFilter> redirectFilter(final URLShortenerService urlShortenerService,
+                                                                 final ClickAnalytics clickAnalytics,
+                                                                 final ObjectMapper objectMapper,
+                                                                 final RedirectHeaders redirectHeaders,
+                                                                 final ObjectProvider<ClientRateLimiter> clientRateLimiter) {
+        FilterRegistrationBean<RedirectFilter> registration = new FilterRegistrationBean<>(new RedirectFilter(
+                urlShortenerService, clickAnalytics, objectMapper, redirectHeaders, clientRateLimiter.getIfAvailable()));
+        registration.addUrlPatterns("/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public ExpiredMappingSweeper expiredMappingSweeper(final UrlMappingStore urlMappingStore,
+                                                       final UrlMappingCache urlMappingCache,
+                                                       final ObjectProvider<OffHeapRedirectIndex> offHeapRedirectIndex,
+                                                       final ObjectProvider<ClusterInvalidationBus> clusterInvalidationBus,
+                                                       @Value("${app.expiry.sweep-interval}") final Duration sweepInterval,
+                                                       @Value("${app.expiry.batch-size}") final int batchSize,
+                                                       @Value("${app.expiry.batch-pause}") final Duration batchPause,
+                                                       final MeterRegistry meterRegistry) {
+        ExpiredMappingSweeper sweeper = new ExpiredMappingSweeper(urlMappingStore, urlMappingCache,
+                offHeapRedirectIndex.getIfAvailable(), clusterInvalidationBus.getIfAvailable(), sweepInterval, batchSize,
+                batchPause);
+        FunctionCounter.builder("expiry.purged", sweeper, ExpiredMappingSweeper::purgedCount)
+                .description("Expired mappings deleted by the sweeper")
+                .register(meterRegistry);
+        FunctionTimer.builder("expiry.sweep.batches", sweeper, ExpiredMappingSweeper::batchCount,
+                        ExpiredMappingSweeper::batchSeconds, TimeUnit.SECONDS)
+                .description("Delete batches run by the sweeper and the time spent in them")
+                .register(meterRegistry);
+        Gauge.builder("expiry.sweep.batch.size", sweeper, ExpiredMappingSweeper::batchSize)
+                .description("Configured maximum rows deleted per batch")
+                .register(meterRegistry);
+        Gauge.builder("expiry.sweep.interval", sweepInterval, Duration::toSeconds)
+                .baseUnit("seconds")
+                .description("Configured delay between sweeps")
+                .register(meterRegistry);
+        return sweeper;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.engine", havingValue = "jpa", matchIfMissing = true)
+    public UrlDigestBackfill urlDigestBackfill(final UrlMappingRepository urlMappingRepository,
+                                               final TransactionTemplate transactionTemplate,
+                                               @Value("${app.migration.page-size}") final int pageSize) {
+        return new UrlDigestBackfill(urlMappingRepository, transactionTemplate, pageSize);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${app.migration.canonicalize-legacy:true} and '${app.storage.engine:jpa}' == 'jpa'")
+    public UrlCanonicalBackfill urlCanonicalBackfill(final UrlMappingRepository urlMappingRepository,
+                                                     final MigrationMarkerRepository migrationMarkerRepository,
+                                                     final TransactionTemplate transactionTemplate,
+                                                     final UrlCanonicalizer urlCanonicalizer,
+                                                     @Value("${app.migration.page-size}") final int pageSize) {
+        return new UrlCanonicalBackfill(urlMappingRepository, migrationMarkerRepository, transactionTemplate,
+                urlCanonicalizer, pageSize);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.transfer.enabled", havingValue = "true", matchIfMissing = true)
+    public MappingTransfer mappingTransfer(final UrlMappingStore urlMappingStore,
+                                           final URLShortenerService urlShortenerService,
+                                           final ObjectMapper objectMapper,
+                                           final UrlCanonicalizer urlCanonicalizer,
+                                           @Value("${app.transfer.page-size}") final int pageSize,
+                                           @Value("${app.transfer.batch-size}") final int batchSize,
+                                           @Value("${app.transfer.queue-depth}") final int queueDepth,
+                                           final MeterRegistry meterRegistry) {
+        MappingTransfer transfer = new MappingTransfer(urlMappingStore, urlShortenerService, objectMapper,
+                urlCanonicalizer, pageSize, batchSize, queueDepth);
+        FunctionCounter.builder("transfer.exported", transfer, MappingTransfer::exportedCount)
+                .description("Mappings written by /admin/export")
+                .register(meterRegistry);
+        FunctionCounter.builder("transfer.imported", transfer, MappingTransfer::importedCount)
+                .description("Mappings created by /admin/import")
+                .register(meterRegistry);
+        return transfer;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.engine", havingValue = "log")
+    public LogStructuredMappingStore logStructuredMappingStore(@Value("${app.storage.log.directory}") final Path directory,
+                                                               @Value("${app.storage.log.index-capacity}") final long indexCapacity,
+                                                               @Value("${app.storage.log.force-on-write}") final boolean forceOnWrite,
+                                                               @Value("${app.storage.log.checkpoint-interval}") final Duration checkpointInterval,
+                                                               @Value("${app.storage.log.compaction-threshold}") final double compactionThreshold,
+                                                               final MeterRegistry meterRegistry) {
+        LogStructuredMappingStore store = new LogStructuredMappingStore(directory, indexCapacity, forceOnWrite,
+                checkpointInterval, compactionThreshold);
+        Gauge.builder("storage.log.size", store, LogStructuredMappingStore::logBytes)
+                .baseUnit("bytes")
+                .description("Size of the current mapping log generation")
+                .register(meterRegistry);
+        Gauge.builder("storage.log.live", store, LogStructuredMappingStore::liveBytes)
+                .baseUnit("bytes")
+                .description("Bytes of the mapping log holding current records; the rest is reclaimed by compaction")
+                .register(meterRegistry);
+        Gauge.builder("storage.records", store, LogStructuredMappingStore::count)
+                .description("Live mappings in the log-structured store")
+                .register(meterRegistry);
+        FunctionCounter.builder("storage.compactions", store, LogStructuredMappingStore::compactionCount)
+                .description("Mapping log compactions completed since startup")
+                .register(meterRegistry);
+        return store;
+    }
+
+    // Replaces the JPA repository for mappings only; click stats and the range sequence stay in the database
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "app.storage.engine", havingValue = "log")
+    public UrlMappingStore logStructuredUrlMappingRepository(final LogStructuredMappingStore logStructuredMappingStore) {
+        return new LogStructuredUrlMappingRepository(logStructuredMappingStore);
+    }
+
+    // Mappings only, like the log engine; each shard gets its own connection pool
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "app.storage.engine", havingValue = "sharded")
+    public ShardedUrlMappingRepository shardedUrlMappingRepository(@Value("${app.storage.sharded.urls}") final List<String> urls,
+                                                                   @Value("${app.storage.sharded.username}") final String username,
+                                                                   @Value("${app.storage.sharded.password}") final String password,
+                                                                   @Value("${app.storage.sharded.pool-size}") final int poolSize,
+                                                                   @Value("${app.storage.sharded.virtual-nodes}") final int virtualNodes,
+                                                                   @Value("${app.storage.sharded.rebalance-page-size}") final int rebalancePageSize,
+                                                                   @Value("${app.storage.sharded.rebalance-on-start}") final boolean rebalanceOnStart,
+                                                                   final MeterRegistry meterRegistry) {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (String url : urls) {
+            String name = "shard" + dataSources.size();
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName(name);
+            dataSource.setJdbcUrl(url.trim());
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSources.put(name, dataSource);
+        }
+        ShardedUrlMappingRepository repository = new ShardedUrlMappingRepository(dataSources, virtualNodes,
+                rebalancePageSize, rebalanceOnStart);
+        Gauge.builder("storage.shards", repository, ShardedUrlMappingRepository::shardCount)
+                .description("Shards the mappings are spread over")
+                .register(meterRegistry);
+        Gauge.builder("storage.shard.rebalancing", repository, r -> r.isRebalancing() ? 1 : 0)
+                .description("1 while mappings are moved to the shards a changed ring assigns them")
+                .register(meterRegistry);
+        FunctionCounter.builder("storage.shard.moved", repository, ShardedUrlMappingRepository::movedCount)
+                .description("Mappings and URL routes moved between shards by rebalancing")
+                .register(meterRegistry);
+        for (String shard : dataSources.keySet()) {
+            Gauge.builder("storage.records", repository, r -> r.countsByShard().getOrDefault(shard, 0L))
+                    .tag("shard", shard)
+                    .description("Mappings stored on the shard")
+                    .register(meterRegistry);
+        }
+        return repository;
     }
 
 }
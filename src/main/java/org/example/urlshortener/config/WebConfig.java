@@ -0,0 +1,29 @@
+package org.example.urlshortener.config;
+
+import org.example.urlshortener.ratelimit.ClientRateLimiter;
+import org.example.urlshortener.ratelimit.RateLimitInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC additions: rate limits on {@link org.example.urlshortener.ratelimit.RateLimited}
+ * handlers while a {@link ClientRateLimiter} is configured.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<ClientRateLimiter> clientRateLimiter;
+
+    public WebConfig(ObjectProvider<ClientRateLimiter> clientRateLimiter) {
+        this.clientRateLimiter = clientRateLimiter;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        clientRateLimiter.ifAvailable(rateLimiter -> registry.addInterceptor(new RateLimitInterceptor(rateLimiter)));
+    }
+}
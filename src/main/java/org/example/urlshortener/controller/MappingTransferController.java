@@ -0,0 +1,84 @@
+package org.example.urlshortener.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.model.ImportResponse;
+import org.example.urlshortener.transfer.MappingFormat;
+import org.example.urlshortener.transfer.MappingTransfer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Bulk copy of the mapping table. {@code GET /admin/export} streams every mapping as NDJSON or
+ * binary ({@code format}), gzip-compressed with {@code Content-Encoding: gzip} when
+ * {@code gzip=true}. {@code POST /admin/import} reads the same formats, picked by the
+ * {@code Content-Type}, and honours {@code Content-Encoding: gzip}.
+ */
+@RestController
+@RequestMapping("/admin")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "app.transfer.enabled", havingValue = "true", matchIfMissing = true)
+public class MappingTransferController {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final MappingTransfer mappingTransfer;
+
+    public MappingTransferController(MappingTransfer mappingTransfer) {
+        this.mappingTransfer = mappingTransfer;
+    }
+
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "ndjson") String format,
+                       @RequestParam(defaultValue = "false") boolean gzip,
+                       HttpServletResponse response) throws IOException {
+        MappingFormat mappingFormat = MappingFormat.of(format);
+        response.setContentType(mappingFormat.contentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"mappings."
+                + mappingFormat.name().toLowerCase(Locale.ROOT) + (gzip ? ".gz" : "") + "\"");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        OutputStream body = response.getOutputStream();
+        OutputStream out = gzip ? new GZIPOutputStream(body, BUFFER_BYTES) : new BufferedOutputStream(body, BUFFER_BYTES);
+        mappingTransfer.export(out, mappingFormat);
+        out.close();
+    }
+
+    @PostMapping(value = "/import", consumes = {URLShortenerController.APPLICATION_NDJSON_VALUE,
+            MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ImportResponse importMappings(HttpServletRequest request) throws IOException {
+        MappingFormat format = MappingFormat.ofContentType(MediaType.parseMediaType(request.getContentType()));
+        InputStream body = request.getInputStream();
+        InputStream in;
+        if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING))) {
+            try {
+                in = new GZIPInputStream(body, BUFFER_BYTES);
+            } catch (ZipException e) {
+                throw new URLShortenerServiceException(HttpStatus.BAD_REQUEST, "Body is not gzip-compressed");
+            }
+        } else {
+            in = new BufferedInputStream(body, BUFFER_BYTES);
+        }
+        return mappingTransfer.importMappings(in, format);
+    }
+}
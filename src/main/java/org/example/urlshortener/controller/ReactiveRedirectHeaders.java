@@ -0,0 +1,34 @@
+package org.example.urlshortener.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * The WebFlux counterpart of {@link RedirectHeaders} for
+ * {@link URLShortenerHandler#redirectToOriginalUrl}: the same configured status and
+ * {@code Cache-Control} value (omitted when {@code null} or blank), so the reactive profile
+ * answers redirects like the servlet stack.
+ */
+public final class ReactiveRedirectHeaders {
+
+    private final HttpStatus status;
+    private final String cacheControl;
+
+    public ReactiveRedirectHeaders(HttpStatus status, @Nullable String cacheControl) {
+        this.status = RedirectHeaders.requireRedirect(status);
+        this.cacheControl = cacheControl == null || cacheControl.isBlank() ? null : cacheControl;
+    }
+
+    public Mono<ServerResponse> write(String location) {
+        ServerResponse.BodyBuilder response = ServerResponse.status(status).location(URI.create(location));
+        if (cacheControl != null) {
+            response.header(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        return response.build();
+    }
+}
@@ -0,0 +1,114 @@
+package org.example.urlshortener.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.urlshortener.analytics.ClickAnalytics;
+import org.example.urlshortener.exception.handler.ErrorResponse;
+import org.example.urlshortener.exception.handler.RateLimitExceededException;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.ratelimit.Budget;
+import org.example.urlshortener.ratelimit.ClientRateLimiter;
+import org.example.urlshortener.service.URLShortenerService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Answers {@code GET /{shortCode}} in front of the filter chain, skipping MVC dispatch, handler
+ * mapping, argument binding and exception advice. The path is matched by scanning its characters:
+ * a single segment of ASCII letters, digits, {@code -} or {@code _}, other than the application's
+ * own top-level paths. Anything else, including percent-encoded codes, falls through to the chain
+ * and so to {@link URLShortenerController}.
+ * <p>
+ * Hits get the {@link RedirectHeaders}: the configured redirect status, a {@code Location}
+ * header, the configured {@code Cache-Control} header and an empty body. Unknown and expired
+ * codes get the same JSON {@link ErrorResponse} the exception handler writes, and so do clients
+ * over their redirect budget, with {@code Retry-After}, when a {@link ClientRateLimiter} is given.
+ */
+public class RedirectFilter implements Filter {
+
+    private static final int MAX_CODE_LENGTH = 64;
+
+    // Single-segment paths served by something other than the redirect
+    private static final Set<String> RESERVED = Set.of("actuator", "error", "h2-console", "shorten", "swagger-ui",
+            "v3", "webjars");
+
+    private final URLShortenerService urlShortenerService;
+    private final ClickAnalytics clickAnalytics;
+    private final ObjectMapper objectMapper;
+    private final RedirectHeaders redirectHeaders;
+    private final ClientRateLimiter rateLimiter;
+
+    public RedirectFilter(URLShortenerService urlShortenerService, ClickAnalytics clickAnalytics,
+                          ObjectMapper objectMapper, RedirectHeaders redirectHeaders,
+                          @Nullable ClientRateLimiter rateLimiter) {
+        this.urlShortenerService = urlShortenerService;
+        this.clickAnalytics = clickAnalytics;
+        this.objectMapper = objectMapper;
+        this.redirectHeaders = redirectHeaders;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        String shortCode = shortCode((HttpServletRequest) request);
+        if (shortCode == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String originalUrl;
+        try {
+            if (rateLimiter != null) {
+                rateLimiter.check(Budget.REDIRECT, (HttpServletRequest) request);
+            }
+            originalUrl = urlShortenerService.getOriginalUrl(shortCode);
+        } catch (URLShortenerServiceException ex) {
+            if (ex instanceof RateLimitExceededException limited) {
+                httpResponse.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(limited.getRetryAfterSeconds()));
+            }
+            httpResponse.setStatus(ex.getStatus().value());
+            httpResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(httpResponse.getOutputStream(),
+                    new ErrorResponse("url-shortener-error", ex.getStatus().value(), ex.getMessage()));
+            return;
+        }
+        clickAnalytics.record(shortCode);
+        redirectHeaders.write(httpResponse, originalUrl);
+    }
+
+    /**
+     * The short code addressed by a {@code GET} or {@code HEAD} of {@code /{shortCode}}, or
+     * {@code null} when the request is for anything else.
+     */
+    static String shortCode(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return null;
+        }
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length() + 1;
+        int length = uri.length() - start;
+        if (length < 1 || length > MAX_CODE_LENGTH || uri.charAt(start - 1) != '/') {
+            return null;
+        }
+        for (int i = start; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return null;
+            }
+        }
+        String shortCode = uri.substring(start);
+        return RESERVED.contains(shortCode) ? null : shortCode;
+    }
+}
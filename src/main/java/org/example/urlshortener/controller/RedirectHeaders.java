@@ -0,0 +1,43 @@
+package org.example.urlshortener.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+
+/**
+ * The response to a redirect hit, settled once at startup: the configured status and
+ * {@code Cache-Control} value (omitted when {@code null} or blank) are held ready to write, so
+ * each redirect only adds its {@code Location}. Headers are added rather than set, since nothing
+ * else has written to a redirect's response, and the empty body is declared through the content
+ * length rather than a header string. Used by both {@link RedirectFilter} and
+ * {@link URLShortenerController#redirectToOriginalUrl}, so the two answer the same;
+ * {@link ReactiveRedirectHeaders} answers the same on the reactive profile.
+ */
+public final class RedirectHeaders {
+
+    private final int status;
+    private final String cacheControl;
+
+    public RedirectHeaders(HttpStatus status, @Nullable String cacheControl) {
+        this.status = requireRedirect(status).value();
+        this.cacheControl = cacheControl == null || cacheControl.isBlank() ? null : cacheControl;
+    }
+
+    static HttpStatus requireRedirect(HttpStatus status) {
+        if (status != HttpStatus.MOVED_PERMANENTLY && status != HttpStatus.FOUND && status != HttpStatus.SEE_OTHER
+                && status != HttpStatus.TEMPORARY_REDIRECT && status != HttpStatus.PERMANENT_REDIRECT) {
+            throw new IllegalArgumentException("Redirect status must be 301, 302, 303, 307 or 308, was " + status.value());
+        }
+        return status;
+    }
+
+    public void write(HttpServletResponse response, String location) {
+        response.setStatus(status);
+        response.addHeader(HttpHeaders.LOCATION, location);
+        if (cacheControl != null) {
+            response.addHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        response.setContentLength(0);
+    }
+}
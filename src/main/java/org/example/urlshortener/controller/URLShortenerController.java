@@ -1,41 +1,145 @@
 package org.example.urlshortener.controller;
 
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.urlshortener.analytics.ClickAnalytics;
+import org.example.urlshortener.exception.enumeration.UrlShortenerError;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.model.BatchShortenResponse;
+import org.example.urlshortener.model.ClickStatsResponse;
 import org.example.urlshortener.model.ShortenRequest;
 import org.example.urlshortener.model.ShortenResponse;
 import org.example.urlshortener.model.UrlMappingResponse;
+import org.example.urlshortener.ratelimit.Budget;
+import org.example.urlshortener.ratelimit.ClientRateLimiter;
+import org.example.urlshortener.ratelimit.RateLimited;
 import org.example.urlshortener.service.URLShortenerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
-import javax.servlet.http.HttpServletResponse;
-import javax.validation.Valid;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @Validated
 public class URLShortenerController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final URLShortenerService urlShortenerService;
+    private final ClickAnalytics clickAnalytics;
+    private final ObjectMapper objectMapper;
+    private final RedirectHeaders redirectHeaders;
+    private final int maxBatchSize;
+    @Nullable
+    private final ClientRateLimiter clientRateLimiter;
 
-    public URLShortenerController(URLShortenerService urlShortenerService) {
+    public URLShortenerController(URLShortenerService urlShortenerService, ClickAnalytics clickAnalytics,
+                                  ObjectMapper objectMapper, RedirectHeaders redirectHeaders,
+                                  @Value("${app.batch.max-size}") int maxBatchSize,
+                                  @Nullable ClientRateLimiter clientRateLimiter) {
         this.urlShortenerService = urlShortenerService;
+        this.clickAnalytics = clickAnalytics;
+        this.objectMapper = objectMapper;
+        this.redirectHeaders = redirectHeaders;
+        this.maxBatchSize = maxBatchSize;
+        this.clientRateLimiter = clientRateLimiter;
     }
 
     @PostMapping("/shorten")
     @ResponseStatus(HttpStatus.CREATED)
+    @RateLimited(Budget.CREATE)
     public ShortenResponse createShortUrl(@Valid @RequestBody ShortenRequest request) {
-        return urlShortenerService.shortenUrl(request.originalUrl());
+        return urlShortenerService.shortenUrl(request.originalUrl(), request.expiresAt());
+    }
+
+    @PostMapping(value = "/shorten/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @RateLimited(Budget.CREATE)
+    public BatchShortenResponse createShortUrls(@RequestBody List<ShortenRequest> requests,
+                                                HttpServletRequest httpRequest) {
+        chargeBatch(httpRequest, requests.size());
+        return urlShortenerService.shortenUrls(requests.stream()
+                .map(request -> request == null ? null : request.originalUrl())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * NDJSON variant of the batch endpoint: one {@code {"originalUrl": ...}} object per line.
+     * Lines that are not valid JSON are reported as per-item errors rather than failing the batch.
+     * A body with more than {@code app.batch.max-size} items is rejected at the first line past
+     * the limit, without reading the rest.
+     */
+    @PostMapping(value = "/shorten/batch", consumes = APPLICATION_NDJSON_VALUE)
+    @RateLimited(Budget.CREATE)
+    public BatchShortenResponse createShortUrlsFromNdjson(InputStream body, HttpServletRequest httpRequest)
+            throws IOException {
+        List<String> urls = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (urls.size() == maxBatchSize) {
+                    throw new URLShortenerServiceException(HttpStatus.BAD_REQUEST,
+                            UrlShortenerError.BATCH_TOO_LARGE.getMessage() + " - " + maxBatchSize);
+                }
+                try {
+                    urls.add(objectMapper.readValue(line, ShortenRequest.class).originalUrl());
+                } catch (JsonProcessingException e) {
+                    urls.add(null);
+                }
+            }
+        }
+        chargeBatch(httpRequest, urls.size());
+        return urlShortenerService.shortenUrls(urls);
     }
 
     @GetMapping("/{shortCode}")
-    public void redirectToOriginalUrl(@PathVariable String shortCode, HttpServletResponse response) throws IOException {
-        response.sendRedirect(urlShortenerService.getOriginalUrl(shortCode));
+    @RateLimited(Budget.REDIRECT)
+    public void redirectToOriginalUrl(@PathVariable String shortCode, HttpServletResponse response) {
+        String originalUrl = urlShortenerService.getOriginalUrl(shortCode);
+        clickAnalytics.record(shortCode);
+        // Stored URLs are absolute, so sendRedirect's resolution against the request is not needed
+        redirectHeaders.write(response, originalUrl);
     }
 
     @GetMapping("/info/{shortCode}")
     public UrlMappingResponse getUrlMapping(@PathVariable String shortCode) {
         return urlShortenerService.getUrlMapping(shortCode);
     }
+
+    @GetMapping("/stats/{shortCode}")
+    public ClickStatsResponse getClickStats(@PathVariable String shortCode) {
+        // Resolve the code first so unknown codes get the same 404 as the other endpoints
+        urlShortenerService.getUrlMapping(shortCode);
+        return clickAnalytics.getStats(shortCode);
+    }
+
+    /**
+     * Charges the rest of a batch's create permits once its size is known, one per
+     * {@code app.rate-limit.create.urls-per-permit} URLs. Oversized batches are left for the
+     * service to refuse, uncharged.
+     */
+    private void chargeBatch(HttpServletRequest httpRequest, int urls) {
+        if (clientRateLimiter != null && urls <= maxBatchSize) {
+            clientRateLimiter.checkBatch(httpRequest, urls);
+        }
+    }
 }
@@ -0,0 +1,108 @@
+package org.example.urlshortener.controller;
+
+import org.example.urlshortener.analytics.ClickAnalytics;
+import org.example.urlshortener.exception.handler.ErrorResponse;
+import org.example.urlshortener.exception.handler.RateLimitExceededException;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.model.ShortenRequest;
+import org.example.urlshortener.ratelimit.Budget;
+import org.example.urlshortener.ratelimit.ClientRateLimiter;
+import org.example.urlshortener.service.ReactiveURLShortenerService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetSocketAddress;
+
+/**
+ * WebFlux functional handlers mirroring {@link URLShortenerController} for the reactive profile,
+ * including the same status codes, redirect headers and {@link ErrorResponse} payloads. Creates and redirects are
+ * admitted through the same {@link ClientRateLimiter} budgets as on the servlet stack when one is
+ * given.
+ */
+public class URLShortenerHandler {
+
+    private final ReactiveURLShortenerService urlShortenerService;
+    private final ClickAnalytics clickAnalytics;
+    private final ReactiveRedirectHeaders redirectHeaders;
+    @Nullable
+    private final ClientRateLimiter clientRateLimiter;
+
+    public URLShortenerHandler(ReactiveURLShortenerService urlShortenerService, ClickAnalytics clickAnalytics,
+                               ReactiveRedirectHeaders redirectHeaders, @Nullable ClientRateLimiter clientRateLimiter) {
+        this.urlShortenerService = urlShortenerService;
+        this.clickAnalytics = clickAnalytics;
+        this.redirectHeaders = redirectHeaders;
+        this.clientRateLimiter = clientRateLimiter;
+    }
+
+    public Mono<ServerResponse> createShortUrl(ServerRequest request) {
+        return admit(Budget.CREATE, request)
+                .then(request.bodyToMono(ShortenRequest.class))
+                .defaultIfEmpty(new ShortenRequest(null))
+                .flatMap(body -> body.originalUrl() == null || body.originalUrl().isBlank()
+                        ? error(HttpStatus.BAD_REQUEST, "originalUrl: must not be blank")
+                        : urlShortenerService.shortenUrl(body.originalUrl(), body.expiresAt())
+                                .flatMap(response -> ServerResponse.status(HttpStatus.CREATED)
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .bodyValue(response)))
+                .onErrorResume(URLShortenerServiceException.class, URLShortenerHandler::error);
+    }
+
+    public Mono<ServerResponse> redirectToOriginalUrl(ServerRequest request) {
+        String shortCode = request.pathVariable("shortCode");
+        return admit(Budget.REDIRECT, request)
+                .then(Mono.defer(() -> urlShortenerService.getOriginalUrl(shortCode)))
+                .doOnNext(url -> clickAnalytics.record(shortCode))
+                .flatMap(redirectHeaders::write)
+                .onErrorResume(URLShortenerServiceException.class, URLShortenerHandler::error);
+    }
+
+    public Mono<ServerResponse> getUrlMapping(ServerRequest request) {
+        return urlShortenerService.getUrlMapping(request.pathVariable("shortCode"))
+                .flatMap(mapping -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(mapping))
+                .onErrorResume(URLShortenerServiceException.class, URLShortenerHandler::error);
+    }
+
+    public Mono<ServerResponse> getClickStats(ServerRequest request) {
+        String shortCode = request.pathVariable("shortCode");
+        // Stats are read through JPA, so keep them off the event loop
+        return urlShortenerService.getUrlMapping(shortCode)
+                .then(Mono.fromCallable(() -> clickAnalytics.getStats(shortCode)).subscribeOn(Schedulers.boundedElastic()))
+                .flatMap(stats -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(stats))
+                .onErrorResume(URLShortenerServiceException.class, URLShortenerHandler::error);
+    }
+
+    // The check is a compare-and-set on an in-memory bucket, cheap enough for the event loop
+    private Mono<Void> admit(Budget budget, ServerRequest request) {
+        if (clientRateLimiter == null) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> clientRateLimiter.check(budget,
+                request.headers().firstHeader(clientRateLimiter.apiKeyHeader()),
+                request.remoteAddress().map(InetSocketAddress::getHostString).orElse("unknown"), 1));
+    }
+
+    private static Mono<ServerResponse> error(URLShortenerServiceException ex) {
+        ServerResponse.BodyBuilder response = ServerResponse.status(ex.getStatus());
+        if (ex instanceof RateLimitExceededException limited) {
+            response.header(HttpHeaders.RETRY_AFTER, Long.toString(limited.getRetryAfterSeconds()));
+        }
+        return error(response, ex.getStatus(), ex.getMessage());
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        return error(ServerResponse.status(status), status, message);
+    }
+
+    private static Mono<ServerResponse> error(ServerResponse.BodyBuilder response, HttpStatus status, String message) {
+        return response
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new ErrorResponse("url-shortener-error", status.value(), message));
+    }
+}
@@ -3,7 +3,13 @@ package org.example.urlshortener.exception.enumeration;
 public enum UrlShortenerError {
     GENERIC_ERROR("generic.error", "Something went wrong"),
     INVALID_URL_FORMAT("invalid.url.format", "Invalid URL format provided"),
-    SHORT_URL_NOT_FOUND("short.url.not.found", "Short URL not found");
+    SHORT_URL_NOT_FOUND("short.url.not.found", "Short URL not found"),
+    SHORT_URL_EXPIRED("short.url.expired", "Short URL has expired"),
+    EXPIRY_NOT_IN_FUTURE("expiry.not.in.future", "expiresAt must be in the future"),
+    BATCH_TOO_LARGE("batch.too.large", "Batch size exceeds the allowed maximum"),
+    SHORT_CODE_CONFLICT("short.code.conflict", "Could not allocate a unique short code, please retry"),
+    RATE_LIMITED("rate.limited", "Too many requests, retry later"),
+    WRITE_BACKLOG_FULL("write.backlog.full", "Too many writes pending, retry later");
 
     private final String code;
     private final String message;
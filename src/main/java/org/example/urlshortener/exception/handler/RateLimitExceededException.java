@@ -0,0 +1,22 @@
+package org.example.urlshortener.exception.handler;
+
+import org.example.urlshortener.exception.enumeration.UrlShortenerError;
+import org.springframework.http.HttpStatus;
+
+/**
+ * A client ran out of its rate limit; answered with 429 and {@code Retry-After}.
+ */
+public class RateLimitExceededException extends URLShortenerServiceException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(long retryAfterSeconds) {
+        // Refusals are what an abusive client gets most of; skip the stack trace
+        super(HttpStatus.TOO_MANY_REQUESTS, UrlShortenerError.RATE_LIMITED.getMessage(), false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
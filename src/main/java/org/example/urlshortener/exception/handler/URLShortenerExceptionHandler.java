@@ -2,6 +2,8 @@ package org.example.urlshortener.exception.handler;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -11,10 +13,19 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class URLShortenerExceptionHandler {
 
     private static final Logger log = LoggerFactory.getLogger(URLShortenerExceptionHandler.class);
 
+    @ExceptionHandler(RateLimitExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRateLimited(RateLimitExceededException ex) {
+        return ResponseEntity
+                .status(ex.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .body(new ErrorResponse("url-shortener-error", ex.getStatus().value(), ex.getMessage()));
+    }
+
     @ExceptionHandler(URLShortenerServiceException.class)
     public ResponseEntity<?> handleUrlShortenerException(URLShortenerServiceException ex) {
         return ResponseEntity
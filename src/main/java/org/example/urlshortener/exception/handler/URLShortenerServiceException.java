@@ -10,7 +10,16 @@ public class URLShortenerServiceException extends RuntimeException {
         this.status = status;
     }
 
+    /**
+     * For expected, high-volume failures (e.g. unknown short codes) where filling in a stack
+     * trace would dominate the cost of the request.
+     */
+    public URLShortenerServiceException(HttpStatus status, String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+        this.status = status;
+    }
+
     public HttpStatus getStatus() {
         return status;
     }
-}
\ No newline at end of file
+}
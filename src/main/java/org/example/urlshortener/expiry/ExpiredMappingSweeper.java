@@ -0,0 +1,180 @@
+package org.example.urlshortener.expiry;
+
+import org.example.urlshortener.cache.OffHeapRedirectIndex;
+import org.example.urlshortener.cache.UrlMappingCache;
+import org.example.urlshortener.cluster.ClusterInvalidationBus;
+import org.example.urlshortener.model.ExpiringMappingView;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Background purge of expired mappings. Each sweep walks the rows that expired before it started
+ * in {@code (expiresAt, id)} keyset order over {@code idx_expires_at}, deleting one small batch
+ * per short transaction and pausing between batches, so it never holds locks on more than
+ * {@code batchSize} rows or competes with the request path for long. Deleted codes are evicted
+ * from the redirect cache and the off-heap redirect index, and published to the other nodes.
+ */
+public class ExpiredMappingSweeper implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpiredMappingSweeper.class);
+
+    private final UrlMappingStore repository;
+    private final UrlMappingCache cache;
+    private final OffHeapRedirectIndex redirectIndex;
+    private final ClusterInvalidationBus invalidationBus;
+    private final Duration sweepInterval;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final LongAdder purged = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchNanos = new LongAdder();
+    // One sweep at a time; a lock rather than a monitor since a sweep runs queries while holding it
+    private final ReentrantLock sweepLock = new ReentrantLock();
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public ExpiredMappingSweeper(UrlMappingStore repository, UrlMappingCache cache,
+                                 @Nullable OffHeapRedirectIndex redirectIndex,
+                                 @Nullable ClusterInvalidationBus invalidationBus, Duration sweepInterval, int batchSize,
+                                 Duration batchPause) {
+        this.repository = repository;
+        this.cache = cache;
+        this.redirectIndex = redirectIndex;
+        this.invalidationBus = invalidationBus;
+        this.sweepInterval = sweepInterval;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+    }
+
+    /**
+     * Deletes every mapping that expired before this call. Rows whose expiry is extended while the
+     * sweep runs are left alone. Returns the number of rows deleted.
+     */
+    public long sweep() {
+        sweepLock.lock();
+        try {
+            return sweepExpired();
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private long sweepExpired() {
+        LocalDateTime cutoff = LocalDateTime.now();
+        long deleted = 0;
+        List<ExpiringMappingView> page = repository.findByExpiresAtLessThanEqualOrderByExpiresAtAscIdAsc(cutoff,
+                PageRequest.ofSize(batchSize));
+        while (!page.isEmpty()) {
+            long started = System.nanoTime();
+            List<Long> ids = new ArrayList<>(page.size());
+            for (ExpiringMappingView mapping : page) {
+                ids.add(mapping.getId());
+            }
+            int removed = repository.deleteExpiredByIdIn(ids, cutoff);
+            for (ExpiringMappingView mapping : page) {
+                cache.invalidate(mapping.getShortCode());
+                if (redirectIndex != null) {
+                    redirectIndex.remove(mapping.getShortCode());
+                }
+                if (invalidationBus != null) {
+                    invalidationBus.publish(mapping.getShortCode());
+                }
+            }
+            batchNanos.add(System.nanoTime() - started);
+            batches.increment();
+            purged.add(removed);
+            deleted += removed;
+
+            if (page.size() < batchSize || !pause()) {
+                break;
+            }
+            ExpiringMappingView last = page.get(page.size() - 1);
+            page = repository.findExpiredAfter(cutoff, last.getExpiresAt(), last.getId(), PageRequest.ofSize(batchSize));
+        }
+        if (deleted > 0) {
+            log.debug("Purged {} expired mapping(s)", deleted);
+        }
+        return deleted;
+    }
+
+    public long purgedCount() {
+        return purged.sum();
+    }
+
+    public long batchCount() {
+        return batches.sum();
+    }
+
+    public double batchSeconds() {
+        return batchNanos.sum() / 1e9;
+    }
+
+    public int batchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expiry-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, sweepInterval.toMillis(), sweepInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Throttles the sweep between batches; false if the sweeper is shutting down
+    private boolean pause() {
+        if (batchPause.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchPause);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Expired mapping sweep failed, retrying with the next one", e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.urlshortener.migration;
+
+import org.example.urlshortener.model.MigrationMarkerEntity;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.MigrationMarkerRepository;
+import org.example.urlshortener.repository.UrlMappingRepository;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.example.urlshortener.util.UrlDigest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rekeys rows stored before URLs were canonicalized, under other {@code app.canonical} settings or
+ * with an earlier digest function (the murmur3 digest before {@link UrlDigest} moved to truncated
+ * SHA-256) to the digest of their canonical URL, so re-shortening any spelling of their URL finds
+ * them instead of minting a second code.
+ * <p>
+ * Only the digest changes: {@code originalUrl} is the redirect target and is kept as stored, since
+ * the optional rewrites ({@code sort-query}, {@code strip-params}) can change what a server returns.
+ * The dedupe lookup confirms a digest match with {@link UrlCanonicalizer#matches}, so a row kept
+ * as submitted is still recognized. When the canonical URL already has a row, the rekeyed row gives
+ * up its digest (still redirectable) so the unique index is never violated; shortening the URL
+ * keeps returning the existing row's code. Rows whose URL no longer validates are left alone.
+ * <p>
+ * Runs once all singletons are created and before the web server starts, like
+ * {@link UrlDigestBackfill}, over every row in keyset-paginated batches, one transaction per page.
+ * A completed pass records the digest function and canonicalizer settings in a
+ * {@link MigrationMarkerEntity}, and later startups under the same ones skip the scan.
+ */
+public class UrlCanonicalBackfill implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(UrlCanonicalBackfill.class);
+
+    static final String MARKER = "url-canonical-backfill";
+
+    private final UrlMappingRepository repository;
+    private final MigrationMarkerRepository markerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final UrlCanonicalizer canonicalizer;
+    private final int pageSize;
+
+    public UrlCanonicalBackfill(UrlMappingRepository repository, MigrationMarkerRepository markerRepository,
+                                TransactionTemplate transactionTemplate, UrlCanonicalizer canonicalizer, int pageSize) {
+        this.repository = repository;
+        this.markerRepository = markerRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.canonicalizer = canonicalizer;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        String settings = UrlDigest.ALGORITHM + ";" + canonicalizer.settings();
+        // In a read-write transaction, like the pages, so it is read from the primary with replicas configured
+        String completed = transactionTemplate.execute(status ->
+                markerRepository.findById(MARKER).map(MigrationMarkerEntity::getSettings).orElse(null));
+        if (settings.equals(completed)) {
+            return;
+        }
+        long started = System.nanoTime();
+        long scanned = 0;
+        long rewritten = 0;
+        PageResult page = new PageResult(0, 0, 0L, true);
+        while (page.hasMore()) {
+            long afterId = page.lastId();
+            page = transactionTemplate.execute(status -> backfillPage(afterId));
+            scanned += page.scanned();
+            rewritten += page.rewritten();
+        }
+
+        transactionTemplate.executeWithoutResult(status -> markerRepository.save(new MigrationMarkerEntity(MARKER, settings)));
+        log.info("Rekeyed {} of {} mapping(s) to the digest of their canonical URL in {} ms", rewritten, scanned,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private PageResult backfillPage(long afterId) {
+        List<UrlMappingEntity> page = repository.findAllByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(pageSize));
+        if (page.isEmpty()) {
+            return new PageResult(0, 0, afterId, false);
+        }
+
+        Map<UrlMappingEntity, String> stale = new LinkedHashMap<>();
+        for (UrlMappingEntity mapping : page) {
+            String url = canonicalizer.canonicalize(mapping.getOriginalUrl());
+            if (url == null) {
+                continue;
+            }
+            // A null digest is UrlDigestBackfill's way of giving way to another row; leave it
+            boolean digestStale = mapping.getUrlDigest() != null && !mapping.getUrlDigest().equals(UrlDigest.of(url));
+            if (digestStale) {
+                stale.put(mapping, url);
+            }
+        }
+        if (!stale.isEmpty()) {
+            Map<String, Long> owners = new HashMap<>();
+            for (UrlMappingEntity owner : repository.findByUrlDigestIn(stale.values().stream().map(UrlDigest::of).toList())) {
+                owners.put(owner.getUrlDigest(), owner.getId());
+            }
+            for (Map.Entry<UrlMappingEntity, String> entry : stale.entrySet()) {
+                UrlMappingEntity mapping = entry.getKey();
+                String digest = UrlDigest.of(entry.getValue());
+                Long owner = owners.putIfAbsent(digest, mapping.getId());
+                mapping.setUrlDigest(owner == null || owner.equals(mapping.getId()) ? digest : null);
+            }
+        }
+        return new PageResult(page.size(), stale.size(), page.get(page.size() - 1).getId(), page.size() == pageSize);
+    }
+
+    private record PageResult(long scanned, long rewritten, long lastId, boolean hasMore) { }
+}
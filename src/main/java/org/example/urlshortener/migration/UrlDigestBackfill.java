@@ -0,0 +1,80 @@
+package org.example.urlshortener.migration;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingRepository;
+import org.example.urlshortener.util.UrlDigest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fills {@code urlDigest} for rows written before the column existed.
+ * <p>
+ * Runs once all singletons are created and before the web server starts, so dedupe lookups never
+ * see a half-migrated table. Rows are processed in keyset-paginated batches, one transaction per
+ * page. When several legacy rows share a URL only the first receives the digest; the others keep
+ * a null digest (still redirectable) so the unique index is never violated.
+ */
+public class UrlDigestBackfill implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(UrlDigestBackfill.class);
+
+    private final UrlMappingRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final int pageSize;
+
+    public UrlDigestBackfill(UrlMappingRepository repository, TransactionTemplate transactionTemplate, int pageSize) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long updated = 0;
+        PageResult page = new PageResult(0, 0L, true);
+        while (page.hasMore()) {
+            long afterId = page.lastId();
+            page = transactionTemplate.execute(status -> backfillPage(afterId));
+            updated += page.updated();
+        }
+
+        if (updated > 0) {
+            log.info("Backfilled url digest for {} legacy mapping(s)", updated);
+        }
+    }
+
+    private PageResult backfillPage(long afterId) {
+        List<UrlMappingEntity> page = repository.findByUrlDigestIsNullAndIdGreaterThanOrderByIdAsc(
+                afterId, PageRequest.ofSize(pageSize));
+        if (page.isEmpty()) {
+            return new PageResult(0, afterId, false);
+        }
+
+        Set<String> digests = page.stream()
+                .map(mapping -> UrlDigest.of(mapping.getOriginalUrl()))
+                .collect(Collectors.toSet());
+        Set<String> taken = repository.findByUrlDigestIn(digests).stream()
+                .map(UrlMappingEntity::getUrlDigest)
+                .collect(Collectors.toCollection(HashSet::new));
+
+        long updated = 0;
+        for (UrlMappingEntity mapping : page) {
+            String digest = UrlDigest.of(mapping.getOriginalUrl());
+            if (taken.add(digest)) {
+                mapping.setUrlDigest(digest);
+                updated++;
+            }
+        }
+        return new PageResult(updated, page.get(page.size() - 1).getId(), page.size() == pageSize);
+    }
+
+    private record PageResult(long updated, long lastId, boolean hasMore) { }
+}
@@ -0,0 +1,5 @@
+package org.example.urlshortener.model;
+
+import java.util.List;
+
+public record BatchShortenResponse(List<BatchShortenResult> results) { }
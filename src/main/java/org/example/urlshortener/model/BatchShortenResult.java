@@ -0,0 +1,21 @@
+package org.example.urlshortener.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchShortenResult(
+    int index,
+    String originalUrl,
+    int status,
+    String shortUrl,
+    String error
+) {
+
+    public static BatchShortenResult success(int index, String originalUrl, int status, String shortUrl) {
+        return new BatchShortenResult(index, originalUrl, status, shortUrl, null);
+    }
+
+    public static BatchShortenResult failure(int index, String originalUrl, int status, String error) {
+        return new BatchShortenResult(index, originalUrl, status, null, error);
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.urlshortener.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One short code invalidated by one node, as relayed through the database by the cluster
+ * invalidation bus. Rows are written and polled with plain SQL, never through this entity; it
+ * exists for the schema.
+ */
+@Entity
+@Table(name = "cache_invalidation", indexes = {
+        // Lets the pruning of old rows range-scan
+        @Index(name = "idx_cache_invalidation_created_at", columnList = "createdAt")
+})
+public class CacheInvalidationEntity {
+
+    // IDENTITY so pollers can follow the table in insert order
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private long batchSequence;
+
+    @Column(nullable = false)
+    private String shortCode;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public CacheInvalidationEntity() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getBatchSequence() {
+        return batchSequence;
+    }
+
+    public String getShortCode() {
+        return shortCode;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
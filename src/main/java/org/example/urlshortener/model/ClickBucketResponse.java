@@ -0,0 +1,8 @@
+package org.example.urlshortener.model;
+
+import java.time.LocalDateTime;
+
+public record ClickBucketResponse(
+    LocalDateTime bucketStart,
+    long clicks
+) {}
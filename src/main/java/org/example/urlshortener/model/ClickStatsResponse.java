@@ -0,0 +1,9 @@
+package org.example.urlshortener.model;
+
+import java.util.List;
+
+public record ClickStatsResponse(
+    String shortCode,
+    long totalClicks,
+    List<ClickBucketResponse> buckets
+) {}
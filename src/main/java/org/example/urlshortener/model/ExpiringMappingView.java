@@ -0,0 +1,16 @@
+package org.example.urlshortener.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of an expiring mapping row; {@code (expiresAt, id)} is the keyset the expiry sweeper
+ * pages on.
+ */
+public interface ExpiringMappingView {
+
+    Long getId();
+
+    String getShortCode();
+
+    LocalDateTime getExpiresAt();
+}
@@ -0,0 +1,13 @@
+package org.example.urlshortener.model;
+
+/**
+ * Outcome of {@code POST /admin/import}: mappings written, skipped because their short code or
+ * URL exists already, and rejected as unreadable or invalid, with the rows read per second.
+ */
+public record ImportResponse(
+    long imported,
+    long skipped,
+    long rejected,
+    long durationMillis,
+    long rowsPerSecond
+) {}
@@ -0,0 +1,40 @@
+package org.example.urlshortener.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * The settings a startup migration last completed under, so it only runs again once they change.
+ */
+@Entity
+@Table(name = "migration_marker")
+public class MigrationMarkerEntity {
+
+    @Id
+    private String name;
+
+    @Column(nullable = false, length = 2048)
+    private String settings;
+
+    public MigrationMarkerEntity() {
+    }
+
+    public MigrationMarkerEntity(String name, String settings) {
+        this.name = name;
+        this.settings = settings;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.urlshortener.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+@Entity
+@Table(name = "short_code_sequence")
+public class ShortCodeSequenceEntity {
+
+    @Id
+    private String name;
+
+    @Column(nullable = false)
+    private long nextValue;
+
+    public ShortCodeSequenceEntity() {
+    }
+
+    public ShortCodeSequenceEntity(String name, long nextValue) {
+        this.name = name;
+        this.nextValue = nextValue;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getNextValue() {
+        return nextValue;
+    }
+
+    public void setNextValue(long nextValue) {
+        this.nextValue = nextValue;
+    }
+}
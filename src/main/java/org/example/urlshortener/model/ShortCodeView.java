@@ -0,0 +1,11 @@
+package org.example.urlshortener.model;
+
+/**
+ * Projection of a mapping row used for keyset-paginated scans over the short codes.
+ */
+public interface ShortCodeView {
+
+    Long getId();
+
+    String getShortCode();
+}
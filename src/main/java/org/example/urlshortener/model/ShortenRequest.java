@@ -1,10 +1,20 @@
 package org.example.urlshortener.model;
 
-import javax.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotBlank;
+
+import java.time.LocalDateTime;
 
 public record ShortenRequest(
 
     @NotBlank
-    String originalUrl) {
+    String originalUrl,
+
+    // Optional; the link answers 410 Gone from this instant on
+    @Future
+    LocalDateTime expiresAt) {
 
+    public ShortenRequest(String originalUrl) {
+        this(originalUrl, null);
+    }
 }
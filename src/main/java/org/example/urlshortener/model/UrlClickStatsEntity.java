@@ -0,0 +1,37 @@
+package org.example.urlshortener.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+
+/**
+ * Clicks on one short code within one minute. Rows are written by batched upserts from the click
+ * analytics pipeline, never through this entity; it exists for the schema and for reads.
+ */
+@Entity
+@Table(name = "url_click_stats")
+public class UrlClickStatsEntity {
+
+    @EmbeddedId
+    private UrlClickStatsId id;
+
+    @Column(nullable = false)
+    private long clicks;
+
+    public UrlClickStatsEntity() {
+    }
+
+    public UrlClickStatsEntity(UrlClickStatsId id, long clicks) {
+        this.id = id;
+        this.clicks = clicks;
+    }
+
+    public UrlClickStatsId getId() {
+        return id;
+    }
+
+    public long getClicks() {
+        return clicks;
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.urlshortener.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+@Embeddable
+public class UrlClickStatsId implements Serializable {
+
+    @Column(nullable = false)
+    private String shortCode;
+
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    public UrlClickStatsId() {
+    }
+
+    public UrlClickStatsId(String shortCode, LocalDateTime bucketStart) {
+        this.shortCode = shortCode;
+        this.bucketStart = bucketStart;
+    }
+
+    public String getShortCode() {
+        return shortCode;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UrlClickStatsId other)) {
+            return false;
+        }
+        return Objects.equals(shortCode, other.shortCode) && Objects.equals(bucketStart, other.bucketStart);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(shortCode, bucketStart);
+    }
+}
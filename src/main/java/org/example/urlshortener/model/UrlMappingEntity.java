@@ -1,47 +1,79 @@
 package org.example.urlshortener.model;
 
-import javax.persistence.*;
+import org.example.urlshortener.util.UrlDigest;
+
+import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "url_mapping", indexes = {
-        @Index(name = "idx_short_code", columnList = "shortCode", unique = true)
+        @Index(name = "idx_short_code", columnList = "shortCode", unique = true),
+        @Index(name = "idx_url_digest", columnList = "urlDigest", unique = true),
+        // Lets the expiry sweeper range-scan only the expired rows
+        @Index(name = "idx_expires_at", columnList = "expiresAt, id")
 })
 public class UrlMappingEntity {
 
+    // Sequence ids (pooled in blocks) rather than IDENTITY so Hibernate can batch inserts.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "url_mapping_seq")
+    @SequenceGenerator(name = "url_mapping_seq", sequenceName = "url_mapping_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
     private String originalUrl;
 
+    // Nullable only so rows written before the column existed can be backfilled at startup.
+    @Column(columnDefinition = "CHAR(" + UrlDigest.LENGTH + ")")
+    private String urlDigest;
+
     @Column(nullable = false, unique = true)
     private String shortCode;
 
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
+    // Null for links that never expire
+    private LocalDateTime expiresAt;
+
     public UrlMappingEntity() {
     }
 
     public UrlMappingEntity(String originalUrl, String shortCode, LocalDateTime createdAt) {
         this.originalUrl = originalUrl;
+        this.urlDigest = UrlDigest.of(originalUrl);
         this.shortCode = shortCode;
         this.createdAt = createdAt;
     }
 
+    public UrlMappingEntity(String originalUrl, String shortCode, LocalDateTime createdAt, LocalDateTime expiresAt) {
+        this(originalUrl, shortCode, createdAt);
+        this.expiresAt = expiresAt;
+    }
 
     public Long getId() {
         return id;
     }
 
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     public String getOriginalUrl() {
         return originalUrl;
     }
 
     public void setOriginalUrl(String originalUrl) {
         this.originalUrl = originalUrl;
+        this.urlDigest = UrlDigest.of(originalUrl);
+    }
+
+    public String getUrlDigest() {
+        return urlDigest;
+    }
+
+    public void setUrlDigest(String urlDigest) {
+        this.urlDigest = urlDigest;
     }
 
     public String getShortCode() {
@@ -59,4 +91,16 @@ public class UrlMappingEntity {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpiredAt(LocalDateTime now) {
+        return expiresAt != null && !now.isBefore(expiresAt);
+    }
 }
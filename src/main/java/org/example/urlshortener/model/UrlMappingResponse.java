@@ -5,5 +5,6 @@ import java.time.LocalDateTime;
 public record UrlMappingResponse(
     String originalUrl,
     String shortUrl,
-    LocalDateTime createdAt
+    LocalDateTime createdAt,
+    LocalDateTime expiresAt
 ) {}
@@ -0,0 +1,68 @@
+package org.example.urlshortener.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * R2DBC view of the {@code url_mapping} table used by the reactive stack. The schema itself is
+ * owned by {@link UrlMappingEntity}.
+ */
+@Table("url_mapping")
+public class UrlMappingRow {
+
+    @Id
+    private Long id;
+
+    private String originalUrl;
+
+    private String urlDigest;
+
+    private String shortCode;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiresAt;
+
+    public UrlMappingRow() {
+    }
+
+    public UrlMappingRow(Long id, String originalUrl, String urlDigest, String shortCode, LocalDateTime createdAt,
+                         LocalDateTime expiresAt) {
+        this.id = id;
+        this.originalUrl = originalUrl;
+        this.urlDigest = urlDigest;
+        this.shortCode = shortCode;
+        this.createdAt = createdAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getOriginalUrl() {
+        return originalUrl;
+    }
+
+    public String getUrlDigest() {
+        return urlDigest;
+    }
+
+    public String getShortCode() {
+        return shortCode;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public UrlMappingEntity toEntity() {
+        return new UrlMappingEntity(originalUrl, shortCode, createdAt, expiresAt);
+    }
+}
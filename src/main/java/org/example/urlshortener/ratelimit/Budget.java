@@ -0,0 +1,11 @@
+package org.example.urlshortener.ratelimit;
+
+/**
+ * The separate allowances a client draws on.
+ */
+public enum Budget {
+    // Shortening: database writes and collision probes
+    CREATE,
+    // Redirects: cache or index reads
+    REDIRECT
+}
@@ -0,0 +1,85 @@
+package org.example.urlshortener.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.urlshortener.exception.handler.RateLimitExceededException;
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control per client: the API key in {@code apiKeyHeader} if the request carries one,
+ * otherwise the remote address (behind a proxy, set {@code server.forward-headers-strategy} so it
+ * is the client's). Each {@link Budget} has its own buckets. A batch draws on the
+ * {@link Budget#CREATE create} budget in proportion to its size, one permit per
+ * {@code urlsPerPermit} URLs, so it cannot buy more mappings than the same client could create
+ * one at a time.
+ */
+public class ClientRateLimiter {
+
+    private final TokenBucketRateLimiter create;
+    private final TokenBucketRateLimiter redirect;
+    private final String apiKeyHeader;
+    private final int urlsPerPermit;
+
+    public ClientRateLimiter(TokenBucketRateLimiter create, TokenBucketRateLimiter redirect, String apiKeyHeader,
+                             int urlsPerPermit) {
+        if (urlsPerPermit < 1) {
+            throw new IllegalArgumentException("urlsPerPermit must be at least 1, was " + urlsPerPermit);
+        }
+        this.create = create;
+        this.redirect = redirect;
+        this.apiKeyHeader = apiKeyHeader;
+        this.urlsPerPermit = urlsPerPermit;
+    }
+
+    /**
+     * @throws RateLimitExceededException if the client has no permit left in {@code budget}
+     */
+    public void check(Budget budget, HttpServletRequest request) {
+        check(budget, request.getHeader(apiKeyHeader), request.getRemoteAddr(), 1);
+    }
+
+    /**
+     * Charges a batch of {@code urls} beyond the one permit its request was admitted with (the
+     * {@link RateLimited} check runs before the body is read and its size is known).
+     *
+     * @throws RateLimitExceededException if the client has too few permits left for the batch
+     */
+    public void checkBatch(HttpServletRequest request, int urls) {
+        int permits = batchPermits(urls) - 1;
+        if (permits > 0) {
+            check(Budget.CREATE, request.getHeader(apiKeyHeader), request.getRemoteAddr(), permits);
+        }
+    }
+
+    /**
+     * Stack-neutral form of {@link #check(Budget, HttpServletRequest)}, for callers that read the
+     * {@link #apiKeyHeader()} and remote address themselves.
+     *
+     * @throws RateLimitExceededException if the client has fewer than {@code permits} left in {@code budget}
+     */
+    public void check(Budget budget, @Nullable String apiKey, String remoteAddress, int permits) {
+        long waitNanos = limiter(budget).tryAcquire(clientKey(apiKey, remoteAddress), permits);
+        if (waitNanos > 0) {
+            // Whole seconds for Retry-After, rounded up so a client that honours it is admitted
+            throw new RateLimitExceededException(Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)
+                    / TimeUnit.SECONDS.toNanos(1)));
+        }
+    }
+
+    public TokenBucketRateLimiter limiter(Budget budget) {
+        return budget == Budget.CREATE ? create : redirect;
+    }
+
+    public String apiKeyHeader() {
+        return apiKeyHeader;
+    }
+
+    int batchPermits(int urls) {
+        return Math.max(1, (urls + urlsPerPermit - 1) / urlsPerPermit);
+    }
+
+    static String clientKey(@Nullable String apiKey, String remoteAddress) {
+        return apiKey != null && !apiKey.isBlank() ? "key:" + apiKey : "ip:" + remoteAddress;
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.urlshortener.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Applies {@link RateLimited} to MVC handlers. A refused request never reaches the handler; the
+ * exception goes to the exception handler like any the handler throws.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private final ClientRateLimiter rateLimiter;
+
+    public RateLimitInterceptor(ClientRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod method) {
+            RateLimited limit = method.getMethodAnnotation(RateLimited.class);
+            if (limit != null) {
+                rateLimiter.check(limit.value(), request);
+            }
+        }
+        return true;
+    }
+}
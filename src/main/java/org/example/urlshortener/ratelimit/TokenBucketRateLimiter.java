@@ -0,0 +1,96 @@
+package org.example.urlshortener.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token buckets of {@code burst} permits refilled at {@code permitsPerSecond}, without
+ * locks. Each bucket is kept in its cell-rate form: a single {@link AtomicLong} holding the
+ * instant at which the bucket would be full again, which a permit pushes back by one refill
+ * interval with one compare-and-set, and which may run at most {@code burst} intervals ahead of
+ * now. That admits exactly what a token bucket admits, with no background refill.
+ * <p>
+ * Buckets live in a Caffeine map bounded to {@code maxClients}. Its frequency-based eviction drops
+ * clients seen once or twice before ones that keep coming, so a flood of new addresses cannot push
+ * out the buckets of busy clients; an evicted client starts again with a full bucket. There is no
+ * idle expiry: tracking access time tripled the cost of a check.
+ */
+public class TokenBucketRateLimiter {
+
+    private final Cache<String, AtomicLong> buckets;
+    private final LongSupplier nanoClock;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongAdder rejected = new LongAdder();
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst, long maxClients) {
+        this(permitsPerSecond, burst, maxClients, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double permitsPerSecond, int burst, long maxClients, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("A rate limit needs a positive rate and a burst of at least 1");
+        }
+        this.nanoClock = nanoClock;
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .build();
+    }
+
+    /**
+     * Takes a permit from {@code client}'s bucket. Returns 0 if it got one, otherwise how many
+     * nanoseconds until the bucket has one again; a refused call takes nothing.
+     */
+    public long tryAcquire(String client) {
+        return tryAcquire(client, 1);
+    }
+
+    /**
+     * Takes {@code permits} from {@code client}'s bucket at once, or nothing. Returns 0 if they
+     * were taken, otherwise how many nanoseconds until the bucket holds that many. A request for
+     * more than the burst can never fit, so it is admitted from a full bucket and leaves the bucket
+     * owing the rest: the client waits out the excess before its next permit, which keeps its
+     * long-run rate at {@code permitsPerSecond}.
+     */
+    public long tryAcquire(String client, int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("permits must be at least 1, was " + permits);
+        }
+        long cost = intervalNanos * permits;
+        long allowedAhead = Math.max(burstNanos, cost);
+        AtomicLong fullAt = buckets.get(client, key -> new AtomicLong(Long.MIN_VALUE));
+        long now = nanoClock.getAsLong();
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + cost;
+            long ahead = next - now;
+            if (ahead > allowedAhead) {
+                rejected.increment();
+                return ahead - allowedAhead;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    public long clientCount() {
+        return buckets.estimatedSize();
+    }
+
+    // Runs pending evictions now rather than on a later access
+    void cleanUp() {
+        buckets.cleanUp();
+    }
+}
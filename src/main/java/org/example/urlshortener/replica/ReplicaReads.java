@@ -0,0 +1,68 @@
+package org.example.urlshortener.replica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Lookups a read replica may answer. Each runs in a read-only transaction, which
+ * {@link ReplicaRoutingDataSource} sends to a replica, except for keys this node wrote within the
+ * last {@code readYourWritesWindow}: those are read from the primary, so a link resolves right
+ * after it is created or changed however far the replicas lag. A lookup a replica finds nothing
+ * for (a key written by another node and not replicated yet, or a replica more than the window
+ * behind) is repeated on the primary, as is one that fails on the replica.
+ */
+public class ReplicaReads {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaReads.class);
+
+    private final TransactionTemplate readOnlyTransaction;
+    // Keys written recently, evicted after the window; past maximumSize, the oldest go early
+    private final Cache<String, Boolean> recentWrites;
+    private final LongAdder primaryReads = new LongAdder();
+
+    public ReplicaReads(PlatformTransactionManager transactionManager, Duration readYourWritesWindow,
+                        long maxRecentWrites) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .maximumSize(maxRecentWrites)
+                .build();
+    }
+
+    /**
+     * Reads of {@code key} go to the primary for the read-your-writes window from now.
+     */
+    public void written(String key) {
+        recentWrites.put(key, Boolean.TRUE);
+    }
+
+    public <T> Optional<T> find(String key, Supplier<Optional<T>> lookup) {
+        if (recentWrites.getIfPresent(key) == null) {
+            try {
+                Optional<T> found = readOnlyTransaction.execute(status -> lookup.get());
+                if (found.isPresent()) {
+                    return found;
+                }
+            } catch (DataAccessException e) {
+                log.debug("Replica lookup of {} failed, reading the primary", key, e);
+            }
+        }
+        primaryReads.increment();
+        return ReplicaRoutingDataSource.onPrimary(() -> readOnlyTransaction.execute(status -> lookup.get()));
+    }
+
+    public long primaryReadCount() {
+        return primaryReads.sum();
+    }
+}
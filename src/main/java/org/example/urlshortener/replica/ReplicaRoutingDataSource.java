@@ -0,0 +1,202 @@
+package org.example.urlshortener.replica;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Sends the connections of read-only transactions to read replicas of the primary database and
+ * every other connection to the primary. Wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, the target is chosen
+ * at a transaction's first statement, once its read-only flag is set, instead of when it begins.
+ * <p>
+ * Replicas take turns while healthy. One whose connection attempt fails is skipped until the next
+ * health check, run every {@code healthCheckInterval}, finds it valid again; with no healthy
+ * replica, reads go to the primary. {@link #onPrimary} sends reads to the primary regardless, for
+ * data a replica may not have yet.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements SmartLifecycle, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    public static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> primaryRequired = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final String[] replicaNames;
+    private final Set<String> unhealthy = ConcurrentHashMap.newKeySet();
+    private final Map<String, LongAdder> connections = new HashMap<>();
+    private final LongAdder failovers = new LongAdder();
+    private final AtomicInteger turn = new AtomicInteger();
+    private final Duration healthCheckInterval;
+    private final Duration healthCheckTimeout;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration healthCheckInterval,
+                                    Duration healthCheckTimeout) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.replicaNames = replicas.keySet().toArray(String[]::new);
+        this.healthCheckInterval = healthCheckInterval;
+        this.healthCheckTimeout = healthCheckTimeout;
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+        connections.put(PRIMARY, new LongAdder());
+        replicas.keySet().forEach(name -> connections.put(name, new LongAdder()));
+    }
+
+    /**
+     * Runs {@code action} with read-only transactions on this thread reading from the primary.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        if (primaryRequired.get() != null) {
+            return action.get();
+        }
+        primaryRequired.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            primaryRequired.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || primaryRequired.get() != null) {
+            return PRIMARY;
+        }
+        for (int i = 0; i < replicaNames.length; i++) {
+            String name = replicaNames[Math.floorMod(turn.getAndIncrement(), replicaNames.length)];
+            if (!unhealthy.contains(name)) {
+                return name;
+            }
+        }
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        // Each failed replica is taken out of rotation, so this ends on a healthy one or the primary
+        Object target = determineCurrentLookupKey();
+        while (!PRIMARY.equals(target)) {
+            try {
+                Connection connection = replicas.get(target).getConnection();
+                connections.get(target).increment();
+                return connection;
+            } catch (SQLException e) {
+                failovers.increment();
+                markUnhealthy((String) target, e);
+            }
+            target = determineCurrentLookupKey();
+        }
+        connections.get(PRIMARY).increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * Validates every replica, taking the ones that pass back into rotation and the others out.
+     */
+    public void checkHealth() {
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            try (Connection connection = replica.getValue().getConnection()) {
+                if (!connection.isValid((int) Math.max(1, healthCheckTimeout.toSeconds()))) {
+                    throw new SQLException("Connection is not valid");
+                }
+                if (unhealthy.remove(replica.getKey())) {
+                    log.info("Read replica {} is healthy again", replica.getKey());
+                }
+            } catch (SQLException e) {
+                markUnhealthy(replica.getKey(), e);
+            }
+        }
+    }
+
+    public int healthyReplicaCount() {
+        return replicaNames.length - unhealthy.size();
+    }
+
+    public boolean isHealthy(String replica) {
+        return replicas.containsKey(replica) && !unhealthy.contains(replica);
+    }
+
+    public Set<String> targetNames() {
+        return connections.keySet();
+    }
+
+    public long connectionCount(String target) {
+        return connections.get(target).sum();
+    }
+
+    public long failoverCount() {
+        return failovers.sum();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkHealth, healthCheckInterval.toMillis(),
+                healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource dataSource : replicas.values()) {
+            if (dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    private void markUnhealthy(String replica, SQLException cause) {
+        if (unhealthy.add(replica)) {
+            log.warn("Read replica {} is unavailable, reading from the other replicas or the primary: {}", replica,
+                    cause.getMessage());
+        }
+    }
+}
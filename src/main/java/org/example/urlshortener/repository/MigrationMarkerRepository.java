@@ -0,0 +1,7 @@
+package org.example.urlshortener.repository;
+
+import org.example.urlshortener.model.MigrationMarkerEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MigrationMarkerRepository extends JpaRepository<MigrationMarkerEntity, String> {
+}
@@ -0,0 +1,19 @@
+package org.example.urlshortener.repository;
+
+import org.example.urlshortener.model.UrlMappingRow;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveUrlMappingRepository extends R2dbcRepository<UrlMappingRow, Long> {
+
+    Mono<UrlMappingRow> findByShortCode(String shortCode);
+    Mono<UrlMappingRow> findByUrlDigest(String urlDigest);
+
+    /**
+     * Draws an id from the sequence JPA uses. Each value is the top of a block Hibernate's pooled
+     * optimizer will never hand out itself, so the two stacks cannot collide.
+     */
+    @Query("SELECT NEXT VALUE FOR url_mapping_seq")
+    Mono<Long> nextId();
+}
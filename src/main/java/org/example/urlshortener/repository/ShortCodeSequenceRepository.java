@@ -0,0 +1,16 @@
+package org.example.urlshortener.repository;
+
+import org.example.urlshortener.model.ShortCodeSequenceEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import jakarta.persistence.LockModeType;
+import java.util.Optional;
+
+public interface ShortCodeSequenceRepository extends JpaRepository<ShortCodeSequenceEntity, String> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ShortCodeSequenceEntity s where s.name = :name")
+    Optional<ShortCodeSequenceEntity> findForUpdate(String name);
+}
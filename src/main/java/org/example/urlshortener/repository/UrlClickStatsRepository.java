@@ -0,0 +1,27 @@
+package org.example.urlshortener.repository;
+
+import org.example.urlshortener.model.UrlClickStatsEntity;
+import org.example.urlshortener.model.UrlClickStatsId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UrlClickStatsRepository extends JpaRepository<UrlClickStatsEntity, UrlClickStatsId> {
+
+    List<UrlClickStatsEntity> findByIdShortCodeOrderByIdBucketStartDesc(String shortCode, Pageable pageable);
+
+    @Query("select coalesce(sum(s.clicks), 0) from UrlClickStatsEntity s where s.id.shortCode = :shortCode")
+    long sumClicksByShortCode(@Param("shortCode") String shortCode);
+
+    /**
+     * Codes with the most clicks in buckets starting at or after {@code since}, most clicked first;
+     * the page size bounds how many are returned.
+     */
+    @Query("select s.id.shortCode from UrlClickStatsEntity s where s.id.bucketStart >= :since"
+            + " group by s.id.shortCode order by sum(s.clicks) desc, s.id.shortCode asc")
+    List<String> findHottestShortCodes(@Param("since") LocalDateTime since, Pageable pageable);
+}
@@ -1,12 +1,45 @@
 package org.example.urlshortener.repository;
 
+import org.example.urlshortener.model.ExpiringMappingView;
 import org.example.urlshortener.model.UrlMappingEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
-public interface UrlMappingRepository extends JpaRepository<UrlMappingEntity, Long> {
+/**
+ * The default {@link UrlMappingStore}, over the {@code url_mapping} table. The migrations, which
+ * rewrite rows in place, use it directly.
+ */
+public interface UrlMappingRepository extends JpaRepository<UrlMappingEntity, Long>, UrlMappingStore {
 
-    Optional<UrlMappingEntity> findByShortCode(String shortCode);
-    Optional<UrlMappingEntity> findByOriginalUrl(String originalUrl);
+    List<UrlMappingEntity> findByUrlDigestIsNullAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    @Override
+    @Query("select m.id as id, m.shortCode as shortCode, m.expiresAt as expiresAt from UrlMappingEntity m"
+            + " where m.expiresAt <= :cutoff"
+            + " and (m.expiresAt > :afterExpiresAt or (m.expiresAt = :afterExpiresAt and m.id > :afterId))"
+            + " order by m.expiresAt, m.id")
+    List<ExpiringMappingView> findExpiredAfter(@Param("cutoff") LocalDateTime cutoff,
+                                               @Param("afterExpiresAt") LocalDateTime afterExpiresAt,
+                                               @Param("afterId") Long afterId,
+                                               Pageable pageable);
+
+    @Override
+    @Transactional
+    @Modifying
+    @Query("delete from UrlMappingEntity m where m.id in :ids and m.expiresAt <= :cutoff")
+    int deleteExpiredByIdIn(@Param("ids") Collection<Long> ids, @Param("cutoff") LocalDateTime cutoff);
+
+    @Override
+    @Transactional
+    @Modifying
+    @Query("update UrlMappingEntity m set m.expiresAt = :expiresAt where m.id = :id")
+    int updateExpiresAt(@Param("id") Long id, @Param("expiresAt") LocalDateTime expiresAt);
 }
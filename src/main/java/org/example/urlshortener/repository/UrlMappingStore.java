@@ -0,0 +1,59 @@
+package org.example.urlshortener.repository;
+
+import org.example.urlshortener.model.ExpiringMappingView;
+import org.example.urlshortener.model.ShortCodeView;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The mapping storage the service, strategies and background jobs run on: lookups by short code
+ * and URL digest, keyset scans by id and expiry, inserts and the two row updates the application
+ * makes. {@link UrlMappingRepository} implements it over JPA, the default; the engines selected by
+ * {@code app.storage.engine} are alternative implementations. Mappings are only ever inserted
+ * through {@code saveAll} and {@code saveAndFlush}, with their id unset; an expiry changes through
+ * {@link #updateExpiresAt}.
+ */
+public interface UrlMappingStore {
+
+    Optional<UrlMappingEntity> findByShortCode(String shortCode);
+    Optional<UrlMappingEntity> findByUrlDigest(String urlDigest);
+
+    List<UrlMappingEntity> findByShortCodeIn(Collection<String> shortCodes);
+    List<UrlMappingEntity> findByUrlDigestIn(Collection<String> urlDigests);
+
+    List<ShortCodeView> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    List<UrlMappingEntity> findAllByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    List<ExpiringMappingView> findByExpiresAtLessThanEqualOrderByExpiresAtAscIdAsc(LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * The page of mappings expired at {@code cutoff} that follows {@code (afterExpiresAt, afterId)}
+     * in expiry, then id, order.
+     */
+    List<ExpiringMappingView> findExpiredAfter(LocalDateTime cutoff, LocalDateTime afterExpiresAt, Long afterId,
+                                               Pageable pageable);
+
+    /**
+     * Deletes the given rows unless their expiry was pushed past {@code cutoff} since they were read.
+     */
+    int deleteExpiredByIdIn(Collection<Long> ids, LocalDateTime cutoff);
+
+    int updateExpiresAt(Long id, LocalDateTime expiresAt);
+
+    /**
+     * Inserts new mappings, assigning their ids. A taken short code or URL digest fails the call
+     * with a {@link org.springframework.dao.DataIntegrityViolationException}.
+     */
+    <S extends UrlMappingEntity> List<S> saveAll(Iterable<S> entities);
+
+    /**
+     * Inserts one new mapping, written through before the call returns.
+     */
+    <S extends UrlMappingEntity> S saveAndFlush(S entity);
+}
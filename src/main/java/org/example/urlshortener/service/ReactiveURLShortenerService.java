@@ -0,0 +1,254 @@
+package org.example.urlshortener.service;
+
+import org.example.urlshortener.cache.OffHeapRedirectIndex;
+import org.example.urlshortener.cache.ShortCodeBloomFilter;
+import org.example.urlshortener.cache.UrlMappingCache;
+import org.example.urlshortener.cluster.ClusterInvalidationBus;
+import org.example.urlshortener.exception.enumeration.UrlShortenerError;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.model.ShortenResponse;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.model.UrlMappingResponse;
+import org.example.urlshortener.model.UrlMappingRow;
+import org.example.urlshortener.repository.ReactiveUrlMappingRepository;
+import org.example.urlshortener.service.URLShortenerMetrics.Operation;
+import org.example.urlshortener.strategy.ShortCodeStrategy;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.example.urlshortener.util.UrlDigest;
+import org.example.urlshortener.util.UrlValidationUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.data.relational.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking counterpart of {@link URLShortenerService} over R2DBC, used by the reactive
+ * profile. It shares the Bloom filter, cache, redirect index, short code strategy and metrics with
+ * the blocking stack, and tells the other nodes about its writes the same way. Strategies may
+ * touch JPA (collision probes, id block leases), so they run on the bounded elastic scheduler
+ * rather than an event-loop thread.
+ * <p>
+ * R2DBC reads and writes the {@code url_mapping} table of the default storage engine. When the
+ * mappings live elsewhere (the log-structured or sharded engine), pass through a write-behind
+ * journal first, or are read from replicas, {@link #offloading} answers every call from the
+ * {@link URLShortenerService} on the bounded elastic scheduler instead.
+ */
+public class ReactiveURLShortenerService {
+
+    private final ReactiveUrlMappingRepository repository;
+    private final R2dbcEntityTemplate template;
+    private final UrlMappingCache cache;
+    private final ShortCodeBloomFilter bloomFilter;
+    private final ShortCodeStrategy shortCodeStrategy;
+    private final UrlCanonicalizer canonicalizer;
+    private final URLShortenerMetrics metrics;
+    @Nullable
+    private final OffHeapRedirectIndex redirectIndex;
+    @Nullable
+    private final ClusterInvalidationBus invalidationBus;
+    @Nullable
+    private final URLShortenerService blocking;
+
+    @Value("${app.base-url}")
+    private String baseUrl;
+
+    @Value("${app.create.max-attempts}")
+    private int maxCreateAttempts;
+
+    public ReactiveURLShortenerService(ReactiveUrlMappingRepository repository, R2dbcEntityTemplate template,
+                                       UrlMappingCache cache, ShortCodeBloomFilter bloomFilter,
+                                       ShortCodeStrategy shortCodeStrategy, UrlCanonicalizer canonicalizer,
+                                       URLShortenerMetrics metrics,
+                                       @Nullable OffHeapRedirectIndex redirectIndex,
+                                       @Nullable ClusterInvalidationBus invalidationBus) {
+        this(repository, template, cache, bloomFilter, shortCodeStrategy, canonicalizer, metrics, redirectIndex,
+                invalidationBus, null);
+    }
+
+    private ReactiveURLShortenerService(ReactiveUrlMappingRepository repository, R2dbcEntityTemplate template,
+                                        UrlMappingCache cache, ShortCodeBloomFilter bloomFilter,
+                                        ShortCodeStrategy shortCodeStrategy, UrlCanonicalizer canonicalizer,
+                                        URLShortenerMetrics metrics, OffHeapRedirectIndex redirectIndex,
+                                        ClusterInvalidationBus invalidationBus, URLShortenerService blocking) {
+        this.repository = repository;
+        this.template = template;
+        this.cache = cache;
+        this.bloomFilter = bloomFilter;
+        this.shortCodeStrategy = shortCodeStrategy;
+        this.canonicalizer = canonicalizer;
+        this.metrics = metrics;
+        this.redirectIndex = redirectIndex;
+        this.invalidationBus = invalidationBus;
+        this.blocking = blocking;
+    }
+
+    /**
+     * A service that runs each call of {@code blocking} on the bounded elastic scheduler, for the
+     * setups R2DBC cannot serve. {@code blocking} does its own metering and invalidation.
+     */
+    public static ReactiveURLShortenerService offloading(URLShortenerService blocking) {
+        return new ReactiveURLShortenerService(null, null, null, null, null, null, null, null, null, blocking);
+    }
+
+    public Mono<ShortenResponse> shortenUrl(String originalUrl) {
+        return shortenUrl(originalUrl, null);
+    }
+
+    public Mono<ShortenResponse> shortenUrl(String originalUrl, LocalDateTime expiresAt) {
+        if (blocking != null) {
+            return offload(() -> blocking.shortenUrl(originalUrl, expiresAt));
+        }
+        return metrics.record(Operation.SHORTEN, Mono.fromCallable(() -> {
+                    String url = canonicalizer.canonicalize(originalUrl);
+                    if (url == null) {
+                        UrlValidationUtil.validate(originalUrl);
+                    }
+                    if (expiresAt != null && !expiresAt.isAfter(LocalDateTime.now())) {
+                        throw new URLShortenerServiceException(HttpStatus.BAD_REQUEST,
+                                UrlShortenerError.EXPIRY_NOT_IN_FUTURE.getMessage());
+                    }
+                    return url;
+                })
+                .flatMap(url -> findOrCreate(url, UrlDigest.of(url), expiresAt, 0))
+                .map(shortCode -> new ShortenResponse(baseUrl + shortCode)));
+    }
+
+    public Mono<String> getOriginalUrl(String shortCode) {
+        if (blocking != null) {
+            return offload(() -> blocking.getOriginalUrl(shortCode));
+        }
+        return metrics.record(Operation.REDIRECT, Mono.defer(() -> {
+            // As on the blocking path, the off-heap index answers before the cache is consulted
+            OffHeapRedirectIndex.Target target = redirectIndex == null ? null : redirectIndex.get(shortCode);
+            if (target != null) {
+                return target.isExpiredAt(LocalDateTime.now()) ? Mono.error(expired()) : Mono.just(target.originalUrl());
+            }
+            return findMapping(shortCode).map(UrlMappingEntity::getOriginalUrl);
+        }));
+    }
+
+    public Mono<UrlMappingResponse> getUrlMapping(String shortCode) {
+        if (blocking != null) {
+            return offload(() -> blocking.getUrlMapping(shortCode));
+        }
+        return metrics.record(Operation.INFO, findMapping(shortCode).map(mapping -> new UrlMappingResponse(
+                mapping.getOriginalUrl(),
+                baseUrl + mapping.getShortCode(),
+                mapping.getCreatedAt(),
+                mapping.getExpiresAt()
+        )));
+    }
+
+    private Mono<UrlMappingEntity> findMapping(String shortCode) {
+        return Mono.defer(() -> {
+            if (!bloomFilter.mightContain(shortCode)) {
+                metrics.rejectedByBloomFilter();
+                return Mono.error(notFound());
+            }
+            long version = invalidationBus == null ? 0 : invalidationBus.version();
+            return cache.getOrLoad(shortCode, code -> repository.findByShortCode(code).map(UrlMappingRow::toEntity))
+                    .flatMap(mapping -> {
+                        if (mapping.isEmpty()) {
+                            metrics.notFoundInDatabase();
+                            return Mono.error(notFound());
+                        }
+                        // Read repair, skipped if another node changed the code since the read started
+                        if (redirectIndex != null
+                                && (invalidationBus == null || !invalidationBus.changedSince(shortCode, version))) {
+                            redirectIndex.putIfAbsent(shortCode, mapping.get().getOriginalUrl(),
+                                    mapping.get().getExpiresAt());
+                        }
+                        return rejectExpired(mapping.get());
+                    });
+        });
+    }
+
+    private Mono<UrlMappingEntity> rejectExpired(UrlMappingEntity mapping) {
+        return mapping.isExpiredAt(LocalDateTime.now()) ? Mono.error(expired()) : Mono.just(mapping);
+    }
+
+    /**
+     * Same arbitration as the blocking path: the unique indexes decide concurrent inserts, and a
+     * losing insert either finds the winner by digest or retries with a fresh code. An existing
+     * mapping keeps the later of the two expiries.
+     */
+    private Mono<String> findOrCreate(String originalUrl, String digest, LocalDateTime expiresAt, int attempt) {
+        if (attempt >= maxCreateAttempts) {
+            return Mono.error(new URLShortenerServiceException(HttpStatus.CONFLICT,
+                    UrlShortenerError.SHORT_CODE_CONFLICT.getMessage()));
+        }
+        return repository.findByUrlDigest(digest)
+                .filter(row -> canonicalizer.matches(row.getOriginalUrl(), originalUrl))
+                .flatMap(row -> retainExpiry(row, expiresAt))
+                .switchIfEmpty(Mono.defer(() -> insert(originalUrl, digest, expiresAt)
+                        .onErrorResume(DataIntegrityViolationException.class, e -> {
+                            metrics.createRetried();
+                            return findOrCreate(originalUrl, digest, expiresAt, attempt + 1);
+                        })));
+    }
+
+    // Empty when the expiry sweeper deleted the row in between, so the caller inserts it afresh
+    private Mono<String> retainExpiry(UrlMappingRow row, LocalDateTime expiresAt) {
+        LocalDateTime retained = row.getExpiresAt() == null || expiresAt == null ? null
+                : expiresAt.isAfter(row.getExpiresAt()) ? expiresAt : row.getExpiresAt();
+        if (Objects.equals(retained, row.getExpiresAt())) {
+            return Mono.just(row.getShortCode());
+        }
+        return template.update(UrlMappingRow.class)
+                .matching(Query.query(Criteria.where("id").is(row.getId())))
+                .apply(Update.update("expires_at", retained))
+                .filter(updated -> updated == 1)
+                .map(updated -> {
+                    written(row.getShortCode(), row.getOriginalUrl(), retained);
+                    return row.getShortCode();
+                });
+    }
+
+    private Mono<String> insert(String originalUrl, String digest, LocalDateTime expiresAt) {
+        return Mono.fromCallable(() -> shortCodeStrategy.generate(originalUrl))
+                .subscribeOn(Schedulers.boundedElastic())
+                .zipWith(repository.nextId())
+                .flatMap(codeAndId -> template.insert(new UrlMappingRow(codeAndId.getT2(), originalUrl, digest,
+                        codeAndId.getT1(), LocalDateTime.now(), expiresAt)))
+                .map(row -> {
+                    bloomFilter.put(row.getShortCode());
+                    written(row.getShortCode(), row.getOriginalUrl(), row.getExpiresAt());
+                    return row.getShortCode();
+                });
+    }
+
+    // After every write of a mapping: replace this node's copies and have the other nodes drop theirs
+    private void written(String shortCode, String originalUrl, LocalDateTime expiresAt) {
+        cache.invalidate(shortCode);
+        if (redirectIndex != null) {
+            redirectIndex.put(shortCode, originalUrl, expiresAt);
+        }
+        if (invalidationBus != null) {
+            invalidationBus.publish(shortCode);
+        }
+    }
+
+    private static <T> Mono<T> offload(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static URLShortenerServiceException notFound() {
+        return new URLShortenerServiceException(HttpStatus.NOT_FOUND,
+                UrlShortenerError.SHORT_URL_NOT_FOUND.getMessage(), false);
+    }
+
+    private static URLShortenerServiceException expired() {
+        return new URLShortenerServiceException(HttpStatus.GONE,
+                UrlShortenerError.SHORT_URL_EXPIRED.getMessage(), false);
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.urlshortener.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the {@link URLShortenerService} and {@link ReactiveURLShortenerService} hot paths. Each operation gets one timer per outcome
+ * with client-side (HdrHistogram-backed) p50/p99/p999; tags are limited to the outcome so the
+ * series count stays fixed no matter how many short codes exist.
+ */
+public class URLShortenerMetrics {
+
+    public enum Operation {
+        SHORTEN("urlshortener.shorten", "Shortening a single URL"),
+        REDIRECT("urlshortener.redirect", "Resolving a short code for a redirect"),
+        INFO("urlshortener.info", "Resolving a short code for its mapping details");
+
+        private final String meterName;
+        private final String description;
+
+        Operation(String meterName, String description) {
+            this.meterName = meterName;
+            this.description = description;
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS("success"), INVALID("invalid"), NOT_FOUND("not-found"), EXPIRED("expired"), CONFLICT("conflict"),
+        ERROR("error");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    // Every operation and outcome is registered up front, so recording a sample never looks up the registry
+    private final Timer[][] timers = new Timer[Operation.values().length][Outcome.values().length];
+    private final Counter rejectedByBloomFilter;
+    private final Counter notFoundInDatabase;
+    private final Counter createRetries;
+
+    public URLShortenerMetrics(MeterRegistry registry) {
+        for (Operation operation : Operation.values()) {
+            for (Outcome outcome : Outcome.values()) {
+                timers[operation.ordinal()][outcome.ordinal()] = Timer.builder(operation.meterName)
+                        .description(operation.description)
+                        .tag("outcome", outcome.tag)
+                        .publishPercentiles(PERCENTILES)
+                        .register(registry);
+            }
+        }
+        this.rejectedByBloomFilter = Counter.builder("urlshortener.not.found")
+                .description("Lookups of unknown short codes")
+                .tag("source", "bloom-filter")
+                .register(registry);
+        this.notFoundInDatabase = Counter.builder("urlshortener.not.found")
+                .description("Lookups of unknown short codes")
+                .tag("source", "database")
+                .register(registry);
+        this.createRetries = Counter.builder("urlshortener.create.retries")
+                .description("Inserts that lost a unique-index race and were retried")
+                .register(registry);
+    }
+
+    /**
+     * Times {@code call}, tagging the sample with the outcome: success, or the kind of error the
+     * service reported.
+     */
+    public <T> T record(Operation operation, Supplier<T> call) {
+        long started = System.nanoTime();
+        try {
+            T result = call.get();
+            sample(operation, Outcome.SUCCESS, started);
+            return result;
+        } catch (RuntimeException e) {
+            sample(operation, outcome(e), started);
+            throw e;
+        }
+    }
+
+    /**
+     * Times {@code call} from subscription until it completes or fails, tagged like
+     * {@link #record(Operation, Supplier)}.
+     */
+    public <T> Mono<T> record(Operation operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return call.doOnSuccess(result -> sample(operation, Outcome.SUCCESS, started))
+                    .doOnError(e -> sample(operation, outcome(e), started));
+        });
+    }
+
+    public void rejectedByBloomFilter() {
+        rejectedByBloomFilter.increment();
+    }
+
+    public void notFoundInDatabase() {
+        notFoundInDatabase.increment();
+    }
+
+    public void createRetried() {
+        createRetries.increment();
+    }
+
+    private void sample(Operation operation, Outcome outcome, long started) {
+        timers[operation.ordinal()][outcome.ordinal()].record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private static Outcome outcome(Throwable error) {
+        return error instanceof URLShortenerServiceException e ? outcome(e.getStatus()) : Outcome.ERROR;
+    }
+
+    private static Outcome outcome(HttpStatus status) {
+        return switch (status) {
+            case BAD_REQUEST -> Outcome.INVALID;
+            case NOT_FOUND -> Outcome.NOT_FOUND;
+            case GONE -> Outcome.EXPIRED;
+            case CONFLICT -> Outcome.CONFLICT;
+            default -> Outcome.ERROR;
+        };
+    }
+}
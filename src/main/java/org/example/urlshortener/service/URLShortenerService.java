@@ -1,82 +1,504 @@
 package org.example.urlshortener.service;
 
+import org.example.urlshortener.cache.OffHeapRedirectIndex;
+import org.example.urlshortener.cache.ShortCodeBloomFilter;
+import org.example.urlshortener.cache.UrlMappingCache;
+import org.example.urlshortener.cluster.ClusterInvalidationBus;
 import org.example.urlshortener.exception.enumeration.UrlShortenerError;
 import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.model.BatchShortenResponse;
+import org.example.urlshortener.model.BatchShortenResult;
 import org.example.urlshortener.model.ShortenResponse;
 import org.example.urlshortener.model.UrlMappingEntity;
 import org.example.urlshortener.model.UrlMappingResponse;
-import org.example.urlshortener.repository.UrlMappingRepository;
-import org.example.urlshortener.util.ShortCodeGenerator;
+import org.example.urlshortener.replica.ReplicaReads;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.service.URLShortenerMetrics.Operation;
+import org.example.urlshortener.strategy.ShortCodeStrategy;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.example.urlshortener.util.UrlDigest;
 import org.example.urlshortener.util.UrlValidationUtil;
+import org.example.urlshortener.writebehind.WriteBehindWriter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 @Service
 public class URLShortenerService {
 
-    private final UrlMappingRepository repository;
+    private final UrlMappingStore repository;
+    private final UrlMappingCache cache;
+    private final ShortCodeBloomFilter bloomFilter;
+    private final ShortCodeStrategy shortCodeStrategy;
+    private final TransactionTemplate transactionTemplate;
+    private final URLShortenerMetrics metrics;
+    private final UrlCanonicalizer canonicalizer;
+    // Null unless app.redirect-index.enabled
+    private final OffHeapRedirectIndex redirectIndex;
+    // Null unless app.cluster.transport is set
+    private final ClusterInvalidationBus invalidationBus;
+    // Null unless app.write-behind.enabled
+    private final WriteBehindWriter writeBehind;
+    // Null unless app.replica.enabled
+    private final ReplicaReads replicaReads;
 
     @Value("${app.base-url}")
     private String baseUrl;
 
-    public URLShortenerService(UrlMappingRepository repository) {
+    @Value("${app.create.max-attempts}")
+    private int maxCreateAttempts;
+
+    @Value("${app.batch.max-size}")
+    private int maxBatchSize;
+
+    @Value("${app.batch.lookup-chunk-size}")
+    private int lookupChunkSize;
+
+    public URLShortenerService(UrlMappingStore repository, UrlMappingCache cache,
+                               ShortCodeBloomFilter bloomFilter, ShortCodeStrategy shortCodeStrategy,
+                               TransactionTemplate transactionTemplate, URLShortenerMetrics metrics,
+                               UrlCanonicalizer canonicalizer,
+                               @Nullable OffHeapRedirectIndex redirectIndex,
+                               @Nullable ClusterInvalidationBus invalidationBus,
+                               @Nullable WriteBehindWriter writeBehind,
+                               @Nullable ReplicaReads replicaReads) {
         this.repository = repository;
+        this.cache = cache;
+        this.bloomFilter = bloomFilter;
+        this.shortCodeStrategy = shortCodeStrategy;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+        this.canonicalizer = canonicalizer;
+        this.redirectIndex = redirectIndex;
+        this.invalidationBus = invalidationBus;
+        this.writeBehind = writeBehind;
+        this.replicaReads = replicaReads;
     }
 
     public ShortenResponse shortenUrl(String originalUrl) {
-        // 1. Validate
-        UrlValidationUtil.validate(originalUrl);
+        return shortenUrl(originalUrl, null);
+    }
+
+    /**
+     * Shortens {@code originalUrl}, optionally expiring the link at {@code expiresAt}. A URL keeps
+     * a single mapping, so re-shortening it keeps the longer-lived of the two expiries (none
+     * outlives any) and revives the code if it had already expired. URLs are stored in canonical
+     * form, so equivalent spellings of a URL share its mapping.
+     */
+    public ShortenResponse shortenUrl(String originalUrl, LocalDateTime expiresAt) {
+        return metrics.record(Operation.SHORTEN, () -> {
+            // 1. Validate and canonicalize; null means invalid, and validate reports why
+            String url = canonicalizer.canonicalize(originalUrl);
+            if (url == null) {
+                UrlValidationUtil.validate(originalUrl);
+            }
+            if (expiresAt != null && !expiresAt.isAfter(LocalDateTime.now())) {
+                throw new URLShortenerServiceException(HttpStatus.BAD_REQUEST,
+                        UrlShortenerError.EXPIRY_NOT_IN_FUTURE.getMessage());
+            }
+
+            // 2. Reuse an existing mapping or persist a new one
+            String shortCode = findOrCreate(url, expiresAt);
+
+            // 3. Return Shortened URL
+            return new ShortenResponse(baseUrl + shortCode);
+        });
+    }
 
-        // 2. Reuse existing mapping
-        Optional<UrlMappingEntity> existing = repository.findByOriginalUrl(originalUrl);
-        if (existing.isPresent()) {
-            return new ShortenResponse(baseUrl + existing.get().getShortCode());
+    /**
+     * Shortens a batch of URLs. Canonicalization and validation run in parallel, existing mappings
+     * are resolved with set-based lookups, codes are generated in bulk and new mappings are written
+     * with batched inserts in one transaction. If a concurrent writer claims one of the URLs or codes
+     * first, the new URLs fall back to the race-free single-item path. Results (and per-item errors)
+     * are returned in request order, each echoing the URL as submitted; equivalent URLs share a
+     * code. Batch links never expire. With write-behind the new mappings are journaled together
+     * instead, and URLs another create claimed first take the single-item path.
+     */
+    public BatchShortenResponse shortenUrls(List<String> originalUrls) {
+        if (originalUrls.size() > maxBatchSize) {
+            throw new URLShortenerServiceException(HttpStatus.BAD_REQUEST,
+                    UrlShortenerError.BATCH_TOO_LARGE.getMessage() + " - " + maxBatchSize);
         }
 
-        // 3. Generate a code and resolve collisions
-        String shortCode = generateUniqueShortCode(originalUrl);
+        // 1. Canonicalize and validate in parallel; a null error means the item is valid
+        String[] urls = new String[originalUrls.size()];
+        String[] errors = new String[originalUrls.size()];
+        IntStream.range(0, originalUrls.size()).parallel().forEach(i -> {
+            urls[i] = canonicalizer.canonicalize(originalUrls.get(i));
+            if (urls[i] == null) {
+                errors[i] = validationError(originalUrls.get(i));
+            }
+        });
 
-        // 4. Persist new mapping
-        UrlMappingEntity mapping = new UrlMappingEntity(originalUrl, shortCode, LocalDateTime.now());
-        repository.save(mapping);
+        Set<String> distinctUrls = new LinkedHashSet<>();
+        for (int i = 0; i < originalUrls.size(); i++) {
+            if (errors[i] == null) {
+                distinctUrls.add(urls[i]);
+            }
+        }
+
+        // 2. Reuse existing mappings
+        Map<String, String> existingCodes = findExistingCodes(distinctUrls);
+
+        // 3. Generate codes for the rest in bulk
+        List<String> newUrls = new ArrayList<>();
+        for (String url : distinctUrls) {
+            if (!existingCodes.containsKey(url)) {
+                newUrls.add(url);
+            }
+        }
+        List<String> newCodes = shortCodeStrategy.generateAll(newUrls);
 
-        // 5. Return Shortened URL
-        return new ShortenResponse(baseUrl + shortCode);
+        // 4. Persist with batched inserts
+        LocalDateTime now = LocalDateTime.now();
+        List<UrlMappingEntity> mappings = new ArrayList<>(newUrls.size());
+        Map<String, String> createdCodes = new HashMap<>();
+        for (int i = 0; i < newUrls.size(); i++) {
+            mappings.add(new UrlMappingEntity(newUrls.get(i), newCodes.get(i), now));
+            createdCodes.put(newUrls.get(i), newCodes.get(i));
+        }
+        if (writeBehind != null) {
+            submitBehind(mappings, createdCodes);
+        } else {
+            try {
+                transactionTemplate.executeWithoutResult(status -> repository.saveAll(mappings));
+                for (UrlMappingEntity mapping : mappings) {
+                    bloomFilter.put(mapping.getShortCode());
+                    written(mapping.getShortCode(), mapping.getOriginalUrl(), null);
+                }
+            } catch (DataIntegrityViolationException e) {
+                for (String url : newUrls) {
+                    createdCodes.put(url, findOrCreate(url, null));
+                }
+            }
+        }
+
+        // 5. Assemble per-item results in request order
+        List<BatchShortenResult> results = new ArrayList<>(originalUrls.size());
+        for (int i = 0; i < originalUrls.size(); i++) {
+            String url = originalUrls.get(i);
+            if (errors[i] != null) {
+                results.add(BatchShortenResult.failure(i, url, HttpStatus.BAD_REQUEST.value(), errors[i]));
+            } else if (existingCodes.containsKey(urls[i])) {
+                results.add(BatchShortenResult.success(i, url, HttpStatus.OK.value(), baseUrl + existingCodes.get(urls[i])));
+            } else {
+                results.add(BatchShortenResult.success(i, url, HttpStatus.CREATED.value(), baseUrl + createdCodes.get(urls[i])));
+            }
+        }
+        return new BatchShortenResponse(results);
+    }
+
+    /**
+     * Writes mappings copied from elsewhere under their own short codes, creation times and expiries,
+     * in one transaction. Mappings whose short code or URL exists already are skipped, found with two
+     * set-based lookups; if a concurrent writer takes one in between, the batch is retried one
+     * mapping at a time. Mappings still waiting in the write-behind count as existing. Returns how
+     * many were written.
+     */
+    public int importMappings(List<UrlMappingEntity> mappings) {
+        Set<String> takenCodes = new HashSet<>();
+        Set<String> takenDigests = new HashSet<>();
+        repository.findByShortCodeIn(mappings.stream().map(UrlMappingEntity::getShortCode).toList())
+                .forEach(mapping -> takenCodes.add(mapping.getShortCode()));
+        repository.findByUrlDigestIn(mappings.stream().map(UrlMappingEntity::getUrlDigest).toList())
+                .forEach(mapping -> takenDigests.add(mapping.getUrlDigest()));
+        List<UrlMappingEntity> fresh = new ArrayList<>(mappings.size());
+        for (UrlMappingEntity mapping : mappings) {
+            if (!takenCodes.contains(mapping.getShortCode()) && !takenDigests.contains(mapping.getUrlDigest())
+                    && !isPending(mapping)) {
+                fresh.add(mapping);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> repository.saveAll(fresh));
+            fresh.forEach(this::imported);
+            return fresh.size();
+        } catch (DataIntegrityViolationException e) {
+            int written = 0;
+            for (UrlMappingEntity mapping : fresh) {
+                // Fresh entities: the rolled-back batch left ids on the originals
+                UrlMappingEntity retry = new UrlMappingEntity(mapping.getOriginalUrl(), mapping.getShortCode(),
+                        mapping.getCreatedAt(), mapping.getExpiresAt());
+                try {
+                    repository.saveAndFlush(retry);
+                } catch (DataIntegrityViolationException conflict) {
+                    continue;
+                }
+                imported(retry);
+                written++;
+            }
+            return written;
+        }
     }
 
     public String getOriginalUrl(String shortCode) {
-        UrlMappingEntity mapping = repository.findByShortCode(shortCode)
-                .orElseThrow(() -> new URLShortenerServiceException(HttpStatus.NOT_FOUND,
-                        UrlShortenerError.SHORT_URL_NOT_FOUND.getMessage()));
-        return mapping.getOriginalUrl();
+        return metrics.record(Operation.REDIRECT, () -> {
+            // The off-heap index answers without touching the heap cache; misses (codes written by
+            // another node, or before the startup load finished) take the regular path below
+            OffHeapRedirectIndex.Target target = redirectIndex == null ? null : redirectIndex.get(shortCode);
+            if (target != null) {
+                if (target.isExpiredAt(LocalDateTime.now())) {
+                    throw expired();
+                }
+                return target.originalUrl();
+            }
+            return findMapping(shortCode).getOriginalUrl();
+        });
     }
 
     public UrlMappingResponse getUrlMapping(String shortCode) {
-        UrlMappingEntity mapping =  repository.findByShortCode(shortCode)
-                .orElseThrow(() -> new URLShortenerServiceException(HttpStatus.NOT_FOUND,
-                        UrlShortenerError.SHORT_URL_NOT_FOUND.getMessage()));
-        return new UrlMappingResponse(
-                mapping.getOriginalUrl(),
-                baseUrl + mapping.getShortCode(),
-                mapping.getCreatedAt()
-        );
-
-    }
-
-    private String generateUniqueShortCode(String originalUrl) {
-        String shortCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
-        int counter = 1;
-        while (repository.findByShortCode(shortCode).isPresent()) {
-            UrlMappingEntity m = repository.findByShortCode(shortCode).get();
-            if (m.getOriginalUrl().equals(originalUrl)) {
+        return metrics.record(Operation.INFO, () -> {
+            UrlMappingEntity mapping = findMapping(shortCode);
+            return new UrlMappingResponse(
+                    mapping.getOriginalUrl(),
+                    baseUrl + mapping.getShortCode(),
+                    mapping.getCreatedAt(),
+                    mapping.getExpiresAt()
+            );
+        });
+    }
+
+    /**
+     * Race-free create without a global lock: the unique indexes on the short code and the URL
+     * digest arbitrate between concurrent writers. A losing insert re-reads by digest (the same URL
+     * won) or asks the strategy for a fresh code (the code was taken), up to a bounded number of
+     * attempts. With write-behind, mappings not yet written are found in, and new ones claimed in,
+     * the writer's pending index, which arbitrates between creates on this node the same way.
+     */
+    private String findOrCreate(String originalUrl, LocalDateTime expiresAt) {
+        String digest = UrlDigest.of(originalUrl);
+        for (int attempt = 0; attempt < maxCreateAttempts; attempt++) {
+            UrlMappingEntity pending = writeBehind == null ? null : writeBehind.findByUrlDigest(digest);
+            if (pending != null && pending.getOriginalUrl().equals(originalUrl)) {
+                LocalDateTime retained = laterExpiry(pending.getExpiresAt(), expiresAt);
+                // False means it was written in between; the repository has it on the next attempt
+                if (Objects.equals(retained, pending.getExpiresAt()) || writeBehind.extendExpiry(pending, retained)) {
+                    return pending.getShortCode();
+                }
+                continue;
+            }
+
+            Optional<UrlMappingEntity> existing = repository.findByUrlDigest(digest)
+                    .filter(mapping -> canonicalizer.matches(mapping.getOriginalUrl(), originalUrl));
+            if (existing.isPresent()) {
+                UrlMappingEntity mapping = existing.get();
+                LocalDateTime retained = laterExpiry(mapping.getExpiresAt(), expiresAt);
+                if (Objects.equals(retained, mapping.getExpiresAt())) {
+                    return mapping.getShortCode();
+                }
+                // Zero rows means the expiry sweeper deleted the mapping in between; create it afresh
+                if (repository.updateExpiresAt(mapping.getId(), retained) == 1) {
+                    written(mapping.getShortCode(), mapping.getOriginalUrl(), retained);
+                    return mapping.getShortCode();
+                }
+                continue;
+            }
+
+            String shortCode = shortCodeStrategy.generate(originalUrl);
+            if (writeBehind != null) {
+                if (writeBehind.submit(new UrlMappingEntity(originalUrl, shortCode, LocalDateTime.now(), expiresAt)) != null) {
+                    metrics.createRetried();
+                    continue;
+                }
+                accepted(shortCode);
                 return shortCode;
             }
-            shortCode = ShortCodeGenerator.generateHashShortCode(originalUrl + counter++);
+            try {
+                repository.saveAndFlush(new UrlMappingEntity(originalUrl, shortCode, LocalDateTime.now(), expiresAt));
+            } catch (DataIntegrityViolationException e) {
+                metrics.createRetried();
+                continue;
+            }
+            bloomFilter.put(shortCode);
+            written(shortCode, originalUrl, expiresAt);
+            return shortCode;
+        }
+        throw new URLShortenerServiceException(HttpStatus.CONFLICT,
+                UrlShortenerError.SHORT_CODE_CONFLICT.getMessage());
+    }
+
+    private Map<String, String> findExistingCodes(Set<String> originalUrls) {
+        Map<String, String> existing = new HashMap<>();
+        List<String> expired = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(lookupChunkSize);
+        for (String url : originalUrls) {
+            String digest = UrlDigest.of(url);
+            UrlMappingEntity pending = writeBehind == null ? null : writeBehind.findByUrlDigest(digest);
+            if (pending != null && pending.getOriginalUrl().equals(url)) {
+                if (pending.isExpiredAt(LocalDateTime.now())) {
+                    expired.add(url);
+                } else {
+                    existing.put(url, pending.getShortCode());
+                }
+                continue;
+            }
+            chunk.add(digest);
+            if (chunk.size() == lookupChunkSize) {
+                collectExisting(chunk, originalUrls, existing, expired);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            collectExisting(chunk, originalUrls, existing, expired);
         }
-        return shortCode;
+        // Expired but not yet purged: revive them as permanent links, like the single-item path
+        for (String url : expired) {
+            existing.put(url, findOrCreate(url, null));
+        }
+        return existing;
+    }
+
+    private void collectExisting(List<String> digests, Set<String> originalUrls, Map<String, String> existing,
+                                 List<String> expired) {
+        LocalDateTime now = LocalDateTime.now();
+        for (UrlMappingEntity mapping : repository.findByUrlDigestIn(digests)) {
+            // Rows stored before canonicalization keep their URL as submitted
+            String url = originalUrls.contains(mapping.getOriginalUrl())
+                    ? mapping.getOriginalUrl() : canonicalizer.canonicalize(mapping.getOriginalUrl());
+            if (url == null || !originalUrls.contains(url)) {
+                continue;
+            }
+            if (mapping.isExpiredAt(now)) {
+                expired.add(url);
+            } else {
+                existing.put(url, mapping.getShortCode());
+            }
+        }
+    }
+
+    // null means "never expires" and outlives any instant
+    private static LocalDateTime laterExpiry(LocalDateTime current, LocalDateTime requested) {
+        if (current == null || requested == null) {
+            return null;
+        }
+        return requested.isAfter(current) ? requested : current;
+    }
+
+    private static String validationError(String originalUrl) {
+        if (originalUrl == null || originalUrl.isBlank()) {
+            return "originalUrl: must not be blank";
+        }
+        UrlValidationUtil.Violation violation = UrlValidationUtil.check(originalUrl);
+        return violation == null ? null : violation.exception().getMessage();
+    }
+
+    private UrlMappingEntity findMapping(String shortCode) {
+        if (!bloomFilter.mightContain(shortCode)) {
+            metrics.rejectedByBloomFilter();
+            throw notFound();
+        }
+        UrlMappingEntity pending = writeBehind == null ? null : writeBehind.findByShortCode(shortCode);
+        if (pending != null) {
+            if (pending.isExpiredAt(LocalDateTime.now())) {
+                throw expired();
+            }
+            return pending;
+        }
+        long version = invalidationBus == null ? 0 : invalidationBus.version();
+        Optional<UrlMappingEntity> mapping = cache.get(shortCode, this::load);
+        if (mapping.isEmpty()) {
+            metrics.notFoundInDatabase();
+            throw notFound();
+        }
+        // Read repair for codes created elsewhere; writes on this node already replaced the entry. Skipped if
+        // another node changed the code since the read started, so the stale mapping is not put back.
+        if (redirectIndex != null && (invalidationBus == null || !invalidationBus.changedSince(shortCode, version))) {
+            redirectIndex.putIfAbsent(shortCode, mapping.get().getOriginalUrl(), mapping.get().getExpiresAt());
+        }
+        // Expired rows are answered as gone until the sweeper deletes them
+        if (mapping.get().isExpiredAt(LocalDateTime.now())) {
+            throw expired();
+        }
+        return mapping.get();
+    }
+
+    // Cache misses; with read replicas, from one of them unless the code was written recently
+    private Optional<UrlMappingEntity> load(String shortCode) {
+        if (replicaReads == null) {
+            return repository.findByShortCode(shortCode);
+        }
+        return replicaReads.find(shortCode, () -> repository.findByShortCode(shortCode));
+    }
+
+    // Journals the batch's new mappings; ones another create claimed first take the single-item path
+    private void submitBehind(List<UrlMappingEntity> mappings, Map<String, String> createdCodes) {
+        if (mappings.isEmpty()) {
+            return;
+        }
+        List<UrlMappingEntity> lostTo = writeBehind.submitAll(mappings);
+        for (int i = 0; i < mappings.size(); i++) {
+            UrlMappingEntity mapping = mappings.get(i);
+            if (lostTo.get(i) == null) {
+                accepted(mapping.getShortCode());
+            } else {
+                createdCodes.put(mapping.getOriginalUrl(), findOrCreate(mapping.getOriginalUrl(), null));
+            }
+        }
+    }
+
+    private boolean isPending(UrlMappingEntity mapping) {
+        return writeBehind != null && (writeBehind.findByShortCode(mapping.getShortCode()) != null
+                || writeBehind.findByUrlDigest(mapping.getUrlDigest()) != null);
+    }
+
+    /**
+     * After a mapping is journaled by the write-behind. Reads find it in the pending index until it
+     * is written, so only a cached miss needs dropping; the writer tells the other nodes once the
+     * repository has it.
+     */
+    private void accepted(String shortCode) {
+        bloomFilter.put(shortCode);
+        cache.invalidate(shortCode);
+        if (replicaReads != null) {
+            replicaReads.written(shortCode);
+        }
+    }
+
+    private void imported(UrlMappingEntity mapping) {
+        bloomFilter.put(mapping.getShortCode());
+        written(mapping.getShortCode(), mapping.getOriginalUrl(), mapping.getExpiresAt());
+    }
+
+    // After every write of a mapping: replace this node's copies and have the other nodes drop theirs
+    private void written(String shortCode, String originalUrl, LocalDateTime expiresAt) {
+        cache.invalidate(shortCode);
+        if (replicaReads != null) {
+            replicaReads.written(shortCode);
+        }
+        if (redirectIndex != null) {
+            redirectIndex.put(shortCode, originalUrl, expiresAt);
+        }
+        if (invalidationBus != null) {
+            invalidationBus.publish(shortCode);
+        }
+    }
+
+    private static URLShortenerServiceException notFound() {
+        return new URLShortenerServiceException(HttpStatus.NOT_FOUND,
+                UrlShortenerError.SHORT_URL_NOT_FOUND.getMessage(), false);
+    }
+
+    private static URLShortenerServiceException expired() {
+        return new URLShortenerServiceException(HttpStatus.GONE,
+                UrlShortenerError.SHORT_URL_EXPIRED.getMessage(), false);
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package org.example.urlshortener.storage;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent-hash ring over named members. Each member owns {@code virtualNodes}
+ * points on a 64-bit ring, and a key belongs to the member owning the first point at or after the
+ * key's hash (wrapping around). Adding a member to a ring of {@code n} therefore moves only about
+ * {@code 1/(n+1)} of the keys, all of them to the new member.
+ */
+final class ConsistentHashRing<T> {
+
+    private final TreeMap<Long, T> points = new TreeMap<>();
+    private final List<T> members;
+    private final int virtualNodes;
+
+    ConsistentHashRing(Map<String, T> members, int virtualNodes) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one member");
+        }
+        this.virtualNodes = virtualNodes;
+        this.members = Collections.unmodifiableList(new ArrayList<>(members.values()));
+        for (Map.Entry<String, T> member : members.entrySet()) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(hash(member.getKey() + "#" + i), member.getValue());
+            }
+        }
+    }
+
+    T owner(String key) {
+        Map.Entry<Long, T> point = points.ceilingEntry(hash(key));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    List<T> members() {
+        return members;
+    }
+
+    int virtualNodes() {
+        return virtualNodes;
+    }
+
+    private static long hash(String key) {
+        return Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+}
@@ -0,0 +1,769 @@
+package org.example.urlshortener.storage;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Embedded, restart-safe store of URL mappings: an append-only {@link MappingLog} plus three
+ * memory-mapped indexes, short code to id and URL digest to id ({@link MappedHashIndex}) and id to
+ * log offset ({@link MappedIdTable}). A lookup is a hash probe, an id-table read and one
+ * positional read of the record, all served from the page cache rather than the heap.
+ * <p>
+ * Durability: each write appends to the log (optionally forcing it) and then updates the mapped
+ * indexes. A periodic checkpoint forces the indexes and records the log position they cover, so
+ * opening a cleanly closed store only maps the files, and opening after a crash replays just the
+ * records past the last checkpoint; a torn record at the tail is truncated. If an index file is
+ * missing or incomplete it is rebuilt from the whole log.
+ * <p>
+ * Compaction rewrites the live records into a new log generation in the background, catching up
+ * with concurrent writes and only blocking writers for the final tail and the swap. Ids never
+ * change, so the hash indexes carry over as they are.
+ */
+public class LogStructuredMappingStore implements SmartLifecycle, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(LogStructuredMappingStore.class);
+
+    private static final Pattern GENERATION_FILE = Pattern.compile("(mappings|ids)-(\\d+)\\.(log|idx)");
+    private static final String CODES_INDEX = "codes.idx";
+    // Named after the digest it is keyed by; the murmur3 digests.idx of earlier versions is rebuilt from the log
+    private static final String DIGESTS_INDEX = "url-digests.idx";
+    private static final String LEGACY_DIGESTS_INDEX = "digests.idx";
+    private static final String LOCK_FILE = "LOCK";
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+    private static final int COPY_BUFFER_BYTES = 1 << 20;
+
+    private record ExpiryKey(long micros, long id) {
+        static final Comparator<ExpiryKey> ORDER = Comparator.comparingLong(ExpiryKey::micros)
+                .thenComparingLong(ExpiryKey::id);
+    }
+
+    private final Path directory;
+    private final boolean forceOnWrite;
+    private final Duration checkpointInterval;
+    private final double compactionThreshold;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serializes compaction and close, which do file I/O throughout; a lock rather than a monitor so a
+    // virtual thread waiting on it or holding it does not pin its carrier
+    private final ReentrantLock maintenanceLock = new ReentrantLock();
+    private final NavigableSet<ExpiryKey> expiring = new TreeSet<>(ExpiryKey.ORDER);
+    private final FileChannel lockChannel;
+    private final FileLock directoryLock;
+
+    private long generation;
+    private MappingLog mappingLog;
+    private MappedIdTable ids;
+    private MappedHashIndex codes;
+    private MappedHashIndex digests;
+    private long liveCount;
+    private long liveBytes;
+    private long replayedRecords;
+    private long compactions;
+    private boolean closed;
+
+    private ScheduledExecutorService maintenance;
+    private volatile boolean running;
+
+    /**
+     * Opens (or creates) the store in {@code directory}, recovering from a crash if needed.
+     *
+     * @param indexCapacity       mappings the hash indexes are sized for up front; they grow past it
+     * @param forceOnWrite        force every append to disk before acknowledging it
+     * @param checkpointInterval  how often the indexes are made durable and compaction is considered
+     * @param compactionThreshold fraction of the log that must be dead records before compacting
+     */
+    public LogStructuredMappingStore(Path directory, long indexCapacity, boolean forceOnWrite,
+                                     Duration checkpointInterval, double compactionThreshold) {
+        this.directory = directory;
+        this.forceOnWrite = forceOnWrite;
+        this.checkpointInterval = checkpointInterval;
+        this.compactionThreshold = compactionThreshold;
+        try {
+            Files.createDirectories(directory);
+            this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            this.directoryLock = lockChannel.tryLock();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open mapping store in " + directory, e);
+        }
+        if (directoryLock == null) {
+            throw new IllegalStateException("Mapping store in " + directory + " is in use by another process");
+        }
+        open((long) Math.ceil(indexCapacity / 0.7));
+    }
+
+    // ---- reads ----
+
+    public UrlMappingEntity findByShortCode(String shortCode) {
+        lock.readLock().lock();
+        try {
+            UrlMappingEntity mapping = load(codes.get(MappedHashIndex.hash(shortCode)));
+            return mapping != null && mapping.getShortCode().equals(shortCode) ? mapping : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public UrlMappingEntity findByUrlDigest(String urlDigest) {
+        lock.readLock().lock();
+        try {
+            UrlMappingEntity mapping = load(digests.get(MappedHashIndex.hash(urlDigest)));
+            return mapping != null && mapping.getUrlDigest().equals(urlDigest) ? mapping : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public UrlMappingEntity findById(long id) {
+        lock.readLock().lock();
+        try {
+            return load(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Live mappings with an id greater than {@code afterId}, in id order.
+     */
+    public List<UrlMappingEntity> findAfterId(long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<UrlMappingEntity> page = new ArrayList<>(Math.min(limit, 1024));
+            long maxId = ids.maxId();
+            for (long id = Math.max(afterId, 0) + 1; id <= maxId && page.size() < limit; id++) {
+                UrlMappingEntity mapping = load(id);
+                if (mapping != null) {
+                    page.add(mapping);
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mappings that expired at or before {@code cutoff}, in {@code (expiresAt, id)} order, starting
+     * after the given keyset position ({@code afterExpiresAt == null} starts from the beginning).
+     */
+    public List<UrlMappingEntity> findExpired(LocalDateTime cutoff, LocalDateTime afterExpiresAt, long afterId,
+                                              int limit) {
+        lock.readLock().lock();
+        try {
+            long cutoffMicros = MappedIdTable.toMicros(cutoff);
+            NavigableSet<ExpiryKey> candidates = afterExpiresAt == null ? expiring
+                    : expiring.tailSet(new ExpiryKey(MappedIdTable.toMicros(afterExpiresAt), afterId), false);
+            List<UrlMappingEntity> page = new ArrayList<>(Math.min(limit, 1024));
+            for (ExpiryKey key : candidates) {
+                if (key.micros() > cutoffMicros || page.size() == limit) {
+                    break;
+                }
+                UrlMappingEntity mapping = load(key.id());
+                if (mapping != null && !mapping.getExpiresAt().isAfter(cutoff)) {
+                    page.add(mapping);
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---- writes ----
+
+    /**
+     * Inserts or replaces the mappings as one append. New mappings (null id) get the next ids.
+     * Throws {@link DataIntegrityViolationException}, writing nothing, if any short code or URL
+     * digest is taken by another mapping or repeated within the batch.
+     */
+    public List<UrlMappingEntity> saveAll(Collection<UrlMappingEntity> mappings) {
+        lock.writeLock().lock();
+        try {
+            long nextId = ids.maxId();
+            long[] assigned = new long[mappings.size()];
+            Map<String, Long> batchCodes = new HashMap<>();
+            Map<String, Long> batchDigests = new HashMap<>();
+            int i = 0;
+            for (UrlMappingEntity mapping : mappings) {
+                long id = mapping.getId() != null ? mapping.getId() : ++nextId;
+                checkUnique(codes, batchCodes, mapping.getShortCode(), id, "short code");
+                checkUnique(digests, batchDigests, mapping.getUrlDigest(), id, "URL digest");
+                assigned[i++] = id;
+            }
+
+            i = 0;
+            List<ByteBuffer> frames = new ArrayList<>(mappings.size());
+            for (UrlMappingEntity mapping : mappings) {
+                mapping.setId(assigned[i++]);
+                frames.add(MappingLog.encode(MappingLog.PUT, mapping));
+            }
+            appendAndApply(MappingLog.PUT, new ArrayList<>(mappings), frames);
+            return new ArrayList<>(mappings);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public UrlMappingEntity save(UrlMappingEntity mapping) {
+        return saveAll(List.of(mapping)).get(0);
+    }
+
+    /**
+     * Sets the expiry of an existing mapping. Returns false if there is no mapping with that id.
+     */
+    public boolean updateExpiresAt(long id, LocalDateTime expiresAt) {
+        lock.writeLock().lock();
+        try {
+            UrlMappingEntity mapping = load(id);
+            if (mapping == null) {
+                return false;
+            }
+            mapping.setExpiresAt(expiresAt);
+            appendAndApply(MappingLog.PUT, List.of(mapping), List.of(MappingLog.encode(MappingLog.PUT, mapping)));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes the mappings with the given ids that match {@code condition}, checked under the
+     * write lock. Returns how many were deleted.
+     */
+    public int deleteIf(Collection<Long> idsToDelete, Predicate<UrlMappingEntity> condition) {
+        lock.writeLock().lock();
+        try {
+            List<UrlMappingEntity> deleted = new ArrayList<>();
+            List<ByteBuffer> frames = new ArrayList<>();
+            for (Long id : idsToDelete) {
+                UrlMappingEntity mapping = id == null ? null : load(id);
+                if (mapping != null && condition.test(mapping)) {
+                    deleted.add(mapping);
+                    frames.add(MappingLog.encode(MappingLog.DELETE, mapping));
+                }
+            }
+            if (!deleted.isEmpty()) {
+                appendAndApply(MappingLog.DELETE, deleted, frames);
+            }
+            return deleted.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int deleteAll() {
+        List<Long> all = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            long maxId = ids.maxId();
+            for (long id = 1; id <= maxId; id++) {
+                if (ids.contains(id)) {
+                    all.add(id);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return deleteIf(all, mapping -> true);
+    }
+
+    // ---- maintenance ----
+
+    /**
+     * Forces the log and the indexes to disk and records the log position they cover, bounding
+     * how much a crash recovery has to replay.
+     */
+    public void checkpoint() {
+        lock.writeLock().lock();
+        try {
+            if (closed || ids.checkpoint() == mappingLog.end()) {
+                return;
+            }
+            mappingLog.force();
+            codes.force();
+            digests.force();
+            ids.force();
+            ids.checkpoint(mappingLog.end());
+            ids.force();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the live records into a new log generation and drops the old one. Readers and
+     * writers keep running while the bulk of the records are copied.
+     */
+    public void compact() {
+        maintenanceLock.lock();
+        try {
+            compactGeneration();
+        } finally {
+            maintenanceLock.unlock();
+        }
+    }
+
+    private void compactGeneration() {
+        MappingLog source;
+        MappedIdTable sourceIds;
+        long snapshotEnd;
+        long maxId;
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            source = mappingLog;
+            sourceIds = ids;
+            snapshotEnd = source.end();
+            maxId = sourceIds.maxId();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long nextGeneration = generation + 1;
+        deleteGenerationFiles(nextGeneration);
+        MappingLog target = new MappingLog(logPath(nextGeneration));
+        MappedIdTable targetIds = MappedIdTable.create(idsPath(nextGeneration));
+        targetIds.maxId(maxId);
+        long before = snapshotEnd;
+
+        // 1. Copy every record that was current at the snapshot. Slots may change underneath; any
+        //    such change appended a record past the snapshot, which step 2 replays.
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_BYTES);
+        for (long id = 1; id <= maxId; id++) {
+            long offset;
+            int size;
+            long expiry;
+            lock.readLock().lock();
+            try {
+                if (!sourceIds.contains(id)) {
+                    continue;
+                }
+                offset = sourceIds.offset(id);
+                size = sourceIds.size(id);
+                expiry = sourceIds.expiry(id);
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (offset + size > snapshotEnd) {
+                continue;
+            }
+            if (buffer.remaining() < size) {
+                target.append(buffer.flip(), false);
+                buffer.clear();
+            }
+            long targetOffset = target.end() + buffer.position();
+            ByteBuffer frame = source.readFrame(offset, size);
+            if (frame.remaining() > buffer.capacity()) {
+                target.append(frame, false);
+            } else {
+                buffer.put(frame);
+            }
+            targetIds.set(id, targetOffset, size, expiry);
+        }
+        target.append(buffer.flip(), false);
+
+        // 2. Replay what was appended meanwhile: once without blocking, then the rest exclusively
+        long position = copyTail(source, snapshotEnd, target, targetIds);
+        lock.writeLock().lock();
+        try {
+            copyTail(source, position, target, targetIds);
+            target.force();
+            codes.force();
+            digests.force();
+            targetIds.markComplete(target.end());
+
+            long previousGeneration = generation;
+            mappingLog = target;
+            ids = targetIds;
+            generation = nextGeneration;
+            compactions++;
+            closeQuietly(source);
+            closeQuietly(sourceIds);
+            deleteGenerationFiles(previousGeneration);
+            log.info("Compacted mapping log generation {} from {} to {} bytes", nextGeneration, before, target.end());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * True when dead records make up more than the configured share of a log worth compacting.
+     */
+    public boolean needsCompaction() {
+        lock.readLock().lock();
+        try {
+            long size = mappingLog.end();
+            return !closed && size >= MIN_COMPACTION_BYTES && size - liveBytes > size * compactionThreshold;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long logBytes() {
+        lock.readLock().lock();
+        try {
+            return mappingLog.end();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long liveBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long compactionCount() {
+        lock.readLock().lock();
+        try {
+            return compactions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records replayed from the log when the store was opened: zero after a clean shutdown.
+     */
+    public long replayedRecords() {
+        return replayedRecords;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mapping-store-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintainQuietly, checkpointInterval.toMillis(),
+                checkpointInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (maintenance != null) {
+            maintenance.shutdown();
+            try {
+                maintenance.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkpoint();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        maintenanceLock.lock();
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            checkpoint();
+            closed = true;
+            closeQuietly(mappingLog);
+            closeQuietly(ids);
+            closeQuietly(codes);
+            closeQuietly(digests);
+            directoryLock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close mapping store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+            maintenanceLock.unlock();
+        }
+    }
+
+    // ---- internals ----
+
+    private void open(long hashCapacity) {
+        List<Long> generations = generations();
+        MappedIdTable table = null;
+        for (long candidate : generations) {
+            if (Files.exists(logPath(candidate)) && (table = MappedIdTable.open(idsPath(candidate))) != null) {
+                generation = candidate;
+                break;
+            }
+        }
+        if (table == null) {
+            // No complete id table: keep the newest log and rebuild everything from it
+            generation = generations.stream().filter(g -> Files.exists(logPath(g))).findFirst().orElse(0L);
+        }
+        for (long other : generations) {
+            if (other != generation) {
+                deleteGenerationFiles(other);
+            }
+        }
+        mappingLog = new MappingLog(logPath(generation));
+        deleteLegacyDigestsIndex();
+        codes = MappedHashIndex.open(directory.resolve(CODES_INDEX));
+        digests = MappedHashIndex.open(directory.resolve(DIGESTS_INDEX));
+
+        boolean rebuild = table == null || codes == null || digests == null || table.checkpoint() > mappingLog.end();
+        if (rebuild) {
+            closeQuietly(table);
+            closeQuietly(codes);
+            closeQuietly(digests);
+            ids = MappedIdTable.create(idsPath(generation));
+            codes = MappedHashIndex.create(directory.resolve(CODES_INDEX), hashCapacity);
+            digests = MappedHashIndex.create(directory.resolve(DIGESTS_INDEX), hashCapacity);
+            replay(0);
+            mappingLog.force();
+            codes.force();
+            digests.force();
+            ids.markComplete(mappingLog.end());
+            if (mappingLog.end() > 0) {
+                log.warn("Rebuilt mapping store indexes from {} log record(s) in {}", replayedRecords, directory);
+            }
+        } else {
+            ids = table;
+            replay(table.checkpoint());
+            if (replayedRecords > 0) {
+                log.warn("Recovered {} mapping log record(s) written after the last checkpoint in {}",
+                        replayedRecords, directory);
+            }
+        }
+        scanIds();
+        checkpoint();
+    }
+
+    /**
+     * Applies every complete record from {@code position} on, then cuts off a torn tail.
+     */
+    private void replay(long position) {
+        MappingLog.Entry entry;
+        while ((entry = mappingLog.readEntry(position)) != null) {
+            apply(entry.type(), entry.mapping(), entry.offset(), entry.size());
+            replayedRecords++;
+            position += entry.size();
+        }
+        if (position < mappingLog.end()) {
+            log.warn("Truncating {} byte(s) of incomplete records at the end of {}", mappingLog.end() - position,
+                    mappingLog.path());
+            mappingLog.truncate(position);
+        }
+    }
+
+    /**
+     * Rebuilds the in-heap state (counts and the expiry order) from the id table. Slots pointing
+     * past the end of the log refer to records lost with an unsynced tail and are dropped.
+     */
+    private void scanIds() {
+        liveCount = 0;
+        liveBytes = 0;
+        expiring.clear();
+        long maxId = ids.maxId();
+        for (long id = 1; id <= maxId; id++) {
+            if (!ids.contains(id)) {
+                continue;
+            }
+            if (ids.offset(id) + ids.size(id) > mappingLog.end()) {
+                ids.clear(id);
+                continue;
+            }
+            liveCount++;
+            liveBytes += ids.size(id);
+            if (ids.expiry(id) != 0) {
+                expiring.add(new ExpiryKey(ids.expiry(id), id));
+            }
+        }
+    }
+
+    private void appendAndApply(byte type, List<UrlMappingEntity> mappings, List<ByteBuffer> frames) {
+        int total = 0;
+        for (ByteBuffer frame : frames) {
+            total += frame.remaining();
+        }
+        ByteBuffer batch = ByteBuffer.allocate(total);
+        frames.forEach(batch::put);
+        long offset = mappingLog.append(batch.flip(), forceOnWrite);
+        for (int i = 0; i < mappings.size(); i++) {
+            int size = frames.get(i).limit();
+            apply(type, mappings.get(i), offset, size);
+            offset += size;
+        }
+    }
+
+    /**
+     * Makes the indexes reflect one log record. Idempotent, so replaying records the indexes
+     * already contain is harmless.
+     */
+    private void apply(byte type, UrlMappingEntity mapping, long offset, int size) {
+        long id = mapping.getId();
+        if (ids.contains(id)) {
+            liveCount--;
+            liveBytes -= ids.size(id);
+            expiring.remove(new ExpiryKey(ids.expiry(id), id));
+            if (ids.offset(id) + ids.size(id) <= mappingLog.end()) {
+                UrlMappingEntity previous = mappingLog.read(ids.offset(id), ids.size(id));
+                if (!previous.getShortCode().equals(mapping.getShortCode())) {
+                    codes.remove(MappedHashIndex.hash(previous.getShortCode()), id);
+                }
+                if (!previous.getUrlDigest().equals(mapping.getUrlDigest())) {
+                    digests.remove(MappedHashIndex.hash(previous.getUrlDigest()), id);
+                }
+            }
+        }
+        if (type == MappingLog.PUT) {
+            codes.put(MappedHashIndex.hash(mapping.getShortCode()), id);
+            digests.put(MappedHashIndex.hash(mapping.getUrlDigest()), id);
+            ids.set(id, offset, size, mapping.getExpiresAt());
+            liveCount++;
+            liveBytes += size;
+            if (mapping.getExpiresAt() != null) {
+                expiring.add(new ExpiryKey(MappedIdTable.toMicros(mapping.getExpiresAt()), id));
+            }
+        } else {
+            codes.remove(MappedHashIndex.hash(mapping.getShortCode()), id);
+            digests.remove(MappedHashIndex.hash(mapping.getUrlDigest()), id);
+            ids.clear(id);
+            ids.maxId(id);
+        }
+    }
+
+    private long copyTail(MappingLog source, long position, MappingLog target, MappedIdTable targetIds) {
+        MappingLog.Entry entry;
+        while ((entry = source.readEntry(position)) != null) {
+            long targetOffset = target.append(source.readFrame(entry.offset(), entry.size()), false);
+            long id = entry.mapping().getId();
+            if (entry.type() == MappingLog.PUT) {
+                targetIds.set(id, targetOffset, entry.size(), entry.mapping().getExpiresAt());
+            } else {
+                // Keep the delete so a rebuild from the new log does not resurrect the mapping
+                targetIds.clear(id);
+                targetIds.maxId(id);
+            }
+            position += entry.size();
+        }
+        return position;
+    }
+
+    private void checkUnique(MappedHashIndex index, Map<String, Long> batch, String key, long id, String name) {
+        long owner = index.get(MappedHashIndex.hash(key));
+        Long batchOwner = batch.putIfAbsent(key, id);
+        if ((owner != 0 && owner != id && ids.contains(owner)) || (batchOwner != null && batchOwner != id)) {
+            throw new DataIntegrityViolationException("Duplicate " + name + " '" + key + "'");
+        }
+    }
+
+    private UrlMappingEntity load(long id) {
+        return id == 0 || !ids.contains(id) ? null : mappingLog.read(ids.offset(id), ids.size(id));
+    }
+
+    private void maintainQuietly() {
+        try {
+            checkpoint();
+            if (needsCompaction()) {
+                compact();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Mapping store maintenance failed, retrying with the next run", e);
+        }
+    }
+
+    private List<Long> generations() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> GENERATION_FILE.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(2)))
+                    .distinct()
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list " + directory, e);
+        }
+    }
+
+    private void deleteLegacyDigestsIndex() {
+        try {
+            Files.deleteIfExists(directory.resolve(LEGACY_DIGESTS_INDEX));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete the legacy URL digest index in " + directory, e);
+        }
+    }
+
+    private void deleteGenerationFiles(long generation) {
+        try {
+            Files.deleteIfExists(logPath(generation));
+            Files.deleteIfExists(idsPath(generation));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete mapping log generation " + generation, e);
+        }
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve("mappings-" + generation + ".log");
+    }
+
+    private Path idsPath(long generation) {
+        return directory.resolve("ids-" + generation + ".idx");
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Ignoring failure to close {}", closeable, e);
+        }
+    }
+}
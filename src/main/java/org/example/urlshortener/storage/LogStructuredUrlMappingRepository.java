@@ -0,0 +1,127 @@
+package org.example.urlshortener.storage;
+
+import org.example.urlshortener.model.ExpiringMappingView;
+import org.example.urlshortener.model.ShortCodeView;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link UrlMappingStore} backed by a {@link LogStructuredMappingStore} instead of the database,
+ * so the service, strategies and background jobs run unchanged on either engine. Writes are durable
+ * when the call returns.
+ */
+public class LogStructuredUrlMappingRepository implements UrlMappingStore {
+
+    private final LogStructuredMappingStore store;
+
+    public LogStructuredUrlMappingRepository(LogStructuredMappingStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Optional<UrlMappingEntity> findByShortCode(String shortCode) {
+        return Optional.ofNullable(store.findByShortCode(shortCode));
+    }
+
+    @Override
+    public Optional<UrlMappingEntity> findByUrlDigest(String urlDigest) {
+        return Optional.ofNullable(store.findByUrlDigest(urlDigest));
+    }
+
+    @Override
+    public List<UrlMappingEntity> findByShortCodeIn(Collection<String> shortCodes) {
+        List<UrlMappingEntity> found = new ArrayList<>(shortCodes.size());
+        for (String shortCode : new HashSet<>(shortCodes)) {
+            UrlMappingEntity mapping = store.findByShortCode(shortCode);
+            if (mapping != null) {
+                found.add(mapping);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<UrlMappingEntity> findByUrlDigestIn(Collection<String> urlDigests) {
+        List<UrlMappingEntity> found = new ArrayList<>(urlDigests.size());
+        for (String urlDigest : new HashSet<>(urlDigests)) {
+            UrlMappingEntity mapping = store.findByUrlDigest(urlDigest);
+            if (mapping != null) {
+                found.add(mapping);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<ShortCodeView> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable) {
+        List<ShortCodeView> page = new ArrayList<>();
+        for (UrlMappingEntity mapping : store.findAfterId(afterId, limit(pageable))) {
+            page.add(new MappingView(mapping));
+        }
+        return page;
+    }
+
+    @Override
+    public List<UrlMappingEntity> findAllByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable) {
+        return store.findAfterId(afterId, limit(pageable));
+    }
+
+    @Override
+    public List<ExpiringMappingView> findByExpiresAtLessThanEqualOrderByExpiresAtAscIdAsc(LocalDateTime cutoff,
+                                                                                          Pageable pageable) {
+        return views(store.findExpired(cutoff, null, 0, limit(pageable)));
+    }
+
+    @Override
+    public List<ExpiringMappingView> findExpiredAfter(LocalDateTime cutoff, LocalDateTime afterExpiresAt, Long afterId,
+                                                      Pageable pageable) {
+        return views(store.findExpired(cutoff, afterExpiresAt, afterId, limit(pageable)));
+    }
+
+    @Override
+    public int deleteExpiredByIdIn(Collection<Long> ids, LocalDateTime cutoff) {
+        return store.deleteIf(ids, mapping -> mapping.getExpiresAt() != null && !mapping.getExpiresAt().isAfter(cutoff));
+    }
+
+    @Override
+    public int updateExpiresAt(Long id, LocalDateTime expiresAt) {
+        return store.updateExpiresAt(id, expiresAt) ? 1 : 0;
+    }
+
+    @Override
+    public <S extends UrlMappingEntity> List<S> saveAll(Iterable<S> entities) {
+        List<S> batch = new ArrayList<>();
+        entities.forEach(batch::add);
+        store.saveAll(new ArrayList<>(batch));
+        return batch;
+    }
+
+    /**
+     * Durable on return, like every write to the log.
+     */
+    @Override
+    public <S extends UrlMappingEntity> S saveAndFlush(S entity) {
+        store.save(entity);
+        return entity;
+    }
+
+    private static int limit(Pageable pageable) {
+        return pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+    }
+
+    private static List<ExpiringMappingView> views(List<UrlMappingEntity> mappings) {
+        List<ExpiringMappingView> views = new ArrayList<>(mappings.size());
+        for (UrlMappingEntity mapping : mappings) {
+            views.add(new MappingView(mapping));
+        }
+        return views;
+    }
+}
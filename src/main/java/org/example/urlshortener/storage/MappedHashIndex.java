@@ -0,0 +1,202 @@
+package org.example.urlshortener.storage;
+
+import com.google.common.hash.Hashing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Memory-mapped open-addressing hash table from a string key to a mapping id, with linear
+ * probing. Each 24-byte slot holds the key's 128-bit murmur3 hash and the id; the hash is the
+ * key's identity inside the table (a 128-bit collision is not a practical concern) and callers
+ * still confirm hits against the stored record. A zero first hash word marks an empty slot and a
+ * zero id a tombstone.
+ * <p>
+ * The table lives in the OS page cache rather than the heap and survives restarts as is; it is
+ * grown (or cleared of tombstones) by rehashing into a new file that atomically replaces the old
+ * one. Not thread-safe: the store serializes writers and excludes them from readers.
+ */
+final class MappedHashIndex implements Closeable {
+
+    private static final long MAGIC = 0x55524c4853494458L;
+    private static final int HEADER_LONGS = 8;
+    private static final int SLOT_LONGS = 3;
+    private static final double MAX_LOAD = 0.7;
+
+    private final Path path;
+    private MappedLongArray table;
+    private long capacity;
+    private long size;
+    private long used;
+
+    private MappedHashIndex(Path path, MappedLongArray table) {
+        this.path = path;
+        this.table = table;
+        this.capacity = table.get(1);
+        this.size = table.get(2);
+        this.used = table.get(3);
+    }
+
+    /**
+     * Maps the index at {@code path}, or returns null if the file is missing or was not written
+     * completely.
+     */
+    static MappedHashIndex open(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        MappedLongArray table = new MappedLongArray(path, HEADER_LONGS);
+        long capacity = table.get(1);
+        if (table.get(0) != MAGIC || Long.bitCount(capacity) != 1
+                || table.length() < HEADER_LONGS + capacity * SLOT_LONGS) {
+            closeQuietly(table);
+            return null;
+        }
+        return new MappedHashIndex(path, table);
+    }
+
+    static MappedHashIndex create(Path path, long minCapacity) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace " + path, e);
+        }
+        long capacity = Long.highestOneBit(Math.max(minCapacity, 16) * 2 - 1);
+        MappedLongArray table = new MappedLongArray(path, HEADER_LONGS + capacity * SLOT_LONGS);
+        table.put(1, capacity);
+        table.put(0, MAGIC);
+        return new MappedHashIndex(path, table);
+    }
+
+    static long[] hash(String key) {
+        ByteBuffer bytes = ByteBuffer.wrap(Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).asBytes());
+        long h1 = bytes.getLong(0);
+        return new long[]{h1 == 0 ? 1 : h1, bytes.getLong(8)};
+    }
+
+    /**
+     * Returns the id stored for the key hash, or 0.
+     */
+    long get(long[] hash) {
+        long mask = capacity - 1;
+        for (long slot = hash[0] & mask; ; slot = (slot + 1) & mask) {
+            long base = HEADER_LONGS + slot * SLOT_LONGS;
+            long h1 = table.get(base);
+            if (h1 == 0) {
+                return 0;
+            }
+            if (h1 == hash[0] && table.get(base + 1) == hash[1]) {
+                return table.get(base + 2);
+            }
+        }
+    }
+
+    /**
+     * Points the key at {@code id}, replacing any previous id.
+     */
+    void put(long[] hash, long id) {
+        if (used + 1 > capacity * MAX_LOAD) {
+            rehash(size + 1 > capacity * MAX_LOAD / 2 ? capacity * 2 : capacity);
+        }
+        long mask = capacity - 1;
+        for (long slot = hash[0] & mask; ; slot = (slot + 1) & mask) {
+            long base = HEADER_LONGS + slot * SLOT_LONGS;
+            long h1 = table.get(base);
+            if (h1 == 0) {
+                table.put(base + 1, hash[1]);
+                table.put(base + 2, id);
+                table.put(base, hash[0]);
+                size++;
+                used++;
+                writeCounts();
+                return;
+            }
+            if (h1 == hash[0] && table.get(base + 1) == hash[1]) {
+                if (table.get(base + 2) == 0) {
+                    size++;
+                    writeCounts();
+                }
+                table.put(base + 2, id);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the key if it still points at {@code id}, leaving a tombstone.
+     */
+    void remove(long[] hash, long id) {
+        long mask = capacity - 1;
+        for (long slot = hash[0] & mask; ; slot = (slot + 1) & mask) {
+            long base = HEADER_LONGS + slot * SLOT_LONGS;
+            long h1 = table.get(base);
+            if (h1 == 0) {
+                return;
+            }
+            if (h1 == hash[0] && table.get(base + 1) == hash[1]) {
+                if (table.get(base + 2) == id && id != 0) {
+                    table.put(base + 2, 0);
+                    size--;
+                    writeCounts();
+                }
+                return;
+            }
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    void force() {
+        table.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        table.close();
+    }
+
+    private void writeCounts() {
+        table.put(2, size);
+        table.put(3, used);
+    }
+
+    private void rehash(long newCapacity) {
+        Path resized = path.resolveSibling(path.getFileName() + ".resize");
+        MappedHashIndex target = create(resized, newCapacity);
+        for (long slot = 0; slot < capacity; slot++) {
+            long base = HEADER_LONGS + slot * SLOT_LONGS;
+            long id = table.get(base + 2);
+            if (table.get(base) != 0 && id != 0) {
+                target.put(new long[]{table.get(base), table.get(base + 1)}, id);
+            }
+        }
+        target.force();
+        try {
+            target.close();
+            table.close();
+            Files.move(resized, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace " + path, e);
+        }
+        table = new MappedLongArray(path, HEADER_LONGS);
+        capacity = table.get(1);
+        size = table.get(2);
+        used = table.get(3);
+    }
+
+    private static void closeQuietly(MappedLongArray table) {
+        try {
+            table.close();
+        } catch (IOException ignored) {
+            // Nothing to recover
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.urlshortener.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Memory-mapped table indexed by mapping id. Each 16-byte slot holds where the id's current
+ * record lives in the log (offset and frame size packed into one long, zero when the id is absent)
+ * and its expiry in epoch microseconds (zero for none), so live mappings can be walked in id order
+ * and expiring ones found without touching the log.
+ * <p>
+ * The header records the log position the indexes are known to be durable up to: the checkpoint
+ * recovery replays from. A table belongs to one log generation and is only valid once its magic
+ * is written, which happens after the generation is complete.
+ */
+final class MappedIdTable implements Closeable {
+
+    private static final long MAGIC = 0x55524c4d49445342L;
+    private static final int HEADER_LONGS = 8;
+    private static final int SLOT_LONGS = 2;
+    private static final int SIZE_SHIFT = 40;
+    private static final long OFFSET_MASK = (1L << SIZE_SHIFT) - 1;
+
+    private final MappedLongArray table;
+
+    private MappedIdTable(MappedLongArray table) {
+        this.table = table;
+    }
+
+    /**
+     * Maps the table at {@code path}, or returns null if it is missing or incomplete.
+     */
+    static MappedIdTable open(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        MappedLongArray table = new MappedLongArray(path, HEADER_LONGS);
+        if (table.get(0) != MAGIC) {
+            try {
+                table.close();
+            } catch (IOException ignored) {
+                // Nothing to recover
+            }
+            return null;
+        }
+        return new MappedIdTable(table);
+    }
+
+    /**
+     * Creates an empty table that stays invalid until {@link #markComplete}.
+     */
+    static MappedIdTable create(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replace " + path, e);
+        }
+        return new MappedIdTable(new MappedLongArray(path, HEADER_LONGS));
+    }
+
+    Path path() {
+        return table.path();
+    }
+
+    void markComplete(long checkpoint) {
+        table.put(1, checkpoint);
+        table.force();
+        table.put(0, MAGIC);
+        table.force();
+    }
+
+    long checkpoint() {
+        return table.get(1);
+    }
+
+    void checkpoint(long position) {
+        table.put(1, position);
+    }
+
+    /**
+     * Highest id ever assigned, including deleted ones; ids are never reused.
+     */
+    long maxId() {
+        return table.get(2);
+    }
+
+    void maxId(long id) {
+        if (id > table.get(2)) {
+            table.put(2, id);
+        }
+    }
+
+    /**
+     * Highest id the table has room for; ids beyond it are absent.
+     */
+    long capacity() {
+        return (table.length() - HEADER_LONGS) / SLOT_LONGS - 1;
+    }
+
+    boolean contains(long id) {
+        return location(id) != 0;
+    }
+
+    long offset(long id) {
+        return (location(id) & OFFSET_MASK) - 1;
+    }
+
+    int size(long id) {
+        return (int) (location(id) >>> SIZE_SHIFT);
+    }
+
+    long expiry(long id) {
+        return id > capacity() ? 0 : table.get(slot(id) + 1);
+    }
+
+    void set(long id, long offset, int size, LocalDateTime expiresAt) {
+        set(id, offset, size, toMicros(expiresAt));
+    }
+
+    void set(long id, long offset, int size, long expiryMicros) {
+        table.ensureLength(slot(id) + SLOT_LONGS);
+        table.put(slot(id) + 1, expiryMicros);
+        table.put(slot(id), ((long) size << SIZE_SHIFT) | (offset + 1));
+        maxId(id);
+    }
+
+    void clear(long id) {
+        if (id <= capacity()) {
+            table.put(slot(id), 0);
+            table.put(slot(id) + 1, 0);
+        }
+    }
+
+    void force() {
+        table.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        table.close();
+    }
+
+    static long toMicros(LocalDateTime timestamp) {
+        return timestamp == null ? 0
+                : ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), timestamp);
+    }
+
+    private long location(long id) {
+        return id <= 0 || id > capacity() ? 0 : table.get(slot(id));
+    }
+
+    private static long slot(long id) {
+        return HEADER_LONGS + id * SLOT_LONGS;
+    }
+}
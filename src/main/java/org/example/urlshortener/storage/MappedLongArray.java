@@ -0,0 +1,88 @@
+package org.example.urlshortener.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A file-backed array of longs, memory-mapped in fixed 8 MiB segments so it can grow past the
+ * 2 GiB limit of a single mapping. New space reads as zero (and stays sparse on disk until
+ * written). Absolute reads may run concurrently with each other and with a single writer; growing
+ * must be serialized by the caller.
+ */
+final class MappedLongArray implements Closeable {
+
+    private static final int SEGMENT_SHIFT = 20;
+    private static final long SEGMENT_LONGS = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_LONGS - 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private volatile MappedByteBuffer[] segments;
+
+    MappedLongArray(Path path, long minLength) {
+        this.path = path;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long existing = channel.size() / Long.BYTES;
+            this.segments = new MappedByteBuffer[0];
+            ensureLength(Math.max(Math.max(existing, minLength), 1));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open " + path, e);
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long length() {
+        return segments.length * SEGMENT_LONGS;
+    }
+
+    long get(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].getLong((int) ((index & SEGMENT_MASK) << 3));
+    }
+
+    void put(long index, long value) {
+        segments[(int) (index >>> SEGMENT_SHIFT)].putLong((int) ((index & SEGMENT_MASK) << 3), value);
+    }
+
+    /**
+     * Maps enough segments to address {@code length} longs. Existing segments stay valid.
+     */
+    void ensureLength(long length) {
+        int needed = (int) ((length + SEGMENT_LONGS - 1) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] current = segments;
+        if (needed <= current.length) {
+            return;
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(current, needed);
+        try {
+            for (int i = current.length; i < needed; i++) {
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * SEGMENT_LONGS * Long.BYTES,
+                        SEGMENT_LONGS * Long.BYTES);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map " + path, e);
+        }
+        segments = grown;
+    }
+
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
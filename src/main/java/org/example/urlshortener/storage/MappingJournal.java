@@ -0,0 +1,183 @@
+package org.example.urlshortener.storage;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Local redo journal of mappings accepted but not yet in the database. Records use the
+ * {@link MappingLog} framing (checksummed, so a torn tail is detected) and go to numbered segment
+ * files of about {@code segmentBytes} each. A segment is deleted once every mapping in it is in
+ * the database, which the caller signals with {@link #release}; whatever is still on disk at the
+ * next start is handed back by {@link #recover}.
+ * <p>
+ * {@link #append} is called from a single thread; {@link #release} may be called from another.
+ */
+public class MappingJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MappingJournal.class);
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final String LOCK_FILE = "LOCK";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final FileChannel lockChannel;
+    private final FileLock directoryLock;
+    // Closed segments by number, deleted as they are released
+    private final ConcurrentSkipListMap<Long, Path> closed = new ConcurrentSkipListMap<>();
+
+    private MappingLog current;
+    private long currentSegment;
+
+    public MappingJournal(Path directory, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+            this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            this.directoryLock = lockChannel.tryLock();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open mapping journal in " + directory, e);
+        }
+        if (directoryLock == null) {
+            throw new IllegalStateException("Mapping journal in " + directory + " is in use by another process");
+        }
+        segments().forEach(segment -> closed.put(segment, segmentPath(segment)));
+        currentSegment = closed.isEmpty() ? 1 : closed.lastKey() + 1;
+        current = new MappingLog(segmentPath(currentSegment));
+    }
+
+    /**
+     * A journaled mapping and the segment holding it.
+     */
+    public record Entry(UrlMappingEntity mapping, long segment) {
+    }
+
+    /**
+     * Every mapping left in the journal by the previous run, oldest first, cutting off a torn record
+     * at the end of a segment. They stay on disk until released.
+     */
+    public List<Entry> recover() {
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<Long, Path> segment : closed.entrySet()) {
+            try (MappingLog segmentLog = new MappingLog(segment.getValue())) {
+                long position = 0;
+                MappingLog.Entry entry;
+                while ((entry = segmentLog.readEntry(position)) != null) {
+                    entry.mapping().setId(null);
+                    entries.add(new Entry(entry.mapping(), segment.getKey()));
+                    position += entry.size();
+                }
+                if (position < segmentLog.end()) {
+                    log.warn("Truncating {} byte(s) of incomplete records at the end of {}",
+                            segmentLog.end() - position, segment.getValue());
+                    segmentLog.truncate(position);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read mapping journal " + segment.getValue(), e);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Appends {@code mappings} with one write and forces them to disk; returns the segment they are
+     * in. Starts a new segment first once the current one has reached the segment size.
+     */
+    public long append(List<UrlMappingEntity> mappings) {
+        if (current.end() >= segmentBytes) {
+            rotate();
+        }
+        int total = 0;
+        List<ByteBuffer> frames = new ArrayList<>(mappings.size());
+        for (UrlMappingEntity mapping : mappings) {
+            ByteBuffer frame = MappingLog.encode(MappingLog.PUT, journaled(mapping));
+            frames.add(frame);
+            total += frame.remaining();
+        }
+        ByteBuffer batch = ByteBuffer.allocate(total);
+        frames.forEach(batch::put);
+        current.append(batch.flip(), true);
+        return currentSegment;
+    }
+
+    /**
+     * Deletes the closed segments before {@code segment}: every mapping in them is in the database.
+     */
+    public void release(long segment) {
+        Map<Long, Path> released = closed.headMap(segment);
+        for (Path path : released.values()) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Cannot delete released journal segment {}", path, e);
+            }
+        }
+        released.clear();
+    }
+
+    public long segmentCount() {
+        return closed.size() + 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        current.close();
+        directoryLock.release();
+        lockChannel.close();
+    }
+
+    private void rotate() {
+        try {
+            current.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close mapping journal " + current.path(), e);
+        }
+        closed.put(currentSegment, current.path());
+        currentSegment++;
+        current = new MappingLog(segmentPath(currentSegment));
+    }
+
+    // Records carry no id (stored as 0): the database assigns one when the mapping is written
+    private static UrlMappingEntity journaled(UrlMappingEntity mapping) {
+        UrlMappingEntity copy = new UrlMappingEntity(mapping.getOriginalUrl(), mapping.getShortCode(),
+                mapping.getCreatedAt(), mapping.getExpiresAt());
+        copy.setId(0L);
+        return copy;
+    }
+
+    private List<Long> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> SEGMENT_FILE.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list " + directory, e);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve("journal-" + segment + ".log");
+    }
+}
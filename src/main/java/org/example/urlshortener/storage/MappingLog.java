@@ -0,0 +1,218 @@
+package org.example.urlshortener.storage;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only file of mapping records. Every write (insert, update or delete) appends one
+ * self-describing record; nothing is modified in place, so a record never changes once written
+ * and can be read without locks.
+ * <p>
+ * Layout: {@code int bodyLength | int crc32c(body) | body}, where the body is
+ * {@code byte type | long id | long createdSecond | int createdNano | long expiresSecond |
+ * int expiresNano | short codeLength | code | int urlLength | url}. Timestamps are the
+ * {@link LocalDateTime} fields encoded as UTC epoch seconds; a missing expiry is
+ * {@link Long#MIN_VALUE}. A delete record repeats the deleted mapping so replay knows which index
+ * entries to drop.
+ */
+final class MappingLog implements Closeable {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    static final int FRAME_HEADER = 8;
+    private static final int FIXED_BODY = 1 + 8 + 8 + 4 + 8 + 4 + 2 + 4;
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+
+    private final Path path;
+    private final FileChannel channel;
+    private long end;
+
+    MappingLog(Path path) {
+        this.path = path;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.end = channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open mapping log " + path, e);
+        }
+    }
+
+    /**
+     * A decoded record. {@code offset} and {@code size} locate the whole frame in the file.
+     */
+    record Entry(byte type, long offset, int size, UrlMappingEntity mapping) {
+    }
+
+    Path path() {
+        return path;
+    }
+
+    long end() {
+        return end;
+    }
+
+    static ByteBuffer encode(byte type, UrlMappingEntity mapping) {
+        byte[] code = mapping.getShortCode().getBytes(StandardCharsets.UTF_8);
+        byte[] url = mapping.getOriginalUrl().getBytes(StandardCharsets.UTF_8);
+        int bodyLength = FIXED_BODY + code.length + url.length;
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + bodyLength);
+        frame.putInt(bodyLength).putInt(0);
+        frame.put(type).putLong(mapping.getId());
+        putTimestamp(frame, mapping.getCreatedAt());
+        putTimestamp(frame, mapping.getExpiresAt());
+        frame.putShort((short) code.length).put(code);
+        frame.putInt(url.length).put(url);
+
+        CRC32C crc = new CRC32C();
+        crc.update(frame.array(), FRAME_HEADER, bodyLength);
+        frame.putInt(4, (int) crc.getValue());
+        return frame.flip();
+    }
+
+    /**
+     * Appends already-encoded frames with one write and returns the offset of the first.
+     */
+    long append(ByteBuffer frames, boolean force) {
+        long offset = end;
+        try {
+            while (frames.hasRemaining()) {
+                end += channel.write(frames, end);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to mapping log " + path, e);
+        }
+        return offset;
+    }
+
+    /**
+     * Reads the record at {@code offset} whose frame is {@code size} bytes, as stored in the
+     * index. Safe to call concurrently with appends.
+     */
+    UrlMappingEntity read(long offset, int size) {
+        return decodeBody(readFrame(offset, size).position(FRAME_HEADER)).mapping();
+    }
+
+    /**
+     * Reads the raw frame at {@code offset}, for copying it unchanged into another log.
+     */
+    ByteBuffer readFrame(long offset, int size) {
+        ByteBuffer frame = ByteBuffer.allocate(size);
+        try {
+            readFully(frame, offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read mapping log " + path, e);
+        }
+        return frame.flip();
+    }
+
+    /**
+     * Reads the record starting at {@code offset}, or returns null if the bytes there are not a
+     * complete record with a matching checksum (a torn write at the end of the file).
+     */
+    Entry readEntry(long offset) {
+        if (offset + FRAME_HEADER > end) {
+            return null;
+        }
+        try {
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+            readFully(header, offset);
+            int bodyLength = header.getInt(0);
+            if (bodyLength < FIXED_BODY || offset + FRAME_HEADER + bodyLength > end) {
+                return null;
+            }
+            ByteBuffer body = ByteBuffer.allocate(bodyLength);
+            readFully(body, offset + FRAME_HEADER);
+            CRC32C crc = new CRC32C();
+            crc.update(body.array(), 0, bodyLength);
+            if ((int) crc.getValue() != header.getInt(4)) {
+                return null;
+            }
+            DecodedBody decoded = decodeBody(body.flip());
+            return new Entry(decoded.type(), offset, FRAME_HEADER + bodyLength, decoded.mapping());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read mapping log " + path, e);
+        } catch (RuntimeException e) {
+            // Lengths inside a corrupt body can point anywhere
+            return null;
+        }
+    }
+
+    void truncate(long length) {
+        try {
+            channel.truncate(length);
+            end = length;
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot truncate mapping log " + path, e);
+        }
+    }
+
+    void force() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sync mapping log " + path, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + path);
+            }
+        }
+    }
+
+    private record DecodedBody(byte type, UrlMappingEntity mapping) {
+    }
+
+    private static DecodedBody decodeBody(ByteBuffer body) {
+        byte type = body.get();
+        long id = body.getLong();
+        LocalDateTime createdAt = getTimestamp(body);
+        LocalDateTime expiresAt = getTimestamp(body);
+        byte[] code = new byte[body.getShort()];
+        body.get(code);
+        byte[] url = new byte[body.getInt()];
+        body.get(url);
+        UrlMappingEntity mapping = new UrlMappingEntity(new String(url, StandardCharsets.UTF_8),
+                new String(code, StandardCharsets.UTF_8), createdAt, expiresAt);
+        mapping.setId(id);
+        return new DecodedBody(type, mapping);
+    }
+
+    private static void putTimestamp(ByteBuffer buffer, LocalDateTime timestamp) {
+        if (timestamp == null) {
+            buffer.putLong(NO_EXPIRY).putInt(0);
+        } else {
+            buffer.putLong(timestamp.toEpochSecond(ZoneOffset.UTC)).putInt(timestamp.getNano());
+        }
+    }
+
+    private static LocalDateTime getTimestamp(ByteBuffer buffer) {
+        long second = buffer.getLong();
+        int nano = buffer.getInt();
+        return second == NO_EXPIRY ? null : LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC);
+    }
+}
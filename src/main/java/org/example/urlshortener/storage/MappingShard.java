@@ -0,0 +1,275 @@
+package org.example.urlshortener.storage;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.util.UrlDigest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * One shard of the {@link ShardedUrlMappingRepository}: a {@code url_mapping} table holding the
+ * mappings whose short code hashes to this shard, and a {@code url_digest_route} table mapping
+ * the URL digests that hash to this shard to their short code. Both are created on first use.
+ * <p>
+ * Ids come from a per-shard sequence starting at the shard's {@code index + 1} and stepping by
+ * {@link #MAX_SHARDS}, so they are unique across shards and stay with a mapping when it moves.
+ */
+final class MappingShard {
+
+    static final int MAX_SHARDS = 1024;
+
+    private static final String COLUMNS = "id, original_url, url_digest, short_code, created_at, expires_at";
+
+    private static final RowMapper<UrlMappingEntity> MAPPING = (resultSet, rowNum) -> {
+        UrlMappingEntity mapping = new UrlMappingEntity();
+        mapping.setId(resultSet.getLong(1));
+        mapping.setOriginalUrl(resultSet.getString(2));
+        mapping.setUrlDigest(resultSet.getString(3));
+        mapping.setShortCode(resultSet.getString(4));
+        mapping.setCreatedAt(resultSet.getObject(5, LocalDateTime.class));
+        mapping.setExpiresAt(resultSet.getObject(6, LocalDateTime.class));
+        return mapping;
+    };
+
+    private final String name;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    MappingShard(String name, int index, DataSource dataSource) {
+        if (index < 0 || index >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard index must be below " + MAX_SHARDS + ", was " + index);
+        }
+        this.name = name;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("create table if not exists url_mapping (id bigint primary key,"
+                + " original_url varchar(2048) not null, url_digest char(" + UrlDigest.LENGTH + ") not null,"
+                + " short_code varchar(255) not null unique, created_at timestamp not null, expires_at timestamp)");
+        jdbcTemplate.execute("create index if not exists idx_shard_expires_at on url_mapping (expires_at, id)");
+        jdbcTemplate.execute("create table if not exists url_digest_route (url_digest char(" + UrlDigest.LENGTH + ")"
+                + " primary key, short_code varchar(255) not null)");
+        jdbcTemplate.execute("create sequence if not exists url_mapping_shard_seq start with " + (index + 1)
+                + " increment by " + MAX_SHARDS);
+    }
+
+    String name() {
+        return name;
+    }
+
+    UrlMappingEntity findByShortCode(String shortCode) {
+        return first(jdbcTemplate.query("select " + COLUMNS + " from url_mapping where short_code = ?", MAPPING,
+                shortCode));
+    }
+
+    List<UrlMappingEntity> findByShortCodes(Collection<String> shortCodes) {
+        return namedJdbcTemplate.query("select " + COLUMNS + " from url_mapping where short_code in (:codes)",
+                new MapSqlParameterSource("codes", shortCodes), MAPPING);
+    }
+
+    UrlMappingEntity findById(long id) {
+        return first(jdbcTemplate.query("select " + COLUMNS + " from url_mapping where id = ?", MAPPING, id));
+    }
+
+    List<UrlMappingEntity> findByIds(Collection<Long> ids) {
+        return namedJdbcTemplate.query("select " + COLUMNS + " from url_mapping where id in (:ids)",
+                new MapSqlParameterSource("ids", ids), MAPPING);
+    }
+
+    List<UrlMappingEntity> findAfterId(long afterId, int limit) {
+        return jdbcTemplate.query("select " + COLUMNS + " from url_mapping where id > ? order by id"
+                + " fetch first ? rows only", MAPPING, afterId, limit);
+    }
+
+    List<UrlMappingEntity> findExpired(LocalDateTime cutoff, LocalDateTime afterExpiresAt, long afterId, int limit) {
+        if (afterExpiresAt == null) {
+            return jdbcTemplate.query("select " + COLUMNS + " from url_mapping where expires_at <= ?"
+                    + " order by expires_at, id fetch first ? rows only", MAPPING, cutoff, limit);
+        }
+        return jdbcTemplate.query("select " + COLUMNS + " from url_mapping where expires_at <= ?"
+                        + " and (expires_at > ? or (expires_at = ? and id > ?)) order by expires_at, id fetch first ? rows only",
+                MAPPING, cutoff, afterExpiresAt, afterExpiresAt, afterId, limit);
+    }
+
+    long count() {
+        return jdbcTemplate.queryForObject("select count(*) from url_mapping", Long.class);
+    }
+
+    /**
+     * The short code routed from {@code urlDigest}, or {@code null}.
+     */
+    String findRoute(String urlDigest) {
+        return first(jdbcTemplate.queryForList("select short_code from url_digest_route where url_digest = ?",
+                String.class, urlDigest));
+    }
+
+    List<Route> findRoutes(Collection<String> urlDigests) {
+        return namedJdbcTemplate.query("select url_digest, short_code from url_digest_route where url_digest in (:digests)",
+                new MapSqlParameterSource("digests", urlDigests),
+                (resultSet, rowNum) -> new Route(resultSet.getString(1), resultSet.getString(2)));
+    }
+
+    List<Route> findRoutesAfter(String afterDigest, int limit) {
+        return jdbcTemplate.query("select url_digest, short_code from url_digest_route where url_digest > ?"
+                        + " order by url_digest fetch first ? rows only",
+                (resultSet, rowNum) -> new Route(resultSet.getString(1), resultSet.getString(2)), afterDigest, limit);
+    }
+
+    /**
+     * Inserts all routes or none; a digest that is already routed fails the call with a
+     * {@link DuplicateKeyException}.
+     */
+    void insertRoutes(List<Route> routes) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                "insert into url_digest_route (url_digest, short_code) values (?, ?)", routes, routes.size(),
+                (statement, route) -> {
+                    statement.setString(1, route.urlDigest());
+                    statement.setString(2, route.shortCode());
+                }));
+    }
+
+    /**
+     * Points an existing route at {@code route.shortCode()} if it still points at
+     * {@code expectedShortCode}; returns whether it did.
+     */
+    boolean replaceRoute(Route route, String expectedShortCode) {
+        return jdbcTemplate.update("update url_digest_route set short_code = ? where url_digest = ? and short_code = ?",
+                route.shortCode(), route.urlDigest(), expectedShortCode) == 1;
+    }
+
+    /**
+     * Copies a route moved from another shard, keeping any route already here.
+     */
+    void copyRoute(Route route) {
+        try {
+            jdbcTemplate.update("insert into url_digest_route (url_digest, short_code) values (?, ?)",
+                    route.urlDigest(), route.shortCode());
+        } catch (DuplicateKeyException e) {
+            // Written here by a create since the ring changed
+        }
+    }
+
+    void deleteRoutes(Collection<Route> routes) {
+        for (Route route : routes) {
+            jdbcTemplate.update("delete from url_digest_route where url_digest = ? and short_code = ?",
+                    route.urlDigest(), route.shortCode());
+        }
+    }
+
+    /**
+     * Inserts all mappings or none, assigning their ids. A short code that is already taken fails
+     * the call with a {@link DuplicateKeyException}, leaving the ids unset.
+     */
+    void insertMappings(List<UrlMappingEntity> mappings) {
+        transactionTemplate.executeWithoutResult(status -> {
+            long[] ids = new long[mappings.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = jdbcTemplate.queryForObject("select next value for url_mapping_shard_seq", Long.class);
+            }
+            jdbcTemplate.batchUpdate("insert into url_mapping (" + COLUMNS + ") values (?, ?, ?, ?, ?, ?)",
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement statement, int i) throws SQLException {
+                            bind(statement, ids[i], mappings.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return ids.length;
+                        }
+                    });
+            for (int i = 0; i < ids.length; i++) {
+                mappings.get(i).setId(ids[i]);
+            }
+        });
+    }
+
+    /**
+     * Copies a mapping moved from another shard under its existing id; a copy already here takes
+     * the moved mapping's expiry. Returns {@code false} if the short code is taken by a different
+     * mapping, which leaves this shard unchanged.
+     */
+    boolean copyMapping(UrlMappingEntity mapping) {
+        try {
+            jdbcTemplate.update("insert into url_mapping (" + COLUMNS + ") values (?, ?, ?, ?, ?, ?)",
+                    statement -> bind(statement, mapping.getId(), mapping));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return updateExpiresAt(mapping.getId(), mapping.getExpiresAt()) == 1;
+        }
+    }
+
+    int updateExpiresAt(long id, LocalDateTime expiresAt) {
+        return jdbcTemplate.update("update url_mapping set expires_at = ? where id = ?", expiresAt, id);
+    }
+
+    /**
+     * Sets the mapping's URL digest if it is still {@code expectedUrlDigest}; returns whether it did.
+     */
+    boolean replaceUrlDigest(long id, String expectedUrlDigest, String urlDigest) {
+        return jdbcTemplate.update("update url_mapping set url_digest = ? where id = ? and url_digest = ?",
+                urlDigest, id, expectedUrlDigest) == 1;
+    }
+
+    int deleteExpiredByIdIn(Collection<Long> ids, LocalDateTime cutoff) {
+        return namedJdbcTemplate.update("delete from url_mapping where id in (:ids) and expires_at <= :cutoff",
+                new MapSqlParameterSource("ids", ids).addValue("cutoff", cutoff));
+    }
+
+    /**
+     * Deletes the mapping if its expiry is still the one in {@code mapping}; returns whether it did.
+     */
+    boolean deleteIfUnchanged(UrlMappingEntity mapping) {
+        if (mapping.getExpiresAt() == null) {
+            return jdbcTemplate.update("delete from url_mapping where id = ? and expires_at is null", mapping.getId()) == 1;
+        }
+        return jdbcTemplate.update("delete from url_mapping where id = ? and expires_at = ?", mapping.getId(),
+                mapping.getExpiresAt()) == 1;
+    }
+
+    int deleteByIds(Collection<Long> ids) {
+        return namedJdbcTemplate.update("delete from url_mapping where id in (:ids)", new MapSqlParameterSource("ids", ids));
+    }
+
+    void deleteAll() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from url_mapping");
+            jdbcTemplate.update("delete from url_digest_route");
+        });
+    }
+
+    private static void bind(PreparedStatement statement, long id, UrlMappingEntity mapping)
+            throws SQLException {
+        statement.setLong(1, id);
+        statement.setString(2, mapping.getOriginalUrl());
+        statement.setString(3, mapping.getUrlDigest());
+        statement.setString(4, mapping.getShortCode());
+        statement.setObject(5, mapping.getCreatedAt());
+        statement.setObject(6, mapping.getExpiresAt());
+    }
+
+    private static <T> T first(List<T> rows) {
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    record Route(String urlDigest, String shortCode) {
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.urlshortener.storage;
+
+import org.example.urlshortener.model.ExpiringMappingView;
+import org.example.urlshortener.model.ShortCodeView;
+import org.example.urlshortener.model.UrlMappingEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * The projections of {@link org.example.urlshortener.repository.UrlMappingStore} over a
+ * mapping the storage engines have already materialized.
+ */
+final class MappingView implements ShortCodeView, ExpiringMappingView {
+
+    private final UrlMappingEntity mapping;
+
+    MappingView(UrlMappingEntity mapping) {
+        this.mapping = mapping;
+    }
+
+    @Override
+    public Long getId() {
+        return mapping.getId();
+    }
+
+    @Override
+    public String getShortCode() {
+        return mapping.getShortCode();
+    }
+
+    @Override
+    public LocalDateTime getExpiresAt() {
+        return mapping.getExpiresAt();
+    }
+}
@@ -0,0 +1,678 @@
+package org.example.urlshortener.storage;
+
+import org.example.urlshortener.model.ExpiringMappingView;
+import org.example.urlshortener.model.ShortCodeView;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.util.UrlDigest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Pageable;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link UrlMappingStore} spread over several databases. A mapping lives on the
+ * {@link MappingShard} its short code hashes to on a {@link ConsistentHashRing}; the original-URL
+ * dedupe path uses a second routing key, a {@code url_digest_route} row on the shard the URL digest
+ * hashes to, naming the short code. Lookups by code or digest touch one shard each, batch lookups
+ * one query per shard involved, and id and expiry scans merge the shards' ordered pages.
+ * <p>
+ * A create inserts the mapping first and its route second, removing the mapping again if the URL
+ * is routed already, so a route never names a mapping that has not been written. A route left
+ * behind by a mapping deleted in between is taken over by the next create of that URL.
+ * <p>
+ * {@link #addShard} grows the ring online: the new ring takes effect at once, and a background
+ * rebalance copies each misplaced mapping and route to its new owner before deleting the original.
+ * Until it completes, a miss on the owning shard falls back to the others. Shards are identified by
+ * their position, so they must only ever be appended.
+ * <p>
+ * Before the web server starts, mappings stored under a URL digest other than
+ * {@link UrlDigest#of} of their URL, as written before the digest function changed, are rekeyed
+ * along with their routes.
+ */
+public class ShardedUrlMappingRepository implements UrlMappingStore, SmartLifecycle, SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedUrlMappingRepository.class);
+
+    private static final Comparator<UrlMappingEntity> BY_ID = Comparator.comparing(UrlMappingEntity::getId);
+    private static final Comparator<UrlMappingEntity> BY_EXPIRY =
+            Comparator.comparing(UrlMappingEntity::getExpiresAt).thenComparing(UrlMappingEntity::getId);
+
+    private final Map<String, DataSource> dataSources = new LinkedHashMap<>();
+    private final int virtualNodes;
+    private final int rebalancePageSize;
+    // Locks rather than monitors: adding a shard creates its tables and rebalancing copies rows while
+    // holding them, which would pin the carrier of a virtual thread
+    private final ReentrantLock shardsLock = new ReentrantLock();
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+    private final LongAdder moved = new LongAdder();
+
+    private volatile ConsistentHashRing<MappingShard> ring;
+    private volatile boolean rebalancing;
+    private volatile boolean running;
+    private ExecutorService rebalancer;
+
+    /**
+     * Takes ownership of {@code dataSources}, closing them with the repository.
+     *
+     * @param dataSources      the shards in their fixed order, by name
+     * @param rebalanceOnStart whether {@link #start} moves mappings placed by a different ring,
+     *                         as after a shard was appended to the configuration
+     */
+    public ShardedUrlMappingRepository(Map<String, DataSource> dataSources, int virtualNodes, int rebalancePageSize,
+                                       boolean rebalanceOnStart) {
+        if (dataSources.isEmpty() || dataSources.size() > MappingShard.MAX_SHARDS) {
+            throw new IllegalArgumentException("Between 1 and " + MappingShard.MAX_SHARDS + " shards are supported");
+        }
+        this.virtualNodes = virtualNodes;
+        this.rebalancePageSize = rebalancePageSize;
+        Map<String, MappingShard> shards = new LinkedHashMap<>();
+        for (Map.Entry<String, DataSource> shard : dataSources.entrySet()) {
+            shards.put(shard.getKey(), new MappingShard(shard.getKey(), shards.size(), shard.getValue()));
+        }
+        this.dataSources.putAll(dataSources);
+        this.ring = new ConsistentHashRing<>(shards, virtualNodes);
+        // Until the first pass, mappings may sit where an earlier ring put them
+        this.rebalancing = rebalanceOnStart;
+    }
+
+    /**
+     * Appends a shard and, once started, rebalances onto it in the background.
+     */
+    public void addShard(String name, DataSource dataSource) {
+        shardsLock.lock();
+        try {
+            if (dataSources.containsKey(name)) {
+                throw new IllegalArgumentException("A shard named " + name + " exists already");
+            }
+            if (dataSources.size() == MappingShard.MAX_SHARDS) {
+                throw new IllegalStateException("At most " + MappingShard.MAX_SHARDS + " shards are supported");
+            }
+            Map<String, MappingShard> shards = new LinkedHashMap<>();
+            for (MappingShard shard : ring.members()) {
+                shards.put(shard.name(), shard);
+            }
+            shards.put(name, new MappingShard(name, shards.size(), dataSource));
+            dataSources.put(name, dataSource);
+            rebalancing = true;
+            ring = new ConsistentHashRing<>(shards, virtualNodes);
+            log.info("Added shard {}, rebalancing {} shard(s)", name, shards.size());
+            if (running) {
+                rebalancer.execute(this::rebalanceQuietly);
+            }
+        } finally {
+            shardsLock.unlock();
+        }
+    }
+
+    /**
+     * Moves every mapping and route not on its owning shard to it. Runs in the background after
+     * {@link #addShard}; callers may also run it directly.
+     */
+    public void rebalance() {
+        rebalanceLock.lock();
+        try {
+            ConsistentHashRing<MappingShard> target = ring;
+            long movedBefore = moved.sum();
+            for (MappingShard shard : target.members()) {
+                if (!moveMappings(shard, target) || !moveRoutes(shard, target)) {
+                    return;
+                }
+            }
+            shardsLock.lock();
+            try {
+                if (ring == target) {
+                    rebalancing = false;
+                }
+            } finally {
+                shardsLock.unlock();
+            }
+            log.info("Rebalanced {} shard(s), moved {} row(s)", target.members().size(), moved.sum() - movedBefore);
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    public boolean isRebalancing() {
+        return rebalancing;
+    }
+
+    public int shardCount() {
+        return ring.members().size();
+    }
+
+    /**
+     * Mappings and routes copied to another shard by rebalancing.
+     */
+    public long movedCount() {
+        return moved.sum();
+    }
+
+    /**
+     * Mappings stored on each shard, in shard order.
+     */
+    public Map<String, Long> countsByShard() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (MappingShard shard : ring.members()) {
+            counts.put(shard.name(), shard.count());
+        }
+        return counts;
+    }
+
+    /**
+     * Rekeys every mapping whose stored URL digest is not the digest of its URL, moving its route
+     * to the new digest; returns how many were rekeyed. A route the new digest already has is
+     * kept, leaving the mapping redirectable but not found by the dedupe lookup.
+     */
+    public long rewriteStaleDigests() {
+        ConsistentHashRing<MappingShard> ring = this.ring;
+        long rewritten = 0;
+        for (MappingShard shard : ring.members()) {
+            long afterId = 0;
+            List<UrlMappingEntity> page;
+            do {
+                page = shard.findAfterId(afterId, rebalancePageSize);
+                for (UrlMappingEntity mapping : page) {
+                    String digest = UrlDigest.of(mapping.getOriginalUrl());
+                    if (!digest.equals(mapping.getUrlDigest())
+                            && shard.replaceUrlDigest(mapping.getId(), mapping.getUrlDigest(), digest)) {
+                        ring.owner(digest).copyRoute(new MappingShard.Route(digest, mapping.getShortCode()));
+                        // The old route may sit on any shard if the ring changed since it was written
+                        List<MappingShard.Route> stale = List.of(
+                                new MappingShard.Route(mapping.getUrlDigest(), mapping.getShortCode()));
+                        ring.members().forEach(member -> member.deleteRoutes(stale));
+                        rewritten++;
+                    }
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == rebalancePageSize);
+        }
+        return rewritten;
+    }
+
+    // ---- lifecycle ----
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long started = System.nanoTime();
+        long rewritten = rewriteStaleDigests();
+        if (rewritten > 0) {
+            log.info("Rekeyed {} mapping(s) to the current URL digest in {} ms", rewritten,
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    @Override
+    public void start() {
+        rebalancer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-rebalancer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        if (rebalancing) {
+            rebalancer.execute(this::rebalanceQuietly);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        rebalancer.shutdownNow();
+        try {
+            rebalancer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void close() {
+        shardsLock.lock();
+        try {
+            for (DataSource dataSource : dataSources.values()) {
+                if (dataSource instanceof AutoCloseable closeable) {
+                    try {
+                        closeable.close();
+                    } catch (Exception e) {
+                        log.warn("Closing a shard data source failed", e);
+                    }
+                }
+            }
+        } finally {
+            shardsLock.unlock();
+        }
+    }
+
+    // ---- UrlMappingStore ----
+
+    @Override
+    public Optional<UrlMappingEntity> findByShortCode(String shortCode) {
+        MappingShard owner = ring.owner(shortCode);
+        UrlMappingEntity mapping = owner.findByShortCode(shortCode);
+        if (mapping == null && rebalancing) {
+            for (MappingShard shard : ring.members()) {
+                if (shard != owner && (mapping = shard.findByShortCode(shortCode)) != null) {
+                    break;
+                }
+            }
+        }
+        return Optional.ofNullable(mapping);
+    }
+
+    @Override
+    public Optional<UrlMappingEntity> findByUrlDigest(String urlDigest) {
+        String shortCode = findRoute(urlDigest);
+        if (shortCode == null) {
+            return Optional.empty();
+        }
+        // A route left behind by a deleted mapping finds nothing
+        return findByShortCode(shortCode).filter(mapping -> urlDigest.equals(mapping.getUrlDigest()));
+    }
+
+    @Override
+    public List<UrlMappingEntity> findByShortCodeIn(Collection<String> shortCodes) {
+        ConsistentHashRing<MappingShard> ring = this.ring;
+        List<UrlMappingEntity> found = new ArrayList<>(shortCodes.size());
+        for (Map.Entry<MappingShard, List<String>> group : groupByOwner(ring, new HashSet<>(shortCodes)).entrySet()) {
+            found.addAll(group.getKey().findByShortCodes(group.getValue()));
+        }
+        if (rebalancing && found.size() < shortCodes.size()) {
+            Set<String> missing = new HashSet<>(shortCodes);
+            found.forEach(mapping -> missing.remove(mapping.getShortCode()));
+            for (MappingShard shard : ring.members()) {
+                if (missing.isEmpty()) {
+                    break;
+                }
+                for (UrlMappingEntity mapping : shard.findByShortCodes(missing)) {
+                    if (missing.remove(mapping.getShortCode())) {
+                        found.add(mapping);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<UrlMappingEntity> findByUrlDigestIn(Collection<String> urlDigests) {
+        ConsistentHashRing<MappingShard> ring = this.ring;
+        Map<String, String> codesByDigest = new LinkedHashMap<>();
+        for (Map.Entry<MappingShard, List<String>> group : groupByOwner(ring, new HashSet<>(urlDigests)).entrySet()) {
+            group.getKey().findRoutes(group.getValue())
+                    .forEach(route -> codesByDigest.put(route.urlDigest(), route.shortCode()));
+        }
+        if (rebalancing && codesByDigest.size() < urlDigests.size()) {
+            Set<String> missing = new HashSet<>(urlDigests);
+            missing.removeAll(codesByDigest.keySet());
+            for (MappingShard shard : ring.members()) {
+                if (!missing.isEmpty()) {
+                    shard.findRoutes(missing).forEach(route -> {
+                        missing.remove(route.urlDigest());
+                        codesByDigest.put(route.urlDigest(), route.shortCode());
+                    });
+                }
+            }
+        }
+        if (codesByDigest.isEmpty()) {
+            return List.of();
+        }
+        List<UrlMappingEntity> found = findByShortCodeIn(codesByDigest.values());
+        found.removeIf(mapping -> !mapping.getShortCode().equals(codesByDigest.get(mapping.getUrlDigest())));
+        return found;
+    }
+
+    @Override
+    public List<ShortCodeView> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable) {
+        List<ShortCodeView> page = new ArrayList<>();
+        for (UrlMappingEntity mapping : findAfterId(afterId, limit(pageable))) {
+            page.add(new MappingView(mapping));
+        }
+        return page;
+    }
+
+    @Override
+    public List<UrlMappingEntity> findAllByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable) {
+        return findAfterId(afterId, limit(pageable));
+    }
+
+    @Override
+    public List<ExpiringMappingView> findByExpiresAtLessThanEqualOrderByExpiresAtAscIdAsc(LocalDateTime cutoff,
+                                                                                          Pageable pageable) {
+        return findExpired(cutoff, null, 0, limit(pageable));
+    }
+
+    @Override
+    public List<ExpiringMappingView> findExpiredAfter(LocalDateTime cutoff, LocalDateTime afterExpiresAt, Long afterId,
+                                                      Pageable pageable) {
+        return findExpired(cutoff, afterExpiresAt, afterId, limit(pageable));
+    }
+
+    /**
+     * Deletes each mapping whose expiry is still at or before {@code cutoff}, then its route.
+     */
+    @Override
+    public int deleteExpiredByIdIn(Collection<Long> ids, LocalDateTime cutoff) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        ConsistentHashRing<MappingShard> ring = this.ring;
+        int deleted = 0;
+        for (MappingShard shard : ring.members()) {
+            for (UrlMappingEntity mapping : shard.findByIds(ids)) {
+                if (mapping.isExpiredAt(cutoff) && shard.deleteIfUnchanged(mapping)) {
+                    deleteRoute(ring, mapping);
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public int updateExpiresAt(Long id, LocalDateTime expiresAt) {
+        int updated = 0;
+        // Mid-move a mapping can have two copies, and both take the new expiry
+        for (MappingShard shard : ring.members()) {
+            updated += shard.updateExpiresAt(id, expiresAt);
+        }
+        return Math.min(updated, 1);
+    }
+
+    @Override
+    public <S extends UrlMappingEntity> List<S> saveAll(Iterable<S> entities) {
+        List<S> batch = new ArrayList<>();
+        entities.forEach(batch::add);
+        if (!batch.isEmpty()) {
+            insert(batch);
+        }
+        return batch;
+    }
+
+    /**
+     * Committed on its shards when the call returns, like every write.
+     */
+    @Override
+    public <S extends UrlMappingEntity> S saveAndFlush(S entity) {
+        insert(List.of(entity));
+        return entity;
+    }
+
+    public long count() {
+        long count = 0;
+        for (MappingShard shard : ring.members()) {
+            count += shard.count();
+        }
+        return count;
+    }
+
+    /**
+     * Empties every shard, mappings and routes alike.
+     */
+    public void deleteAll() {
+        for (MappingShard shard : ring.members()) {
+            shard.deleteAll();
+        }
+    }
+
+    // ---- routing ----
+
+    /**
+     * Inserts the mappings on their shards, then their routes. A taken short code or URL undoes
+     * what was written and fails the call with a {@link DataIntegrityViolationException}.
+     */
+    private void insert(List<? extends UrlMappingEntity> mappings) {
+        ConsistentHashRing<MappingShard> ring = this.ring;
+        Map<MappingShard, List<UrlMappingEntity>> mappingsByShard = new LinkedHashMap<>();
+        Map<MappingShard, List<MappingShard.Route>> routesByShard = new LinkedHashMap<>();
+        for (UrlMappingEntity mapping : mappings) {
+            if (mapping.getId() != null) {
+                throw new IllegalArgumentException("Mapping " + mapping.getId() + " is stored already;"
+                        + " change its expiry through updateExpiresAt");
+            }
+            mappingsByShard.computeIfAbsent(ring.owner(mapping.getShortCode()), shard -> new ArrayList<>()).add(mapping);
+            routesByShard.computeIfAbsent(ring.owner(mapping.getUrlDigest()), shard -> new ArrayList<>())
+                    .add(new MappingShard.Route(mapping.getUrlDigest(), mapping.getShortCode()));
+        }
+        if (rebalancing) {
+            checkNotOnOtherShards(mappings);
+        }
+
+        Deque<Runnable> undo = new ArrayDeque<>();
+        try {
+            for (Map.Entry<MappingShard, List<UrlMappingEntity>> group : mappingsByShard.entrySet()) {
+                group.getKey().insertMappings(group.getValue());
+                List<Long> ids = group.getValue().stream().map(UrlMappingEntity::getId).toList();
+                undo.push(() -> group.getKey().deleteByIds(ids));
+            }
+            for (Map.Entry<MappingShard, List<MappingShard.Route>> group : routesByShard.entrySet()) {
+                insertRoutes(group.getKey(), group.getValue());
+                undo.push(() -> group.getKey().deleteRoutes(group.getValue()));
+            }
+        } catch (DataIntegrityViolationException e) {
+            for (Runnable step : undo) {
+                try {
+                    step.run();
+                } catch (RuntimeException undoFailure) {
+                    e.addSuppressed(undoFailure);
+                }
+            }
+            for (UrlMappingEntity mapping : mappings) {
+                mapping.setId(null);
+            }
+            throw e;
+        }
+    }
+
+    private void insertRoutes(MappingShard shard, List<MappingShard.Route> routes) {
+        try {
+            shard.insertRoutes(routes);
+        } catch (DuplicateKeyException e) {
+            // A single create may take over a route whose mapping is gone; batches fall back to single creates
+            MappingShard.Route route = routes.get(0);
+            String routed = routes.size() == 1 ? shard.findRoute(route.urlDigest()) : null;
+            if (routed == null || findByShortCode(routed).filter(mapping -> route.urlDigest()
+                    .equals(mapping.getUrlDigest())).isPresent() || !shard.replaceRoute(route, routed)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Mid-rebalance the owners may not hold a short code or route yet that another shard still
+     * does; a create must not duplicate it.
+     */
+    private void checkNotOnOtherShards(List<? extends UrlMappingEntity> mappings) {
+        for (UrlMappingEntity mapping : mappings) {
+            if (findByShortCode(mapping.getShortCode()).isPresent()) {
+                throw new DuplicateKeyException("Short code " + mapping.getShortCode() + " is taken");
+            }
+            if (findByUrlDigest(mapping.getUrlDigest()).isPresent()) {
+                throw new DuplicateKeyException("URL digest " + mapping.getUrlDigest() + " is routed already");
+            }
+        }
+    }
+
+    private String findRoute(String urlDigest) {
+        ConsistentHashRing<MappingShard> ring = this.ring;
+        MappingShard owner = ring.owner(urlDigest);
+        String shortCode = owner.findRoute(urlDigest);
+        if (shortCode == null && rebalancing) {
+            for (MappingShard shard : ring.members()) {
+                if (shard != owner && (shortCode = shard.findRoute(urlDigest)) != null) {
+                    break;
+                }
+            }
+        }
+        return shortCode;
+    }
+
+    private void deleteRoute(ConsistentHashRing<MappingShard> ring, UrlMappingEntity mapping) {
+        List<MappingShard.Route> route = List.of(new MappingShard.Route(mapping.getUrlDigest(), mapping.getShortCode()));
+        if (rebalancing) {
+            ring.members().forEach(shard -> shard.deleteRoutes(route));
+        } else {
+            ring.owner(mapping.getUrlDigest()).deleteRoutes(route);
+        }
+    }
+
+    private List<UrlMappingEntity> findAfterId(long afterId, int limit) {
+        List<UrlMappingEntity> merged = new ArrayList<>();
+        for (MappingShard shard : ring.members()) {
+            merged.addAll(shard.findAfterId(afterId, limit));
+        }
+        merged.sort(BY_ID);
+        return distinct(merged, limit);
+    }
+
+    private List<ExpiringMappingView> findExpired(LocalDateTime cutoff, LocalDateTime afterExpiresAt, long afterId,
+                                                  int limit) {
+        List<UrlMappingEntity> merged = new ArrayList<>();
+        for (MappingShard shard : ring.members()) {
+            merged.addAll(shard.findExpired(cutoff, afterExpiresAt, afterId, limit));
+        }
+        merged.sort(BY_EXPIRY);
+        List<ExpiringMappingView> views = new ArrayList<>();
+        for (UrlMappingEntity mapping : distinct(merged, limit)) {
+            views.add(new MappingView(mapping));
+        }
+        return views;
+    }
+
+    // Drops the second copy of a mapping caught mid-move
+    private static List<UrlMappingEntity> distinct(List<UrlMappingEntity> sorted, int limit) {
+        Set<Long> seen = new HashSet<>();
+        List<UrlMappingEntity> page = new ArrayList<>(Math.min(sorted.size(), limit));
+        for (UrlMappingEntity mapping : sorted) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (seen.add(mapping.getId())) {
+                page.add(mapping);
+            }
+        }
+        return page;
+    }
+
+    private static Map<MappingShard, List<String>> groupByOwner(ConsistentHashRing<MappingShard> ring,
+                                                                Collection<String> keys) {
+        Map<MappingShard, List<String>> groups = new LinkedHashMap<>();
+        for (String key : keys) {
+            groups.computeIfAbsent(ring.owner(key), shard -> new ArrayList<>()).add(key);
+        }
+        return groups;
+    }
+
+    // ---- rebalancing ----
+
+    private void rebalanceQuietly() {
+        try {
+            rebalance();
+        } catch (RuntimeException e) {
+            log.error("Rebalancing the shards failed; reads keep falling back to every shard", e);
+        }
+    }
+
+    /**
+     * Returns {@code false} if interrupted by {@link #stop}.
+     */
+    private boolean moveMappings(MappingShard shard, ConsistentHashRing<MappingShard> target) {
+        long afterId = 0;
+        List<UrlMappingEntity> page;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            page = shard.findAfterId(afterId, rebalancePageSize);
+            for (UrlMappingEntity mapping : page) {
+                MappingShard owner = target.owner(mapping.getShortCode());
+                if (owner != shard) {
+                    move(mapping, shard, owner);
+                }
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == rebalancePageSize);
+        return true;
+    }
+
+    /**
+     * Copies the mapping, then deletes the original unless it changed meanwhile, in which case the
+     * changed one is copied again.
+     */
+    private void move(UrlMappingEntity mapping, MappingShard from, MappingShard to) {
+        UrlMappingEntity current = mapping;
+        while (current != null) {
+            if (!to.copyMapping(current)) {
+                log.warn("Short code {} is taken on shard {}, leaving mapping {} on shard {}",
+                        current.getShortCode(), to, current.getId(), from);
+                return;
+            }
+            if (from.deleteIfUnchanged(current)) {
+                moved.increment();
+                return;
+            }
+            current = from.findById(current.getId());
+        }
+        // Deleted from the old shard while being copied
+        to.deleteByIds(List.of(mapping.getId()));
+    }
+
+    private boolean moveRoutes(MappingShard shard, ConsistentHashRing<MappingShard> target) {
+        String afterDigest = "";
+        List<MappingShard.Route> page;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            page = shard.findRoutesAfter(afterDigest, rebalancePageSize);
+            List<MappingShard.Route> misplaced = new ArrayList<>();
+            for (MappingShard.Route route : page) {
+                MappingShard owner = target.owner(route.urlDigest());
+                if (owner != shard) {
+                    owner.copyRoute(route);
+                    misplaced.add(route);
+                }
+            }
+            shard.deleteRoutes(misplaced);
+            moved.add(misplaced.size());
+            if (!page.isEmpty()) {
+                afterDigest = page.get(page.size() - 1).urlDigest();
+            }
+        } while (page.size() == rebalancePageSize);
+        return true;
+    }
+
+    private static int limit(Pageable pageable) {
+        return pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+    }
+}
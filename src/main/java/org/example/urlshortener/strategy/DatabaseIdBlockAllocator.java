@@ -0,0 +1,44 @@
+package org.example.urlshortener.strategy;
+
+import org.example.urlshortener.model.ShortCodeSequenceEntity;
+import org.example.urlshortener.repository.ShortCodeSequenceRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Leases id blocks from a single-row counter in {@code short_code_sequence}, advanced under a
+ * row lock so concurrent nodes always receive disjoint ranges.
+ */
+public class DatabaseIdBlockAllocator implements IdBlockAllocator {
+
+    static final String SEQUENCE_NAME = "short_code";
+
+    private final ShortCodeSequenceRepository repository;
+    private final TransactionTemplate transactionTemplate;
+
+    public DatabaseIdBlockAllocator(ShortCodeSequenceRepository repository, TransactionTemplate transactionTemplate) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public long allocate(int blockSize) {
+        try {
+            return lease(blockSize);
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the counter row first; it exists now.
+            return lease(blockSize);
+        }
+    }
+
+    private long lease(int blockSize) {
+        Long start = transactionTemplate.execute(status -> {
+            ShortCodeSequenceEntity sequence = repository.findForUpdate(SEQUENCE_NAME)
+                    .orElseGet(() -> repository.saveAndFlush(new ShortCodeSequenceEntity(SEQUENCE_NAME, 0L)));
+            long first = sequence.getNextValue();
+            sequence.setNextValue(Math.addExact(first, blockSize));
+            return first;
+        });
+        return start;
+    }
+}
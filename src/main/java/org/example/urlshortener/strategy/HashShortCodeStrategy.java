@@ -0,0 +1,132 @@
+package org.example.urlshortener.strategy;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.util.ShortCodeGenerator;
+import org.example.urlshortener.writebehind.WriteBehindWriter;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Derives the code from a murmur3 hash of the URL and probes the repository to resolve collisions
+ * by rehashing with a counter suffix. With write-behind, a code held by a mapping not yet written
+ * is taken as well, so a create moves on to the next candidate instead of retrying the same one.
+ */
+public class HashShortCodeStrategy implements ShortCodeStrategy {
+
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private final UrlMappingStore repository;
+    private final WriteBehindWriter writeBehind;
+    private final LongAdder collisions = new LongAdder();
+
+    public HashShortCodeStrategy(UrlMappingStore repository) {
+        this(repository, null);
+    }
+
+    public HashShortCodeStrategy(UrlMappingStore repository, @Nullable WriteBehindWriter writeBehind) {
+        this.repository = repository;
+        this.writeBehind = writeBehind;
+    }
+
+    @Override
+    public String generate(String originalUrl) {
+        String shortCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
+        int counter = 1;
+        UrlMappingEntity taken;
+        while ((taken = findHolder(shortCode)) != null) {
+            if (taken.getOriginalUrl().equals(originalUrl)) {
+                return shortCode;
+            }
+            collisions.increment();
+            shortCode = ShortCodeGenerator.generateHashShortCode(originalUrl + counter++);
+        }
+        return shortCode;
+    }
+
+    /**
+     * Probes all candidate codes of a round with one {@code IN} query per chunk, rehashing only the
+     * URLs whose candidate is taken in the database, pending in write-behind or already claimed
+     * earlier in the batch.
+     */
+    @Override
+    public List<String> generateAll(List<String> originalUrls) {
+        String[] codes = new String[originalUrls.size()];
+        int[] counters = new int[originalUrls.size()];
+        Set<String> claimed = new HashSet<>();
+        List<Integer> pending = new ArrayList<>(originalUrls.size());
+        for (int i = 0; i < originalUrls.size(); i++) {
+            pending.add(i);
+        }
+
+        while (!pending.isEmpty()) {
+            Map<Integer, String> candidates = new HashMap<>();
+            for (int i : pending) {
+                String url = originalUrls.get(i);
+                candidates.put(i, ShortCodeGenerator.generateHashShortCode(counters[i] == 0 ? url : url + counters[i]));
+            }
+            Map<String, UrlMappingEntity> taken = findTaken(candidates.values());
+
+            List<Integer> retry = new ArrayList<>();
+            for (int i : pending) {
+                String code = candidates.get(i);
+                UrlMappingEntity existing = taken.get(code);
+                boolean free = existing == null || existing.getOriginalUrl().equals(originalUrls.get(i));
+                if (free && claimed.add(code)) {
+                    codes[i] = code;
+                } else {
+                    counters[i]++;
+                    retry.add(i);
+                    collisions.increment();
+                }
+            }
+            pending = retry;
+        }
+        return Arrays.asList(codes);
+    }
+
+    /**
+     * Number of candidate codes rejected because they were already taken (one per extra probe).
+     */
+    public long collisionCount() {
+        return collisions.sum();
+    }
+
+    // The mapping holding the code, pending in write-behind (not in the repository yet) or written
+    private UrlMappingEntity findHolder(String shortCode) {
+        UrlMappingEntity pending = writeBehind == null ? null : writeBehind.findByShortCode(shortCode);
+        return pending != null ? pending : repository.findByShortCode(shortCode).orElse(null);
+    }
+
+    private Map<String, UrlMappingEntity> findTaken(Iterable<String> candidates) {
+        Map<String, UrlMappingEntity> taken = new HashMap<>();
+        List<String> chunk = new ArrayList<>(LOOKUP_CHUNK_SIZE);
+        for (String candidate : candidates) {
+            chunk.add(candidate);
+            if (chunk.size() == LOOKUP_CHUNK_SIZE) {
+                repository.findByShortCodeIn(chunk).forEach(m -> taken.put(m.getShortCode(), m));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            repository.findByShortCodeIn(chunk).forEach(m -> taken.put(m.getShortCode(), m));
+        }
+        if (writeBehind != null) {
+            for (String candidate : candidates) {
+                UrlMappingEntity pending = writeBehind.findByShortCode(candidate);
+                if (pending != null) {
+                    taken.put(candidate, pending);
+                }
+            }
+        }
+        return taken;
+    }
+}
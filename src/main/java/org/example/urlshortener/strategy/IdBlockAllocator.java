@@ -0,0 +1,12 @@
+package org.example.urlshortener.strategy;
+
+/**
+ * Hands out disjoint blocks of numeric ids so that each node can mint codes without coordination.
+ */
+public interface IdBlockAllocator {
+
+    /**
+     * Reserves {@code blockSize} consecutive ids and returns the first one.
+     */
+    long allocate(int blockSize);
+}
@@ -0,0 +1,111 @@
+package org.example.urlshortener.strategy;
+
+import org.example.urlshortener.util.ShortCodeAlphabet;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Collision-free strategy: leases blocks of ids from an {@link IdBlockAllocator} and encodes each
+ * id as a fixed-width code, so no repository probes are needed on the create path.
+ * <p>
+ * With shuffling enabled the id is first passed through a keyed Feistel permutation (cycle-walked
+ * to stay inside the code space), which keeps the mapping bijective while making consecutive codes
+ * look unrelated.
+ */
+public class RangeShortCodeStrategy implements ShortCodeStrategy {
+
+    public static final int CODE_LENGTH = 8;
+
+    private static final int HALF_BITS = 24;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private final IdBlockAllocator allocator;
+    private final ShortCodeAlphabet alphabet;
+    private final int blockSize;
+    private final long capacity;
+    private final long[] roundKeys;
+
+    // Guards next and blockEnd. Leasing a block is a database round-trip made while holding it, so it is
+    // a lock rather than a monitor: virtual threads waiting for the lease do not pin their carriers.
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long blockEnd;
+
+    public RangeShortCodeStrategy(IdBlockAllocator allocator, ShortCodeAlphabet alphabet, int blockSize,
+                                  boolean shuffle, long shuffleKey) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.allocator = allocator;
+        this.alphabet = alphabet;
+        this.blockSize = blockSize;
+        this.capacity = alphabet.capacity(CODE_LENGTH);
+        if (capacity > 1L << (2 * HALF_BITS)) {
+            throw new IllegalArgumentException("Code space of " + alphabet + " exceeds the permutation domain");
+        }
+        this.roundKeys = shuffle ? roundKeys(shuffleKey) : null;
+    }
+
+    @Override
+    public String generate(String originalUrl) {
+        return encode(nextId());
+    }
+
+    String encode(long id) {
+        return alphabet.encode(roundKeys == null ? id : permute(id), CODE_LENGTH);
+    }
+
+    private long nextId() {
+        long id;
+        lock.lock();
+        try {
+            if (next == blockEnd) {
+                next = allocator.allocate(blockSize);
+                blockEnd = next + blockSize;
+            }
+            id = next++;
+        } finally {
+            lock.unlock();
+        }
+        if (id >= capacity) {
+            throw new IllegalStateException("Short code space exhausted for " + alphabet);
+        }
+        return id;
+    }
+
+    private long permute(long id) {
+        long value = id;
+        do {
+            value = feistel(value);
+        } while (value >= capacity);
+        return value;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> HALF_BITS;
+        long right = value & HALF_MASK;
+        for (long key : roundKeys) {
+            long mixed = left ^ (mix(right ^ key) & HALF_MASK);
+            left = right;
+            right = mixed;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private static long[] roundKeys(long seed) {
+        long[] keys = new long[ROUNDS];
+        long state = seed;
+        for (int i = 0; i < ROUNDS; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            keys[i] = mix(state);
+        }
+        return keys;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
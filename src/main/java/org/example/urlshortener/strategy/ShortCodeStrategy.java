@@ -0,0 +1,22 @@
+package org.example.urlshortener.strategy;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Produces the short code for a URL that has no mapping yet.
+ */
+public interface ShortCodeStrategy {
+
+    String generate(String originalUrl);
+
+    /**
+     * Generates codes for a batch of distinct URLs, in the same order. Strategies that probe the
+     * repository override this to resolve collisions with set-based lookups.
+     */
+    default List<String> generateAll(List<String> originalUrls) {
+        return originalUrls.stream()
+                .map(this::generate)
+                .collect(Collectors.toList());
+    }
+}
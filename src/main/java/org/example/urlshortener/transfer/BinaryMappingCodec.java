@@ -0,0 +1,117 @@
+package org.example.urlshortener.transfer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * {@code magic, version}, then per mapping {@code 1, shortCode, originalUrl, createdAt,
+ * hasExpiry[, expiresAt]} and a closing {@code 0}; strings in modified UTF-8 with a two-byte length,
+ * timestamps as epoch seconds and nanos of the local date-time read as UTC. A stream that ends
+ * without the closing byte was cut off and fails the import.
+ */
+final class BinaryMappingCodec {
+
+    private static final int MAGIC = 0x55524c4d;
+    private static final int VERSION = 1;
+    private static final int RECORD = 1;
+    private static final int END = 0;
+
+    private BinaryMappingCodec() {
+    }
+
+    static final class Encoder implements MappingEncoder {
+
+        private final DataOutputStream out;
+
+        Encoder(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(out);
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+        }
+
+        @Override
+        public void write(MappingRecord record) throws IOException {
+            out.writeByte(RECORD);
+            out.writeUTF(record.shortCode());
+            out.writeUTF(record.originalUrl());
+            writeTime(record.createdAt());
+            out.writeBoolean(record.expiresAt() != null);
+            if (record.expiresAt() != null) {
+                writeTime(record.expiresAt());
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.writeByte(END);
+            out.flush();
+        }
+
+        private void writeTime(LocalDateTime time) throws IOException {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    static final class Decoder implements MappingDecoder {
+
+        private final DataInputStream in;
+        private boolean ended;
+
+        Decoder(InputStream in) throws IOException {
+            this.in = new DataInputStream(in);
+            try {
+                if (this.in.readInt() != MAGIC) {
+                    throw new IOException("Not a binary mapping export");
+                }
+            } catch (EOFException e) {
+                throw new IOException("Not a binary mapping export", e);
+            }
+            int version = this.in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary mapping export version " + version);
+            }
+        }
+
+        @Override
+        public MappingRecord next() throws IOException {
+            if (ended) {
+                return null;
+            }
+            try {
+                int tag = in.readUnsignedByte();
+                if (tag == END) {
+                    ended = true;
+                    return null;
+                }
+                if (tag != RECORD) {
+                    throw new IOException("Corrupt binary mapping export: unexpected tag " + tag);
+                }
+                String shortCode = in.readUTF();
+                String originalUrl = in.readUTF();
+                LocalDateTime createdAt = readTime();
+                LocalDateTime expiresAt = in.readBoolean() ? readTime() : null;
+                return new MappingRecord(shortCode, originalUrl, createdAt, expiresAt);
+            } catch (EOFException e) {
+                throw new IOException("Binary mapping export ends mid-stream", e);
+            }
+        }
+
+        private LocalDateTime readTime() throws IOException {
+            long seconds = in.readLong();
+            int nanos = in.readInt();
+            try {
+                return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+            } catch (DateTimeException e) {
+                throw new IOException("Corrupt binary mapping export: " + e.getMessage(), e);
+            }
+        }
+    }
+}
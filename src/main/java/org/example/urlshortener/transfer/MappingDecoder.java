@@ -0,0 +1,21 @@
+package org.example.urlshortener.transfer;
+
+import java.io.IOException;
+
+interface MappingDecoder {
+
+    /**
+     * The next record, or {@code null} at the end of the stream.
+     *
+     * @throws MalformedRecordException if the next record cannot be read but the ones after it can
+     * @throws IOException              if the stream is unreadable from here on, e.g. truncated
+     */
+    MappingRecord next() throws IOException;
+
+    class MalformedRecordException extends IOException {
+
+        MalformedRecordException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.urlshortener.transfer;
+
+import java.io.IOException;
+
+interface MappingEncoder {
+
+    void write(MappingRecord record) throws IOException;
+
+    /**
+     * Ends the stream and flushes it; the underlying stream stays open.
+     */
+    void finish() throws IOException;
+}
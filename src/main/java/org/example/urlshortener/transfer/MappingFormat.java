@@ -0,0 +1,70 @@
+package org.example.urlshortener.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.urlshortener.controller.URLShortenerController;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Wire formats of a mapping export: {@code ndjson}, one JSON object per line, or {@code binary},
+ * a compact length-prefixed encoding about half the size that needs no parsing.
+ */
+public enum MappingFormat {
+
+    NDJSON(URLShortenerController.APPLICATION_NDJSON_VALUE) {
+        @Override
+        MappingEncoder encoder(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            return new NdjsonMappingCodec.Encoder(out, objectMapper);
+        }
+
+        @Override
+        MappingDecoder decoder(InputStream in, ObjectMapper objectMapper) {
+            return new NdjsonMappingCodec.Decoder(in, objectMapper);
+        }
+    },
+
+    BINARY(MediaType.APPLICATION_OCTET_STREAM_VALUE) {
+        @Override
+        MappingEncoder encoder(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            return new BinaryMappingCodec.Encoder(out);
+        }
+
+        @Override
+        MappingDecoder decoder(InputStream in, ObjectMapper objectMapper) throws IOException {
+            return new BinaryMappingCodec.Decoder(in);
+        }
+    };
+
+    private final String contentType;
+
+    MappingFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public static MappingFormat of(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new URLShortenerServiceException(HttpStatus.BAD_REQUEST, "Unknown format " + name
+                    + ", expected ndjson or binary");
+        }
+    }
+
+    public static MappingFormat ofContentType(MediaType contentType) {
+        return MediaType.APPLICATION_OCTET_STREAM.isCompatibleWith(contentType) ? BINARY : NDJSON;
+    }
+
+    abstract MappingEncoder encoder(OutputStream out, ObjectMapper objectMapper) throws IOException;
+
+    abstract MappingDecoder decoder(InputStream in, ObjectMapper objectMapper) throws IOException;
+}
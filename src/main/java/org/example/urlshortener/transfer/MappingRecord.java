@@ -0,0 +1,10 @@
+package org.example.urlshortener.transfer;
+
+import java.time.LocalDateTime;
+
+/**
+ * One exported mapping: everything needed to recreate it elsewhere under the same short code.
+ * The id and URL digest are not part of it; the importing side assigns and derives them.
+ */
+public record MappingRecord(String shortCode, String originalUrl, LocalDateTime createdAt, LocalDateTime expiresAt) {
+}
@@ -0,0 +1,236 @@
+package org.example.urlshortener.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.model.ImportResponse;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.service.URLShortenerService;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams the whole mapping table out and back in with memory bounded by the page and batch
+ * sizes, whatever the table size.
+ * <p>
+ * An export walks the table in id order in keyset pages of {@code pageSize}, so it never holds
+ * more than one page; mappings written while it runs are included if their id is past the cursor.
+ * An import parses on the calling thread and hands batches of {@code batchSize} to a writer thread
+ * through a queue of {@code queueDepth} batches: parsing runs ahead of the inserts by at most that
+ * much and then waits for the database. Each batch is one transaction through
+ * {@link URLShortenerService#importMappings}, so the caches and other nodes learn of the codes, and
+ * mappings whose short code or URL exists already are skipped. Records that cannot be read or are
+ * not valid mappings are counted as rejected; a stream that breaks off fails the import after the
+ * batches before it were written.
+ */
+public class MappingTransfer {
+
+    private static final Logger log = LoggerFactory.getLogger(MappingTransfer.class);
+
+    private static final List<UrlMappingEntity> END_OF_STREAM = List.of();
+    private static final MappingRecord UNREADABLE = new MappingRecord(null, null, null, null);
+    private static final int MAX_SHORT_CODE_LENGTH = 255;
+
+    private final UrlMappingStore repository;
+    private final URLShortenerService urlShortenerService;
+    private final ObjectMapper objectMapper;
+    private final UrlCanonicalizer canonicalizer;
+    private final int pageSize;
+    private final int batchSize;
+    private final int queueDepth;
+
+    private final AtomicLong exportedCount = new AtomicLong();
+    private final AtomicLong importedCount = new AtomicLong();
+
+    public MappingTransfer(UrlMappingStore repository, URLShortenerService urlShortenerService,
+                           ObjectMapper objectMapper, UrlCanonicalizer canonicalizer, int pageSize, int batchSize,
+                           int queueDepth) {
+        this.repository = repository;
+        this.urlShortenerService = urlShortenerService;
+        this.objectMapper = objectMapper;
+        this.canonicalizer = canonicalizer;
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Writes every mapping to {@code out} and returns how many; {@code out} is flushed, not closed.
+     */
+    public long export(OutputStream out, MappingFormat format) throws IOException {
+        long started = System.nanoTime();
+        MappingEncoder encoder = format.encoder(out, objectMapper);
+        long rows = 0;
+        long afterId = 0;
+        List<UrlMappingEntity> page;
+        do {
+            page = repository.findAllByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(pageSize));
+            for (UrlMappingEntity mapping : page) {
+                encoder.write(new MappingRecord(mapping.getShortCode(), mapping.getOriginalUrl(),
+                        mapping.getCreatedAt(), mapping.getExpiresAt()));
+            }
+            rows += page.size();
+            exportedCount.addAndGet(page.size());
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == pageSize);
+        encoder.finish();
+
+        long millis = elapsedMillis(started);
+        log.info("Exported {} mapping(s) as {} in {} ms ({} rows/s)", rows, format, millis, perSecond(rows, millis));
+        return rows;
+    }
+
+    public ImportResponse importMappings(InputStream in, MappingFormat format) throws IOException {
+        long started = System.nanoTime();
+        MappingDecoder decoder;
+        try {
+            decoder = format.decoder(in, objectMapper);
+        } catch (IOException e) {
+            throw new URLShortenerServiceException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        BlockingQueue<List<UrlMappingEntity>> batches = new ArrayBlockingQueue<>(queueDepth);
+        AtomicLong imported = new AtomicLong();
+        AtomicReference<RuntimeException> writeFailure = new AtomicReference<>();
+        Thread writer = new Thread(() -> write(batches, imported, writeFailure), "mapping-import-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+        long read = 0;
+        long rejected = 0;
+        try {
+            List<UrlMappingEntity> batch = new ArrayList<>(batchSize);
+            MappingRecord record;
+            while ((record = nextRecord(decoder)) != null) {
+                read++;
+                UrlMappingEntity mapping = toMapping(record);
+                if (mapping == null) {
+                    rejected++;
+                    continue;
+                }
+                batch.add(mapping);
+                if (batch.size() == batchSize) {
+                    if (!enqueue(batches, batch, writer)) {
+                        break;
+                    }
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty() && writer.isAlive()) {
+                enqueue(batches, batch, writer);
+            }
+        } catch (IOException e) {
+            finishWriter(batches, writer);
+            if (writeFailure.get() != null) {
+                throw writeFailure.get();
+            }
+            throw new URLShortenerServiceException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        finishWriter(batches, writer);
+        if (writeFailure.get() != null) {
+            throw writeFailure.get();
+        }
+
+        long millis = elapsedMillis(started);
+        long skipped = read - rejected - imported.get();
+        log.info("Imported {} mapping(s) as {} in {} ms ({} rows/s), {} existing skipped, {} rejected",
+                imported.get(), format, millis, perSecond(read, millis), skipped, rejected);
+        return new ImportResponse(imported.get(), skipped, rejected, millis, perSecond(read, millis));
+    }
+
+    public long exportedCount() {
+        return exportedCount.get();
+    }
+
+    public long importedCount() {
+        return importedCount.get();
+    }
+
+    private void write(BlockingQueue<List<UrlMappingEntity>> batches, AtomicLong imported,
+                       AtomicReference<RuntimeException> failure) {
+        try {
+            List<UrlMappingEntity> batch;
+            while ((batch = batches.take()) != END_OF_STREAM) {
+                int written = urlShortenerService.importMappings(batch);
+                imported.addAndGet(written);
+                importedCount.addAndGet(written);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure.set(e);
+        }
+    }
+
+    // Blocks while the writer is queueDepth batches behind; false if it died
+    private static boolean enqueue(BlockingQueue<List<UrlMappingEntity>> batches, List<UrlMappingEntity> batch,
+                                   Thread writer) throws IOException {
+        try {
+            while (!batches.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+                if (!writer.isAlive()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while importing", e);
+        }
+    }
+
+    private static void finishWriter(BlockingQueue<List<UrlMappingEntity>> batches, Thread writer) {
+        try {
+            while (writer.isAlive() && !batches.offer(END_OF_STREAM, 100, TimeUnit.MILLISECONDS)) {
+                // Waiting for the writer to make room
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            writer.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Skips past records the decoder could not read, leaving them to be counted by the caller
+    private static MappingRecord nextRecord(MappingDecoder decoder) throws IOException {
+        try {
+            return decoder.next();
+        } catch (MappingDecoder.MalformedRecordException e) {
+            return UNREADABLE;
+        }
+    }
+
+    // Stored in canonical form like shortened URLs, so shortening the URL again finds the imported row
+    private UrlMappingEntity toMapping(MappingRecord record) {
+        if (record.shortCode() == null || record.shortCode().isBlank()
+                || record.shortCode().length() > MAX_SHORT_CODE_LENGTH || record.createdAt() == null
+                || record.originalUrl() == null) {
+            return null;
+        }
+        String url = canonicalizer.canonicalize(record.originalUrl());
+        return url == null ? null : new UrlMappingEntity(url, record.shortCode(), record.createdAt(), record.expiresAt());
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    private static long perSecond(long rows, long millis) {
+        return rows * 1000 / Math.max(1, millis);
+    }
+}
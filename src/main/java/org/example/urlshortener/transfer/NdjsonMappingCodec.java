@@ -0,0 +1,74 @@
+package org.example.urlshortener.transfer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One {@link MappingRecord} JSON object per line, timestamps as ISO-8601 local date-times. A line that does not parse is reported as
+ * malformed and skipped; blank lines are ignored.
+ */
+final class NdjsonMappingCodec {
+
+    private NdjsonMappingCodec() {
+    }
+
+    static final class Encoder implements MappingEncoder {
+
+        private final SequenceWriter writer;
+
+        Encoder(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            // ISO-8601 timestamps whatever the application's Jackson settings, so exports stay portable
+            writer = objectMapper.writerFor(MappingRecord.class)
+                    .without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .withRootValueSeparator("\n")
+                    .writeValues(out);
+        }
+
+        @Override
+        public void write(MappingRecord record) throws IOException {
+            writer.write(record);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    static final class Decoder implements MappingDecoder {
+
+        private final BufferedReader reader;
+        private final ObjectReader objectReader;
+
+        Decoder(InputStream in, ObjectMapper objectMapper) {
+            reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            objectReader = objectMapper.readerFor(MappingRecord.class);
+        }
+
+        @Override
+        public MappingRecord next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            try {
+                return objectReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                throw new MalformedRecordException("Not a mapping: " + e.getOriginalMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.urlshortener.util;
+
+/**
+ * Alphabets for encoding numeric ids as fixed-width short codes.
+ */
+public enum ShortCodeAlphabet {
+    BASE62("0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz"),
+    /** Base62 without the look-alike characters {@code 0 O I l}. */
+    BASE58("123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz");
+
+    private final char[] symbols;
+
+    ShortCodeAlphabet(String symbols) {
+        this.symbols = symbols.toCharArray();
+    }
+
+    public int radix() {
+        return symbols.length;
+    }
+
+    /**
+     * Number of distinct codes of the given width.
+     */
+    public long capacity(int width) {
+        long capacity = 1;
+        for (int i = 0; i < width; i++) {
+            capacity = Math.multiplyExact(capacity, symbols.length);
+        }
+        return capacity;
+    }
+
+    public String encode(long value, int width) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative");
+        }
+        char[] code = new char[width];
+        long remaining = value;
+        for (int i = width - 1; i >= 0; i--) {
+            code[i] = symbols[(int) (remaining % symbols.length)];
+            remaining /= symbols.length;
+        }
+        if (remaining != 0) {
+            throw new IllegalArgumentException("value " + value + " does not fit in " + width + " characters");
+        }
+        return new String(code);
+    }
+
+    public long decode(String code) {
+        long value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            int digit = indexOf(code.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid character '" + code.charAt(i) + "' for " + name());
+            }
+            value = value * symbols.length + digit;
+        }
+        return value;
+    }
+
+    private int indexOf(char c) {
+        for (int i = 0; i < symbols.length; i++) {
+            if (symbols[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
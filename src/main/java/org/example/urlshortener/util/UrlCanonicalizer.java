@@ -0,0 +1,436 @@
+package org.example.urlshortener.util;
+
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Rewrites URLs into one form per resource, so equivalent URLs share a digest, a row and a short
+ * code. Always applied, since none of them changes what the URL identifies (RFC 3986, section 6):
+ * lowercase scheme and host, no default or empty port, "/" for an empty path, dot segments
+ * resolved, unreserved characters decoded and other escapes in uppercase hex, and non-ASCII
+ * characters percent-encoded as UTF-8. Unicode host names are converted to punycode. Optionally,
+ * query parameters are sorted by name and listed parameters (tracking ones, say) are removed; these
+ * two can change what a server returns, so they are configured per deployment.
+ * <p>
+ * A URL that is canonical already is returned as is, found by a scan that does not allocate;
+ * only URLs that need rewriting are copied.
+ */
+public final class UrlCanonicalizer {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final boolean sortQuery;
+    private final String[] strippedNames;
+    private final String[] strippedPrefixes;
+
+    /**
+     * @param sortQuery      sort query parameters by name; repeated names keep their order
+     * @param strippedParams names of query parameters to remove; a trailing {@code *} matches
+     *                       every name with that prefix
+     */
+    public UrlCanonicalizer(boolean sortQuery, Collection<String> strippedParams) {
+        this.sortQuery = sortQuery;
+        List<String> names = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        for (String param : strippedParams) {
+            String name = param.strip();
+            if (name.endsWith("*")) {
+                prefixes.add(name.substring(0, name.length() - 1));
+            } else if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        this.strippedNames = names.toArray(String[]::new);
+        this.strippedPrefixes = prefixes.toArray(String[]::new);
+    }
+
+    /**
+     * The options that decide canonical forms, as a stable string: equal for canonicalizers that
+     * rewrite every URL the same way.
+     */
+    public String settings() {
+        List<String> stripped = new ArrayList<>(List.of(strippedNames));
+        for (String prefix : strippedPrefixes) {
+            stripped.add(prefix + "*");
+        }
+        stripped.sort(Comparator.naturalOrder());
+        return "sort-query=" + sortQuery + ";strip-params=" + String.join(",", stripped);
+    }
+
+    /**
+     * Whether {@code storedUrl}, canonical or kept as submitted by an earlier version, is the URL
+     * whose canonical form is {@code canonicalUrl}.
+     */
+    public boolean matches(String storedUrl, String canonicalUrl) {
+        return storedUrl.equals(canonicalUrl) || canonicalUrl.equals(canonicalize(storedUrl));
+    }
+
+    /**
+     * Returns the canonical form of {@code url}, the same instance if it is canonical already, or
+     * {@code null} if it is not a valid URL ({@link UrlValidationUtil#check} gives the reason).
+     */
+    public String canonicalize(String url) {
+        if (UrlValidationUtil.check(url) != null) {
+            url = toAsciiHost(url);
+            if (url == null || UrlValidationUtil.check(url) != null) {
+                return null;
+            }
+        }
+        int schemeEnd = url.indexOf(':');
+        int n = url.length();
+        int authorityStart = schemeEnd + 3;
+        int authorityEnd = indexOfAny(url, authorityStart, n, '/', '?', '#');
+        int at = indexOf(url, authorityStart, authorityEnd, '@', -1);
+        int hostStart = at < 0 ? authorityStart : at + 1;
+        int hostEnd = url.charAt(hostStart) == '['
+                ? url.indexOf(']', hostStart) + 1
+                : indexOf(url, hostStart, authorityEnd, ':', authorityEnd);
+        int pathEnd = indexOfAny(url, authorityEnd, n, '?', '#');
+        int queryEnd = pathEnd < n && url.charAt(pathEnd) == '?' ? indexOf(url, pathEnd, n, '#', n) : pathEnd;
+
+        boolean canonical = !hasUpperCase(url, 0, schemeEnd)
+                && (at < 0 || isCanonicalEscaped(url, authorityStart, at))
+                && !hasUpperCase(url, hostStart, hostEnd)
+                && (hostEnd == authorityEnd || isCanonicalPort(url, hostEnd + 1, authorityEnd, schemeEnd))
+                && pathEnd > authorityEnd
+                && isCanonicalEscaped(url, authorityEnd, pathEnd)
+                && !hasDotSegment(url, authorityEnd, pathEnd)
+                && isCanonicalEscaped(url, pathEnd, n)
+                && (queryEnd == pathEnd || isCanonicalQuery(url, pathEnd + 1, queryEnd));
+        if (canonical) {
+            return url;
+        }
+
+        StringBuilder out = new StringBuilder(n + 16);
+        appendLowerCase(out, url, 0, schemeEnd);
+        out.append("://");
+        if (at >= 0) {
+            appendEscaped(out, url, authorityStart, at);
+            out.append('@');
+        }
+        appendLowerCase(out, url, hostStart, hostEnd);
+        if (hostEnd < authorityEnd) {
+            int port = hostEnd + 1 == authorityEnd ? -1 : Integer.parseInt(url, hostEnd + 1, authorityEnd, 10);
+            if (port >= 0 && port != defaultPort(url, schemeEnd)) {
+                out.append(':').append(port);
+            }
+        }
+        StringBuilder path = new StringBuilder(pathEnd - authorityEnd + 1);
+        appendEscaped(path, url, authorityEnd, pathEnd);
+        if (path.isEmpty()) {
+            out.append('/');
+        } else {
+            out.append(hasDotSegment(path, 0, path.length()) ? removeDotSegments(path) : path);
+        }
+        if (queryEnd > pathEnd) {
+            StringBuilder query = new StringBuilder(queryEnd - pathEnd);
+            appendEscaped(query, url, pathEnd + 1, queryEnd);
+            if (rewritesQuery()) {
+                String rewritten = rewriteQuery(query.toString());
+                if (!rewritten.isEmpty()) {
+                    out.append('?').append(rewritten);
+                }
+            } else {
+                out.append('?').append(query);
+            }
+        }
+        if (queryEnd < n) {
+            out.append('#');
+            appendEscaped(out, url, queryEnd + 1, n);
+        }
+        return out.toString();
+    }
+
+    private boolean rewritesQuery() {
+        return sortQuery || strippedNames.length > 0 || strippedPrefixes.length > 0;
+    }
+
+    /**
+     * Without sorting or stripping any query is canonical once escaped canonically. With them it
+     * must have no empty or stripped parameters and, when sorted, names in order.
+     */
+    private boolean isCanonicalQuery(String s, int from, int to) {
+        if (!rewritesQuery()) {
+            return true;
+        }
+        if (from == to) {
+            return false;
+        }
+        int previousName = -1;
+        int previousNameEnd = -1;
+        for (int p = from; p <= to; ) {
+            int end = indexOf(s, p, to, '&', to);
+            if (end == p) {
+                return false;
+            }
+            int nameEnd = indexOf(s, p, end, '=', end);
+            if (isStripped(s, p, nameEnd)) {
+                return false;
+            }
+            if (sortQuery && previousName >= 0 && compare(s, previousName, previousNameEnd, s, p, nameEnd) > 0) {
+                return false;
+            }
+            previousName = p;
+            previousNameEnd = nameEnd;
+            p = end + 1;
+        }
+        return true;
+    }
+
+    private String rewriteQuery(String query) {
+        List<String> params = new ArrayList<>();
+        for (String param : query.split("&")) {
+            int nameEnd = param.indexOf('=');
+            if (!param.isEmpty() && !isStripped(param, 0, nameEnd < 0 ? param.length() : nameEnd)) {
+                params.add(param);
+            }
+        }
+        if (sortQuery) {
+            // Stable, so values of a repeated name keep their order
+            params.sort(Comparator.comparing(UrlCanonicalizer::name));
+        }
+        return String.join("&", params);
+    }
+
+    private static String name(String param) {
+        int nameEnd = param.indexOf('=');
+        return nameEnd < 0 ? param : param.substring(0, nameEnd);
+    }
+
+    private boolean isStripped(CharSequence s, int from, int to) {
+        int length = to - from;
+        for (String name : strippedNames) {
+            if (name.length() == length && regionMatches(s, from, name)) {
+                return true;
+            }
+        }
+        for (String prefix : strippedPrefixes) {
+            if (prefix.length() <= length && regionMatches(s, from, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(CharSequence s, int from, String other) {
+        for (int i = 0; i < other.length(); i++) {
+            if (s.charAt(from + i) != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int compare(CharSequence a, int aFrom, int aTo, CharSequence b, int bFrom, int bTo) {
+        int length = Math.min(aTo - aFrom, bTo - bFrom);
+        for (int i = 0; i < length; i++) {
+            int difference = a.charAt(aFrom + i) - b.charAt(bFrom + i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return (aTo - aFrom) - (bTo - bFrom);
+    }
+
+    private static boolean isCanonicalPort(String s, int from, int to, int schemeEnd) {
+        if (from == to || (s.charAt(from) == '0' && to - from > 1)) {
+            return false;
+        }
+        return Integer.parseInt(s, from, to, 10) != defaultPort(s, schemeEnd);
+    }
+
+    private static int defaultPort(String s, int schemeEnd) {
+        return schemeEnd == 5 ? 443 : 80;
+    }
+
+    /**
+     * Escapes are in uppercase hex and stand for characters that must be escaped; there are no
+     * unescaped non-ASCII characters.
+     */
+    private static boolean isCanonicalEscaped(String s, int from, int to) {
+        for (int p = from; p < to; p++) {
+            char c = s.charAt(p);
+            if (c == '%') {
+                char high = s.charAt(p + 1);
+                char low = s.charAt(p + 2);
+                if (isLowerHex(high) || isLowerHex(low) || isUnreserved(hexValue(high) << 4 | hexValue(low))) {
+                    return false;
+                }
+                p += 2;
+            } else if (c >= 128) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void appendEscaped(StringBuilder out, String s, int from, int to) {
+        for (int p = from; p < to; p++) {
+            char c = s.charAt(p);
+            if (c == '%') {
+                int b = hexValue(s.charAt(p + 1)) << 4 | hexValue(s.charAt(p + 2));
+                if (isUnreserved(b)) {
+                    out.append((char) b);
+                } else {
+                    appendByte(out, b);
+                }
+                p += 2;
+            } else if (c < 128) {
+                out.append(c);
+            } else if (Character.isHighSurrogate(c) && p + 1 < to && Character.isLowSurrogate(s.charAt(p + 1))) {
+                appendUtf8(out, s, p, p + 2);
+                p++;
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired, so not text; kept as it was
+                out.append(c);
+            } else {
+                appendUtf8(out, s, p, p + 1);
+            }
+        }
+    }
+
+    private static void appendUtf8(StringBuilder out, String s, int from, int to) {
+        for (byte b : s.substring(from, to).getBytes(StandardCharsets.UTF_8)) {
+            appendByte(out, b & 0xFF);
+        }
+    }
+
+    private static void appendByte(StringBuilder out, int b) {
+        out.append('%').append(HEX[b >> 4]).append(HEX[b & 0xF]);
+    }
+
+    private static boolean isUnreserved(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                || b == '-' || b == '.' || b == '_' || b == '~';
+    }
+
+    private static boolean isLowerHex(char c) {
+        return c >= 'a' && c <= 'f';
+    }
+
+    private static int hexValue(char c) {
+        return Character.digit(c, 16);
+    }
+
+    private static boolean hasUpperCase(String s, int from, int to) {
+        // An IPv6 zone id is not part of the address and keeps its case
+        for (int p = from; p < to && s.charAt(p) != '%'; p++) {
+            char c = s.charAt(p);
+            if (c >= 'A' && c <= 'Z') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendLowerCase(StringBuilder out, String s, int from, int to) {
+        int p = from;
+        for (; p < to && s.charAt(p) != '%'; p++) {
+            char c = s.charAt(p);
+            out.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+        out.append(s, p, to);
+    }
+
+    private static boolean hasDotSegment(CharSequence path, int from, int to) {
+        for (int p = from; p < to; p++) {
+            if (path.charAt(p) == '/' && p + 1 < to && path.charAt(p + 1) == '.') {
+                int end = p + 2 < to && path.charAt(p + 2) == '.' ? p + 3 : p + 2;
+                if (end == to || path.charAt(end) == '/') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * RFC 3986, section 5.2.4, for an absolute path: "." segments are dropped and ".." segments
+     * remove the segment before them.
+     */
+    private static String removeDotSegments(CharSequence path) {
+        List<String> segments = new ArrayList<>();
+        String[] split = path.toString().substring(1).split("/", -1);
+        for (int i = 0; i < split.length; i++) {
+            String segment = split[i];
+            boolean last = i == split.length - 1;
+            if (segment.equals(".") || segment.equals("..")) {
+                if (segment.equals("..") && !segments.isEmpty()) {
+                    segments.remove(segments.size() - 1);
+                }
+                // A trailing dot segment leaves the path ending in "/"
+                if (last) {
+                    segments.add("");
+                }
+            } else {
+                segments.add(segment);
+            }
+        }
+        return "/" + String.join("/", segments);
+    }
+
+    /**
+     * Converts a Unicode host name to punycode, leaving the rest of the URL as it is. Returns
+     * {@code null} if {@code url} is not an http(s) URL with a non-ASCII host name that converts.
+     */
+    private static String toAsciiHost(String url) {
+        if (url == null) {
+            return null;
+        }
+        int start;
+        if (url.regionMatches(true, 0, "http://", 0, 7)) {
+            start = 7;
+        } else if (url.regionMatches(true, 0, "https://", 0, 8)) {
+            start = 8;
+        } else {
+            return null;
+        }
+        int authorityEnd = indexOfAny(url, start, url.length(), '/', '?', '#');
+        int at = indexOf(url, start, authorityEnd, '@', -1);
+        int hostStart = at < 0 ? start : at + 1;
+        int hostEnd = indexOf(url, hostStart, authorityEnd, ':', authorityEnd);
+        String host = url.substring(hostStart, hostEnd);
+        if (host.chars().allMatch(c -> c < 128)) {
+            return null;
+        }
+        try {
+            return url.substring(0, hostStart) + IDN.toASCII(host) + url.substring(hostEnd);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // The first c in [from, to), or notFound
+    private static int indexOf(String s, int from, int to, char c, int notFound) {
+        for (int p = from; p < to; p++) {
+            if (s.charAt(p) == c) {
+                return p;
+            }
+        }
+        return notFound;
+    }
+
+    private static int indexOfAny(String s, int from, int to, char a, char b) {
+        for (int p = from; p < to; p++) {
+            char ch = s.charAt(p);
+            if (ch == a || ch == b) {
+                return p;
+            }
+        }
+        return to;
+    }
+
+    private static int indexOfAny(String s, int from, int to, char a, char b, char c) {
+        for (int p = from; p < to; p++) {
+            char ch = s.charAt(p);
+            if (ch == a || ch == b || ch == c) {
+                return p;
+            }
+        }
+        return to;
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.urlshortener.util;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-width 128-bit digest of a URL, used as the indexed dedupe key in place of the unbounded
+ * {@code originalUrl} column. Matches on the digest are still confirmed against the full URL.
+ * <p>
+ * The digest is unique per row, so two URLs sharing one could never both be shortened. It is
+ * therefore SHA-256 truncated to its first 128 bits: finding a collision takes around 2^64 hash
+ * computations, where a non-cryptographic hash such as murmur3 can be made to collide at will by
+ * whoever submits the URLs.
+ */
+public final class UrlDigest {
+
+    public static final int LENGTH = 32;
+
+    /**
+     * Names the digest function, so migrations can tell when stored digests were made by another.
+     */
+    public static final String ALGORITHM = "sha256-128";
+
+    private UrlDigest() {
+    }
+
+    public static String of(String url) {
+        return Hashing.sha256()
+                      .hashString(url, StandardCharsets.UTF_8)
+                      .toString()
+                      .substring(0, LENGTH);
+    }
+}
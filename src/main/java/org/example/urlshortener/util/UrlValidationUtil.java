@@ -5,29 +5,471 @@ import org.example.urlshortener.exception.enumeration.UrlShortenerError;
 import org.example.urlshortener.exception.handler.URLShortenerServiceException;
 import org.springframework.http.HttpStatus;
 
-import java.net.URI;
-import java.net.URISyntaxException;
-
+/**
+ * Single-pass, allocation-free URL validation. {@link #check(String)} scans the input once and
+ * accepts exactly what {@link java.net.URI} parses into an absolute URL with a server-based
+ * authority, narrowed by the service's policy: an {@code http}/{@code https} scheme, at most
+ * {@link #MAX_LENGTH} characters, a port no larger than 65535, DNS length limits on the host, and
+ * well-formed punycode in {@code xn--} labels. Unicode hosts are rejected, as {@code URI} does;
+ * {@link UrlCanonicalizer} converts them to punycode first.
+ */
 public final class UrlValidationUtil {
 
+    public static final int MAX_LENGTH = 2048;
+
+    private static final int MAX_PORT = 65_535;
+    private static final int MAX_HOST_LENGTH = 253;
+    private static final int MAX_LABEL_LENGTH = 63;
+
+    // Character classes of the URI grammar (RFC 2396, as implemented by java.net.URI)
+    private static final int ALPHA = 1;
+    private static final int DIGIT = 1 << 1;
+    private static final int HEX = 1 << 2;
+    private static final int MARK = 1 << 3;            // -_.!~*'()
+    private static final int PCHAR_EXTRA = 1 << 4;     // :@&=+$,
+    private static final int PATH_EXTRA = 1 << 5;      // ;/
+    private static final int URIC_EXTRA = 1 << 6;      // ?[]
+    private static final int USERINFO_EXTRA = 1 << 7;  // ;:&=+$,
+
+    private static final int ALPHANUM = ALPHA | DIGIT;
+    private static final int UNRESERVED = ALPHANUM | MARK;
+    private static final int PATH = UNRESERVED | PCHAR_EXTRA | PATH_EXTRA;
+    private static final int URIC = PATH | URIC_EXTRA;
+    private static final int USERINFO = UNRESERVED | USERINFO_EXTRA;
+
+    private static final int[] CLASSES = new int[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            CLASSES[c] |= ALPHA;
+            CLASSES[Character.toUpperCase(c)] |= ALPHA;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] |= DIGIT | HEX;
+        }
+        for (char c = 'a'; c <= 'f'; c++) {
+            CLASSES[c] |= HEX;
+            CLASSES[Character.toUpperCase(c)] |= HEX;
+        }
+        mark("-_.!~*'()", MARK);
+        mark(":@&=+$,", PCHAR_EXTRA);
+        mark(";/", PATH_EXTRA);
+        mark("?[]", URIC_EXTRA);
+        mark(";:&=+$,", USERINFO_EXTRA);
+    }
+
     private UrlValidationUtil() {
     }
 
+    /**
+     * Reasons a URL is rejected. Each carries a preallocated, stackless exception for callers that
+     * report the reason without echoing the input (the batch path, where every result already
+     * carries its URL).
+     */
+    public enum Violation {
+        TOO_LONG("longer than " + MAX_LENGTH + " characters"),
+        MISSING_SCHEME("missing scheme"),
+        UNSUPPORTED_SCHEME("scheme must be http or https"),
+        INVALID_HOST("missing or invalid host"),
+        INVALID_PORT("invalid port"),
+        INVALID_CHARACTER("illegal character or malformed escape");
+
+        private final URLShortenerServiceException exception;
+
+        Violation(String reason) {
+            this.exception = new URLShortenerServiceException(HttpStatus.BAD_REQUEST,
+                    UrlShortenerError.INVALID_URL_FORMAT.getMessage() + " - " + reason, false);
+        }
+
+        public URLShortenerServiceException exception() {
+            return exception;
+        }
+    }
+
     public static void validate(String urlStr) {
-        try {
-            URI uri = new URI(urlStr);
-            String scheme = uri.getScheme();
-            String host   = uri.getHost();
+        if (check(urlStr) != null) {
+            // The single-item API echoes the rejected input, so only the stack trace is saved here
+            throw new URLShortenerServiceException(HttpStatus.BAD_REQUEST,
+                    UrlShortenerError.INVALID_URL_FORMAT.getMessage() + " - " + urlStr, false);
+        }
+    }
+
+    /**
+     * Returns why {@code url} is rejected, or {@code null} if it is valid. Does not allocate.
+     */
+    public static Violation check(String url) {
+        if (url == null) {
+            return Violation.MISSING_SCHEME;
+        }
+        int n = url.length();
+        if (n > MAX_LENGTH) {
+            return Violation.TOO_LONG;
+        }
 
-            if (scheme == null || host == null) {
-                throw new URLShortenerServiceException(HttpStatus.BAD_REQUEST,
-                    UrlShortenerError.INVALID_URL_FORMAT.getMessage() + " - " + urlStr
-                );
+        // scheme "://"
+        int p;
+        if (url.regionMatches(true, 0, "http:", 0, 5)) {
+            p = 5;
+        } else if (url.regionMatches(true, 0, "https:", 0, 6)) {
+            p = 6;
+        } else {
+            return hasScheme(url) ? Violation.UNSUPPORTED_SCHEME : Violation.MISSING_SCHEME;
+        }
+        if (p + 1 >= n || url.charAt(p) != '/' || url.charAt(p + 1) != '/') {
+            return Violation.INVALID_HOST;
+        }
+        p += 2;
+
+        // authority = [ userinfo "@" ] host [ ":" port ]
+        int authorityEnd = indexOfAny(url, p, n, "/?#");
+        if (authorityEnd == p) {
+            return Violation.INVALID_HOST;
+        }
+        int at = indexOf(url, p, authorityEnd, '@');
+        if (at >= 0) {
+            if (scan(url, p, at, USERINFO) != at) {
+                return Violation.INVALID_CHARACTER;
             }
-        } catch (URISyntaxException e) {
-            throw new URLShortenerServiceException(HttpStatus.BAD_REQUEST,
-                UrlShortenerError.INVALID_URL_FORMAT.getMessage() + " - " + urlStr
-            );
+            p = at + 1;
+        }
+        p = scanHost(url, p, authorityEnd);
+        if (p < 0) {
+            return Violation.INVALID_HOST;
+        }
+        if (p < authorityEnd) {
+            if (url.charAt(p) != ':' || !isPort(url, p + 1, authorityEnd)) {
+                return Violation.INVALID_PORT;
+            }
+        }
+
+        // path [ "?" query ] [ "#" fragment ]
+        int pathEnd = indexOfAny(url, authorityEnd, n, "?#");
+        if (scan(url, authorityEnd, pathEnd, PATH) != pathEnd) {
+            return Violation.INVALID_CHARACTER;
+        }
+        p = pathEnd;
+        if (p < n && url.charAt(p) == '?') {
+            int queryEnd = indexOf(url, p + 1, n, '#');
+            queryEnd = queryEnd < 0 ? n : queryEnd;
+            if (scan(url, p + 1, queryEnd, URIC) != queryEnd) {
+                return Violation.INVALID_CHARACTER;
+            }
+            p = queryEnd;
+        }
+        if (p < n && scan(url, p + 1, n, URIC) != n) {
+            return Violation.INVALID_CHARACTER;
+        }
+        return null;
+    }
+
+    private static boolean hasScheme(String url) {
+        int colon = indexOfAny(url, 0, url.length(), ":/?#");
+        return colon > 0 && colon < url.length() && url.charAt(colon) == ':';
+    }
+
+    /**
+     * Scans an IPv6 literal, IPv4 address or host name starting at {@code from}. Returns the index
+     * after the host, or -1 if there is none.
+     */
+    private static int scanHost(String s, int from, int to) {
+        if (from < to && s.charAt(from) == '[') {
+            int close = indexOf(s, from + 1, to, ']');
+            if (close < 0) {
+                return -1;
+            }
+            int scope = indexOf(s, from + 1, close, '%');
+            if (scope >= 0) {
+                if (!isIpv6(s, from + 1, scope) || scope + 1 == close || scan(s, scope + 1, close, -1) != close) {
+                    return -1;
+                }
+            } else if (close == from + 1 || !isIpv6(s, from + 1, close)) {
+                return -1;
+            }
+            return close + 1;
+        }
+        int end = scanIpv4(s, from, to);
+        if (end < 0 || (end < to && s.charAt(end) != ':')) {
+            end = scanHostname(s, from, to);
+        }
+        return end >= 0 && withinDnsLimits(s, from, end) ? end : -1;
+    }
+
+    /**
+     * hostname = *( domainlabel "." ) toplabel [ "." ], where a label is alphanumerics and inner
+     * dashes and a multi-label name ends in a label starting with a letter.
+     */
+    private static int scanHostname(String s, int from, int to) {
+        int p = from;
+        int lastLabel = -1;
+        while (p < to && is(s.charAt(p), ALPHANUM)) {
+            int q = p + 1;
+            while (q < to && (is(s.charAt(q), ALPHANUM) || s.charAt(q) == '-')) {
+                q++;
+            }
+            if (s.charAt(q - 1) == '-') {
+                return -1;
+            }
+            if (q - p > 4 && s.regionMatches(true, p, "xn--", 0, 4) && !isPunycode(s, p + 4, q)) {
+                return -1;
+            }
+            lastLabel = p;
+            p = q;
+            if (p < to && s.charAt(p) == '.') {
+                p++;
+            } else {
+                break;
+            }
+        }
+        if (lastLabel < 0 || (p < to && s.charAt(p) != ':')) {
+            return -1;
+        }
+        if (lastLabel > from && !is(s.charAt(lastLabel), ALPHA)) {
+            return -1;
+        }
+        return p;
+    }
+
+    /**
+     * Dotted-quad with each part at most 255. Returns the index after the address, or -1.
+     */
+    private static int scanIpv4(String s, int from, int to) {
+        int end = from;
+        while (end < to && (is(s.charAt(end), DIGIT) || s.charAt(end) == '.')) {
+            end++;
+        }
+        int p = from;
+        for (int part = 0; part < 4; part++) {
+            if (part > 0) {
+                if (p >= end || s.charAt(p) != '.') {
+                    return -1;
+                }
+                p++;
+            }
+            int q = p;
+            int value = 0;
+            while (q < end && is(s.charAt(q), DIGIT)) {
+                value = Math.min(value * 10 + (s.charAt(q) - '0'), 256);
+                q++;
+            }
+            if (q == p || value > 255) {
+                return -1;
+            }
+            p = q;
+        }
+        return p == end ? p : -1;
+    }
+
+    /**
+     * Up to eight colon-separated groups of at most four hex digits, with at most one "::" and an
+     * optional trailing IPv4 address.
+     */
+    private static boolean isIpv6(String s, int from, int to) {
+        int p = from;
+        int bytes = 0;
+        boolean compressed = false;
+        if (to - p >= 2 && s.charAt(p) == ':' && s.charAt(p + 1) == ':') {
+            compressed = true;
+            p += 2;
+        }
+        while (p < to) {
+            int q = p;
+            while (q < to && is(s.charAt(q), HEX)) {
+                q++;
+            }
+            if (q == p) {
+                return false;
+            }
+            if (q < to && s.charAt(q) == '.') {
+                if (scanIpv4(s, p, to) != to) {
+                    return false;
+                }
+                bytes += 4;
+                break;
+            }
+            if (q - p > 4) {
+                return false;
+            }
+            bytes += 2;
+            p = q;
+            if (p == to) {
+                break;
+            }
+            if (s.charAt(p) != ':') {
+                return false;
+            }
+            if (p + 1 < to && s.charAt(p + 1) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                p += 2;
+            } else if (++p == to) {
+                return false;
+            }
+        }
+        return compressed ? bytes < 16 : bytes == 16;
+    }
+
+    private static boolean withinDnsLimits(String s, int from, int to) {
+        int length = to > from && s.charAt(to - 1) == '.' ? to - from - 1 : to - from;
+        if (length > MAX_HOST_LENGTH) {
+            return false;
+        }
+        int labelStart = from;
+        for (int p = from; p <= to; p++) {
+            if (p == to || s.charAt(p) == '.') {
+                if (p - labelStart > MAX_LABEL_LENGTH) {
+                    return false;
+                }
+                labelStart = p + 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the punycode (RFC 3492) after an {@code xn--} prefix without materialising it, and
+     * rejects malformed input, overflow and decoded code points that cannot appear in a host name.
+     */
+    private static boolean isPunycode(String s, int from, int to) {
+        int delimiter = s.lastIndexOf('-', to - 1);
+        int basic = delimiter > from ? delimiter - from : 0;
+        int in = basic > 0 ? delimiter + 1 : from;
+        if (in == to) {
+            return false;
+        }
+        int codePoint = 128;
+        int i = 0;
+        int bias = 72;
+        int length = basic;
+        while (in < to) {
+            int oldi = i;
+            int w = 1;
+            for (int k = 36; ; k += 36) {
+                if (in == to) {
+                    return false;
+                }
+                int digit = punycodeDigit(s.charAt(in++));
+                if (digit < 0 || digit > (Integer.MAX_VALUE - i) / w) {
+                    return false;
+                }
+                i += digit * w;
+                int t = k <= bias ? 1 : Math.min(k - bias, 26);
+                if (digit < t) {
+                    break;
+                }
+                if (w > Integer.MAX_VALUE / (36 - t)) {
+                    return false;
+                }
+                w *= 36 - t;
+            }
+            length++;
+            bias = adapt(i - oldi, length, oldi == 0);
+            if (i / length > Integer.MAX_VALUE - codePoint) {
+                return false;
+            }
+            codePoint += i / length;
+            i = i % length + 1;
+            if (codePoint > Character.MAX_CODE_POINT
+                    || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)
+                    || Character.isISOControl(codePoint) || Character.isSpaceChar(codePoint)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int adapt(int delta, int length, boolean first) {
+        delta = first ? delta / 700 : delta / 2;
+        delta += delta / length;
+        int k = 0;
+        while (delta > 455) {
+            delta /= 35;
+            k += 36;
+        }
+        return k + 36 * delta / (delta + 38);
+    }
+
+    private static int punycodeDigit(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 26;
+        }
+        return -1;
+    }
+
+    private static boolean isPort(String s, int from, int to) {
+        int value = 0;
+        for (int p = from; p < to; p++) {
+            char c = s.charAt(p);
+            if (!is(c, DIGIT)) {
+                return false;
+            }
+            value = Math.min(value * 10 + (c - '0'), MAX_PORT + 1);
+        }
+        return value <= MAX_PORT;
+    }
+
+    /**
+     * Scans characters in {@code mask}, percent-escapes and visible non-ASCII characters. A
+     * negative mask selects the scope-id class (alphanumerics, '_' and '.'). Returns the index of
+     * the first character that does not belong.
+     */
+    private static int scan(String s, int from, int to, int mask) {
+        int p = from;
+        while (p < to) {
+            char c = s.charAt(p);
+            if (mask < 0) {
+                if (!is(c, ALPHANUM) && c != '_' && c != '.') {
+                    break;
+                }
+                p++;
+            } else if (is(c, mask)) {
+                p++;
+            } else if (c == '%') {
+                if (p + 2 >= to || !is(s.charAt(p + 1), HEX) || !is(s.charAt(p + 2), HEX)) {
+                    break;
+                }
+                p += 3;
+            } else if (c > 128 && !Character.isSpaceChar(c) && !Character.isISOControl(c)) {
+                p++;
+            } else {
+                break;
+            }
+        }
+        return p;
+    }
+
+    private static boolean is(char c, int mask) {
+        return c < 128 && (CLASSES[c] & mask) != 0;
+    }
+
+    private static int indexOf(String s, int from, int to, char c) {
+        for (int p = from; p < to; p++) {
+            if (s.charAt(p) == c) {
+                return p;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfAny(String s, int from, int to, String chars) {
+        for (int p = from; p < to; p++) {
+            if (chars.indexOf(s.charAt(p)) >= 0) {
+                return p;
+            }
+        }
+        return to;
+    }
+
+    private static void mark(String chars, int mask) {
+        for (int i = 0; i < chars.length(); i++) {
+            CLASSES[chars.charAt(i)] |= mask;
         }
     }
 }
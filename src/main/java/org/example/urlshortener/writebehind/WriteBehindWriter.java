@@ -0,0 +1,533 @@
+package org.example.urlshortener.writebehind;
+
+import org.example.urlshortener.cluster.ClusterInvalidationBus;
+import org.example.urlshortener.exception.enumeration.UrlShortenerError;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.storage.MappingJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind for new mappings. A submitted mapping is claimed in an in-memory pending index
+ * (by URL digest and by short code, so two creates of one URL or one code cannot both win),
+ * appended to the {@link MappingJournal} and acknowledged once the journal is forced to disk. One
+ * thread journals everything submitted while the previous force ran with a single write and
+ * force, so concurrent creates share the cost of the sync.
+ * <p>
+ * A second thread writes journaled mappings to the repository in one transaction per batch of up
+ * to {@code flushSize}, flushing a smaller batch once its oldest mapping has waited
+ * {@code flushInterval}. Only after the commit does a mapping leave the pending index, so reads
+ * see it in one place or the other throughout, and other nodes are told about it. A failed batch
+ * is retried until it is written. At most {@code maxPending} mappings are pending at once; a
+ * submit that finds no room within {@code enqueueTimeout} is refused with 503.
+ * <p>
+ * Writing a journaled mapping is idempotent: one whose short code the repository already holds for
+ * the same URL only has its expiry extended. That makes replaying the journal after a crash safe
+ * even for batches that were committed before it. A journaled mapping whose short code or URL
+ * another writer (another node, or a bulk import) took in the meantime cannot be written and is
+ * counted as a conflict.
+ */
+public class WriteBehindWriter implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindWriter.class);
+
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long STOP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAX_RETRY_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private final MappingJournal journal;
+    private final UrlMappingStore repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterInvalidationBus invalidationBus;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final Duration enqueueTimeout;
+    private final Duration replayTimeout;
+    private final Semaphore capacity;
+
+    private final Map<String, UrlMappingEntity> byShortCode = new ConcurrentHashMap<>();
+    private final Map<String, UrlMappingEntity> byUrlDigest = new ConcurrentHashMap<>();
+    private final BlockingQueue<Submission> submissions = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Journaled> journaled = new LinkedBlockingQueue<>();
+
+    private final LongAdder journalSyncs = new LongAdder();
+    private final LongAdder persisted = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder refused = new LongAdder();
+
+    private volatile boolean running;
+    private volatile boolean abandoned;
+    private volatile Thread journalWriter;
+    private volatile Thread flusher;
+
+    public WriteBehindWriter(MappingJournal journal, UrlMappingStore repository,
+                             TransactionTemplate transactionTemplate, @Nullable ClusterInvalidationBus invalidationBus,
+                             int flushSize, Duration flushInterval, int maxPending, Duration enqueueTimeout,
+                             Duration replayTimeout) {
+        this.journal = journal;
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.invalidationBus = invalidationBus;
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.enqueueTimeout = enqueueTimeout;
+        this.replayTimeout = replayTimeout;
+        this.capacity = new Semaphore(maxPending);
+    }
+
+    private record Submission(List<UrlMappingEntity> mappings, CompletableFuture<Void> journaled) {
+    }
+
+    private record Journaled(UrlMappingEntity mapping, long segment, long queuedAt) {
+    }
+
+    /**
+     * The pending mapping with {@code shortCode}, or {@code null}.
+     */
+    public UrlMappingEntity findByShortCode(String shortCode) {
+        return byShortCode.get(shortCode);
+    }
+
+    /**
+     * The pending mapping with {@code urlDigest}, or {@code null}.
+     */
+    public UrlMappingEntity findByUrlDigest(String urlDigest) {
+        return byUrlDigest.get(urlDigest);
+    }
+
+    /**
+     * Journals {@code mapping} and returns {@code null} once it is durable, or returns without
+     * journaling the pending mapping that already holds its URL or short code.
+     */
+    public UrlMappingEntity submit(UrlMappingEntity mapping) {
+        return submitAll(List.of(mapping)).get(0);
+    }
+
+    /**
+     * {@link #submit} for many mappings with one journal sync. The result has, per mapping in order,
+     * {@code null} if it was journaled or the pending mapping it lost to.
+     */
+    public List<UrlMappingEntity> submitAll(List<UrlMappingEntity> mappings) {
+        acquire(mappings.size());
+        List<UrlMappingEntity> results = new ArrayList<>(Collections.nCopies(mappings.size(), null));
+        List<UrlMappingEntity> claimed = new ArrayList<>(mappings.size());
+        for (int i = 0; i < mappings.size(); i++) {
+            UrlMappingEntity holder = claim(mappings.get(i));
+            if (holder == null) {
+                claimed.add(mappings.get(i));
+            } else {
+                results.set(i, holder);
+            }
+        }
+        capacity.release(mappings.size() - claimed.size());
+        if (!claimed.isEmpty()) {
+            journal(claimed);
+        }
+        return results;
+    }
+
+    /**
+     * Replaces the pending {@code current} with a copy expiring at {@code expiresAt} and journals
+     * it. Returns {@code false}, changing nothing, if {@code current} has been written or replaced
+     * in the meantime.
+     */
+    public boolean extendExpiry(UrlMappingEntity current, LocalDateTime expiresAt) {
+        acquire(1);
+        UrlMappingEntity extended = new UrlMappingEntity(current.getOriginalUrl(), current.getShortCode(),
+                current.getCreatedAt(), expiresAt);
+        if (!byShortCode.replace(current.getShortCode(), current, extended)) {
+            capacity.release();
+            return false;
+        }
+        byUrlDigest.replace(current.getUrlDigest(), current, extended);
+        journal(List.of(extended));
+        return true;
+    }
+
+    public int pendingCount() {
+        return byShortCode.size();
+    }
+
+    public long journalSyncCount() {
+        return journalSyncs.sum();
+    }
+
+    public long persistedCount() {
+        return persisted.sum();
+    }
+
+    public long flushCount() {
+        return flushes.sum();
+    }
+
+    public long failedFlushCount() {
+        return failedFlushes.sum();
+    }
+
+    public long conflictCount() {
+        return conflicts.sum();
+    }
+
+    public long refusedCount() {
+        return refused.sum();
+    }
+
+    /**
+     * Replays what the previous run left in the journal, waiting until it is written, then starts
+     * accepting submissions. If that takes longer than {@code replayTimeout} (the database is
+     * unreachable), startup fails and the journal is left as it is for the next start.
+     */
+    @Override
+    public void start() {
+        running = true;
+        abandoned = false;
+        flusher = new Thread(this::flushLoop, "write-behind-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        List<MappingJournal.Entry> recovered = journal.recover();
+        if (!recovered.isEmpty()) {
+            long started = System.nanoTime();
+            if (!replay(recovered, started + replayTimeout.toNanos())) {
+                int unwritten = pendingCount();
+                abandon();
+                throw new IllegalStateException("Write-behind journal replay did not finish within " + replayTimeout
+                        + ": " + unwritten + " of " + recovered.size()
+                        + " mapping(s) not yet written, kept in the journal for the next start");
+            }
+            // Everything in the segments left by the previous run is written now
+            journal.release(Long.MAX_VALUE);
+            log.warn("Replayed {} journaled mapping(s) in {} ms", recovered.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+
+        journalWriter = new Thread(this::journalLoop, "write-behind-journal");
+        journalWriter.setDaemon(true);
+        journalWriter.start();
+    }
+
+    /**
+     * Stops accepting submissions and writes everything pending, giving up after 30 seconds;
+     * whatever is left stays in the journal for the next start.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            journalWriter.join(STOP_TIMEOUT_MILLIS);
+            // Submitted as the journal thread stopped; never journaled, so never acknowledged
+            Submission late;
+            while ((late = submissions.poll()) != null) {
+                late.mappings().forEach(this::unclaim);
+                capacity.release(late.mappings().size());
+                late.journaled().completeExceptionally(new IllegalStateException("Write-behind is stopped"));
+            }
+            flusher.join(STOP_TIMEOUT_MILLIS);
+            if (flusher.isAlive()) {
+                abandoned = true;
+                flusher.interrupt();
+                log.warn("{} mapping(s) not yet written stay in the journal for the next start", pendingCount());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Cannot close the mapping journal", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Starts before the web server and stops after it, so no request finds it stopped
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 2;
+    }
+
+    // False if the deadline passed (or the thread was interrupted) before every mapping was written
+    private boolean replay(List<MappingJournal.Entry> recovered, long deadline) {
+        try {
+            for (MappingJournal.Entry entry : recovered) {
+                if (!capacity.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+                UrlMappingEntity mapping = entry.mapping();
+                // A later record of a code (an extended expiry) supersedes the earlier one
+                byShortCode.put(mapping.getShortCode(), mapping);
+                byUrlDigest.put(mapping.getUrlDigest(), mapping);
+                journaled.add(new Journaled(mapping, entry.segment(), System.nanoTime()));
+            }
+            while (!byShortCode.isEmpty()) {
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                Thread.sleep(10);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Stops the flusher without writing or releasing anything, and unlocks the journal
+    private void abandon() {
+        running = false;
+        abandoned = true;
+        flusher.interrupt();
+        try {
+            flusher.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Cannot close the mapping journal", e);
+        }
+    }
+
+    private void acquire(int permits) {
+        if (!running) {
+            throw unavailable();
+        }
+        try {
+            if (!capacity.tryAcquire(permits, enqueueTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                refused.increment();
+                throw unavailable();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw unavailable();
+        }
+    }
+
+    // Null if the mapping now holds its URL and code, otherwise the pending mapping holding one
+    private UrlMappingEntity claim(UrlMappingEntity mapping) {
+        UrlMappingEntity holder = byUrlDigest.putIfAbsent(mapping.getUrlDigest(), mapping);
+        if (holder != null) {
+            return holder;
+        }
+        holder = byShortCode.putIfAbsent(mapping.getShortCode(), mapping);
+        if (holder != null) {
+            byUrlDigest.remove(mapping.getUrlDigest(), mapping);
+        }
+        return holder;
+    }
+
+    private void unclaim(UrlMappingEntity mapping) {
+        byShortCode.remove(mapping.getShortCode(), mapping);
+        byUrlDigest.remove(mapping.getUrlDigest(), mapping);
+    }
+
+    private void journal(List<UrlMappingEntity> mappings) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        submissions.add(new Submission(mappings, done));
+        try {
+            done.join();
+        } catch (CompletionException e) {
+            throw new URLShortenerServiceException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    UrlShortenerError.GENERIC_ERROR.getMessage());
+        }
+    }
+
+    private void journalLoop() {
+        List<Submission> group = new ArrayList<>();
+        while (running || !submissions.isEmpty()) {
+            try {
+                Submission first = submissions.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            submissions.drainTo(group);
+            List<UrlMappingEntity> mappings = new ArrayList<>();
+            group.forEach(submission -> mappings.addAll(submission.mappings()));
+            try {
+                long segment = journal.append(mappings);
+                journalSyncs.increment();
+                long now = System.nanoTime();
+                for (UrlMappingEntity mapping : mappings) {
+                    journaled.add(new Journaled(mapping, segment, now));
+                }
+                group.forEach(submission -> submission.journaled().complete(null));
+            } catch (RuntimeException e) {
+                log.error("Cannot journal {} mapping(s)", mappings.size(), e);
+                mappings.forEach(this::unclaim);
+                capacity.release(mappings.size());
+                group.forEach(submission -> submission.journaled().completeExceptionally(e));
+            }
+            group.clear();
+        }
+    }
+
+    private void flushLoop() {
+        List<Journaled> batch = new ArrayList<>(flushSize);
+        long backoffMillis = 0;
+        while (!abandoned && (running || journalWriter == null || journalWriter.isAlive() || !journaled.isEmpty()
+                || !batch.isEmpty())) {
+            try {
+                if (batch.isEmpty()) {
+                    Journaled first = journaled.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                }
+                // Fill the batch until it is full or its oldest mapping has waited long enough; when
+                // stopping, write what is there without waiting
+                long deadline = batch.get(0).queuedAt() + flushIntervalNanos;
+                while (batch.size() < flushSize) {
+                    long remaining = running ? deadline - System.nanoTime() : 0;
+                    Journaled next = remaining > 0
+                            ? journaled.poll(Math.min(remaining, POLL_NANOS), TimeUnit.NANOSECONDS)
+                            : journaled.poll();
+                    if (next != null) {
+                        batch.add(next);
+                    } else if (remaining <= POLL_NANOS) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                write(batch);
+                batch.clear();
+                backoffMillis = 0;
+            } catch (RuntimeException e) {
+                failedFlushes.increment();
+                backoffMillis = Math.min(MAX_RETRY_BACKOFF_MILLIS, Math.max(100, backoffMillis * 2));
+                log.warn("Write-behind flush of {} mapping(s) failed, retrying in {} ms", batch.size(), backoffMillis, e);
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes one batch in a transaction, then takes it out of the pending index and releases the
+     * journal segments before it.
+     */
+    private void write(List<Journaled> batch) {
+        // The last record of a code carries its latest expiry
+        Map<String, UrlMappingEntity> latest = new LinkedHashMap<>();
+        for (Journaled entry : batch) {
+            latest.put(entry.mapping().getShortCode(), entry.mapping());
+        }
+        Map<String, UrlMappingEntity> byCode = new HashMap<>();
+        repository.findByShortCodeIn(new ArrayList<>(latest.keySet()))
+                .forEach(mapping -> byCode.put(mapping.getShortCode(), mapping));
+        Map<String, UrlMappingEntity> byDigest = new HashMap<>();
+        repository.findByUrlDigestIn(latest.values().stream().map(UrlMappingEntity::getUrlDigest).toList())
+                .forEach(mapping -> byDigest.put(mapping.getUrlDigest(), mapping));
+
+        List<UrlMappingEntity> fresh = new ArrayList<>(latest.size());
+        for (UrlMappingEntity mapping : latest.values()) {
+            UrlMappingEntity existing = byCode.get(mapping.getShortCode());
+            if (existing == null) {
+                existing = byDigest.get(mapping.getUrlDigest());
+            }
+            if (existing == null) {
+                fresh.add(copy(mapping));
+            } else if (existing.getShortCode().equals(mapping.getShortCode())
+                    && existing.getOriginalUrl().equals(mapping.getOriginalUrl())) {
+                extendWritten(existing, mapping.getExpiresAt());
+            } else {
+                conflict(mapping);
+            }
+        }
+        if (!fresh.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> repository.saveAll(fresh));
+            } catch (DataIntegrityViolationException e) {
+                // Taken by another writer since the lookups: one at a time, skipping the conflicts
+                for (UrlMappingEntity mapping : fresh) {
+                    try {
+                        repository.saveAndFlush(copy(mapping));
+                    } catch (DataIntegrityViolationException conflict) {
+                        conflict(mapping);
+                    }
+                }
+            }
+        }
+
+        persisted.add(latest.size());
+        flushes.increment();
+        long lastSegment = 0;
+        for (Journaled entry : batch) {
+            unclaim(entry.mapping());
+            lastSegment = Math.max(lastSegment, entry.segment());
+        }
+        capacity.release(batch.size());
+        if (invalidationBus != null) {
+            latest.keySet().forEach(invalidationBus::publish);
+        }
+        journal.release(lastSegment);
+    }
+
+    // A record replayed after its batch was committed, or an expiry extended after an earlier flush
+    private void extendWritten(UrlMappingEntity existing, LocalDateTime expiresAt) {
+        LocalDateTime current = existing.getExpiresAt();
+        // Expiries only ever move later (none outlives any), so an older record never shortens one
+        if (current != null && (expiresAt == null || expiresAt.isAfter(current))) {
+            repository.updateExpiresAt(existing.getId(), expiresAt);
+        }
+    }
+
+    private void conflict(UrlMappingEntity mapping) {
+        conflicts.increment();
+        log.warn("Journaled mapping {} -> {} lost to a mapping written elsewhere; the short code does not resolve",
+                mapping.getShortCode(), mapping.getOriginalUrl());
+    }
+
+    // The pending index keeps serving the original while the copy gets an id, or a rolled-back one
+    private static UrlMappingEntity copy(UrlMappingEntity mapping) {
+        return new UrlMappingEntity(mapping.getOriginalUrl(), mapping.getShortCode(), mapping.getCreatedAt(),
+                mapping.getExpiresAt());
+    }
+
+    private static URLShortenerServiceException unavailable() {
+        return new URLShortenerServiceException(HttpStatus.SERVICE_UNAVAILABLE,
+                UrlShortenerError.WRITE_BACKLOG_FULL.getMessage(), false);
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.urlshortener.analytics;
+
+import org.example.urlshortener.model.ClickStatsResponse;
+import org.example.urlshortener.repository.UrlClickStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class ClickAnalyticsTest {
+
+    @Autowired
+    private ClickAnalytics clickAnalytics;
+
+    @Autowired
+    private UrlClickStatsRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        clickAnalytics.flush();
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("flush persists recorded clicks with additive upserts")
+    void record_flush_upsertsAdditively() {
+        for (int i = 0; i < 3; i++) {
+            clickAnalytics.record("stats001");
+        }
+        clickAnalytics.record("stats002");
+        clickAnalytics.flush();
+
+        for (int i = 0; i < 2; i++) {
+            clickAnalytics.record("stats001");
+        }
+        clickAnalytics.flush();
+
+        ClickStatsResponse stats = clickAnalytics.getStats("stats001");
+        assertThat(stats.totalClicks()).isEqualTo(5);
+        assertThat(stats.buckets()).isNotEmpty();
+        assertThat(stats.buckets().stream().mapToLong(bucket -> bucket.clicks()).sum()).isEqualTo(5);
+        assertThat(clickAnalytics.getStats("stats002").totalClicks()).isEqualTo(1);
+        assertThat(repository.sumClicksByShortCode("stats001")).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("getStats during a flush counts the clicks being written once they commit, not zero")
+    void getStats_duringFlush_countsInFlightClicks() throws Exception {
+        UrlClickStatsRepository statsRepository = mock(UrlClickStatsRepository.class);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        AtomicLong persisted = new AtomicLong();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        when(statsRepository.sumClicksByShortCode("inflight")).thenAnswer(invocation -> persisted.get());
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            commit.await();
+            persisted.addAndGet(3);
+            return new int[]{1};
+        });
+        ClickAnalytics analytics = new ClickAnalytics(new ClickEventBuffer(64), new ClickAggregator(), statsRepository,
+                jdbcTemplate, 1, Duration.ofDays(1), 60);
+        for (int i = 0; i < 3; i++) {
+            analytics.record("inflight");
+        }
+
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            threads.submit(analytics::flush);
+            assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<ClickStatsResponse> stats = threads.submit(() -> analytics.getStats("inflight"));
+            Thread.sleep(100);
+            commit.countDown();
+
+            assertThat(stats.get(5, TimeUnit.SECONDS).totalClicks()).isEqualTo(3);
+        } finally {
+            commit.countDown();
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("getStats returns zero clicks for a code that was never visited")
+    void getStats_noClicks_returnsEmpty() {
+        ClickStatsResponse stats = clickAnalytics.getStats("neverhit");
+
+        assertThat(stats.totalClicks()).isZero();
+        assertThat(stats.buckets()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("findHottestShortCodes ranks codes by clicks within the window, capped by the page size")
+    void findHottestShortCodes_ranksByClicks() {
+        for (int i = 0; i < 3; i++) {
+            clickAnalytics.record("hot00001");
+        }
+        clickAnalytics.record("hot00002");
+        for (int i = 0; i < 2; i++) {
+            clickAnalytics.record("hot00003");
+        }
+        clickAnalytics.flush();
+
+        assertThat(repository.findHottestShortCodes(LocalDateTime.now().minusDays(1), PageRequest.ofSize(2)))
+                .containsExactly("hot00001", "hot00003");
+        assertThat(repository.findHottestShortCodes(LocalDateTime.now().plusMinutes(1), PageRequest.ofSize(2)))
+                .isEmpty();
+    }
+}
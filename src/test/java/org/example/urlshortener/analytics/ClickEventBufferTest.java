@@ -0,0 +1,97 @@
+package org.example.urlshortener.analytics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClickEventBufferTest {
+
+    @Test
+    @DisplayName("drain hands events over in publication order")
+    void drain_returnsEventsInOrder() {
+        ClickEventBuffer buffer = new ClickEventBuffer(8);
+        buffer.offer("a", 1);
+        buffer.offer("b", 2);
+        buffer.offer("c", 3);
+
+        List<String> drained = new ArrayList<>();
+        assertThat(buffer.drain((code, minute) -> drained.add(code + minute), 2)).isEqualTo(2);
+        assertThat(buffer.drain((code, minute) -> drained.add(code + minute), 10)).isEqualTo(1);
+
+        assertThat(drained).containsExactly("a1", "b2", "c3");
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("offer drops and counts events while the buffer is full, and accepts again once drained")
+    void offer_full_dropsNewest() {
+        ClickEventBuffer buffer = new ClickEventBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer("code" + i, i)).isTrue();
+        }
+
+        assertThat(buffer.offer("overflow", 9)).isFalse();
+        assertThat(buffer.droppedCount()).isEqualTo(1);
+
+        List<String> drained = new ArrayList<>();
+        buffer.drain((code, minute) -> drained.add(code), 1);
+        assertThat(buffer.offer("late", 10)).isTrue();
+        buffer.drain((code, minute) -> drained.add(code), 10);
+        assertThat(drained).containsExactly("code0", "code1", "code2", "code3", "late");
+    }
+
+    @Test
+    @DisplayName("concurrent producers and consumers lose no accepted event")
+    void offerAndDrain_concurrently_noLoss() throws Exception {
+        ClickEventBuffer buffer = new ClickEventBuffer(1024);
+        int producers = 4;
+        int perProducer = 50_000;
+        LongAdder accepted = new LongAdder();
+        ConcurrentHashMap<String, LongAdder> consumed = new ConcurrentHashMap<>();
+        CountDownLatch producersDone = new CountDownLatch(producers);
+
+        ExecutorService pool = Executors.newFixedThreadPool(producers + 2);
+        for (int p = 0; p < producers; p++) {
+            String code = "code" + p;
+            pool.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    if (buffer.offer(code, i)) {
+                        accepted.increment();
+                    }
+                }
+                producersDone.countDown();
+            });
+        }
+        for (int c = 0; c < 2; c++) {
+            pool.submit(() -> {
+                while (producersDone.getCount() > 0 || buffer.size() > 0) {
+                    buffer.drain((code, minute) -> consumed.computeIfAbsent(code, k -> new LongAdder()).increment(), 256);
+                }
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        long total = consumed.values().stream().mapToLong(LongAdder::sum).sum();
+        assertThat(total).isEqualTo(accepted.sum());
+        assertThat(accepted.sum() + buffer.droppedCount()).isEqualTo((long) producers * perProducer);
+    }
+
+    @Test
+    @DisplayName("constructor rejects a capacity that is not a power of two")
+    void constructor_invalidCapacity_throws() {
+        assertThatThrownBy(() -> new ClickEventBuffer(1000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.urlshortener.benchmark;
+
+import org.example.urlshortener.util.UrlCanonicalizer;
+
+import java.io.IOException;
+import java.net.IDN;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Dedupe ratio (submissions per stored row) of a corpus of URLs under exact matching and under
+ * each level of {@link UrlCanonicalizer}, with the share of URLs passed through unchanged (the
+ * time per URL is in {@link CoreHotPathBenchmark}). The corpus is a file of URLs, one per line, or else a generated one: links drawn
+ * with a skewed popularity, each submitted in the spellings clients produce (host case, default
+ * ports, escapes, missing root slash, Unicode and punycode hosts, reordered queries and tracking
+ * parameters), at the rates in {@link #respell}.
+ * <p>
+ * Run through the benchmark profile:
+ * {@code -Dbenchmark.main=org.example.urlshortener.benchmark.CanonicalDedupeReport -Dbenchmark.args=urls.txt}
+ * or {@code -Dbenchmark.args=500000} for that many generated submissions.
+ */
+public final class CanonicalDedupeReport {
+
+    private static final List<String> TRACKING = List.of("utm_*", "gclid", "fbclid", "mc_eid", "igshid");
+
+    private CanonicalDedupeReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> corpus = args.length > 0 && Files.isRegularFile(Path.of(args[0]))
+                ? Files.readAllLines(Path.of(args[0])).stream().map(String::strip).filter(l -> !l.isEmpty()).toList()
+                : generate(new Random(42), args.length > 0 ? Integer.parseInt(args[0]) : 500_000);
+
+        UrlCanonicalizer rfc = new UrlCanonicalizer(false, List.of());
+        Map<String, UnaryOperator<String>> levels = new LinkedHashMap<>();
+        // Stored as submitted, over the same URLs the canonical forms accept
+        levels.put("exact", url -> rfc.canonicalize(url) == null ? null : url);
+        levels.put("rfc 3986", rfc::canonicalize);
+        levels.put("+ sort-query", new UrlCanonicalizer(true, List.of())::canonicalize);
+        levels.put("+ strip-params", new UrlCanonicalizer(true, TRACKING)::canonicalize);
+
+        System.out.printf("%n%,d submissions%n", corpus.size());
+        System.out.printf("%-16s %12s %12s %14s %14s %12s%n", "canonical form", "accepted", "rows",
+                "dedupe ratio", "rows vs exact", "unchanged");
+        long exactRows = -1;
+        for (Map.Entry<String, UnaryOperator<String>> level : levels.entrySet()) {
+            Set<String> rows = new HashSet<>();
+            int unchanged = 0;
+            int valid = 0;
+            for (String url : corpus) {
+                String canonical = level.getValue().apply(url);
+                if (canonical != null) {
+                    rows.add(canonical);
+                    valid++;
+                    unchanged += canonical == url ? 1 : 0;
+                }
+            }
+            exactRows = exactRows < 0 ? rows.size() : exactRows;
+            System.out.printf("%-16s %,12d %,12d %14.3f %13.1f%% %11.1f%%%n", level.getKey(), valid, rows.size(),
+                    (double) valid / rows.size(), 100.0 * (rows.size() - exactRows) / exactRows,
+                    100.0 * unchanged / valid);
+        }
+    }
+
+    private static final String[] HOSTS = {"example.com", "news.example.org", "shop.example.net", "blog.example.io",
+            "docs.example.dev", "münchen.example", "例え.example"};
+    private static final String[] WORDS = {"article", "product", "2024", "summer-sale", "how_to", "release~notes",
+            "item", "view", "category", "a", "en-us", "page"};
+    private static final String[] PARAMS = {"id", "page", "ref", "lang", "sort", "q", "variant"};
+    private static final String[] CAMPAIGNS = {"spring", "newsletter", "launch", "retargeting"};
+
+    private static List<String> generate(Random random, int submissions) {
+        int links = submissions / 4;
+        List<String> urls = new ArrayList<>(links);
+        for (int i = 0; i < links; i++) {
+            urls.add(link(random, i));
+        }
+        List<String> corpus = new ArrayList<>(submissions);
+        for (int i = 0; i < submissions; i++) {
+            // Skewed popularity: a few links are shared far more often than the rest
+            int link = (int) Math.min(links - 1, Math.floor(links * Math.pow(random.nextDouble(), 3)));
+            corpus.add(respell(random, urls.get(link)));
+        }
+        return corpus;
+    }
+
+    private static String link(Random random, int i) {
+        StringBuilder url = new StringBuilder(random.nextInt(10) < 9 ? "https://" : "http://")
+                .append(HOSTS[random.nextInt(HOSTS.length)]);
+        if (random.nextInt(10) == 0) {
+            return url.append('/').toString();
+        }
+        int segments = 1 + random.nextInt(3);
+        for (int s = 0; s < segments; s++) {
+            url.append('/').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        url.append('/').append(i);
+        int params = random.nextInt(3);
+        for (int p = 0; p < params; p++) {
+            url.append(p == 0 ? '?' : '&').append(PARAMS[(p + random.nextInt(2)) % PARAMS.length])
+                    .append('=').append(random.nextInt(50));
+        }
+        return url.toString();
+    }
+
+    /**
+     * One submission of {@code url}: 8% with a mixed-case host, 2% with the default port, 3% with
+     * an escaped unreserved character, half of root URLs without the slash, half of Unicode hosts in
+     * punycode, 15% of multi-parameter queries reordered, 30% with campaign parameters and 10% with
+     * a click id.
+     */
+    private static String respell(Random random, String url) {
+        int hostStart = url.indexOf("//") + 2;
+        int pathStart = url.indexOf('/', hostStart);
+        String scheme = url.substring(0, hostStart);
+        String host = url.substring(hostStart, pathStart);
+        String path = url.substring(pathStart);
+        String query = "";
+        int q = path.indexOf('?');
+        if (q >= 0) {
+            query = path.substring(q + 1);
+            path = path.substring(0, q);
+        }
+
+        if (random.nextInt(100) < 8) {
+            host = Character.toUpperCase(host.charAt(0)) + host.substring(1);
+        }
+        if (!host.chars().allMatch(c -> c < 128) && random.nextBoolean()) {
+            host = IDN.toASCII(host);
+        }
+        if (random.nextInt(100) < 2) {
+            host += scheme.startsWith("https") ? ":443" : ":80";
+        }
+        if (path.equals("/") && random.nextBoolean()) {
+            path = "";
+        }
+        if (random.nextInt(100) < 3) {
+            path = path.replace("-", "%2d").replace("_", "%5F");
+        }
+        List<String> params = new ArrayList<>(query.isEmpty() ? List.of() : List.of(query.split("&")));
+        if (params.size() > 1 && random.nextInt(100) < 15) {
+            params.add(params.remove(0));
+        }
+        if (random.nextInt(100) < 30) {
+            params.add("utm_source=" + (random.nextBoolean() ? "twitter" : "email"));
+            params.add("utm_campaign=" + CAMPAIGNS[random.nextInt(CAMPAIGNS.length)]);
+        }
+        if (random.nextInt(100) < 10) {
+            params.add((random.nextBoolean() ? "fbclid=" : "gclid=") + Long.toString(random.nextLong() >>> 1, 36));
+        }
+        return scheme + host + path + (params.isEmpty() ? "" : "?" + String.join("&", params));
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.urlshortener.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.example.urlshortener.cache.ShortCodeBloomFilter;
+import org.example.urlshortener.cache.UrlMappingCache;
+import org.example.urlshortener.model.ShortenResponse;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.service.URLShortenerMetrics;
+import org.example.urlshortener.service.URLShortenerService;
+import org.example.urlshortener.strategy.HashShortCodeStrategy;
+import org.example.urlshortener.support.InMemoryUrlMappingStore;
+import org.example.urlshortener.util.ShortCodeGenerator;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.example.urlshortener.util.UrlValidationUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-layer hot paths: code hashing, URL validation and canonicalization, and
+ * {@link URLShortenerService} create/lookup against an in-memory repository, so the numbers
+ * exclude database round trips. The service state is rebuilt every iteration to keep the
+ * repository from growing without bound under the create benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoreHotPathBenchmark {
+
+    private static final int SEEDED_MAPPINGS = 10_000;
+
+    /**
+     * {@code noop} (a registry with no backends) against {@code prometheus} shows the per-call cost
+     * of the service timers and counters.
+     */
+    @Param({"noop", "prometheus"})
+    public String meterRegistry;
+
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer(true, List.of("utm_*", "gclid", "fbclid"));
+    private URLShortenerService service;
+    private String[] seededUrls;
+    private String[] respelledUrls;
+    private String[] seededCodes;
+    private String[] invalidUrls;
+    private long sequence;
+    private int cursor;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        UrlMappingStore repository = new InMemoryUrlMappingStore();
+        HashShortCodeStrategy strategy = new HashShortCodeStrategy(repository);
+        ShortCodeBloomFilter bloomFilter = new ShortCodeBloomFilter(SEEDED_MAPPINGS, 0.01);
+        seededUrls = new String[SEEDED_MAPPINGS];
+        seededCodes = new String[SEEDED_MAPPINGS];
+        respelledUrls = new String[SEEDED_MAPPINGS];
+        invalidUrls = new String[SEEDED_MAPPINGS];
+        for (int i = 0; i < SEEDED_MAPPINGS; i++) {
+            seededUrls[i] = "https://example.com/seeded/" + i;
+            respelledUrls[i] = "HTTPS://Example.com:443/seeded/" + i + "?utm_source=news&b=1&a=2";
+            invalidUrls[i] = "ftp://example.com/seeded/" + i;
+            seededCodes[i] = strategy.generate(seededUrls[i]);
+            repository.saveAndFlush(new UrlMappingEntity(seededUrls[i], seededCodes[i], LocalDateTime.now()));
+            bloomFilter.put(seededCodes[i]);
+        }
+        bloomFilter.markReady();
+
+        // The transaction template is only used by the batch path
+        service = new URLShortenerService(repository, new UrlMappingCache(SEEDED_MAPPINGS, Duration.ofMinutes(10)),
+                bloomFilter, strategy, new TransactionTemplate(), new URLShortenerMetrics(registry()),
+                new UrlCanonicalizer(false, List.of()), null, null, null, null);
+        ReflectionTestUtils.setField(service, "baseUrl", "http://short.ly/");
+        ReflectionTestUtils.setField(service, "maxCreateAttempts", 5);
+    }
+
+    private MeterRegistry registry() {
+        return "prometheus".equals(meterRegistry)
+                ? new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)
+                : new CompositeMeterRegistry();
+    }
+
+    private int next() {
+        cursor = cursor + 1 == SEEDED_MAPPINGS ? 0 : cursor + 1;
+        return cursor;
+    }
+
+    @Benchmark
+    public String generateHashShortCode() {
+        return ShortCodeGenerator.generateHashShortCode(seededUrls[next()]);
+    }
+
+    @Benchmark
+    public String validate() {
+        String url = seededUrls[next()];
+        UrlValidationUtil.validate(url);
+        return url;
+    }
+
+    @Benchmark
+    public UrlValidationUtil.Violation checkInvalid() {
+        return UrlValidationUtil.check(invalidUrls[next()]);
+    }
+
+    // Canonical already: the allocation-free pass-through
+    @Benchmark
+    public String canonicalize() {
+        return canonicalizer.canonicalize(seededUrls[next()]);
+    }
+
+    @Benchmark
+    public String canonicalizeRespelled() {
+        return canonicalizer.canonicalize(respelledUrls[next()]);
+    }
+
+    @Benchmark
+    public ShortenResponse shortenUrlNew() {
+        return service.shortenUrl("https://example.com/new/" + sequence++);
+    }
+
+    @Benchmark
+    public ShortenResponse shortenUrlExisting() {
+        return service.shortenUrl(seededUrls[next()]);
+    }
+
+    @Benchmark
+    public String getOriginalUrl() {
+        return service.getOriginalUrl(seededCodes[next()]);
+    }
+}
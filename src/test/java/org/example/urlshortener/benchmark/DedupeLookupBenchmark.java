@@ -0,0 +1,116 @@
+package org.example.urlshortener.benchmark;
+
+import org.example.urlshortener.util.ShortCodeGenerator;
+import org.example.urlshortener.util.UrlDigest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create-path latency (dedupe lookup + insert of a new URL) against an H2 {@code url_mapping}
+ * table of {@code rows} rows, comparing the old unindexed {@code original_url} lookup with the
+ * indexed {@code url_digest} lookup. Seed rows carry the {@link UrlDigest} of their URL (SHA-256
+ * truncated to 128 bits). The database is a file under {@code target}, deleted after the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g"})
+public class DedupeLookupBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement findByOriginalUrl;
+    private PreparedStatement findByUrlDigest;
+    private PreparedStatement insert;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        // File-backed with a 1 GB page cache: 10M rows held in an in-memory database outgrow most heaps
+        connection = DriverManager.getConnection("jdbc:h2:file:./target/dedupe-" + rows + ";CACHE_SIZE=1048576", "sa", "");
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP ALL OBJECTS");
+            ddl.execute("CREATE TABLE url_mapping (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "original_url VARCHAR(255) NOT NULL, url_digest CHAR(32), short_code VARCHAR(255) NOT NULL, "
+                    + "created_at TIMESTAMP NOT NULL)");
+            ddl.execute("INSERT INTO url_mapping (original_url, url_digest, short_code, created_at) "
+                    + "SELECT 'https://example.com/seed/' || X, "
+                    + "SUBSTRING(RAWTOHEX(HASH('SHA-256', 'https://example.com/seed/' || X)), 1, 32), "
+                    + "'s' || X, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, " + rows + ")");
+            ddl.execute("CREATE UNIQUE INDEX idx_short_code ON url_mapping (short_code)");
+            ddl.execute("CREATE UNIQUE INDEX idx_url_digest ON url_mapping (url_digest)");
+        }
+        findByOriginalUrl = connection.prepareStatement("SELECT short_code FROM url_mapping WHERE original_url = ?");
+        findByUrlDigest = connection.prepareStatement(
+                "SELECT short_code, original_url FROM url_mapping WHERE url_digest = ?");
+        insert = connection.prepareStatement(
+                "INSERT INTO url_mapping (original_url, url_digest, short_code, created_at) VALUES (?, ?, ?, ?)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement ddl = connection.createStatement()) {
+            ddl.execute("DROP ALL OBJECTS DELETE FILES");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public boolean createByOriginalUrlScan() throws SQLException {
+        String url = "https://example.com/new/scan/" + sequence++;
+        findByOriginalUrl.setString(1, url);
+        try (ResultSet rs = findByOriginalUrl.executeQuery()) {
+            if (rs.next()) {
+                return false;
+            }
+        }
+        return insert(url);
+    }
+
+    @Benchmark
+    public boolean createByUrlDigest() throws SQLException {
+        String url = "https://example.com/new/digest/" + sequence++;
+        findByUrlDigest.setString(1, UrlDigest.of(url));
+        try (ResultSet rs = findByUrlDigest.executeQuery()) {
+            while (rs.next()) {
+                if (rs.getString(2).equals(url)) {
+                    return false;
+                }
+            }
+        }
+        return insert(url);
+    }
+
+    private boolean insert(String url) throws SQLException {
+        insert.setString(1, url);
+        insert.setString(2, UrlDigest.of(url));
+        insert.setString(3, ShortCodeGenerator.generateHashShortCode(url) + sequence);
+        insert.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+        return insert.executeUpdate() == 1;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.urlshortener.benchmark;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop HTTP load generator: {@code concurrency} virtual-thread clients each issue GETs back
+ * to back for the given duration against a random path from {@code paths}, without following
+ * redirects. Latencies go into an HDR histogram; the peak number of platform threads in this JVM
+ * is sampled too, which is meaningful when the server under test runs in-process (client threads
+ * are virtual and do not count).
+ */
+public final class LoadGenerator {
+
+    private final HttpClient client;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+
+    public LoadGenerator(HttpClient.Version version, int concurrency, Duration warmup, Duration duration) {
+        this.client = HttpClient.newBuilder()
+                .version(version)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    public Result run(String baseUrl, List<String> paths) throws InterruptedException {
+        drive(baseUrl, paths, warmup, new Recorder(3), new LongAdder());
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        Recorder recorder = new Recorder(3);
+        LongAdder errors = new LongAdder();
+        long started = System.nanoTime();
+        drive(baseUrl, paths, duration, recorder, errors);
+        long elapsed = System.nanoTime() - started;
+
+        Histogram histogram = recorder.getIntervalHistogram();
+        return new Result(histogram.getTotalCount(), errors.sum(), elapsed, histogram, threads.getPeakThreadCount());
+    }
+
+    private void drive(String baseUrl, List<String> paths, Duration window, Recorder recorder, LongAdder errors)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + window.toNanos();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        String path = paths.get(ThreadLocalRandom.current().nextInt(paths.size()));
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+                        long began = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.increment();
+                            }
+                            recorder.recordValue(System.nanoTime() - began);
+                        } catch (Exception e) {
+                            errors.increment();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    public record Result(long requests, long errors, long elapsedNanos, Histogram latencies, int peakPlatformThreads) {
+
+        public double requestsPerSecond() {
+            return requests / (elapsedNanos / 1e9);
+        }
+
+        public String summary(String label) {
+            return String.format("%-40s %10.0f req/s  p50=%7.2f ms  p99=%7.2f ms  p99.9=%7.2f ms  max=%7.2f ms  "
+                            + "errors=%d  peak platform threads=%d",
+                    label, requestsPerSecond(),
+                    latencies.getValueAtPercentile(50) / 1e6,
+                    latencies.getValueAtPercentile(99) / 1e6,
+                    latencies.getValueAtPercentile(99.9) / 1e6,
+                    latencies.getMaxValue() / 1e6,
+                    errors, peakPlatformThreads);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.urlshortener.benchmark;
+
+import org.example.urlshortener.exception.handler.RateLimitExceededException;
+import org.example.urlshortener.ratelimit.Budget;
+import org.example.urlshortener.ratelimit.ClientRateLimiter;
+import org.example.urlshortener.ratelimit.TokenBucketRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a rate-limit check, which every create and redirect pays: a client within its budget,
+ * a client refused every time, admission across 100k clients taking turns (so buckets are rarely
+ * in the CPU cache), and the whole
+ * {@link ClientRateLimiter#check} including key extraction from the request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int CLIENTS = 100_000;
+
+    private TokenBucketRateLimiter unlimited;
+    private TokenBucketRateLimiter exhausted;
+    private TokenBucketRateLimiter manyClients;
+    private ClientRateLimiter clientRateLimiter;
+    private MockHttpServletRequest request;
+    private String[] clients;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        unlimited = new TokenBucketRateLimiter(1e9, 1_000_000, CLIENTS);
+        exhausted = new TokenBucketRateLimiter(0.001, 1, CLIENTS);
+        exhausted.tryAcquire("client");
+        manyClients = new TokenBucketRateLimiter(1e9, 1_000_000, CLIENTS);
+        clientRateLimiter = new ClientRateLimiter(unlimited, unlimited, "X-API-Key", 100);
+        request = new MockHttpServletRequest("GET", "/abc123");
+        request.setRemoteAddr("203.0.113.7");
+        clients = new String[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "ip:10." + (i >> 16) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+        }
+    }
+
+    @Benchmark
+    public long admitted() {
+        return unlimited.tryAcquire("client");
+    }
+
+    @Benchmark
+    public long refused() {
+        return exhausted.tryAcquire("client");
+    }
+
+    @Benchmark
+    public long admittedManyClients() {
+        String client = clients[next];
+        next = next + 1 == CLIENTS ? 0 : next + 1;
+        return manyClients.tryAcquire(client);
+    }
+
+    @Benchmark
+    public boolean check() {
+        try {
+            clientRateLimiter.check(Budget.REDIRECT, request);
+            return true;
+        } catch (RateLimitExceededException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.urlshortener.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.example.urlshortener.analytics.ClickAggregator;
+import org.example.urlshortener.analytics.ClickAnalytics;
+import org.example.urlshortener.analytics.ClickEventBuffer;
+import org.example.urlshortener.cache.ShortCodeBloomFilter;
+import org.example.urlshortener.cache.UrlMappingCache;
+import org.example.urlshortener.controller.RedirectFilter;
+import org.example.urlshortener.controller.RedirectHeaders;
+import org.example.urlshortener.controller.URLShortenerController;
+import org.example.urlshortener.exception.handler.URLShortenerExceptionHandler;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.service.URLShortenerMetrics;
+import org.example.urlshortener.service.URLShortenerService;
+import org.example.urlshortener.strategy.HashShortCodeStrategy;
+import org.example.urlshortener.support.InMemoryUrlMappingStore;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Full MVC redirect handling (dispatch, argument binding, service lookup, click recording, exception
+ * advice) through a standalone {@link MockMvc}, without the network stack or a database. The
+ * {@code FastPath} variants put the {@link RedirectFilter} in front of the same setup, so the
+ * difference is what the filter saves over controller dispatch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedirectBenchmark {
+
+    private static final int SEEDED_MAPPINGS = 10_000;
+
+    private MockMvc mockMvc;
+    private MockMvc fastPathMockMvc;
+    private String[] paths;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UrlMappingStore repository = new InMemoryUrlMappingStore();
+        HashShortCodeStrategy strategy = new HashShortCodeStrategy(repository);
+        ShortCodeBloomFilter bloomFilter = new ShortCodeBloomFilter(SEEDED_MAPPINGS, 0.01);
+        paths = new String[SEEDED_MAPPINGS];
+        for (int i = 0; i < SEEDED_MAPPINGS; i++) {
+            String url = "https://example.com/seeded/" + i;
+            String shortCode = strategy.generate(url);
+            repository.saveAndFlush(new UrlMappingEntity(url, shortCode, LocalDateTime.now()));
+            bloomFilter.put(shortCode);
+            paths[i] = "/" + shortCode;
+        }
+        bloomFilter.markReady();
+
+        URLShortenerService service = new URLShortenerService(repository,
+                new UrlMappingCache(SEEDED_MAPPINGS, Duration.ofMinutes(10)), bloomFilter, strategy,
+                new TransactionTemplate(), new URLShortenerMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)),
+                new UrlCanonicalizer(false, List.of()), null, null, null, null);
+        ReflectionTestUtils.setField(service, "baseUrl", "http://short.ly/");
+        // Consumers run so the buffer never fills; the flush (there is no database) is pushed out of the run
+        ClickAnalytics clickAnalytics = new ClickAnalytics(new ClickEventBuffer(65_536), new ClickAggregator(), null,
+                null, 1, Duration.ofDays(1), 60);
+        clickAnalytics.start();
+        RedirectHeaders redirectHeaders = new RedirectHeaders(HttpStatus.FOUND, null);
+        URLShortenerController controller = new URLShortenerController(service, clickAnalytics, new ObjectMapper(),
+                redirectHeaders, 50_000, null);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new URLShortenerExceptionHandler())
+                .build();
+        fastPathMockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new URLShortenerExceptionHandler())
+                .addFilters(new RedirectFilter(service, clickAnalytics, new ObjectMapper(), redirectHeaders, null))
+                .build();
+    }
+
+    @Benchmark
+    public int redirect() throws Exception {
+        cursor = cursor + 1 == SEEDED_MAPPINGS ? 0 : cursor + 1;
+        return mockMvc.perform(get(paths[cursor])).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int redirectUnknown() throws Exception {
+        return mockMvc.perform(get("/zzzzzzzz")).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int redirectFastPath() throws Exception {
+        cursor = cursor + 1 == SEEDED_MAPPINGS ? 0 : cursor + 1;
+        return fastPathMockMvc.perform(get(paths[cursor])).andReturn().getResponse().getStatus();
+    }
+
+    @Benchmark
+    public int redirectUnknownFastPath() throws Exception {
+        return fastPathMockMvc.perform(get("/zzzzzzzz")).andReturn().getResponse().getStatus();
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.urlshortener.benchmark;
+
+import org.example.urlshortener.cache.OffHeapRedirectIndex;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Memory per entry and GC cost of holding {@code entries} mappings in a plain
+ * {@code HashMap<String, String>} versus the {@link OffHeapRedirectIndex}. For each layout it
+ * reports retained heap per entry (after a full collection), off-heap bytes per entry, the pause of
+ * an explicit full collection with the structure live, and young-collection count and time while
+ * allocating short-lived garbage in the shape of request handling.
+ * <p>
+ * Run through the benchmark profile, optionally with the entry count:
+ * {@code -Dbenchmark.main=org.example.urlshortener.benchmark.RedirectIndexFootprint -Dbenchmark.args=2000000}
+ */
+public final class RedirectIndexFootprint {
+
+    private static final long CHURN_BYTES = 4L << 30;
+
+    private RedirectIndexFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int entries = args.length == 0 ? 2_000_000 : Integer.parseInt(args[0]);
+        List<String> results = new ArrayList<>();
+        results.add(measure("HashMap<String,String>", entries, () -> {
+            Map<String, String> map = new HashMap<>();
+            for (int i = 0; i < entries; i++) {
+                map.put(code(i), url(i));
+            }
+            return map;
+        }, map -> 0));
+        results.add(measure("OffHeapRedirectIndex", entries, () -> {
+            OffHeapRedirectIndex index = new OffHeapRedirectIndex(entries, 64 << 20);
+            for (int i = 0; i < entries; i++) {
+                index.put(code(i), url(i), null);
+            }
+            return index;
+        }, OffHeapRedirectIndex::memoryBytes));
+
+        System.out.printf("%n%,d mappings, %s%n", entries, ManagementFactory.getRuntimeMXBean().getVmVersion());
+        System.out.printf("%-24s %14s %18s %12s %24s%n", "layout", "heap B/entry", "off-heap B/entry",
+                "full GC ms", "young GCs (ms) per 4 GiB");
+        results.forEach(System.out::println);
+    }
+
+    private static <T> String measure(String name, int entries, Supplier<T> build, ToLongFunction<T> offHeapBytes) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        fullGc();
+        long before = memory.getHeapMemoryUsage().getUsed();
+        T structure = build.get();
+        fullGc();
+        long retained = memory.getHeapMemoryUsage().getUsed() - before;
+
+        long pauseStarted = System.nanoTime();
+        System.gc();
+        double fullGcMillis = (System.nanoTime() - pauseStarted) / 1e6;
+
+        long[] gcBefore = youngCollections();
+        churn();
+        long[] gcAfter = youngCollections();
+
+        // Read after the measurements so the structure stays reachable throughout
+        double offHeapPerEntry = offHeapBytes.applyAsLong(structure) / (double) entries;
+        return String.format("%-24s %14.1f %18.1f %12.1f %15d (%d)", name, retained / (double) entries,
+                offHeapPerEntry, fullGcMillis, gcAfter[0] - gcBefore[0], gcAfter[1] - gcBefore[1]);
+    }
+
+    /**
+     * Allocates {@link #CHURN_BYTES} of request-sized, immediately dropped objects.
+     */
+    private static void churn() {
+        // A window of in-flight requests keeps the allocations from being optimized away
+        Object[] inFlight = new Object[1024];
+        long allocated = 0;
+        for (int i = 0; allocated < CHURN_BYTES; i++) {
+            inFlight[i & (inFlight.length - 1)] = new byte[512];
+            allocated += 512;
+        }
+    }
+
+    private static long[] youngCollections() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String collectorName = collector.getName();
+            // G1 Young Generation, Copy (Serial), PS Scavenge (Parallel)
+            if (collectorName.contains("Young") || collectorName.equals("Copy") || collectorName.contains("Scavenge")) {
+                count += collector.getCollectionCount();
+                millis += collector.getCollectionTime();
+            }
+        }
+        return new long[]{count, millis};
+    }
+
+    private static void fullGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+    }
+
+    private static String code(int i) {
+        return "%08x".formatted(i);
+    }
+
+    private static String url(int i) {
+        return "https://www.example.com/articles/2024/" + i + "/some-readable-slug";
+    }
+}
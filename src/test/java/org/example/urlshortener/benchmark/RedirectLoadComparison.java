@@ -0,0 +1,140 @@
+package org.example.urlshortener.benchmark;
+
+import org.example.Application;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the application once per serving mode (Spring profile), each in a JVM of its own, seeds
+ * short codes through {@code POST /shorten} and drives {@code GET /{shortCode}} with a
+ * {@link LoadGenerator}, printing throughput, tail latency and peak platform threads per mode.
+ * With {@code -Dload.rounds=n} every mode is run {@code n} times, interleaved. Load is sent over
+ * HTTP/1.1, or over HTTP/2 cleartext when the mode includes {@code h2c}, which needs
+ * {@code server.http2.enabled} (set by the {@code high-throughput} profile).
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=org.example.urlshortener.benchmark.RedirectLoadComparison -Dbenchmark.args="default virtual-threads reactive"}.
+ * A profile name of {@code default} means no extra profile; profiles combine with commas, e.g.
+ * {@code high-throughput,h2c}. A mode may also carry application properties, e.g.
+ * {@code default,app.redirect.fast-path=false} to serve redirects through the MVC controller
+ * instead of the redirect filter.
+ */
+public final class RedirectLoadComparison {
+
+    private static final int CODES = 1_000;
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 400);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 10));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.duration-seconds", 30));
+    // Every mode runs once per round, in order, so drift over a long run is spread across the modes
+    private static final int ROUNDS = Integer.getInteger("load.rounds", 1);
+    private static final String H2C = "h2c";
+    private static final String FORKED = "--forked";
+    private static final String SUMMARY = "summary: ";
+
+    private RedirectLoadComparison() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && FORKED.equals(args[0])) {
+            System.out.println(SUMMARY + run(args[1]));
+            return;
+        }
+        List<String> modes = args.length == 0 ? List.of("default", "virtual-threads") : Arrays.asList(args);
+        List<String> summaries = new ArrayList<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String mode : modes) {
+                summaries.add(fork(mode));
+            }
+        }
+        System.out.printf("%nRedirect load, %d concurrent clients, %ds:%n", CONCURRENCY, DURATION.toSeconds());
+        summaries.forEach(System.out::println);
+    }
+
+    /**
+     * Runs {@code mode} in a JVM of its own, so no mode starts with code another one has already
+     * compiled or with its garbage, with the same class path and JVM options as this one.
+     */
+    private static String fork(String mode) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), RedirectLoadComparison.class.getName(),
+                FORKED, mode));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String summary = null;
+        try (BufferedReader output = process.inputReader()) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.startsWith(SUMMARY)) {
+                    summary = line.substring(SUMMARY.length());
+                } else {
+                    System.out.println(line);
+                }
+            }
+        }
+        if (process.waitFor() != 0 || summary == null) {
+            throw new IllegalStateException("Mode " + mode + " failed with exit code " + process.exitValue());
+        }
+        return summary;
+    }
+
+    private static String run(String mode) throws Exception {
+        SpringApplication application = new SpringApplication(Application.class);
+        String database = "load-" + mode.replaceAll("[^A-Za-z0-9]", "-");
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0", "--app.rate-limit.enabled=false", "--logging.level.root=WARN", "--logging.level.org.example.urlshortener=WARN",
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1"));
+        List<String> profiles = new ArrayList<>();
+        boolean h2c = false;
+        for (String part : mode.split(",")) {
+            if (H2C.equals(part)) {
+                h2c = true;
+            } else if (part.contains("=")) {
+                arguments.add("--" + part);
+            } else if (!"default".equals(part)) {
+                profiles.add(part);
+            }
+        }
+        application.setAdditionalProfiles(profiles.toArray(String[]::new));
+        try (ConfigurableApplicationContext context = application.run(arguments.toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port + "/";
+            List<String> codes = seed(baseUrl);
+            // Over h2c the client upgrades its first connection and multiplexes every request over it
+            if (h2c && !context.getEnvironment().getProperty("server.http2.enabled", Boolean.class, false)) {
+                throw new IllegalArgumentException("Mode " + mode + " drives h2c but does not enable server.http2.enabled");
+            }
+            HttpClient.Version version = h2c ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+            return new LoadGenerator(version, CONCURRENCY, WARMUP, DURATION).run(baseUrl, codes).summary(mode);
+        }
+    }
+
+    static List<String> seed(String baseUrl) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        List<String> codes = new ArrayList<>(CODES);
+        for (int i = 0; i < CODES; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "shorten"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"originalUrl\":\"https://example.com/load/" + i + "\"}"))
+                    .build();
+            String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+            String shortUrl = body.substring(body.indexOf(":\"") + 2, body.lastIndexOf('"'));
+            codes.add(shortUrl.substring(shortUrl.lastIndexOf('/') + 1));
+        }
+        return codes;
+    }
+}
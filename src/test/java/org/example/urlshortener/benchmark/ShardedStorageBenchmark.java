@@ -0,0 +1,98 @@
+package org.example.urlshortener.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.storage.ShardedUrlMappingRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of the sharded storage engine by shard count, with several threads reading (by short
+ * code) and writing (one new mapping each) concurrently. Each shard is a separate in-memory H2
+ * database with its own connection pool, so the shards share nothing but the machine: the gain
+ * from more shards is bounded by the cores available, and shows best with at least as many cores
+ * as shards. Compare the {@code shards} parameters within one run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ShardedStorageBenchmark {
+
+    private static final int SEEDED_MAPPINGS = 50_000;
+
+    @Param({"1", "2", "4"})
+    public int shards;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private ShardedUrlMappingRepository repository;
+    private String[] codes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String run = UUID.randomUUID().toString();
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (int i = 0; i < shards; i++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl("jdbc:h2:mem:sharded-benchmark-" + run + "-" + i + ";DB_CLOSE_DELAY=-1");
+            dataSource.setUsername("sa");
+            dataSource.setMaximumPoolSize(8);
+            dataSources.put("shard" + i, dataSource);
+        }
+        repository = new ShardedUrlMappingRepository(dataSources, 128, 500, false);
+
+        codes = new String[SEEDED_MAPPINGS];
+        List<UrlMappingEntity> batch = new ArrayList<>();
+        for (int i = 0; i < SEEDED_MAPPINGS; i++) {
+            codes[i] = "seed" + i;
+            batch.add(new UrlMappingEntity("https://example.com/seeded/" + i, codes[i], LocalDateTime.now()));
+            if (batch.size() == 1000) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.deleteAll();
+        repository.close();
+    }
+
+    @Benchmark
+    public UrlMappingEntity findByShortCode() {
+        return repository.findByShortCode(codes[ThreadLocalRandom.current().nextInt(SEEDED_MAPPINGS)]).orElseThrow();
+    }
+
+    @Benchmark
+    public UrlMappingEntity save() {
+        long n = sequence.incrementAndGet();
+        return repository.saveAndFlush(new UrlMappingEntity("https://example.com/new/" + n, "new" + n, LocalDateTime.now()));
+    }
+}
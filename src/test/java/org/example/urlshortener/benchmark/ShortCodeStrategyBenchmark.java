@@ -0,0 +1,74 @@
+package org.example.urlshortener.benchmark;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.strategy.HashShortCodeStrategy;
+import org.example.urlshortener.strategy.RangeShortCodeStrategy;
+import org.example.urlshortener.support.InMemoryUrlMappingStore;
+import org.example.urlshortener.util.ShortCodeAlphabet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Create-path code generation throughput of the hash and range strategies. The hash strategy
+ * probes a pre-populated in-memory repository, so its cost includes the collision lookups but
+ * not real database round trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShortCodeStrategyBenchmark {
+
+    @Param({"0", "100000"})
+    public int existingMappings;
+
+    private HashShortCodeStrategy hashStrategy;
+    private RangeShortCodeStrategy rangeStrategy;
+    private RangeShortCodeStrategy shuffledRangeStrategy;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UrlMappingStore repository = new InMemoryUrlMappingStore();
+        hashStrategy = new HashShortCodeStrategy(repository);
+        for (int i = 0; i < existingMappings; i++) {
+            String url = "https://example.com/existing/" + i;
+            repository.saveAndFlush(new UrlMappingEntity(url, hashStrategy.generate(url), LocalDateTime.now()));
+        }
+        AtomicLong ids = new AtomicLong();
+        rangeStrategy = new RangeShortCodeStrategy(ids::getAndAdd, ShortCodeAlphabet.BASE62, 1_000, false, 0L);
+        shuffledRangeStrategy = new RangeShortCodeStrategy(ids::getAndAdd, ShortCodeAlphabet.BASE62, 1_000, true, 42L);
+    }
+
+    @Benchmark
+    public String hash() {
+        return hashStrategy.generate("https://example.com/new/" + sequence.incrementAndGet());
+    }
+
+    @Benchmark
+    public String range() {
+        return rangeStrategy.generate("https://example.com/new/" + sequence.incrementAndGet());
+    }
+
+    @Benchmark
+    public String rangeShuffled() {
+        return shuffledRangeStrategy.generate("https://example.com/new/" + sequence.incrementAndGet());
+    }
+}
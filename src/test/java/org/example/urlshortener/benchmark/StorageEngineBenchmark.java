@@ -0,0 +1,101 @@
+package org.example.urlshortener.benchmark;
+
+import org.example.Application;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository reads (by short code) and writes (one new mapping each) on the two storage engines,
+ * {@code jpa} on the default in-memory H2 and {@code log} in a temporary directory, each wired as
+ * the application wires it. The log engine forces every append to disk, H2 in memory never does;
+ * run with {@code -p forceOnWrite=false} to compare the raw write paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageEngineBenchmark {
+
+    private static final int SEEDED_MAPPINGS = 100_000;
+
+    @Param({"jpa", "log"})
+    public String engine;
+
+    @Param({"true"})
+    public boolean forceOnWrite;
+
+    private ConfigurableApplicationContext context;
+    private Path directory;
+    private UrlMappingStore repository;
+    private String[] codes;
+    private int cursor;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("storage-benchmark");
+        SpringApplication application = new SpringApplication(Application.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run("--logging.level.root=WARN", "--logging.level.org.example.urlshortener=WARN",
+                "--spring.datasource.url=jdbc:h2:mem:storage-" + engine + ";DB_CLOSE_DELAY=-1",
+                "--app.storage.engine=" + engine, "--app.storage.log.directory=" + directory,
+                "--app.storage.log.force-on-write=" + forceOnWrite);
+        repository = context.getBean(UrlMappingStore.class);
+
+        codes = new String[SEEDED_MAPPINGS];
+        List<UrlMappingEntity> batch = new ArrayList<>();
+        for (int i = 0; i < SEEDED_MAPPINGS; i++) {
+            codes[i] = "seed" + i;
+            batch.add(new UrlMappingEntity("https://example.com/seeded/" + i, codes[i], LocalDateTime.now()));
+            if (batch.size() == 1000) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public UrlMappingEntity findByShortCode() {
+        return repository.findByShortCode(codes[cursor++ % SEEDED_MAPPINGS]).orElseThrow();
+    }
+
+    @Benchmark
+    public UrlMappingEntity save() {
+        long n = sequence++;
+        return repository.saveAndFlush(new UrlMappingEntity("https://example.com/new/" + n, "new" + n,
+                LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.urlshortener.benchmark;
+
+import org.example.Application;
+import org.example.urlshortener.model.ShortenResponse;
+import org.example.urlshortener.service.URLShortenerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code shortenUrl} of new URLs from 16 threads with the mapping inserted in the request
+ * ({@code writeBehind=false}) and journaled then written in batches ({@code writeBehind=true}),
+ * on the default in-memory H2 with the journal in a temporary directory. H2 in memory commits
+ * without touching disk, so against a networked database the direct path pays a round trip and a
+ * commit per create that this does not show.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class WriteBehindBenchmark {
+
+    @Param({"false", "true"})
+    public boolean writeBehind;
+
+    private ConfigurableApplicationContext context;
+    private Path directory;
+    private URLShortenerService service;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("write-behind-benchmark");
+        SpringApplication application = new SpringApplication(Application.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run("--logging.level.root=WARN", "--logging.level.org.example.urlshortener=WARN",
+                "--spring.datasource.url=jdbc:h2:mem:write-behind-" + writeBehind + ";DB_CLOSE_DELAY=-1",
+                "--app.write-behind.enabled=" + writeBehind, "--app.write-behind.directory=" + directory);
+        service = context.getBean("urlShortenerService", URLShortenerService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public ShortenResponse shortenUrl() {
+        return service.shortenUrl("https://example.com/created/" + sequence.incrementAndGet());
+    }
+}
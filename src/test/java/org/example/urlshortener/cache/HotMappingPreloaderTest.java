@@ -0,0 +1,67 @@
+package org.example.urlshortener.cache;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlClickStatsRepository;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.support.InMemoryUrlMappingStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class HotMappingPreloaderTest {
+
+    private final UrlClickStatsRepository statsRepository = mock(UrlClickStatsRepository.class);
+    private final UrlMappingStore repository = new InMemoryUrlMappingStore();
+    private final UrlMappingCache cache = new UrlMappingCache(1000, Duration.ofMinutes(10));
+
+    @Test
+    @DisplayName("the hottest codes are loaded into the cache in parallel batches, skipping expired and unknown codes")
+    void run_loadsHottestMappings() throws InterruptedException {
+        List<String> hottest = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            String shortCode = "hot%05d".formatted(i);
+            LocalDateTime expiresAt = i == 3 ? LocalDateTime.now().minusMinutes(1) : null;
+            repository.saveAndFlush(new UrlMappingEntity("https://example.com/" + i, shortCode, LocalDateTime.now(), expiresAt));
+            hottest.add(shortCode);
+        }
+        hottest.add("gone0001");
+        when(statsRepository.findHottestShortCodes(any(), any())).thenReturn(hottest);
+        HotMappingPreloader preloader = new HotMappingPreloader(statsRepository, repository, cache, 100,
+                Duration.ofDays(7), 10, 3, Duration.ofSeconds(10));
+
+        preloader.run(null);
+
+        assertThat(preloader.loadedCount()).isEqualTo(24);
+        assertThat(cache.getIfPresent("hot00000")).hasValueSatisfying(
+                mapping -> assertThat(mapping.getOriginalUrl()).isEqualTo("https://example.com/0"));
+        assertThat(cache.getIfPresent("hot00024")).isPresent();
+        assertThat(cache.getIfPresent("hot00003")).isNull();
+        assertThat(cache.getIfPresent("gone0001")).isNull();
+        verify(statsRepository).findHottestShortCodes(
+                argThat(since -> since.isBefore(LocalDateTime.now().minusDays(6))),
+                argThat((Pageable pageable) -> pageable.getPageSize() == 100));
+    }
+
+    @Test
+    @DisplayName("without recorded clicks the preload finishes without loading anything")
+    void run_noClicks_loadsNothing() throws InterruptedException {
+        when(statsRepository.findHottestShortCodes(any(), any())).thenReturn(List.of());
+        HotMappingPreloader preloader = new HotMappingPreloader(statsRepository, repository, cache, 100,
+                Duration.ofDays(7), 10, 3, Duration.ofSeconds(10));
+
+        preloader.run(null);
+
+        assertThat(preloader.loadedCount()).isZero();
+        assertThat(preloader.durationMillis()).isPositive();
+    }
+}
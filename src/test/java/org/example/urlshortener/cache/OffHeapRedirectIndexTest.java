@@ -0,0 +1,123 @@
+package org.example.urlshortener.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapRedirectIndexTest {
+
+    private static final int SLAB_BYTES = 1 << 17;
+
+    @Test
+    @DisplayName("put and get round-trip the URL and expiry of 8-character codes")
+    void putAndGet_roundTrip() {
+        OffHeapRedirectIndex index = new OffHeapRedirectIndex(16, SLAB_BYTES);
+        LocalDateTime expiresAt = LocalDateTime.of(2030, 6, 1, 12, 30, 15, 123_456_789);
+
+        assertThat(index.put("aB3dE6gH", "https://example.com/ünïcode?q=1", expiresAt)).isTrue();
+        assertThat(index.put("00000001", "https://example.com/forever", null)).isTrue();
+
+        assertThat(index.get("aB3dE6gH"))
+                .isEqualTo(new OffHeapRedirectIndex.Target("https://example.com/ünïcode?q=1", expiresAt));
+        assertThat(index.get("00000001").expiresAt()).isNull();
+        assertThat(index.get("00000002")).isNull();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("codes that are not 8 ASCII characters are not indexed")
+    void put_unsupportedCode_isRejected() {
+        OffHeapRedirectIndex index = new OffHeapRedirectIndex(16, SLAB_BYTES);
+
+        assertThat(index.put("short", "https://example.com", null)).isFalse();
+        assertThat(index.put("ünïcode1", "https://example.com", null)).isFalse();
+        assertThat(index.get("short")).isNull();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("put replaces an entry, putIfAbsent keeps it and remove drops it")
+    void replaceAndRemove() {
+        OffHeapRedirectIndex index = new OffHeapRedirectIndex(16, SLAB_BYTES);
+        LocalDateTime later = LocalDateTime.of(2031, 1, 1, 0, 0);
+        index.put("code0001", "https://example.com/a", null);
+
+        index.put("code0001", "https://example.com/a", later);
+        index.putIfAbsent("code0001", "https://example.com/stale", null);
+        assertThat(index.get("code0001")).isEqualTo(new OffHeapRedirectIndex.Target("https://example.com/a", later));
+
+        index.remove("code0001");
+        assertThat(index.get("code0001")).isNull();
+        assertThat(index.size()).isZero();
+
+        index.putIfAbsent("code0001", "https://example.com/b", null);
+        assertThat(index.get("code0001").originalUrl()).isEqualTo("https://example.com/b");
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("the index grows past its initial capacity and across URL slabs without losing entries")
+    void put_beyondCapacity_grows() {
+        OffHeapRedirectIndex index = new OffHeapRedirectIndex(16, SLAB_BYTES);
+
+        for (int i = 0; i < 50_000; i++) {
+            index.put("%08d".formatted(i), "https://example.com/grow/" + i, null);
+        }
+        for (int i = 0; i < 50_000; i += 2) {
+            index.remove("%08d".formatted(i));
+        }
+
+        assertThat(index.size()).isEqualTo(25_000);
+        for (int i = 0; i < 50_000; i++) {
+            OffHeapRedirectIndex.Target target = index.get("%08d".formatted(i));
+            if (i % 2 == 0) {
+                assertThat(target).isNull();
+            } else {
+                assertThat(target.originalUrl()).isEqualTo("https://example.com/grow/" + i);
+            }
+        }
+        assertThat(index.memoryBytes()).isGreaterThan(2L * SLAB_BYTES);
+    }
+
+    @Test
+    @DisplayName("lookups running alongside writes and resizes only ever see complete entries")
+    void get_concurrentWithWrites_neverTorn() throws InterruptedException {
+        OffHeapRedirectIndex index = new OffHeapRedirectIndex(16, SLAB_BYTES);
+        index.put("stable01", "https://example.com/stable", null);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < 200_000 && failure.get() == null; i++) {
+                OffHeapRedirectIndex.Target target = index.get("stable01");
+                if (target == null || !target.originalUrl().equals("https://example.com/stable")) {
+                    failure.set(String.valueOf(target));
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 20_000; i++) {
+            index.put("%08d".formatted(i), "https://example.com/churn/" + i, null);
+        }
+        reader.join();
+
+        assertThat(failure.get()).isNull();
+    }
+
+    @Test
+    @DisplayName("misses are only counted once the startup load has finished")
+    void missCount_afterReady() {
+        OffHeapRedirectIndex index = new OffHeapRedirectIndex(16, SLAB_BYTES);
+        index.get("missing1");
+        assertThat(index.missCount()).isZero();
+
+        index.markReady();
+        index.get("missing2");
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.missCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.urlshortener.cache;
+
+import org.example.urlshortener.model.ShortCodeView;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShortCodeBloomFilterTest {
+
+    @Test
+    @DisplayName("mightContain reports every code as present until the filter is ready")
+    void mightContain_notReady_alwaysTrue() {
+        ShortCodeBloomFilter filter = new ShortCodeBloomFilter(100, 0.01);
+
+        assertThat(filter.mightContain("anything")).isTrue();
+        assertThat(filter.rejectionCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("mightContain never returns a false negative for added codes")
+    void mightContain_addedCodes_noFalseNegatives() {
+        ShortCodeBloomFilter filter = new ShortCodeBloomFilter(1_000, 0.01);
+        filter.markReady();
+
+        for (int i = 0; i < 5_000; i++) {
+            filter.put("code" + i);
+        }
+
+        for (int i = 0; i < 5_000; i++) {
+            assertThat(filter.mightContain("code" + i)).isTrue();
+        }
+        assertThat(filter.approximateElementCount()).isBetween(4_900L, 5_000L);
+    }
+
+    @Test
+    @DisplayName("filter grows new stages past capacity and keeps the false-positive rate bounded")
+    void put_beyondCapacity_addsStagesAndBoundsFpp() {
+        ShortCodeBloomFilter filter = new ShortCodeBloomFilter(1_000, 0.01);
+        filter.markReady();
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("present" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 20_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("absent" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(filter.stageCount()).isGreaterThan(1);
+        assertThat((double) falsePositives / probes).isLessThan(0.03);
+        assertThat(filter.rejectionCount()).isEqualTo(probes - falsePositives);
+        assertThat(filter.memoryBytes()).isPositive();
+    }
+
+    @Test
+    @DisplayName("constructor rejects an out-of-range false-positive rate")
+    void constructor_invalidRate_throws() {
+        assertThatThrownBy(() -> new ShortCodeBloomFilter(100, 1.5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("a stale filter rejects nothing, and only a rebuild started after markStale makes it ready again")
+    void markStale_untilRebuiltFromLaterGeneration() {
+        ShortCodeBloomFilter filter = new ShortCodeBloomFilter(100, 0.01);
+        long before = filter.generation();
+        filter.markReady();
+
+        filter.markStale();
+
+        assertThat(filter.mightContain("missed01")).isTrue();
+        assertThat(filter.markReady(before)).isFalse();
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.markReady(filter.generation())).isTrue();
+        assertThat(filter.mightContain("missed01")).isFalse();
+    }
+
+    @Test
+    @DisplayName("reload falls through to the database while it pages the codes back in, then rejects again")
+    void loader_reload_addsMissedCodes() throws InterruptedException {
+        ShortCodeBloomFilter filter = new ShortCodeBloomFilter(100, 0.01);
+        UrlMappingStore repository = mock(UrlMappingStore.class);
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ShortCodeView missed = view(1L, "missed01");
+        when(repository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenAnswer(inv -> {
+            if ((long) inv.getArgument(0) > 0) {
+                return List.of();
+            }
+            scanning.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(missed);
+        });
+        filter.markReady();
+
+        try (ShortCodeBloomFilterLoader loader = new ShortCodeBloomFilterLoader(repository, filter, 10)) {
+            loader.reload();
+            assertThat(scanning.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(filter.mightContain("missed01")).isTrue();
+            assertThat(filter.mightContain("absent01")).isTrue();
+            release.countDown();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!filter.isReady() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+        assertThat(filter.isReady()).isTrue();
+        assertThat(filter.mightContain("missed01")).isTrue();
+    }
+
+    private static ShortCodeView view(Long id, String shortCode) {
+        return new ShortCodeView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getShortCode() {
+                return shortCode;
+            }
+        };
+    }
+}
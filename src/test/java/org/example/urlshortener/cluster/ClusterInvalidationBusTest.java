@@ -0,0 +1,201 @@
+package org.example.urlshortener.cluster;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClusterInvalidationBusTest {
+
+    @Test
+    @DisplayName("codes published within a flush interval are coalesced and sent in batches of at most batch-size")
+    void publish_coalescesAndBatches() {
+        RecordingTransport transport = new RecordingTransport();
+        ClusterInvalidationBus bus = new ClusterInvalidationBus(transport, "node-a", 3, Duration.ofHours(1),
+                Duration.ofMinutes(1), shortCode -> {
+        }, () -> {
+        });
+        bus.start();
+        for (String shortCode : List.of("code0001", "code0002", "code0001", "code0001")) {
+            bus.publish(shortCode);
+        }
+        // Stopping drains what is pending
+        bus.stop();
+
+        assertThat(transport.sent).singleElement()
+                .isEqualTo(new InvalidationBatch("node-a", 1, List.of("code0001", "code0002")));
+        assertThat(bus.publishedCount()).isEqualTo(4);
+
+        transport.sent.clear();
+        bus.start();
+        for (int i = 0; i < 7; i++) {
+            bus.publish("code%04d".formatted(i));
+        }
+        bus.stop();
+        // A full batch wakes the flusher, which may take it before the next publish; batches never exceed 3
+        assertThat(transport.sent).allSatisfy(batch -> assertThat(batch.shortCodes()).hasSizeLessThanOrEqualTo(3));
+        assertThat(transport.sent).flatExtracting(InvalidationBatch::shortCodes)
+                .containsExactly("code0000", "code0001", "code0002", "code0003", "code0004", "code0005", "code0006");
+        List<Long> sequences = transport.sent.stream().map(InvalidationBatch::sequence).toList();
+        for (int i = 0; i < sequences.size(); i++) {
+            assertThat(sequences.get(i)).isEqualTo(2L + i);
+        }
+    }
+
+    @Test
+    @DisplayName("batches from other nodes reach the listener and bump the code's version; own batches are ignored")
+    void receive_appliesRemoteBatches() {
+        List<String> invalidated = new ArrayList<>();
+        ClusterInvalidationBus bus = new ClusterInvalidationBus(new RecordingTransport(), "node-a", 10,
+                Duration.ofHours(1), Duration.ofMinutes(1), invalidated::add, () -> {
+        });
+        long before = bus.version();
+
+        bus.receive(new InvalidationBatch("node-a", 1, List.of("own00001")));
+        bus.receive(new InvalidationBatch("node-b", 1, List.of("code0001", "code0002")));
+        bus.receive(new InvalidationBatch("node-b", 2, List.of("code0003")));
+
+        assertThat(invalidated).containsExactly("code0001", "code0002", "code0003");
+        assertThat(bus.changedSince("code0001", before)).isTrue();
+        assertThat(bus.changedSince("own00001", before)).isFalse();
+        assertThat(bus.changedSince("code0001", bus.version())).isFalse();
+        assertThat(bus.receivedCount()).isEqualTo(3);
+        assertThat(bus.gapCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("a skipped sequence runs the resync and marks every read begun before it as changed")
+    void receive_gap_resyncs() {
+        List<String> resyncs = new ArrayList<>();
+        ClusterInvalidationBus bus = new ClusterInvalidationBus(new RecordingTransport(), "node-a", 10,
+                Duration.ofHours(1), Duration.ofMinutes(1), shortCode -> {
+        }, () -> resyncs.add("resync"));
+        bus.receive(new InvalidationBatch("node-b", 1, List.of("code0001")));
+        long before = bus.version();
+
+        bus.receive(new InvalidationBatch("node-b", 4, List.of("code0004")));
+
+        assertThat(resyncs).hasSize(1);
+        assertThat(bus.gapCount()).isEqualTo(1);
+        // A code from one of the lost batches, never seen here
+        assertThat(bus.changedSince("missed01", before)).isTrue();
+        assertThat(bus.changedSince("missed01", bus.version())).isFalse();
+    }
+
+    @Test
+    @DisplayName("a batch the transport could not send is sent again on the next flush, without skipping a sequence")
+    void flush_failedSend_retried() {
+        RecordingTransport transport = new RecordingTransport();
+        ClusterInvalidationBus bus = new ClusterInvalidationBus(transport, "node-a", 3, Duration.ofHours(1),
+                Duration.ofMinutes(1), shortCode -> {
+        }, () -> {
+        });
+        bus.start();
+        transport.down = true;
+        bus.publish("code0001");
+        bus.publish("code0002");
+        bus.publish("code0003");
+        bus.stop();
+
+        assertThat(transport.sent).isEmpty();
+        assertThat(bus.failedBatchCount()).isPositive();
+
+        transport.down = false;
+        bus.start();
+        bus.publish("code0004");
+        bus.stop();
+        assertThat(transport.sent).containsExactly(
+                new InvalidationBatch("node-a", 1, List.of("code0001", "code0002", "code0003")),
+                new InvalidationBatch("node-a", 2, List.of("code0004")));
+    }
+
+    @Test
+    @DisplayName("multicast datagrams round-trip a batch, are split to stay within the datagram budget and numbered one by one")
+    void multicast_encodeDecode() throws IOException {
+        List<String> shortCodes = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            shortCodes.add("code%04d".formatted(i));
+        }
+        InvalidationBatch batch = new InvalidationBatch("node-a", 42, shortCodes);
+
+        List<byte[]> datagrams = MulticastInvalidationTransport.encode(batch, new AtomicLong(41));
+
+        assertThat(datagrams).hasSizeGreaterThan(1)
+                .allSatisfy(datagram -> assertThat(datagram.length)
+                        .isLessThanOrEqualTo(MulticastInvalidationTransport.MAX_DATAGRAM_BYTES));
+        List<String> decoded = new ArrayList<>();
+        long sequence = 42;
+        for (byte[] datagram : datagrams) {
+            InvalidationBatch part = MulticastInvalidationTransport.decode(datagram, datagram.length);
+            assertThat(part.nodeId()).isEqualTo("node-a");
+            assertThat(part.sequence()).isEqualTo(sequence++);
+            decoded.addAll(part.shortCodes());
+        }
+        assertThat(decoded).isEqualTo(shortCodes);
+        assertThat(MulticastInvalidationTransport.decode(new byte[]{1, 2, 3, 4, 5}, 5)).isNull();
+    }
+
+    @Test
+    @DisplayName("a lost part of a split multicast batch is a gap that resyncs the receiver")
+    void multicast_lostPart_resyncs() throws IOException {
+        List<String> shortCodes = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            shortCodes.add("code%04d".formatted(i));
+        }
+        AtomicLong sequences = new AtomicLong();
+        List<String> resyncs = new ArrayList<>();
+        ClusterInvalidationBus bus = new ClusterInvalidationBus(new RecordingTransport(), "node-a", 10,
+                Duration.ofHours(1), Duration.ofMinutes(1), shortCode -> {
+        }, () -> resyncs.add("resync"));
+        receiveAllBut(bus, MulticastInvalidationTransport.encode(
+                new InvalidationBatch("node-b", 1, List.of("code9999")), sequences), -1);
+        assertThat(resyncs).isEmpty();
+
+        // The first part of a split batch is lost
+        receiveAllBut(bus, MulticastInvalidationTransport.encode(new InvalidationBatch("node-b", 2, shortCodes), sequences), 0);
+        assertThat(resyncs).hasSize(1);
+
+        // A middle part is lost
+        receiveAllBut(bus, MulticastInvalidationTransport.encode(new InvalidationBatch("node-b", 3, shortCodes), sequences), 1);
+        assertThat(resyncs).hasSize(2);
+        assertThat(bus.gapCount()).isEqualTo(2);
+    }
+
+    private static void receiveAllBut(ClusterInvalidationBus bus, List<byte[]> datagrams, int lost) throws IOException {
+        for (int i = 0; i < datagrams.size(); i++) {
+            if (i != lost) {
+                bus.receive(MulticastInvalidationTransport.decode(datagrams.get(i), datagrams.get(i).length));
+            }
+        }
+    }
+
+    private static final class RecordingTransport implements InvalidationTransport {
+
+        private final List<InvalidationBatch> sent = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean down;
+
+        @Override
+        public void start(Consumer<InvalidationBatch> receiver) {
+        }
+
+        @Override
+        public void send(InvalidationBatch batch) {
+            if (down) {
+                throw new IllegalStateException("transport down");
+            }
+            sent.add(batch);
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.urlshortener.cluster;
+
+import org.example.Application;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.expiry.ExpiredMappingSweeper;
+import org.example.urlshortener.service.URLShortenerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Three application contexts in one JVM sharing one database, as three nodes behind a load
+ * balancer would: writes on the first node must become visible through the caches of the others.
+ */
+class ClusterInvalidationIntegrationTest {
+
+    private static final int NODES = 3;
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"database", "in-memory"})
+    @DisplayName("creates, expiry changes and purges on one node invalidate the caches of the other nodes")
+    void writesOnOneNode_areSeenByTheOthers(String transport) {
+        String cluster = "cluster-" + UUID.randomUUID();
+        List<URLShortenerService> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            SpringApplication application = new SpringApplication(Application.class);
+            application.setWebApplicationType(WebApplicationType.NONE);
+            ConfigurableApplicationContext context = application.run(
+                    "--logging.level.root=WARN", "--logging.level.org.example.urlshortener=WARN",
+                    "--spring.datasource.url=jdbc:h2:mem:" + cluster + ";DB_CLOSE_DELAY=-1",
+                    "--spring.jmx.enabled=false",
+                    "--app.cluster.transport=" + transport, "--app.cluster.in-memory.channel=" + cluster,
+                    "--app.cluster.database.poll-interval=20ms");
+            contexts.add(context);
+            nodes.add(context.getBean("urlShortenerService", URLShortenerService.class));
+        }
+        URLShortenerService writer = nodes.get(0);
+        List<URLShortenerService> readers = nodes.subList(1, NODES);
+
+        // A code created on one node passes the other nodes' Bloom filters, which were loaded before it existed
+        String shortUrl = writer.shortenUrl("https://example.com/cluster", LocalDateTime.now().plusHours(1)).shortUrl();
+        String shortCode = shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+        for (URLShortenerService reader : readers) {
+            eventually(() -> assertThat(reader.getOriginalUrl(shortCode)).isEqualTo("https://example.com/cluster"));
+        }
+
+        // Extending the expiry replaces the mapping the readers now hold in their caches
+        LocalDateTime extended = LocalDateTime.now().plusDays(1);
+        writer.shortenUrl("https://example.com/cluster", extended);
+        for (URLShortenerService reader : readers) {
+            eventually(() -> assertThat(reader.getUrlMapping(shortCode).expiresAt()).isAfter(extended.minusMinutes(1)));
+        }
+
+        // A purge on the writer drops the readers' cached (expired) copies, so they answer 404 instead of 410
+        String expiringUrl = writer.shortenUrl("https://example.com/cluster/expiring", LocalDateTime.now().plusSeconds(1))
+                .shortUrl();
+        String expiringCode = expiringUrl.substring(expiringUrl.lastIndexOf('/') + 1);
+        for (URLShortenerService reader : readers) {
+            eventually(() -> assertThat(reader.getOriginalUrl(expiringCode)).isNotNull());
+        }
+        eventually(() -> assertThat(contexts.get(0).getBean(ExpiredMappingSweeper.class).sweep()).isEqualTo(1));
+        for (URLShortenerService reader : readers) {
+            eventually(() -> assertThatThrownBy(() -> reader.getOriginalUrl(expiringCode))
+                    .isInstanceOf(URLShortenerServiceException.class)
+                    .extracting("status").isEqualTo(HttpStatus.NOT_FOUND));
+        }
+    }
+
+    private static void eventually(Runnable assertion) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError | URLShortenerServiceException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
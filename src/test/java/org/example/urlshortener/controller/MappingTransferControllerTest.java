@@ -0,0 +1,92 @@
+package org.example.urlshortener.controller;
+
+import org.example.urlshortener.model.ImportResponse;
+import org.example.urlshortener.transfer.MappingFormat;
+import org.example.urlshortener.transfer.MappingTransfer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = MappingTransferController.class)
+class MappingTransferControllerTest {
+
+    private static final String LINE = "{\"shortCode\":\"abc\"}\n";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MappingTransfer mappingTransfer;
+
+    @Test
+    @DisplayName("GET /admin/export?format=binary&gzip=true → gzip-encoded binary stream")
+    void export_gzipBinary() throws Exception {
+        when(mappingTransfer.export(any(OutputStream.class), eq(MappingFormat.BINARY))).thenAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(0).write(LINE.getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+
+        byte[] body = mockMvc.perform(get("/admin/export").param("format", "binary").param("gzip", "true"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_OCTET_STREAM_VALUE))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(LINE);
+        }
+    }
+
+    @Test
+    @DisplayName("GET /admin/export?format=csv → 400")
+    void export_unknownFormat() throws Exception {
+        mockMvc.perform(get("/admin/export").param("format", "csv"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Unknown format csv, expected ndjson or binary"));
+    }
+
+    @Test
+    @DisplayName("POST /admin/import with gzip NDJSON → decompressed stream imported, summary returned")
+    void import_gzipNdjson() throws Exception {
+        when(mappingTransfer.importMappings(any(InputStream.class), eq(MappingFormat.NDJSON))).thenAnswer(invocation -> {
+            assertThat(new String(invocation.<InputStream>getArgument(0).readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo(LINE);
+            return new ImportResponse(1, 0, 0, 5, 200);
+        });
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(LINE.getBytes(StandardCharsets.UTF_8));
+        }
+
+        mockMvc.perform(post("/admin/import")
+                        .contentType(URLShortenerController.APPLICATION_NDJSON_VALUE)
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .content(gzipped.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rowsPerSecond").value(200));
+    }
+}
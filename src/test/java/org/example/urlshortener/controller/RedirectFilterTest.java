@@ -0,0 +1,116 @@
+package org.example.urlshortener.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.urlshortener.analytics.ClickAnalytics;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.ratelimit.ClientRateLimiter;
+import org.example.urlshortener.ratelimit.TokenBucketRateLimiter;
+import org.example.urlshortener.service.URLShortenerService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class RedirectFilterTest {
+
+    private final URLShortenerService urlShortenerService = mock(URLShortenerService.class);
+    private final ClickAnalytics clickAnalytics = mock(ClickAnalytics.class);
+
+    @Test
+    @DisplayName("GET /{shortCode} → configured status, Location and Cache-Control without reaching the chain")
+    void redirect_knownCode_writesRedirect() throws Exception {
+        when(urlShortenerService.getOriginalUrl("abc123")).thenReturn("https://example.com/target");
+        RedirectFilter filter = new RedirectFilter(urlShortenerService, clickAnalytics, new ObjectMapper(),
+                new RedirectHeaders(HttpStatus.MOVED_PERMANENTLY, "public, max-age=300"), null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/abc123"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(301);
+        assertThat(response.getHeader("Location")).isEqualTo("https://example.com/target");
+        assertThat(response.getHeader("Cache-Control")).isEqualTo("public, max-age=300");
+        assertThat(response.getContentLength()).isZero();
+        assertThat(chain.getRequest()).isNull();
+        verify(clickAnalytics).record("abc123");
+    }
+
+    @Test
+    @DisplayName("an unknown code → the exception handler's JSON error and no click")
+    void redirect_unknownCode_writesErrorResponse() throws Exception {
+        when(urlShortenerService.getOriginalUrl("missing"))
+                .thenThrow(new URLShortenerServiceException(HttpStatus.NOT_FOUND, "Short code not found - missing"));
+        RedirectFilter filter = new RedirectFilter(urlShortenerService, clickAnalytics, new ObjectMapper(),
+                new RedirectHeaders(HttpStatus.FOUND, ""), null);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/missing"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(404);
+        assertThat(response.getContentType()).isEqualTo("application/json");
+        assertThat(response.getContentAsString()).isEqualTo(
+                "{\"title\":\"url-shortener-error\",\"status\":404,\"message\":\"Short code not found - missing\"}");
+        assertThat(response.getHeader("Cache-Control")).isNull();
+        verifyNoInteractions(clickAnalytics);
+    }
+
+    @Test
+    @DisplayName("a client over its redirect budget gets 429 with Retry-After and is not looked up")
+    void redirect_overBudget_tooManyRequests() throws Exception {
+        ClientRateLimiter rateLimiter = new ClientRateLimiter(new TokenBucketRateLimiter(1, 1, 100),
+                new TokenBucketRateLimiter(1, 1, 100), "X-API-Key", 10);
+        when(urlShortenerService.getOriginalUrl("abc123")).thenReturn("https://example.com/target");
+        RedirectFilter filter = new RedirectFilter(urlShortenerService, clickAnalytics, new ObjectMapper(),
+                new RedirectHeaders(HttpStatus.FOUND, null), rateLimiter);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/abc123"), new MockHttpServletResponse(),
+                new MockFilterChain());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/abc123"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(response.getContentAsString()).contains("Too many requests");
+        verify(urlShortenerService, times(1)).getOriginalUrl("abc123");
+    }
+
+    @ParameterizedTest
+    @CsvSource({"POST,/abc123", "GET,/", "GET,/info/abc123", "GET,/shorten", "GET,/actuator",
+            "GET,/swagger-ui.html", "GET,/abc%20123", "GET,/abc123/"})
+    @DisplayName("anything other than a GET of a single short-code segment continues down the chain")
+    void otherRequests_passThrough(String method, String uri) throws Exception {
+        RedirectFilter filter = new RedirectFilter(urlShortenerService, clickAnalytics, new ObjectMapper(),
+                new RedirectHeaders(HttpStatus.FOUND, null), null);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest(method, uri), new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isNotNull();
+        verify(urlShortenerService, never()).getOriginalUrl(anyString());
+    }
+
+    @Test
+    @DisplayName("the short code is read after the context path")
+    void shortCode_underContextPath() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/app/abc123");
+        request.setContextPath("/app");
+
+        assertThat(RedirectFilter.shortCode(request)).isEqualTo("abc123");
+    }
+
+    @Test
+    @DisplayName("a status that is not a redirect is rejected")
+    void constructor_nonRedirectStatus_throws() {
+        assertThatThrownBy(() -> new RedirectHeaders(HttpStatus.OK, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
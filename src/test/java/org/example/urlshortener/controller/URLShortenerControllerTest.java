@@ -1,116 +1,293 @@
 package org.example.urlshortener.controller;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.urlshortener.analytics.ClickAnalytics;
+import org.example.urlshortener.config.ReactiveConfig;
 import org.example.urlshortener.exception.enumeration.UrlShortenerError;
+import org.example.urlshortener.exception.handler.RateLimitExceededException;
 import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.model.BatchShortenResponse;
+import org.example.urlshortener.model.BatchShortenResult;
+import org.example.urlshortener.model.ClickBucketResponse;
+import org.example.urlshortener.model.ClickStatsResponse;
 import org.example.urlshortener.model.ShortenResponse;
 import org.example.urlshortener.model.UrlMappingResponse;
+import org.example.urlshortener.ratelimit.Budget;
+import org.example.urlshortener.ratelimit.ClientRateLimiter;
+import org.example.urlshortener.service.ReactiveURLShortenerService;
 import org.example.urlshortener.service.URLShortenerService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.client.MockMvcWebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(controllers = URLShortenerController.class)
+/**
+ * The endpoint cases run against both web stacks: the servlet {@link URLShortenerController} and
+ * the WebFlux routes of the {@code reactive} profile, whose service hands its calls to the same
+ * mocked {@link URLShortenerService}. Batch uploads and bean validation of the request body only
+ * exist on the servlet stack.
+ */
+@WebMvcTest(controllers = URLShortenerController.class, properties = "app.batch.max-size=3")
 class URLShortenerControllerTest {
 
+    enum Stack { SERVLET, REACTIVE }
+
     @Autowired
     private MockMvc mockMvc;
 
     @MockBean
     private URLShortenerService urlShortenerService;
 
+    @MockBean
+    private ClickAnalytics clickAnalytics;
+
+    @MockBean
+    private ClientRateLimiter clientRateLimiter;
+
     private final String BASE = "http://short.ly/";
 
-    @Test
+    private static final String CACHE_CONTROL = "public, max-age=300";
+
+    @TestConfiguration
+    static class RedirectConfig {
+
+        @Bean
+        RedirectHeaders redirectHeaders() {
+            return new RedirectHeaders(HttpStatus.FOUND, CACHE_CONTROL);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(clientRateLimiter.apiKeyHeader()).thenReturn("X-API-Key");
+    }
+
+    private WebTestClient client(Stack stack) {
+        if (stack == Stack.SERVLET) {
+            return MockMvcWebTestClient.bindTo(mockMvc).build();
+        }
+        URLShortenerHandler handler = new URLShortenerHandler(ReactiveURLShortenerService.offloading(urlShortenerService),
+                clickAnalytics, new ReactiveRedirectHeaders(HttpStatus.FOUND, CACHE_CONTROL), clientRateLimiter);
+        // Spring Boot writes dates as ISO strings; mirror that outside the application context
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        return WebTestClient.bindToRouterFunction(ReactiveConfig.routes(handler))
+                .handlerStrategies(HandlerStrategies.builder()
+                        .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+                        .build())
+                .build();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Stack.class)
     @DisplayName("POST /shorten → 201 + { shortUrl } when input is valid")
-    void shorten_validInput_returnsShortUrl() throws Exception {
+    void shorten_validInput_returnsShortUrl(Stack stack) {
         String inputUrl = "https://www.originenergy.com.au/plans.html";
         String expected = "http://short.ly/abc12345";
 
-        when(urlShortenerService.shortenUrl(inputUrl))
+        when(urlShortenerService.shortenUrl(inputUrl, null))
                 .thenReturn(new ShortenResponse(expected));
 
-        mockMvc.perform(post("/shorten")
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .content("{\"originalUrl\":\"" + inputUrl + "\"}"))
-                .andExpect(status().isCreated())
-                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.shortUrl").value(expected));
+        client(stack).post().uri("/shorten")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"originalUrl\":\"" + inputUrl + "\"}")
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody().jsonPath("$.shortUrl").isEqualTo(expected);
     }
 
-    @Test
+    @ParameterizedTest
+    @EnumSource(Stack.class)
+    @DisplayName("POST /shorten → 429 + Retry-After when the client is over its create budget")
+    void shorten_overBudget_returns429(Stack stack) {
+        doThrow(new RateLimitExceededException(3)).when(clientRateLimiter)
+                .check(eq(Budget.CREATE), any(HttpServletRequest.class));
+        doThrow(new RateLimitExceededException(3)).when(clientRateLimiter)
+                .check(eq(Budget.CREATE), any(), anyString(), anyInt());
+
+        client(stack).post().uri("/shorten")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"originalUrl\":\"https://example.com\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "3")
+                .expectBody().jsonPath("$.message").isEqualTo(UrlShortenerError.RATE_LIMITED.getMessage());
+        verifyNoInteractions(urlShortenerService);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Stack.class)
     @DisplayName("POST /shorten → 400 when URL format is invalid")
-    void shorten_invalidUrl_returns400() throws Exception {
-        when(urlShortenerService.shortenUrl("not-a-url"))
+    void shorten_invalidUrl_returns400(Stack stack) {
+        when(urlShortenerService.shortenUrl("not-a-url", null))
                 .thenThrow(new URLShortenerServiceException(HttpStatus.BAD_REQUEST,"Invalid URL format provided - not-a-url"));
 
+        client(stack).post().uri("/shorten")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"originalUrl\":\"not-a-url\"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").value(org.hamcrest.Matchers.containsString("Invalid URL format"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(Stack.class)
+    @DisplayName("POST /shorten → 400 when originalUrl is blank")
+    void shorten_blankUrl_returns400(Stack stack) {
+        client(stack).post().uri("/shorten")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"originalUrl\":\" \"}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("originalUrl: must not be blank");
+        verifyNoInteractions(urlShortenerService);
+    }
+
+    @Test
+    @DisplayName("POST /shorten → 400 when expiresAt is in the past")
+    void shorten_pastExpiry_returns400() throws Exception {
         mockMvc.perform(post("/shorten")
                         .contentType(MediaType.APPLICATION_JSON)
-                        .content("{\"originalUrl\":\"not-a-url\"}"))
+                        .content("{\"originalUrl\":\"https://example.com\",\"expiresAt\":\"2001-01-01T00:00:00\"}"))
                 .andExpect(status().isBadRequest())
-                .andExpect(jsonPath("$.message").value(org.hamcrest.Matchers.containsString("Invalid URL format")));
+                .andExpect(jsonPath("$.message").value(org.hamcrest.Matchers.containsString("expiresAt")));
+        verifyNoInteractions(urlShortenerService);
     }
 
-    @Test
-    @DisplayName("GET /{code} → 302 redirect to original URL when code exists")
-    void redirect_existingCode_redirects() throws Exception {
+    @ParameterizedTest
+    @EnumSource(Stack.class)
+    @DisplayName("GET /{code} → 410 when the link has expired")
+    void redirect_expiredCode_returns410(Stack stack) {
+        when(urlShortenerService.getOriginalUrl("expired1"))
+                .thenThrow(new URLShortenerServiceException(HttpStatus.GONE,
+                        UrlShortenerError.SHORT_URL_EXPIRED.getMessage(), false));
+
+        client(stack).get().uri("/expired1")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.GONE)
+                .expectBody().jsonPath("$.message").isEqualTo(UrlShortenerError.SHORT_URL_EXPIRED.getMessage());
+        verifyNoInteractions(clickAnalytics);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Stack.class)
+    @DisplayName("GET /{code} → redirect to the original URL when code exists")
+    void redirect_existingCode_redirects(Stack stack) {
         String code = "abc12345";
         String original = "https://www.originenergy.com.au/plans.html";
 
-       when(urlShortenerService.getOriginalUrl(code))
+        when(urlShortenerService.getOriginalUrl(code))
                 .thenReturn(original);
 
-        mockMvc.perform(get("/" + code))
-                .andExpect(status().is3xxRedirection())
-                .andExpect(redirectedUrl(original));
+        client(stack).get().uri("/" + code)
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().location(original);
+        verify(clickAnalytics).record(code);
     }
 
-    @Test
+    @ParameterizedTest
+    @EnumSource(Stack.class)
+    @DisplayName("GET /{code} → the configured redirect status and Cache-Control")
+    void redirect_existingCode_usesRedirectHeaders(Stack stack) {
+        when(urlShortenerService.getOriginalUrl("abc12345")).thenReturn("https://example.com/page");
+
+        client(stack).get().uri("/abc12345")
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().location("https://example.com/page")
+                .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Stack.class)
+    @DisplayName("GET /{code} → 429 + Retry-After when the client is over its redirect budget")
+    void redirect_overBudget_returns429(Stack stack) {
+        doThrow(new RateLimitExceededException(1)).when(clientRateLimiter)
+                .check(eq(Budget.REDIRECT), any(HttpServletRequest.class));
+        doThrow(new RateLimitExceededException(1)).when(clientRateLimiter)
+                .check(eq(Budget.REDIRECT), any(), anyString(), anyInt());
+
+        client(stack).get().uri("/abc12345")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "1");
+        verifyNoInteractions(urlShortenerService, clickAnalytics);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Stack.class)
     @DisplayName("GET /{code} → 404 when code not found")
-    void redirect_unknownCode_returns404() throws Exception {
+    void redirect_unknownCode_returns404(Stack stack) {
         when(urlShortenerService.getOriginalUrl(anyString()))
                 .thenThrow(new URLShortenerServiceException(HttpStatus.NOT_FOUND,"Short URL not found"));
 
-        mockMvc.perform(get("/doesNotExist"))
-                .andExpect(status().isNotFound())
-                .andExpect(jsonPath("$.message").value(org.hamcrest.Matchers.containsString("not found")));
+        client(stack).get().uri("/doesNotExist")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").value(org.hamcrest.Matchers.containsString("not found"));
+        verifyNoInteractions(clickAnalytics);
     }
 
-    @Test
+    @ParameterizedTest
+    @EnumSource(Stack.class)
     @DisplayName(" Opt: GET /info/{shortCode} → 200 and correct body when mapping exists")
-    void getInfo_existingMapping_returns200() throws Exception {
+    void getInfo_existingMapping_returns200(Stack stack) {
         String code = "abc12345";
         String original = "https://example.com/page";
         LocalDateTime createdAt = LocalDateTime.of(2025, 4, 19, 20, 0, 0);
 
         when(urlShortenerService.getUrlMapping(code))
-                .thenReturn(new UrlMappingResponse(original, BASE + code, createdAt));
+                .thenReturn(new UrlMappingResponse(original, BASE + code, createdAt, null));
         String expectedTimestamp = createdAt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
 
-        mockMvc.perform(get("/info/{shortCode}", code))
-                .andExpect(status().isOk())
-                .andExpect(content().contentType("application/json"))
-                .andExpect(jsonPath("$.originalUrl").value(original))
-                .andExpect(jsonPath("$.shortUrl").value(BASE + code))
-                .andExpect(jsonPath("$.createdAt").value(expectedTimestamp));
+        client(stack).get().uri("/info/{shortCode}", code)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("application/json")
+                .expectBody()
+                .jsonPath("$.originalUrl").isEqualTo(original)
+                .jsonPath("$.shortUrl").isEqualTo(BASE + code)
+                .jsonPath("$.createdAt").isEqualTo(expectedTimestamp);
     }
 
-    @Test
+    @ParameterizedTest
+    @EnumSource(Stack.class)
     @DisplayName("Opt: GET /info/{shortCode} → 404 when mapping not found")
-    void getInfo_missingMapping_returns404() throws Exception {
+    void getInfo_missingMapping_returns404(Stack stack) {
         String code = "doesNotExist";
 
         when(urlShortenerService.getUrlMapping(code))
@@ -119,11 +296,105 @@ class URLShortenerControllerTest {
                         UrlShortenerError.SHORT_URL_NOT_FOUND.getMessage()
                 ));
 
-        mockMvc.perform(get("/info/{shortCode}", code))
-                .andExpect(status().isNotFound())
-                .andExpect(content().contentType("application/json"))
-                .andExpect(jsonPath("$.status").value(404))
+        client(stack).get().uri("/info/{shortCode}", code)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectHeader().contentType("application/json")
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(404)
+                .jsonPath("$.message").isEqualTo(UrlShortenerError.SHORT_URL_NOT_FOUND.getMessage());
+    }
+
+    @Test
+    @DisplayName("POST /shorten/batch (JSON array) → 200 + per-item results")
+    void shortenBatch_jsonArray_returnsResults() throws Exception {
+        when(urlShortenerService.shortenUrls(List.of("https://a.com", "bad")))
+                .thenReturn(new BatchShortenResponse(List.of(
+                        BatchShortenResult.success(0, "https://a.com", 201, BASE + "aaaa1111"),
+                        BatchShortenResult.failure(1, "bad", 400, "Invalid URL format provided - bad"))));
+
+        mockMvc.perform(post("/shorten/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"originalUrl\":\"https://a.com\"},{\"originalUrl\":\"bad\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].shortUrl").value(BASE + "aaaa1111"))
+                .andExpect(jsonPath("$.results[1].status").value(400))
+                .andExpect(jsonPath("$.results[1].shortUrl").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("POST /shorten/batch (NDJSON) → malformed lines become per-item errors")
+    void shortenBatch_ndjson_parsesLines() throws Exception {
+        when(urlShortenerService.shortenUrls(Arrays.asList("https://a.com", null, "https://b.com")))
+                .thenReturn(new BatchShortenResponse(List.of()));
+
+        mockMvc.perform(post("/shorten/batch")
+                        .contentType(URLShortenerController.APPLICATION_NDJSON_VALUE)
+                        .content("{\"originalUrl\":\"https://a.com\"}\n{oops\n\n{\"originalUrl\":\"https://b.com\"}\n"))
+                .andExpect(status().isOk());
+
+        verify(urlShortenerService).shortenUrls(Arrays.asList("https://a.com", null, "https://b.com"));
+    }
+
+    @Test
+    @DisplayName("POST /shorten/batch (NDJSON) → 400 at the first item past app.batch.max-size, nothing shortened")
+    void shortenBatch_ndjsonOverLimit_returns400() throws Exception {
+        mockMvc.perform(post("/shorten/batch")
+                        .contentType(URLShortenerController.APPLICATION_NDJSON_VALUE)
+                        .content("{\"originalUrl\":\"https://a.com\"}\n".repeat(4)))
+                .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message")
-                        .value(UrlShortenerError.SHORT_URL_NOT_FOUND.getMessage()));
+                        .value(UrlShortenerError.BATCH_TOO_LARGE.getMessage() + " - 3"));
+
+        verify(urlShortenerService, never()).shortenUrls(any());
+    }
+
+    @Test
+    @DisplayName("POST /shorten/batch → 429 when the client cannot pay for the batch's size, nothing shortened")
+    void shortenBatch_overBudgetForSize_returns429() throws Exception {
+        doThrow(new RateLimitExceededException(5)).when(clientRateLimiter).checkBatch(any(), eq(3));
+
+        mockMvc.perform(post("/shorten/batch")
+                        .contentType(URLShortenerController.APPLICATION_NDJSON_VALUE)
+                        .content("{\"originalUrl\":\"https://a.com\"}\n".repeat(3)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "5"));
+
+        verify(clientRateLimiter).check(eq(Budget.CREATE), any());
+        verify(urlShortenerService, never()).shortenUrls(any());
+    }
+
+    @ParameterizedTest
+    @EnumSource(Stack.class)
+    @DisplayName("GET /stats/{shortCode} → 200 with totals and per-minute buckets")
+    void getStats_existingCode_returns200(Stack stack) {
+        String code = "abc12345";
+        LocalDateTime bucket = LocalDateTime.of(2025, 4, 19, 20, 1, 0);
+
+        when(clickAnalytics.getStats(code))
+                .thenReturn(new ClickStatsResponse(code, 7, List.of(new ClickBucketResponse(bucket, 7))));
+
+        client(stack).get().uri("/stats/{shortCode}", code)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.shortCode").isEqualTo(code)
+                .jsonPath("$.totalClicks").isEqualTo(7)
+                .jsonPath("$.buckets[0].bucketStart").isEqualTo(bucket.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME))
+                .jsonPath("$.buckets[0].clicks").isEqualTo(7);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Stack.class)
+    @DisplayName("GET /stats/{shortCode} → 404 when code not found")
+    void getStats_unknownCode_returns404(Stack stack) {
+        when(urlShortenerService.getUrlMapping("doesNotExist"))
+                .thenThrow(new URLShortenerServiceException(HttpStatus.NOT_FOUND,
+                        UrlShortenerError.SHORT_URL_NOT_FOUND.getMessage()));
+
+        client(stack).get().uri("/stats/{shortCode}", "doesNotExist")
+                .exchange()
+                .expectStatus().isNotFound();
+        verifyNoInteractions(clickAnalytics);
     }
 }
@@ -0,0 +1,75 @@
+package org.example.urlshortener.expiry;
+
+import org.example.urlshortener.cache.UrlMappingCache;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ExpiredMappingSweeperTest {
+
+    @Autowired
+    private UrlMappingRepository repository;
+
+    @Autowired
+    private UrlMappingCache cache;
+
+    private ExpiredMappingSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        cache.invalidateAll();
+        sweeper = new ExpiredMappingSweeper(repository, cache, null, null, Duration.ofMinutes(1), 3, Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("sweep deletes only expired mappings, in batches, and evicts them from the cache")
+    void sweep_deletesExpiredInBatches() {
+        LocalDateTime now = LocalDateTime.now();
+        List<UrlMappingEntity> mappings = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            // Shared expiry instants exercise the id tie-break of the keyset
+            mappings.add(new UrlMappingEntity("https://example.com/expired/" + i, "expd000" + i,
+                    now.minusDays(1), now.minusHours(1 + i % 2)));
+        }
+        mappings.add(new UrlMappingEntity("https://example.com/live", "live0001", now, now.plusDays(1)));
+        mappings.add(new UrlMappingEntity("https://example.com/forever", "forever1", now, null));
+        repository.saveAll(mappings);
+        cache.put(mappings.get(0));
+
+        assertThat(sweeper.sweep()).isEqualTo(7);
+
+        assertThat(repository.findAll()).extracting(UrlMappingEntity::getShortCode)
+                .containsExactlyInAnyOrder("live0001", "forever1");
+        assertThat(cache.getIfPresent("expd0000")).isNull();
+        assertThat(sweeper.purgedCount()).isEqualTo(7);
+        assertThat(sweeper.batchCount()).isEqualTo(3);
+        assertThat(sweeper.sweep()).isZero();
+    }
+
+    @Test
+    @DisplayName("sweep keeps a mapping whose expiry was extended after it was read")
+    void sweep_extendedExpiry_keepsMapping() {
+        LocalDateTime now = LocalDateTime.now();
+        UrlMappingEntity mapping = repository.save(new UrlMappingEntity("https://example.com/revived", "revived1",
+                now.minusDays(1), now.minusHours(1)));
+
+        repository.updateExpiresAt(mapping.getId(), now.plusDays(1));
+
+        assertThat(repository.deleteExpiredByIdIn(List.of(mapping.getId()), now)).isZero();
+        assertThat(sweeper.sweep()).isZero();
+        assertThat(repository.findByShortCode("revived1")).isPresent();
+    }
+}
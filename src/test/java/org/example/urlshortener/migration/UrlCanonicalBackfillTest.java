@@ -0,0 +1,115 @@
+package org.example.urlshortener.migration;
+
+import com.google.common.hash.Hashing;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.MigrationMarkerRepository;
+import org.example.urlshortener.repository.UrlMappingRepository;
+import org.example.urlshortener.service.URLShortenerService;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.example.urlshortener.util.UrlDigest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class UrlCanonicalBackfillTest {
+
+    @Autowired
+    private UrlMappingRepository repository;
+
+    @Autowired
+    private MigrationMarkerRepository markerRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UrlCanonicalizer canonicalizer;
+
+    @Autowired
+    @Qualifier("urlShortenerService")
+    private URLShortenerService service;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        markerRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("legacy rows are rekeyed to the canonical digest with their URL kept, and re-shortening finds them")
+    void backfill_rewritesLegacyRows() {
+        LocalDateTime now = LocalDateTime.now();
+        // Saved as a version without canonicalization did: raw URL, digest of the raw URL
+        repository.saveAll(List.of(
+                new UrlMappingEntity("HTTPS://Example.COM:443/a", "legacy01", now),
+                new UrlMappingEntity("https://example.com/b", "canon001", now),
+                new UrlMappingEntity("https://EXAMPLE.com/b", "legacy02", now),
+                new UrlMappingEntity("https://example.com:443/c", "legacy03", now),
+                new UrlMappingEntity("https://Example.com/c", "legacy04", now)));
+
+        backfill(canonicalizer).afterSingletonsInstantiated();
+
+        assertThat(repository.findByShortCode("legacy01")).get()
+                .extracting(UrlMappingEntity::getOriginalUrl, UrlMappingEntity::getUrlDigest)
+                .containsExactly("HTTPS://Example.COM:443/a", UrlDigest.of("https://example.com/a"));
+        // The canonical URL already had a row: the legacy one still redirects but gives up the digest
+        assertThat(repository.findByShortCode("legacy02")).get()
+                .extracting(UrlMappingEntity::getOriginalUrl, UrlMappingEntity::getUrlDigest)
+                .containsExactly("https://EXAMPLE.com/b", null);
+        assertThat(repository.findByShortCode("legacy03").get().getUrlDigest()).isEqualTo(UrlDigest.of("https://example.com/c"));
+        assertThat(repository.findByShortCode("legacy04").get().getUrlDigest()).isNull();
+
+        assertThat(service.shortenUrl("https://EXAMPLE.com/a", null).shortUrl()).endsWith("/legacy01");
+        assertThat(service.shortenUrl("https://example.com/b", null).shortUrl()).endsWith("/canon001");
+        assertThat(service.shortenUrl("HTTPS://example.com/c", null).shortUrl()).endsWith("/legacy03");
+        assertThat(repository.count()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("the pass runs once per digest and canonical settings, and never changes a redirect target")
+    void backfill_runsOncePerSettings() {
+        LocalDateTime now = LocalDateTime.now();
+        repository.save(new UrlMappingEntity("https://example.com/e?utm_source=x&id=1", "legacy06", now));
+        backfill(canonicalizer).afterSingletonsInstantiated();
+        // Written behind the marker's back: a pass under the same settings does not see it
+        repository.save(new UrlMappingEntity("https://Example.com/f", "legacy07", now));
+
+        backfill(canonicalizer).afterSingletonsInstantiated();
+        assertThat(repository.findByShortCode("legacy07").get().getUrlDigest()).isEqualTo(UrlDigest.of("https://Example.com/f"));
+
+        backfill(new UrlCanonicalizer(false, List.of("utm_*"))).afterSingletonsInstantiated();
+        assertThat(repository.findByShortCode("legacy06")).get()
+                .extracting(UrlMappingEntity::getOriginalUrl, UrlMappingEntity::getUrlDigest)
+                .containsExactly("https://example.com/e?utm_source=x&id=1", UrlDigest.of("https://example.com/e?id=1"));
+        assertThat(repository.findByShortCode("legacy07").get().getUrlDigest()).isEqualTo(UrlDigest.of("https://example.com/f"));
+    }
+
+    private UrlCanonicalBackfill backfill(UrlCanonicalizer canonicalizer) {
+        return new UrlCanonicalBackfill(repository, markerRepository, transactionTemplate, canonicalizer, 2);
+    }
+
+    @Test
+    @DisplayName("rows keyed by the former murmur3 digest get the current digest, and re-shortening finds them")
+    void backfill_rewritesLegacyDigests() {
+        UrlMappingEntity legacy = new UrlMappingEntity("https://example.com/d", "legacy05", LocalDateTime.now());
+        legacy.setUrlDigest(Hashing.murmur3_128().hashString("https://example.com/d", StandardCharsets.UTF_8).toString());
+        repository.save(legacy);
+
+        backfill(canonicalizer).afterSingletonsInstantiated();
+
+        assertThat(repository.findByShortCode("legacy05").get().getUrlDigest()).isEqualTo(UrlDigest.of("https://example.com/d"));
+        assertThat(service.shortenUrl("https://example.com/d", null).shortUrl()).endsWith("/legacy05");
+        assertThat(repository.count()).isEqualTo(1);
+    }
+}
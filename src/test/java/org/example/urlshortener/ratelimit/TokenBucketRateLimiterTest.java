@@ -0,0 +1,137 @@
+package org.example.urlshortener.ratelimit;
+
+import org.example.urlshortener.exception.handler.RateLimitExceededException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+
+    @Test
+    @DisplayName("a full bucket admits the burst, then refuses with the wait until the next permit")
+    void tryAcquire_burstThenRefuse() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 20, 100, now::get);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(limiter.tryAcquire("client")).isZero();
+        }
+
+        assertThat(limiter.tryAcquire("client")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.rejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("permits come back at the configured rate, never beyond the burst")
+    void tryAcquire_refillsAtRate() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 20, 100, now::get);
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire("client");
+        }
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+        assertThat(limiter.tryAcquire("client")).isZero();
+        assertThat(limiter.tryAcquire("client")).isZero();
+        assertThat(limiter.tryAcquire("client")).isPositive();
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        int admitted = 0;
+        while (limiter.tryAcquire("client") == 0) {
+            admitted++;
+        }
+        assertThat(admitted).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("several permits are taken together or not at all")
+    void tryAcquire_permitsAllOrNothing() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 20, 100, now::get);
+
+        assertThat(limiter.tryAcquire("client", 15)).isZero();
+        assertThat(limiter.tryAcquire("client", 6)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.tryAcquire("client", 5)).isZero();
+        assertThat(limiter.tryAcquire("client")).isPositive();
+    }
+
+    @Test
+    @DisplayName("a charge beyond the burst needs a full bucket and leaves the client waiting out the excess")
+    void tryAcquire_overBurstRunsIntoDebt() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 20, 100, now::get);
+        limiter.tryAcquire("client");
+
+        assertThat(limiter.tryAcquire("client", 50)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.tryAcquire("client", 50)).isZero();
+        // 50 permits at 10 a second: the next one comes 3 seconds on, once the 30 over the burst are repaid
+        assertThat(limiter.tryAcquire("client")).isEqualTo(TimeUnit.SECONDS.toNanos(3) + TimeUnit.MILLISECONDS.toNanos(100));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertThat(limiter.tryAcquire("client")).isZero();
+    }
+
+    @Test
+    @DisplayName("clients draw on separate buckets")
+    void tryAcquire_clientsIndependent() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 100, now::get);
+
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isPositive();
+        assertThat(limiter.tryAcquire("b")).isZero();
+    }
+
+    @Test
+    @DisplayName("buckets are bounded by the client limit")
+    void buckets_bounded() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 20, 100, now::get);
+
+        for (int i = 0; i < 1_000; i++) {
+            limiter.tryAcquire("client" + i);
+        }
+        limiter.cleanUp();
+        assertThat(limiter.clientCount()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("clients are keyed by API key when sent, else by address, with Retry-After rounded up")
+    void clientRateLimiter_keysAndRetryAfter() {
+        ClientRateLimiter rateLimiter = new ClientRateLimiter(new TokenBucketRateLimiter(0.5, 1, 100, now::get),
+                new TokenBucketRateLimiter(100, 100, 100, now::get), "X-API-Key", 10);
+        MockHttpServletRequest anonymous = new MockHttpServletRequest("POST", "/shorten");
+        MockHttpServletRequest withKey = new MockHttpServletRequest("POST", "/shorten");
+        withKey.addHeader("X-API-Key", "partner");
+
+        rateLimiter.check(Budget.CREATE, anonymous);
+        rateLimiter.check(Budget.CREATE, withKey);
+        rateLimiter.check(Budget.REDIRECT, anonymous);
+
+        assertThatThrownBy(() -> rateLimiter.check(Budget.CREATE, anonymous))
+                .isInstanceOfSatisfying(RateLimitExceededException.class,
+                        ex -> assertThat(ex.getRetryAfterSeconds()).isEqualTo(2));
+    }
+
+    @Test
+    @DisplayName("a batch pays one create permit per urls-per-permit URLs, beyond the one it was admitted with")
+    void clientRateLimiter_chargesBatchBySize() {
+        ClientRateLimiter rateLimiter = new ClientRateLimiter(new TokenBucketRateLimiter(1, 5, 100, now::get),
+                new TokenBucketRateLimiter(100, 100, 100, now::get), "X-API-Key", 10);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/shorten/batch");
+
+        assertThat(rateLimiter.batchPermits(1)).isEqualTo(1);
+        assertThat(rateLimiter.batchPermits(10)).isEqualTo(1);
+        assertThat(rateLimiter.batchPermits(11)).isEqualTo(2);
+
+        rateLimiter.check(Budget.CREATE, request);
+        rateLimiter.checkBatch(request, 10);
+        rateLimiter.checkBatch(request, 45);
+
+        assertThatThrownBy(() -> rateLimiter.check(Budget.CREATE, request))
+                .isInstanceOf(RateLimitExceededException.class);
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.urlshortener.replica;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica0;
+
+    @Mock
+    private DataSource replica1;
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replica0Connection = mock(Connection.class);
+    private final Connection replica1Connection = mock(Connection.class);
+
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        lenient().when(primary.getConnection()).thenReturn(primaryConnection);
+        lenient().when(replica0.getConnection()).thenReturn(replica0Connection);
+        lenient().when(replica1.getConnection()).thenReturn(replica1Connection);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica0", replica0);
+        replicas.put("replica1", replica1);
+        routing = new ReplicaRoutingDataSource(primary, replicas, Duration.ofMinutes(1), Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    @DisplayName("read-only transactions take the replicas in turn, everything else goes to the primary")
+    void getConnection_routesByReadOnlyFlag() throws SQLException {
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.getConnection()).isSameAs(replica0Connection);
+        assertThat(routing.getConnection()).isSameAs(replica1Connection);
+        assertThat(routing.getConnection()).isSameAs(replica0Connection);
+        assertThat(ReplicaRoutingDataSource.onPrimary(this::connection)).isSameAs(primaryConnection);
+
+        assertThat(routing.connectionCount("replica0")).isEqualTo(2);
+        assertThat(routing.connectionCount("replica1")).isEqualTo(1);
+        assertThat(routing.connectionCount(ReplicaRoutingDataSource.PRIMARY)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("a replica that cannot connect is skipped until a health check finds it valid again")
+    void getConnection_unavailableReplica_failsOver() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(replica0.getConnection()).thenThrow(new SQLTransientConnectionException("down"));
+
+        assertThat(routing.getConnection()).isSameAs(replica1Connection);
+        assertThat(routing.getConnection()).isSameAs(replica1Connection);
+        assertThat(routing.isHealthy("replica0")).isFalse();
+        assertThat(routing.failoverCount()).isEqualTo(1);
+
+        when(replica1.getConnection()).thenThrow(new SQLTransientConnectionException("down"));
+        routing.checkHealth();
+        assertThat(routing.healthyReplicaCount()).isZero();
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+
+        doReturn(replica0Connection).when(replica0).getConnection();
+        when(replica0Connection.isValid(anyInt())).thenReturn(true);
+        routing.checkHealth();
+        assertThat(routing.isHealthy("replica0")).isTrue();
+        assertThat(routing.getConnection()).isSameAs(replica0Connection);
+    }
+
+    private Connection connection() {
+        try {
+            return routing.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
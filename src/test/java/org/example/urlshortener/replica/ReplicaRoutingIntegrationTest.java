@@ -0,0 +1,114 @@
+package org.example.urlshortener.replica;
+
+import org.example.urlshortener.cache.ShortCodeBloomFilter;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingRepository;
+import org.example.urlshortener.service.URLShortenerService;
+import org.example.urlshortener.support.H2Replicator;
+import org.example.urlshortener.util.UrlDigest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A primary and two replicas, all in-memory H2 databases, with {@link H2Replicator} standing in
+ * for replication: between its runs the replicas lag behind the primary.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingIntegrationTest.PRIMARY,
+        "app.replica.enabled=true",
+        "app.replica.urls=" + ReplicaRoutingIntegrationTest.REPLICA_0 + "," + ReplicaRoutingIntegrationTest.REPLICA_1,
+        "app.replica.health-check-interval=1h"
+})
+class ReplicaRoutingIntegrationTest {
+
+    static final String PRIMARY = "jdbc:h2:mem:replica-routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_0 = "jdbc:h2:mem:replica-routing-0;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_1 = "jdbc:h2:mem:replica-routing-1;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    @Qualifier("urlShortenerService")
+    private URLShortenerService service;
+
+    @Autowired
+    private UrlMappingRepository repository;
+
+    @Autowired
+    private ShortCodeBloomFilter bloomFilter;
+
+    @Autowired
+    private ReplicaRoutingDataSource routing;
+
+    @Autowired
+    private ReplicaReads replicaReads;
+
+    private final H2Replicator replicator = new H2Replicator(PRIMARY, List.of(REPLICA_0, REPLICA_1));
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        replicator.replicate();
+    }
+
+    @Test
+    @DisplayName("lookups of codes this node did not just write are answered by the replicas in turn")
+    void getOriginalUrl_readsFromReplicas() {
+        long replica0Before = routing.connectionCount("replica0");
+        long replica1Before = routing.connectionCount("replica1");
+        for (int i = 0; i < 4; i++) {
+            // Diverged on purpose: the answer shows which database it came from
+            String shortCode = "repl000" + i;
+            for (int replica = 0; replica < 2; replica++) {
+                String url = "https://replica" + replica + ".example/" + i;
+                replicator.replica(replica).update("insert into url_mapping (id, original_url, url_digest, short_code,"
+                        + " created_at) values (?, ?, ?, ?, ?)", 1000 + i, url, UrlDigest.of(url), shortCode,
+                        LocalDateTime.now());
+            }
+            bloomFilter.put(shortCode);
+        }
+
+        assertThat(List.of(service.getOriginalUrl("repl0000"), service.getOriginalUrl("repl0001"),
+                service.getOriginalUrl("repl0002"), service.getOriginalUrl("repl0003")))
+                .allMatch(url -> url.startsWith("https://replica"))
+                .anyMatch(url -> url.startsWith("https://replica0."))
+                .anyMatch(url -> url.startsWith("https://replica1."));
+        assertThat(routing.connectionCount("replica0") - replica0Before
+                + routing.connectionCount("replica1") - replica1Before).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("a code created on this node resolves from the primary before it reaches the replicas")
+    void getOriginalUrl_afterCreate_readsYourWrites() {
+        long primaryReadsBefore = replicaReads.primaryReadCount();
+        String originalUrl = "https://example.com/just-created";
+
+        String shortUrl = service.shortenUrl(originalUrl).shortUrl();
+        String shortCode = shortUrl.substring(shortUrl.lastIndexOf('/') + 1);
+
+        assertThat(service.getOriginalUrl(shortCode)).isEqualTo(originalUrl);
+        assertThat(service.getUrlMapping(shortCode).originalUrl()).isEqualTo(originalUrl);
+        assertThat(replicaReads.primaryReadCount()).isEqualTo(primaryReadsBefore + 1);
+        // The dedupe lookup of a create reads the primary too
+        assertThat(service.shortenUrl(originalUrl).shortUrl()).isEqualTo(shortUrl);
+        assertThat(replicator.replica(0).queryForObject("select count(*) from url_mapping", Long.class)).isZero();
+    }
+
+    @Test
+    @DisplayName("a code another node wrote that is not on the replicas yet is read again from the primary")
+    void getOriginalUrl_missingOnReplica_readsPrimary() {
+        long primaryReadsBefore = replicaReads.primaryReadCount();
+        repository.save(new UrlMappingEntity("https://example.com/elsewhere", "else0001", LocalDateTime.now()));
+        bloomFilter.put("else0001");
+
+        assertThat(service.getOriginalUrl("else0001")).isEqualTo("https://example.com/elsewhere");
+        assertThat(replicaReads.primaryReadCount()).isEqualTo(primaryReadsBefore + 1);
+    }
+}
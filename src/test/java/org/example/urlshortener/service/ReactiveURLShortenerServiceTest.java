@@ -0,0 +1,119 @@
+package org.example.urlshortener.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.urlshortener.cache.OffHeapRedirectIndex;
+import org.example.urlshortener.cache.ShortCodeBloomFilter;
+import org.example.urlshortener.cache.UrlMappingCache;
+import org.example.urlshortener.cluster.ClusterInvalidationBus;
+import org.example.urlshortener.cluster.InMemoryInvalidationTransport;
+import org.example.urlshortener.model.UrlMappingRow;
+import org.example.urlshortener.repository.ReactiveUrlMappingRepository;
+import org.example.urlshortener.strategy.ShortCodeStrategy;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.example.urlshortener.util.UrlDigest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveURLShortenerServiceTest {
+
+    @Mock
+    private ReactiveUrlMappingRepository repository;
+
+    @Mock
+    private R2dbcEntityTemplate template;
+
+    @Mock
+    private ShortCodeStrategy shortCodeStrategy;
+
+    private final UrlMappingCache cache = new UrlMappingCache(100, Duration.ofMinutes(5));
+
+    private final OffHeapRedirectIndex redirectIndex = new OffHeapRedirectIndex(16, 1 << 17);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ClusterInvalidationBus bus;
+
+    private ReactiveURLShortenerService service;
+
+    @BeforeEach
+    void setUp() {
+        bus = new ClusterInvalidationBus(new InMemoryInvalidationTransport("reactive-service-test"), "local", 100,
+                Duration.ofMinutes(1), Duration.ofMinutes(1), redirectIndex::remove, () -> {
+        });
+        service = new ReactiveURLShortenerService(repository, template, cache, new ShortCodeBloomFilter(100, 0.01),
+                shortCodeStrategy, new UrlCanonicalizer(false, List.of()), new URLShortenerMetrics(meterRegistry),
+                redirectIndex, bus);
+        ReflectionTestUtils.setField(service, "baseUrl", "http://short.ly/");
+        ReflectionTestUtils.setField(service, "maxCreateAttempts", 3);
+    }
+
+    @Test
+    @DisplayName("a create is metered, fills the redirect index and is published to the other nodes")
+    void shortenUrl_newMapping_publishesAndIndexes() {
+        String url = "https://example.com/new";
+        when(repository.findByUrlDigest(UrlDigest.of(url))).thenReturn(Mono.empty());
+        when(repository.nextId()).thenReturn(Mono.just(7L));
+        when(shortCodeStrategy.generate(url)).thenReturn("newcode1");
+        when(template.insert(any(UrlMappingRow.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+
+        assertThat(service.shortenUrl(url).block().shortUrl()).isEqualTo("http://short.ly/newcode1");
+
+        assertThat(redirectIndex.get("newcode1").originalUrl()).isEqualTo(url);
+        assertThat(bus.publishedCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("urlshortener.shorten").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("a row read while its code was rewritten answers that read but is not cached")
+    void getUrlMapping_invalidatedDuringRead_notCached() {
+        when(repository.findByShortCode("racing01"))
+                .thenReturn(Mono.fromCallable(() -> {
+                    // A write of the code lands while this read is in flight
+                    cache.invalidate("racing01");
+                    return row("racing01", "https://example.com/stale");
+                }))
+                .thenReturn(Mono.just(row("racing01", "https://example.com/fresh")));
+
+        assertThat(service.getUrlMapping("racing01").block().originalUrl()).isEqualTo("https://example.com/stale");
+        assertThat(service.getUrlMapping("racing01").block().originalUrl()).isEqualTo("https://example.com/fresh");
+        assertThat(service.getUrlMapping("racing01").block().originalUrl()).isEqualTo("https://example.com/fresh");
+
+        verify(repository, times(2)).findByShortCode("racing01");
+        assertThat(meterRegistry.get("urlshortener.info").tag("outcome", "success").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("redirects are answered from the redirect index, which a database read repairs")
+    void getOriginalUrl_readRepairsRedirectIndex() {
+        when(repository.findByShortCode("remote01")).thenReturn(Mono.just(row("remote01", "https://example.com/remote")));
+
+        assertThat(service.getOriginalUrl("remote01").block()).isEqualTo("https://example.com/remote");
+        assertThat(redirectIndex.get("remote01").originalUrl()).isEqualTo("https://example.com/remote");
+        cache.invalidateAll();
+        assertThat(service.getOriginalUrl("remote01").block()).isEqualTo("https://example.com/remote");
+
+        verify(repository, times(1)).findByShortCode("remote01");
+    }
+
+    private static UrlMappingRow row(String shortCode, String originalUrl) {
+        return new UrlMappingRow(1L, originalUrl, UrlDigest.of(originalUrl), shortCode, LocalDateTime.now(), null);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.urlshortener.service;
+
+import org.example.urlshortener.repository.UrlMappingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress test for the create path against the real H2 schema: hundreds of writers race on a
+ * small set of hot URLs plus a stream of unique ones.
+ */
+@SpringBootTest
+class URLShortenerServiceConcurrencyTest {
+
+    private static final int WRITERS = 200;
+    private static final int CALLS_PER_WRITER = 25;
+    private static final int HOT_URLS = 20;
+
+    @Autowired
+    @Qualifier("urlShortenerService")
+    private URLShortenerService service;
+
+    @Autowired
+    private UrlMappingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("concurrent shortenUrl calls produce exactly one mapping per URL with no lost writes")
+    void shortenUrl_concurrentWriters_noDuplicatesOrLostWrites() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        Map<String, Set<String>> codesByUrl = new ConcurrentHashMap<>();
+        List<Future<long[]>> futures = new ArrayList<>();
+
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            futures.add(pool.submit(() -> {
+                start.await();
+                long[] latencies = new long[CALLS_PER_WRITER];
+                for (int i = 0; i < CALLS_PER_WRITER; i++) {
+                    String url = i % 2 == 0
+                            ? "https://example.com/hot/" + (i + writer) % HOT_URLS
+                            : "https://example.com/unique/" + writer + "/" + i;
+                    long began = System.nanoTime();
+                    String shortUrl = service.shortenUrl(url).shortUrl();
+                    latencies[i] = System.nanoTime() - began;
+                    codesByUrl.computeIfAbsent(url, k -> ConcurrentHashMap.newKeySet()).add(shortUrl);
+                }
+                return latencies;
+            }));
+        }
+        start.countDown();
+
+        List<Long> latencies = new ArrayList<>();
+        for (Future<long[]> future : futures) {
+            Arrays.stream(future.get(2, TimeUnit.MINUTES)).forEach(latencies::add);
+        }
+        pool.shutdown();
+
+        int expectedUrls = HOT_URLS + WRITERS * (CALLS_PER_WRITER / 2);
+        assertThat(codesByUrl).hasSize(expectedUrls);
+        assertThat(codesByUrl.values()).allSatisfy(codes -> assertThat(codes).hasSize(1));
+        assertThat(repository.count()).isEqualTo(expectedUrls);
+        Set<String> distinctCodes = codesByUrl.values().stream()
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet());
+        assertThat(distinctCodes).hasSize(expectedUrls);
+
+        latencies.sort(null);
+        long p99 = latencies.get((int) (latencies.size() * 0.99));
+        // Generous bound: writers queue on the connection pool, but retries must never livelock.
+        assertThat(TimeUnit.NANOSECONDS.toMillis(p99)).isLessThan(10_000);
+    }
+}
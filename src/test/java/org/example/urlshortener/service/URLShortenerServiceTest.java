@@ -1,43 +1,85 @@
 package org.example.urlshortener.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.urlshortener.cache.OffHeapRedirectIndex;
+import org.example.urlshortener.cache.ShortCodeBloomFilter;
+import org.example.urlshortener.cache.UrlMappingCache;
+import org.example.urlshortener.cluster.ClusterInvalidationBus;
+import org.example.urlshortener.cluster.InMemoryInvalidationTransport;
+import org.example.urlshortener.cluster.InvalidationBatch;
 import org.example.urlshortener.exception.enumeration.UrlShortenerError;
 import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.model.BatchShortenResponse;
+import org.example.urlshortener.model.BatchShortenResult;
 import org.example.urlshortener.model.ShortenResponse;
 import org.example.urlshortener.model.UrlMappingEntity;
 import org.example.urlshortener.model.UrlMappingResponse;
-import org.example.urlshortener.repository.UrlMappingRepository;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.strategy.HashShortCodeStrategy;
 import org.example.urlshortener.util.ShortCodeGenerator;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.example.urlshortener.util.UrlDigest;
+import org.example.urlshortener.writebehind.WriteBehindWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class URLShortenerServiceTest {
 
     @Mock
-    private UrlMappingRepository repository;
+    private UrlMappingStore repository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private UrlMappingCache cache = new UrlMappingCache(100, Duration.ofMinutes(5));
+
+    @Spy
+    private ShortCodeBloomFilter bloomFilter = new ShortCodeBloomFilter(100, 0.01);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final UrlCanonicalizer canonicalizer = new UrlCanonicalizer(false, List.of());
 
-    @InjectMocks
     private URLShortenerService service;
 
     private static final String BASE_URL = "http://short.ly/";
 
     @BeforeEach
     void setUp() {
+        service = new URLShortenerService(repository, cache, bloomFilter, new HashShortCodeStrategy(repository),
+                new TransactionTemplate(transactionManager), new URLShortenerMetrics(meterRegistry), canonicalizer,
+                null, null, null, null);
         ReflectionTestUtils.setField(service, "baseUrl", BASE_URL);
+        ReflectionTestUtils.setField(service, "maxCreateAttempts", 3);
+        ReflectionTestUtils.setField(service, "maxBatchSize", 10);
+        ReflectionTestUtils.setField(service, "lookupChunkSize", 2);
     }
 
     @Test
@@ -47,29 +89,55 @@ class URLShortenerServiceTest {
         String shortCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
         UrlMappingEntity existingEntity = new UrlMappingEntity(originalUrl, shortCode, LocalDateTime.now());
 
-        when(repository.findByOriginalUrl(originalUrl))
+        when(repository.findByUrlDigest(UrlDigest.of(originalUrl)))
                 .thenReturn(Optional.of(existingEntity));
 
         ShortenResponse response = service.shortenUrl(originalUrl);
 
         assertThat(response.shortUrl()).isEqualTo(BASE_URL + shortCode);
-        verify(repository, never()).save(any(UrlMappingEntity.class));
+        verify(repository, never()).saveAndFlush(any(UrlMappingEntity.class));
     }
 
     @Test
     @DisplayName("shortenUrl should create new mapping when none exists")
     void shortenUrl_newMapping() {
         String originalUrl = "https://example.com/new";
-        when(repository.findByOriginalUrl(originalUrl)).thenReturn(Optional.empty());
+        when(repository.findByUrlDigest(UrlDigest.of(originalUrl))).thenReturn(Optional.empty());
         String expectedCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
         when(repository.findByShortCode(expectedCode)).thenReturn(Optional.empty());
         doAnswer(inv -> inv.getArgument(0))
-                .when(repository).save(any(UrlMappingEntity.class));
+                .when(repository).saveAndFlush(any(UrlMappingEntity.class));
 
         ShortenResponse response = service.shortenUrl(originalUrl);
 
         assertThat(response.shortUrl()).isEqualTo(BASE_URL + expectedCode);
-        verify(repository, times(1)).save(any(UrlMappingEntity.class));
+        verify(repository, times(1)).saveAndFlush(any(UrlMappingEntity.class));
+    }
+
+    @Test
+    @DisplayName("shortenUrl should reuse the mapping of an equivalent spelling of the URL")
+    void shortenUrl_equivalentSpelling_reusesMapping() {
+        String canonicalUrl = "https://example.com/page";
+        UrlMappingEntity existingEntity = new UrlMappingEntity(canonicalUrl, "page0001", LocalDateTime.now());
+        when(repository.findByUrlDigest(UrlDigest.of(canonicalUrl))).thenReturn(Optional.of(existingEntity));
+
+        ShortenResponse response = service.shortenUrl("HTTPS://Example.COM:443/%70age");
+
+        assertThat(response.shortUrl()).isEqualTo(BASE_URL + "page0001");
+        verify(repository, never()).saveAndFlush(any(UrlMappingEntity.class));
+    }
+
+    @Test
+    @DisplayName("shortenUrl should reuse a legacy row kept as submitted and rekeyed to the canonical digest")
+    void shortenUrl_legacyRowKeptAsSubmitted_reusesMapping() {
+        UrlMappingEntity legacy = new UrlMappingEntity("HTTPS://Example.COM/page", "legacy01", LocalDateTime.now());
+        legacy.setUrlDigest(UrlDigest.of("https://example.com/page"));
+        when(repository.findByUrlDigest(UrlDigest.of("https://example.com/page"))).thenReturn(Optional.of(legacy));
+
+        ShortenResponse response = service.shortenUrl("https://example.com/page");
+
+        assertThat(response.shortUrl()).isEqualTo(BASE_URL + "legacy01");
+        verify(repository, never()).saveAndFlush(any(UrlMappingEntity.class));
     }
 
     @Test
@@ -98,6 +166,158 @@ class URLShortenerServiceTest {
                 .hasMessageContaining(UrlShortenerError.SHORT_URL_NOT_FOUND.getMessage());
     }
 
+    @Test
+    @DisplayName("getOriginalUrl should report an expired link as gone")
+    void getOriginalUrl_expired_throwsGone() {
+        String shortCode = "expired1";
+        when(repository.findByShortCode(shortCode)).thenReturn(Optional.of(new UrlMappingEntity(
+                "https://example.com/old", shortCode, LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(1))));
+
+        assertThatThrownBy(() -> service.getOriginalUrl(shortCode))
+                .isInstanceOf(URLShortenerServiceException.class)
+                .hasMessageContaining(UrlShortenerError.SHORT_URL_EXPIRED.getMessage())
+                .extracting("status").isEqualTo(HttpStatus.GONE);
+        assertThat(meterRegistry.get("urlshortener.redirect").tag("outcome", "expired").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("with the off-heap index, created links redirect without a repository lookup")
+    void getOriginalUrl_redirectIndex_servesCreatedLinks() {
+        OffHeapRedirectIndex redirectIndex = new OffHeapRedirectIndex(16, 1 << 17);
+        URLShortenerService indexed = new URLShortenerService(repository, cache, bloomFilter,
+                new HashShortCodeStrategy(repository), new TransactionTemplate(transactionManager),
+                new URLShortenerMetrics(meterRegistry), canonicalizer, redirectIndex, null, null, null);
+        ReflectionTestUtils.setField(indexed, "baseUrl", BASE_URL);
+        ReflectionTestUtils.setField(indexed, "maxCreateAttempts", 3);
+        String originalUrl = "https://example.com/indexed";
+        String shortCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
+        when(repository.findByUrlDigest(UrlDigest.of(originalUrl))).thenReturn(Optional.empty());
+        when(repository.findByShortCode(shortCode)).thenReturn(Optional.empty());
+        doAnswer(inv -> inv.getArgument(0)).when(repository).saveAndFlush(any(UrlMappingEntity.class));
+
+        indexed.shortenUrl(originalUrl, LocalDateTime.now().plusDays(1));
+        clearInvocations(repository);
+
+        assertThat(indexed.getOriginalUrl(shortCode)).isEqualTo(originalUrl);
+        verifyNoInteractions(repository);
+        redirectIndex.put(shortCode, originalUrl, LocalDateTime.now().minusSeconds(1));
+        assertThatThrownBy(() -> indexed.getOriginalUrl(shortCode))
+                .isInstanceOf(URLShortenerServiceException.class)
+                .extracting("status").isEqualTo(HttpStatus.GONE);
+    }
+
+    @Test
+    @DisplayName("with the off-heap index, codes found in the repository are indexed on the way out")
+    void getOriginalUrl_redirectIndexMiss_readRepairs() {
+        OffHeapRedirectIndex redirectIndex = new OffHeapRedirectIndex(16, 1 << 17);
+        URLShortenerService indexed = new URLShortenerService(repository, cache, bloomFilter,
+                new HashShortCodeStrategy(repository), new TransactionTemplate(transactionManager),
+                new URLShortenerMetrics(meterRegistry), canonicalizer, redirectIndex, null, null, null);
+        when(repository.findByShortCode("remote01")).thenReturn(Optional.of(
+                new UrlMappingEntity("https://example.com/remote", "remote01", LocalDateTime.now())));
+
+        assertThat(indexed.getOriginalUrl("remote01")).isEqualTo("https://example.com/remote");
+        assertThat(redirectIndex.get("remote01").originalUrl()).isEqualTo("https://example.com/remote");
+    }
+
+    @Test
+    @DisplayName("a read that raced with another node's write does not put the stale mapping back into the index")
+    void getOriginalUrl_invalidatedDuringRead_skipsReadRepair() {
+        OffHeapRedirectIndex redirectIndex = new OffHeapRedirectIndex(16, 1 << 17);
+        ClusterInvalidationBus bus = new ClusterInvalidationBus(new InMemoryInvalidationTransport("service-test"),
+                "local", 100, Duration.ofMinutes(1), Duration.ofMinutes(1), redirectIndex::remove, () -> {
+        });
+        InMemoryInvalidationTransport remote = new InMemoryInvalidationTransport("service-test");
+        URLShortenerService clustered = new URLShortenerService(repository, cache, bloomFilter,
+                new HashShortCodeStrategy(repository), new TransactionTemplate(transactionManager),
+                new URLShortenerMetrics(meterRegistry), canonicalizer, redirectIndex, bus, null, null);
+        when(repository.findByShortCode("racing01")).thenAnswer(inv -> {
+            // The other node's update lands while this read is in flight
+            remote.send(new InvalidationBatch("remote", 1, List.of("racing01")));
+            return Optional.of(new UrlMappingEntity("https://example.com/stale", "racing01", LocalDateTime.now()));
+        });
+        bus.start();
+        try {
+            assertThat(clustered.getOriginalUrl("racing01")).isEqualTo("https://example.com/stale");
+            assertThat(redirectIndex.get("racing01")).isNull();
+        } finally {
+            bus.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("with write-behind, a new mapping is handed to the writer and resolves before it is written")
+    void shortenUrl_writeBehind_servesPendingMapping() {
+        WriteBehindWriter writeBehind = mock(WriteBehindWriter.class);
+        URLShortenerService behind = new URLShortenerService(repository, cache, bloomFilter,
+                new HashShortCodeStrategy(repository), new TransactionTemplate(transactionManager),
+                new URLShortenerMetrics(meterRegistry), canonicalizer, null, null, writeBehind, null);
+        ReflectionTestUtils.setField(behind, "baseUrl", BASE_URL);
+        ReflectionTestUtils.setField(behind, "maxCreateAttempts", 3);
+        String originalUrl = "https://example.com/behind";
+        String shortCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
+        when(repository.findByUrlDigest(UrlDigest.of(originalUrl))).thenReturn(Optional.empty());
+
+        assertThat(behind.shortenUrl(originalUrl).shortUrl()).isEqualTo(BASE_URL + shortCode);
+
+        verify(writeBehind).submit(argThat(mapping -> mapping.getShortCode().equals(shortCode)));
+        verify(repository, never()).saveAndFlush(any(UrlMappingEntity.class));
+        clearInvocations(repository);
+        when(writeBehind.findByShortCode(shortCode))
+                .thenReturn(new UrlMappingEntity(originalUrl, shortCode, LocalDateTime.now()));
+        assertThat(behind.getOriginalUrl(shortCode)).isEqualTo(originalUrl);
+        verify(repository, never()).findByShortCode(shortCode);
+    }
+
+    @Test
+    @DisplayName("shortenUrl should reject an expiry that is not in the future")
+    void shortenUrl_pastExpiry_throwsBadRequest() {
+        assertThatThrownBy(() -> service.shortenUrl("https://example.com/x", LocalDateTime.now().minusSeconds(1)))
+                .isInstanceOf(URLShortenerServiceException.class)
+                .hasMessageContaining(UrlShortenerError.EXPIRY_NOT_IN_FUTURE.getMessage());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("shortenUrl should keep the later expiry when an expiring URL is shortened again")
+    void shortenUrl_existingExpiringMapping_extendsExpiry() {
+        String originalUrl = "https://example.com/expiring";
+        LocalDateTime current = LocalDateTime.now().plusHours(1);
+        LocalDateTime requested = LocalDateTime.now().plusDays(1);
+        UrlMappingEntity existing = new UrlMappingEntity(originalUrl, "exp00001", LocalDateTime.now(), current);
+        ReflectionTestUtils.setField(existing, "id", 7L);
+        when(repository.findByUrlDigest(UrlDigest.of(originalUrl))).thenReturn(Optional.of(existing));
+        when(repository.updateExpiresAt(7L, requested)).thenReturn(1);
+
+        assertThat(service.shortenUrl(originalUrl, requested).shortUrl()).isEqualTo(BASE_URL + "exp00001");
+        assertThat(service.shortenUrl(originalUrl, current.minusMinutes(30)).shortUrl()).isEqualTo(BASE_URL + "exp00001");
+
+        verify(repository, times(1)).updateExpiresAt(7L, requested);
+        verify(repository, never()).saveAndFlush(any(UrlMappingEntity.class));
+    }
+
+    @Test
+    @DisplayName("lookups should be timed by outcome and unknown codes counted by where they were rejected")
+    void getOriginalUrl_recordsMetrics() {
+        String shortCode = "metric01";
+        when(repository.findByShortCode(shortCode))
+                .thenReturn(Optional.of(new UrlMappingEntity("https://example.com/m", shortCode, LocalDateTime.now())));
+        when(repository.findByShortCode("missing1")).thenReturn(Optional.empty());
+
+        service.getOriginalUrl(shortCode);
+        assertThatThrownBy(() -> service.getOriginalUrl("missing1")).isInstanceOf(URLShortenerServiceException.class);
+        bloomFilter.markReady();
+        assertThatThrownBy(() -> service.getOriginalUrl("missing2")).isInstanceOf(URLShortenerServiceException.class);
+
+        assertThat(meterRegistry.get("urlshortener.redirect").tag("outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("urlshortener.redirect").tag("outcome", "not-found").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("urlshortener.not.found").tag("source", "database").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("urlshortener.not.found").tag("source", "bloom-filter").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.getMeters()).allSatisfy(meter ->
+                assertThat(meter.getId().getTags()).noneMatch(tag -> tag.getValue().startsWith("metric")
+                        || tag.getValue().startsWith("missing")));
+    }
+
     @Test
     @DisplayName("getUrlMapping should return mapping response when short code exists")
     void getUrlMapping_found() {
@@ -126,4 +346,214 @@ class URLShortenerServiceTest {
                 .isInstanceOf(URLShortenerServiceException.class)
                 .hasMessageContaining(UrlShortenerError.SHORT_URL_NOT_FOUND.getMessage());
     }
+
+    @Test
+    @DisplayName("getOriginalUrl should serve repeated lookups from the cache")
+    void getOriginalUrl_cachedAfterFirstLookup() {
+        String shortCode = "hot12345";
+        String originalUrl = "https://example.com/hot";
+        UrlMappingEntity entity = new UrlMappingEntity(originalUrl, shortCode, LocalDateTime.now());
+
+        when(repository.findByShortCode(shortCode))
+                .thenReturn(Optional.of(entity));
+
+        assertThat(service.getOriginalUrl(shortCode)).isEqualTo(originalUrl);
+        assertThat(service.getOriginalUrl(shortCode)).isEqualTo(originalUrl);
+        assertThat(service.getUrlMapping(shortCode).originalUrl()).isEqualTo(originalUrl);
+
+        verify(repository, times(1)).findByShortCode(shortCode);
+        assertThat(cache.stats().hitCount()).isEqualTo(2);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("shortenUrl should invalidate the cached entry for the written code")
+    void shortenUrl_invalidatesCache() {
+        String originalUrl = "https://example.com/written";
+        String expectedCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
+        when(repository.findByUrlDigest(UrlDigest.of(originalUrl))).thenReturn(Optional.empty());
+        when(repository.findByShortCode(expectedCode)).thenReturn(Optional.empty());
+
+        service.shortenUrl(originalUrl);
+
+        verify(cache).invalidate(expectedCode);
+    }
+
+    @Test
+    @DisplayName("getOriginalUrl should reject codes the Bloom filter has never seen without a query")
+    void getOriginalUrl_unknownToBloomFilter_skipsRepository() {
+        bloomFilter.markReady();
+
+        assertThatThrownBy(() -> service.getOriginalUrl("zzzzzzzz"))
+                .isInstanceOf(URLShortenerServiceException.class)
+                .hasMessageContaining(UrlShortenerError.SHORT_URL_NOT_FOUND.getMessage())
+                .satisfies(ex -> assertThat(ex.getStackTrace()).isEmpty());
+        verify(repository, never()).findByShortCode(any());
+    }
+
+    @Test
+    @DisplayName("shortenUrl should add the new code to the Bloom filter")
+    void shortenUrl_addsCodeToBloomFilter() {
+        String originalUrl = "https://example.com/bloom";
+        String expectedCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
+        when(repository.findByUrlDigest(UrlDigest.of(originalUrl))).thenReturn(Optional.empty());
+        when(repository.findByShortCode(expectedCode)).thenReturn(Optional.empty());
+        bloomFilter.markReady();
+
+        service.shortenUrl(originalUrl);
+
+        assertThat(bloomFilter.mightContain(expectedCode)).isTrue();
+    }
+
+    @Test
+    @DisplayName("shortenUrls should return per-item results in request order and batch-insert new mappings")
+    void shortenUrls_mixedBatch() {
+        String existingUrl = "https://example.com/existing";
+        String newUrl = "https://example.com/brand-new";
+        UrlMappingEntity existing = new UrlMappingEntity(existingUrl, "exist123", LocalDateTime.now());
+        when(repository.findByUrlDigestIn(anyCollection()))
+                .thenAnswer(inv -> inv.<List<String>>getArgument(0).contains(UrlDigest.of(existingUrl)) ? List.of(existing) : List.of());
+        when(repository.findByShortCodeIn(anyCollection())).thenReturn(List.of());
+        String newCode = ShortCodeGenerator.generateHashShortCode(newUrl);
+
+        BatchShortenResponse response = service.shortenUrls(Arrays.asList(newUrl, "not a url", existingUrl, null, newUrl));
+
+        List<BatchShortenResult> results = response.results();
+        assertThat(results).extracting(BatchShortenResult::index).containsExactly(0, 1, 2, 3, 4);
+        assertThat(results).extracting(BatchShortenResult::status).containsExactly(201, 400, 200, 400, 201);
+        assertThat(results.get(0).shortUrl()).isEqualTo(BASE_URL + newCode);
+        assertThat(results.get(4).shortUrl()).isEqualTo(BASE_URL + newCode);
+        assertThat(results.get(2).shortUrl()).isEqualTo(BASE_URL + "exist123");
+        assertThat(results.get(1).error()).contains(UrlShortenerError.INVALID_URL_FORMAT.getMessage());
+        verify(repository, times(1)).saveAll(argThat(entities -> ((List<?>) entities).size() == 1));
+        verify(repository, never()).saveAndFlush(any(UrlMappingEntity.class));
+    }
+
+    @Test
+    @DisplayName("shortenUrls should give equivalent spellings one mapping and echo each as submitted")
+    void shortenUrls_equivalentSpellings_shareMapping() {
+        String url = "https://example.com/spelled";
+        String respelled = "HTTPS://EXAMPLE.com:443/./spelled";
+        when(repository.findByUrlDigestIn(anyCollection())).thenReturn(List.of());
+        when(repository.findByShortCodeIn(anyCollection())).thenReturn(List.of());
+        String code = ShortCodeGenerator.generateHashShortCode(url);
+
+        List<BatchShortenResult> results = service.shortenUrls(List.of(respelled, url)).results();
+
+        assertThat(results).extracting(BatchShortenResult::originalUrl).containsExactly(respelled, url);
+        assertThat(results).extracting(BatchShortenResult::shortUrl).containsOnly(BASE_URL + code);
+        verify(repository, times(1)).saveAll(argThat(entities -> ((List<?>) entities).size() == 1));
+    }
+
+    @Test
+    @DisplayName("shortenUrls should reject batches above the configured maximum")
+    void shortenUrls_tooLarge_throws() {
+        List<String> urls = Collections.nCopies(11, "https://example.com");
+
+        assertThatThrownBy(() -> service.shortenUrls(urls))
+                .isInstanceOf(URLShortenerServiceException.class)
+                .hasMessageContaining(UrlShortenerError.BATCH_TOO_LARGE.getMessage());
+        verify(repository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("importMappings should skip existing mappings up front and conflicting ones on retry")
+    void importMappings_conflict_skipsOnlyConflictingRows() {
+        LocalDateTime created = LocalDateTime.of(2024, 5, 1, 12, 0);
+        List<UrlMappingEntity> batch = List.of(
+                new UrlMappingEntity("https://example.com/a", "imported1", created),
+                new UrlMappingEntity("https://example.com/b", "taken123", created, created.plusDays(1)),
+                new UrlMappingEntity("https://example.com/c", "exists12", created));
+        when(repository.findByShortCodeIn(anyCollection()))
+                .thenReturn(List.of(new UrlMappingEntity("https://example.com/c", "exists12", created)));
+        when(repository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(repository.saveAndFlush(any(UrlMappingEntity.class))).thenAnswer(inv -> {
+            UrlMappingEntity mapping = inv.getArgument(0);
+            if (mapping.getShortCode().equals("taken123")) {
+                throw new DataIntegrityViolationException("duplicate");
+            }
+            return mapping;
+        });
+
+        assertThat(service.importMappings(batch)).isEqualTo(1);
+
+        verify(repository).saveAndFlush(argThat(mapping -> mapping.getShortCode().equals("imported1")
+                && mapping.getCreatedAt().equals(created) && mapping.getId() == null));
+        assertThat(bloomFilter.mightContain("imported1")).isTrue();
+        verify(cache).invalidate("imported1");
+        verify(cache, never()).invalidate("taken123");
+        verify(repository).saveAll(argThat(entities -> ((List<?>) entities).size() == 2));
+    }
+
+    @Test
+    @DisplayName("shortenUrl should not reuse a mapping whose digest matches but whose URL differs")
+    void shortenUrl_digestMatchDifferentUrl_createsNewMapping() {
+        String originalUrl = "https://example.com/digest";
+        String expectedCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
+        UrlMappingEntity other = new UrlMappingEntity("https://example.com/other", "other123", LocalDateTime.now());
+        when(repository.findByUrlDigest(UrlDigest.of(originalUrl))).thenReturn(Optional.of(other));
+        when(repository.findByShortCode(expectedCode)).thenReturn(Optional.empty());
+
+        ShortenResponse response = service.shortenUrl(originalUrl);
+
+        assertThat(response.shortUrl()).isEqualTo(BASE_URL + expectedCode);
+        verify(repository, times(1)).saveAndFlush(any(UrlMappingEntity.class));
+    }
+
+    @Test
+    @DisplayName("shortenUrl should return the winner's code when a concurrent insert of the same URL wins")
+    void shortenUrl_lostRaceForSameUrl_returnsWinnerCode() {
+        String originalUrl = "https://example.com/raced";
+        String code = ShortCodeGenerator.generateHashShortCode(originalUrl);
+        UrlMappingEntity winner = new UrlMappingEntity(originalUrl, code, LocalDateTime.now());
+        when(repository.findByUrlDigest(UrlDigest.of(originalUrl)))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(winner));
+        when(repository.findByShortCode(code)).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any(UrlMappingEntity.class)))
+                .thenThrow(new DataIntegrityViolationException("idx_url_digest"));
+
+        ShortenResponse response = service.shortenUrl(originalUrl);
+
+        assertThat(response.shortUrl()).isEqualTo(BASE_URL + code);
+        verify(repository, times(1)).saveAndFlush(any(UrlMappingEntity.class));
+    }
+
+    @Test
+    @DisplayName("shortenUrl should retry with a fresh code when a concurrent insert takes the code")
+    void shortenUrl_lostRaceForCode_retriesWithNextCode() {
+        String originalUrl = "https://example.com/code-raced";
+        String firstCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
+        String secondCode = ShortCodeGenerator.generateHashShortCode(originalUrl + 1);
+        UrlMappingEntity other = new UrlMappingEntity("https://example.com/other", firstCode, LocalDateTime.now());
+        when(repository.findByUrlDigest(UrlDigest.of(originalUrl))).thenReturn(Optional.empty());
+        when(repository.findByShortCode(firstCode))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(other));
+        when(repository.findByShortCode(secondCode)).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any(UrlMappingEntity.class)))
+                .thenThrow(new DataIntegrityViolationException("idx_short_code"))
+                .thenAnswer(inv -> inv.getArgument(0));
+
+        ShortenResponse response = service.shortenUrl(originalUrl);
+
+        assertThat(response.shortUrl()).isEqualTo(BASE_URL + secondCode);
+        verify(repository, times(2)).saveAndFlush(any(UrlMappingEntity.class));
+    }
+
+    @Test
+    @DisplayName("shortenUrl should give up with 409 after the configured number of attempts")
+    void shortenUrl_persistentConflict_throwsConflict() {
+        String originalUrl = "https://example.com/always-conflicts";
+        when(repository.findByUrlDigest(UrlDigest.of(originalUrl))).thenReturn(Optional.empty());
+        when(repository.findByShortCode(any())).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any(UrlMappingEntity.class)))
+                .thenThrow(new DataIntegrityViolationException("idx_short_code"));
+
+        assertThatThrownBy(() -> service.shortenUrl(originalUrl))
+                .isInstanceOf(URLShortenerServiceException.class)
+                .extracting("status")
+                .isEqualTo(HttpStatus.CONFLICT);
+        verify(repository, times(3)).saveAndFlush(any(UrlMappingEntity.class));
+    }
 }
@@ -0,0 +1,55 @@
+package org.example.urlshortener.storage;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    @DisplayName("keys spread evenly over the members")
+    void owner_isBalanced() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(members(4), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.owner("key" + i), 1, Integer::sum);
+        }
+
+        assertThat(counts).hasSize(4);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(KEYS / 4 * 8 / 10, KEYS / 4 * 12 / 10));
+    }
+
+    @Test
+    @DisplayName("adding a member moves about its share of the keys, all of them to the new member")
+    void addingMember_movesOnlyItsShare() {
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(members(4), 128);
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(members(5), 128);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String owner = after.owner("key" + i);
+            if (!owner.equals(before.owner("key" + i))) {
+                assertThat(owner).isEqualTo("shard4");
+                moved++;
+            }
+        }
+
+        assertThat(moved).isBetween(KEYS / 5 * 8 / 10, KEYS / 5 * 12 / 10);
+    }
+
+    private static Map<String, String> members(int count) {
+        Map<String, String> members = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            members.put("shard" + i, "shard" + i);
+        }
+        return members;
+    }
+}
@@ -0,0 +1,273 @@
+package org.example.urlshortener.storage;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LogStructuredMappingStoreTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_456_000);
+
+    @TempDir
+    Path directory;
+
+    private final List<LogStructuredMappingStore> opened = new ArrayList<>();
+    private LogStructuredMappingStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = open(directory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(LogStructuredMappingStore::close);
+    }
+
+    @Test
+    @DisplayName("saved mappings are found by short code, digest and id with all fields intact")
+    void save_roundTrips() {
+        UrlMappingEntity saved = store.save(mapping(1, LocalDateTime.of(2030, 1, 1, 0, 0)));
+
+        assertThat(saved.getId()).isEqualTo(1L);
+        assertSameMapping(store.findByShortCode("code0001"), saved);
+        assertSameMapping(store.findByUrlDigest(saved.getUrlDigest()), saved);
+        assertSameMapping(store.findById(1), saved);
+        assertThat(store.findByShortCode("missing")).isNull();
+        assertThat(store.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("a taken short code or URL fails the whole batch without writing any of it")
+    void saveAll_rejectsDuplicates() {
+        store.save(mapping(1, null));
+        long logBytes = store.logBytes();
+
+        assertThatThrownBy(() -> store.saveAll(List.of(mapping(2, null),
+                new UrlMappingEntity("https://example.com/other", "code0001", CREATED))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> store.saveAll(List.of(mapping(3, null),
+                new UrlMappingEntity("https://example.com/3", "fresh003", CREATED))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(store.count()).isEqualTo(1);
+        assertThat(store.logBytes()).isEqualTo(logBytes);
+        assertThat(store.findByShortCode("code0002")).isNull();
+    }
+
+    @Test
+    @DisplayName("updates replace the current version and deletes free the code and URL for reuse")
+    void updateAndDelete() {
+        UrlMappingEntity saved = store.save(mapping(1, null));
+        LocalDateTime expiry = LocalDateTime.of(2031, 2, 3, 4, 5);
+
+        assertThat(store.updateExpiresAt(saved.getId(), expiry)).isTrue();
+        assertThat(store.findByShortCode("code0001").getExpiresAt()).isEqualTo(expiry);
+        assertThat(store.count()).isEqualTo(1);
+
+        assertThat(store.deleteIf(List.of(saved.getId()), m -> false)).isZero();
+        assertThat(store.deleteIf(List.of(saved.getId()), m -> true)).isEqualTo(1);
+        assertThat(store.findByShortCode("code0001")).isNull();
+        assertThat(store.updateExpiresAt(saved.getId(), expiry)).isFalse();
+
+        UrlMappingEntity again = store.save(mapping(1, null));
+        assertThat(again.getId()).isEqualTo(2L);
+        assertThat(store.findByShortCode("code0001").getId()).isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("expired mappings are paged in (expiresAt, id) order up to the cutoff")
+    void findExpired_pagesByKeyset() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        store.saveAll(List.of(mapping(1, base.plusHours(2)), mapping(2, base.plusHours(1)),
+                mapping(3, base.plusHours(1)), mapping(4, base.plusHours(5)), mapping(5, null)));
+
+        List<UrlMappingEntity> first = store.findExpired(base.plusHours(3), null, 0, 2);
+        assertThat(first).extracting(UrlMappingEntity::getShortCode).containsExactly("code0002", "code0003");
+
+        UrlMappingEntity last = first.get(1);
+        assertThat(store.findExpired(base.plusHours(3), last.getExpiresAt(), last.getId(), 2))
+                .extracting(UrlMappingEntity::getShortCode).containsExactly("code0001");
+    }
+
+    @Test
+    @DisplayName("reopening after a clean close replays nothing and finds every mapping")
+    void reopen_afterCleanClose() {
+        saveMappings(store, 100);
+        store.close();
+
+        LogStructuredMappingStore reopened = open(directory);
+
+        assertThat(reopened.replayedRecords()).isZero();
+        assertThat(reopened.count()).isEqualTo(100);
+        assertThat(reopened.findByShortCode("code0042").getOriginalUrl()).isEqualTo("https://example.com/42");
+        assertThat(reopened.save(mapping(100, null)).getId()).isEqualTo(101L);
+    }
+
+    @Test
+    @DisplayName("after a crash the records written since the last checkpoint are replayed")
+    void reopen_afterCrash_replaysTail() throws IOException {
+        saveMappings(store, 50);
+        store.checkpoint();
+        store.saveAll(List.of(mapping(50, null), mapping(51, null)));
+        store.deleteIf(List.of(1L), m -> true);
+
+        LogStructuredMappingStore recovered = open(crashCopy());
+
+        assertThat(recovered.replayedRecords()).isEqualTo(3);
+        assertThat(recovered.count()).isEqualTo(51);
+        assertThat(recovered.findByShortCode("code0051")).isNotNull();
+        assertThat(recovered.findByShortCode("code0000")).isNull();
+    }
+
+    @Test
+    @DisplayName("a torn record at the end of the log is truncated and the rest recovered")
+    void reopen_truncatesTornTail() throws IOException {
+        saveMappings(store, 10);
+        Path copy = crashCopy();
+        Path log = logFile(copy);
+        long intact = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(intact - 5);
+        }
+
+        LogStructuredMappingStore recovered = open(copy);
+
+        assertThat(recovered.count()).isEqualTo(9);
+        assertThat(recovered.findByShortCode("code0008")).isNotNull();
+        assertThat(recovered.findByShortCode("code0009")).isNull();
+        assertThat(Files.size(log)).isLessThan(intact - 5);
+        // The code of the lost record is free again
+        assertThat(recovered.save(mapping(9, null)).getShortCode()).isEqualTo("code0009");
+    }
+
+    @Test
+    @DisplayName("missing index files are rebuilt from the log")
+    void reopen_rebuildsMissingIndexes() throws IOException {
+        saveMappings(store, 20);
+        store.close();
+        Files.delete(directory.resolve("codes.idx"));
+
+        LogStructuredMappingStore rebuilt = open(directory);
+
+        assertThat(rebuilt.replayedRecords()).isEqualTo(20);
+        assertThat(rebuilt.findByShortCode("code0013").getOriginalUrl()).isEqualTo("https://example.com/13");
+        assertThat(rebuilt.count()).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("a store with only the legacy digest index rebuilds it from the log and drops the old file")
+    void reopen_replacesLegacyDigestIndex() throws IOException {
+        saveMappings(store, 20);
+        store.close();
+        Files.move(directory.resolve("url-digests.idx"), directory.resolve("digests.idx"));
+
+        LogStructuredMappingStore rebuilt = open(directory);
+
+        assertThat(rebuilt.replayedRecords()).isEqualTo(20);
+        assertThat(rebuilt.findByUrlDigest(mapping(13, null).getUrlDigest()).getShortCode()).isEqualTo("code0013");
+        assertThat(directory.resolve("digests.idx")).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("compaction drops superseded and deleted records, keeps concurrent writes and survives a reopen")
+    void compact_reclaimsDeadRecords() throws InterruptedException, IOException {
+        saveMappings(store, 1000);
+        List<Long> deleted = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            store.updateExpiresAt(id, LocalDateTime.of(2030, 1, 1, 0, 0));
+            if (id % 2 == 0) {
+                deleted.add(id);
+            }
+        }
+        store.deleteIf(deleted, m -> true);
+        long before = store.logBytes();
+
+        Thread writer = new Thread(() -> {
+            for (int i = 1000; i < 1200; i++) {
+                store.save(mapping(i, null));
+            }
+        });
+        writer.start();
+        store.compact();
+        writer.join();
+
+        assertThat(store.logBytes()).isLessThan(before / 3);
+        assertThat(store.compactionCount()).isEqualTo(1);
+        assertThat(store.count()).isEqualTo(700);
+        store.close();
+
+        LogStructuredMappingStore reopened = open(directory);
+        assertThat(reopened.replayedRecords()).isZero();
+        assertThat(reopened.count()).isEqualTo(700);
+        assertThat(reopened.findByShortCode("code0000").getExpiresAt()).isEqualTo(LocalDateTime.of(2030, 1, 1, 0, 0));
+        assertThat(reopened.findByShortCode("code0001")).isNull();
+        assertThat(reopened.findByShortCode("code1199")).isNotNull();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder("mappings-1.log", "ids-1.idx", "codes.idx", "url-digests.idx", "LOCK");
+        }
+    }
+
+    private LogStructuredMappingStore open(Path dir) {
+        LogStructuredMappingStore opened = new LogStructuredMappingStore(dir, 16, false, Duration.ofHours(1), 0.5);
+        this.opened.add(opened);
+        return opened;
+    }
+
+    /**
+     * Copies the store's files while it is still open: what a restart finds on disk if the process
+     * dies right now (mapped index pages are copied as the kernel currently holds them).
+     */
+    private Path crashCopy() throws IOException {
+        Path copy = Files.createDirectory(directory.resolve("crash"));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                if (!file.getFileName().toString().equals("LOCK")) {
+                    Files.copy(file, copy.resolve(file.getFileName()));
+                }
+            }
+        }
+        return copy;
+    }
+
+    private static Path logFile(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+    }
+
+    private static void saveMappings(LogStructuredMappingStore store, int count) {
+        List<UrlMappingEntity> mappings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            mappings.add(mapping(i, null));
+        }
+        store.saveAll(mappings);
+    }
+
+    private static UrlMappingEntity mapping(int i, LocalDateTime expiresAt) {
+        return new UrlMappingEntity("https://example.com/" + i, "code%04d".formatted(i), CREATED, expiresAt);
+    }
+
+    private static void assertSameMapping(UrlMappingEntity actual, UrlMappingEntity expected) {
+        assertThat(actual).usingRecursiveComparison().isEqualTo(expected);
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.urlshortener.storage;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappingJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("a reopened journal hands back every complete record and cuts off a torn tail")
+    void recover_afterCrash_returnsCompleteRecords() throws IOException {
+        LocalDateTime expiresAt = LocalDateTime.of(2030, 1, 1, 12, 0);
+        MappingJournal journal = new MappingJournal(directory, 1 << 20);
+        journal.append(List.of(mapping("a", null), mapping("b", expiresAt)));
+        journal.append(List.of(mapping("c", null)));
+        journal.close();
+        Files.write(directory.resolve("journal-1.log"), new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        MappingJournal reopened = new MappingJournal(directory, 1 << 20);
+        List<MappingJournal.Entry> entries = reopened.recover();
+
+        assertThat(entries).extracting(entry -> entry.mapping().getShortCode()).containsExactly("a", "b", "c");
+        assertThat(entries.get(1).mapping().getExpiresAt()).isEqualTo(expiresAt);
+        assertThat(entries.get(1).mapping().getId()).isNull();
+        assertThat(entries).extracting(MappingJournal.Entry::segment).containsOnly(1L);
+        reopened.close();
+        assertThat(new MappingJournal(directory, 1 << 20).recover()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("segments roll over at the segment size and are deleted once released")
+    void release_deletesEarlierSegments() throws IOException {
+        MappingJournal journal = new MappingJournal(directory, 1);
+
+        long first = journal.append(List.of(mapping("a", null)));
+        long second = journal.append(List.of(mapping("b", null)));
+        long third = journal.append(List.of(mapping("c", null)));
+        journal.release(third);
+
+        assertThat(List.of(first, second, third)).containsExactly(1L, 2L, 3L);
+        assertThat(segmentFiles()).containsExactly("journal-3.log");
+        journal.close();
+    }
+
+    private List<String> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(".log")).toList();
+        }
+    }
+
+    private static UrlMappingEntity mapping(String shortCode, LocalDateTime expiresAt) {
+        return new UrlMappingEntity("https://example.com/" + shortCode, shortCode, LocalDateTime.now(), expiresAt);
+    }
+}
@@ -0,0 +1,213 @@
+package org.example.urlshortener.storage;
+
+import com.google.common.hash.Hashing;
+import org.example.urlshortener.model.ExpiringMappingView;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.util.UrlDigest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShardedUrlMappingRepositoryTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private final String prefix = "shard-test-" + UUID.randomUUID() + "-";
+    private ShardedUrlMappingRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            dataSources.put("shard" + i, dataSource(i));
+        }
+        repository = new ShardedUrlMappingRepository(dataSources, 64, 50, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+        repository.close();
+    }
+
+    @Test
+    @DisplayName("mappings spread over the shards and are found by short code, digest and id")
+    void save_routesByShortCode() {
+        List<UrlMappingEntity> saved = repository.saveAll(mappings(0, 300));
+
+        assertThat(repository.count()).isEqualTo(300);
+        assertThat(repository.countsByShard().values()).allSatisfy(count -> assertThat(count).isPositive());
+        assertThat(saved).extracting(UrlMappingEntity::getId).doesNotContainNull().doesNotHaveDuplicates();
+        for (UrlMappingEntity mapping : saved) {
+            assertThat(repository.findByShortCode(mapping.getShortCode())).get()
+                    .extracting(UrlMappingEntity::getOriginalUrl).isEqualTo(mapping.getOriginalUrl());
+            assertThat(repository.findByUrlDigest(mapping.getUrlDigest())).get()
+                    .extracting(UrlMappingEntity::getShortCode).isEqualTo(mapping.getShortCode());
+            assertThat(repository.findByShortCode(mapping.getShortCode())).get()
+                    .extracting(UrlMappingEntity::getId).isEqualTo(mapping.getId());
+        }
+        assertThat(repository.findByShortCode("missing")).isEmpty();
+        assertThat(repository.findByUrlDigest(UrlDigest.of("https://example.com/missing"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("a taken short code or URL fails the write and leaves no trace of it on any shard")
+    void save_rejectsDuplicates() {
+        repository.saveAll(mappings(0, 10));
+        List<UrlMappingEntity> takenCode = List.of(mapping(100), new UrlMappingEntity("https://example.com/other", "code5", CREATED));
+        UrlMappingEntity takenUrl = new UrlMappingEntity("https://example.com/3", "fresh", CREATED);
+
+        assertThatThrownBy(() -> repository.saveAll(takenCode)).isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> repository.saveAndFlush(takenUrl)).isInstanceOf(DataIntegrityViolationException.class);
+
+        assertThat(repository.count()).isEqualTo(10);
+        assertThat(takenCode).extracting(UrlMappingEntity::getId).containsOnlyNulls();
+        assertThat(repository.findByShortCode("code100")).isEmpty();
+        assertThat(repository.findByShortCode("fresh")).isEmpty();
+        assertThat(repository.findByUrlDigest(UrlDigest.of("https://example.com/100"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("a stored mapping is not written again; its expiry changes through updateExpiresAt")
+    void save_rejectsStoredMapping() {
+        UrlMappingEntity stored = repository.saveAndFlush(mapping(1));
+
+        assertThatThrownBy(() -> repository.saveAll(List.of(stored))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(repository.updateExpiresAt(stored.getId(), CREATED.plusDays(1))).isEqualTo(1);
+        assertThat(repository.findByShortCode("code1")).get()
+                .extracting(UrlMappingEntity::getExpiresAt).isEqualTo(CREATED.plusDays(1));
+        assertThat(repository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("mappings keyed by the former murmur3 digest are rekeyed with their routes")
+    void rewriteStaleDigests_rekeysLegacyMappings() {
+        List<UrlMappingEntity> saved = repository.saveAll(mappings(0, 50));
+        for (int i = 0; i < 3; i++) {
+            JdbcTemplate shard = new JdbcTemplate(dataSource(i));
+            for (UrlMappingEntity mapping : saved.subList(0, 30)) {
+                String legacy = legacyDigest(mapping.getOriginalUrl());
+                shard.update("update url_mapping set url_digest = ? where short_code = ?", legacy, mapping.getShortCode());
+                shard.update("update url_digest_route set url_digest = ? where short_code = ?", legacy, mapping.getShortCode());
+            }
+        }
+
+        assertThat(repository.findByUrlDigest(UrlDigest.of("https://example.com/7"))).isEmpty();
+        assertThat(repository.rewriteStaleDigests()).isEqualTo(30);
+
+        assertAllReachable(saved);
+        for (int i = 0; i < 3; i++) {
+            assertThat(new JdbcTemplate(dataSource(i)).queryForObject("select count(*) from url_digest_route"
+                    + " where url_digest = ?", Long.class, legacyDigest("https://example.com/7"))).isZero();
+        }
+        assertThat(repository.rewriteStaleDigests()).isZero();
+    }
+
+    @Test
+    @DisplayName("batch lookups and id pages gather every shard's part in order")
+    void lookupsAndPages_spanShards() {
+        repository.saveAll(mappings(0, 120));
+
+        assertThat(repository.findByShortCodeIn(List.of("code1", "code50", "code119", "missing")))
+                .extracting(UrlMappingEntity::getShortCode).containsExactlyInAnyOrder("code1", "code50", "code119");
+        assertThat(repository.findByUrlDigestIn(List.of(UrlDigest.of("https://example.com/7"),
+                UrlDigest.of("https://example.com/77"), UrlDigest.of("https://example.com/missing"))))
+                .extracting(UrlMappingEntity::getShortCode).containsExactlyInAnyOrder("code7", "code77");
+
+        List<Long> walked = new ArrayList<>();
+        List<UrlMappingEntity> page;
+        long afterId = 0;
+        do {
+            page = repository.findAllByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, 25));
+            page.forEach(mapping -> walked.add(mapping.getId()));
+            afterId = page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+        } while (page.size() == 25);
+        assertThat(walked).hasSize(120).isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("purging an expired mapping also drops its URL route, so the URL can be shortened again")
+    void deleteExpired_dropsRoute() {
+        UrlMappingEntity expired = mapping(1);
+        expired.setExpiresAt(CREATED.plusDays(1));
+        repository.saveAll(List.of(expired, mapping(2)));
+
+        List<ExpiringMappingView> due = repository.findByExpiresAtLessThanEqualOrderByExpiresAtAscIdAsc(
+                CREATED.plusDays(2), PageRequest.of(0, 10));
+        assertThat(due).extracting(ExpiringMappingView::getShortCode).containsExactly("code1");
+        assertThat(repository.deleteExpiredByIdIn(List.of(expired.getId()), CREATED.plusDays(2))).isEqualTo(1);
+
+        assertThat(repository.findByShortCode("code1")).isEmpty();
+        assertThat(repository.findByUrlDigest(expired.getUrlDigest())).isEmpty();
+        repository.saveAndFlush(new UrlMappingEntity(expired.getOriginalUrl(), "again", CREATED));
+        assertThat(repository.findByUrlDigest(expired.getUrlDigest())).get()
+                .extracting(UrlMappingEntity::getShortCode).isEqualTo("again");
+    }
+
+    @Test
+    @DisplayName("an added shard serves its share once rebalanced, and every mapping stays reachable throughout")
+    void addShard_rebalancesOnline() {
+        List<UrlMappingEntity> saved = repository.saveAll(mappings(0, 400));
+
+        repository.addShard("shard3", dataSource(3));
+        assertThat(repository.isRebalancing()).isTrue();
+        assertAllReachable(saved);
+        UrlMappingEntity duringMove = repository.saveAndFlush(mapping(400));
+
+        repository.rebalance();
+
+        assertThat(repository.isRebalancing()).isFalse();
+        assertThat(repository.movedCount()).isPositive();
+        assertThat(repository.count()).isEqualTo(401);
+        assertThat(repository.countsByShard().get("shard3")).isBetween(40L, 160L);
+        assertAllReachable(saved);
+        assertAllReachable(List.of(duringMove));
+        assertThatThrownBy(() -> repository.saveAndFlush(mapping(5))).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private void assertAllReachable(List<UrlMappingEntity> mappings) {
+        for (UrlMappingEntity mapping : mappings) {
+            assertThat(repository.findByShortCode(mapping.getShortCode())).get()
+                    .extracting(UrlMappingEntity::getId).isEqualTo(mapping.getId());
+            assertThat(repository.findByUrlDigest(mapping.getUrlDigest())).get()
+                    .extracting(UrlMappingEntity::getShortCode).isEqualTo(mapping.getShortCode());
+        }
+    }
+
+    private static String legacyDigest(String url) {
+        return Hashing.murmur3_128().hashString(url, StandardCharsets.UTF_8).toString();
+    }
+
+    private DataSource dataSource(int shard) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + prefix + shard + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static List<UrlMappingEntity> mappings(int from, int to) {
+        List<UrlMappingEntity> mappings = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            mappings.add(mapping(i));
+        }
+        return mappings;
+    }
+
+    private static UrlMappingEntity mapping(int n) {
+        return new UrlMappingEntity("https://example.com/" + n, "code" + n, CREATED);
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.urlshortener.strategy;
+
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.util.ShortCodeGenerator;
+import org.example.urlshortener.writebehind.WriteBehindWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HashShortCodeStrategyTest {
+
+    @Mock
+    private UrlMappingStore repository;
+
+    @InjectMocks
+    private HashShortCodeStrategy strategy;
+
+    @Test
+    @DisplayName("generate rehashes with a counter suffix when the code belongs to another URL")
+    void generate_collision_rehashes() {
+        String originalUrl = "https://example.com/collides";
+        String firstCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
+        String secondCode = ShortCodeGenerator.generateHashShortCode(originalUrl + 1);
+        when(repository.findByShortCode(firstCode))
+                .thenReturn(Optional.of(new UrlMappingEntity("https://other.com", firstCode, LocalDateTime.now())));
+        when(repository.findByShortCode(secondCode)).thenReturn(Optional.empty());
+
+        assertThat(strategy.generate(originalUrl)).isEqualTo(secondCode);
+    }
+
+    @Test
+    @DisplayName("generate reuses the code when it already maps to the same URL")
+    void generate_sameUrl_reusesCode() {
+        String originalUrl = "https://example.com/same";
+        String code = ShortCodeGenerator.generateHashShortCode(originalUrl);
+        when(repository.findByShortCode(code))
+                .thenReturn(Optional.of(new UrlMappingEntity(originalUrl, code, LocalDateTime.now())));
+
+        assertThat(strategy.generate(originalUrl)).isEqualTo(code);
+    }
+
+    @Test
+    @DisplayName("a code held by a mapping pending in write-behind is taken, in single and batch generation")
+    void generate_pendingInWriteBehind_rehashes() {
+        WriteBehindWriter writeBehind = mock(WriteBehindWriter.class);
+        HashShortCodeStrategy behind = new HashShortCodeStrategy(repository, writeBehind);
+        String originalUrl = "https://example.com/pending";
+        String firstCode = ShortCodeGenerator.generateHashShortCode(originalUrl);
+        String secondCode = ShortCodeGenerator.generateHashShortCode(originalUrl + 1);
+        when(writeBehind.findByShortCode(firstCode))
+                .thenReturn(new UrlMappingEntity("https://other.com", firstCode, LocalDateTime.now()));
+        when(repository.findByShortCode(secondCode)).thenReturn(Optional.empty());
+        when(repository.findByShortCodeIn(anyList())).thenReturn(List.of());
+
+        assertThat(behind.generate(originalUrl)).isEqualTo(secondCode);
+        assertThat(behind.generateAll(List.of(originalUrl))).containsExactly(secondCode);
+        assertThat(behind.collisionCount()).isEqualTo(2);
+    }
+}
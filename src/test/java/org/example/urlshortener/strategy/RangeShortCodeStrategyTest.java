@@ -0,0 +1,73 @@
+package org.example.urlshortener.strategy;
+
+import org.example.urlshortener.util.ShortCodeAlphabet;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RangeShortCodeStrategyTest {
+
+    @Test
+    @DisplayName("generate produces unique fixed-width codes and leases a block only when exhausted")
+    void generate_uniqueCodesAndLazyLeasing() {
+        AtomicInteger leases = new AtomicInteger();
+        AtomicLong counter = new AtomicLong();
+        IdBlockAllocator allocator = size -> {
+            leases.incrementAndGet();
+            return counter.getAndAdd(size);
+        };
+        RangeShortCodeStrategy strategy = new RangeShortCodeStrategy(allocator, ShortCodeAlphabet.BASE62, 1_000, true, 42L);
+
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            String code = strategy.generate("https://example.com/" + i);
+            assertThat(code).hasSize(RangeShortCodeStrategy.CODE_LENGTH).matches("[0-9A-Za-z]{8}");
+            codes.add(code);
+        }
+
+        assertThat(codes).hasSize(50_000);
+        assertThat(leases.get()).isEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("without shuffling codes are the plain encoding of sequential ids")
+    void generate_noShuffle_sequentialEncoding() {
+        RangeShortCodeStrategy strategy = new RangeShortCodeStrategy(size -> 61L, ShortCodeAlphabet.BASE62, 10, false, 0L);
+
+        assertThat(strategy.generate("a")).isEqualTo("0000000z");
+        assertThat(strategy.generate("b")).isEqualTo("00000010");
+    }
+
+    @Test
+    @DisplayName("shuffled codes stay inside the code space and are not sequential")
+    void encode_shuffle_permutesWithinCodeSpace() {
+        RangeShortCodeStrategy strategy = new RangeShortCodeStrategy(size -> 0L, ShortCodeAlphabet.BASE58, 10, true, 7L);
+        long capacity = ShortCodeAlphabet.BASE58.capacity(RangeShortCodeStrategy.CODE_LENGTH);
+
+        Set<String> codes = new HashSet<>();
+        for (long id = 0; id < 10_000; id++) {
+            String code = strategy.encode(id);
+            assertThat(ShortCodeAlphabet.BASE58.decode(code)).isLessThan(capacity);
+            codes.add(code);
+        }
+        assertThat(codes).hasSize(10_000);
+        assertThat(strategy.encode(1)).isNotEqualTo(ShortCodeAlphabet.BASE58.encode(1, RangeShortCodeStrategy.CODE_LENGTH));
+    }
+
+    @Test
+    @DisplayName("generate fails once the code space is exhausted")
+    void generate_exhausted_throws() {
+        long capacity = ShortCodeAlphabet.BASE62.capacity(RangeShortCodeStrategy.CODE_LENGTH);
+        RangeShortCodeStrategy strategy = new RangeShortCodeStrategy(size -> capacity, ShortCodeAlphabet.BASE62, 10, false, 0L);
+
+        assertThatThrownBy(() -> strategy.generate("https://example.com"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.urlshortener.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.util.List;
+
+/**
+ * Stand-in for database replication in tests: {@link #replicate} copies the whole of a primary
+ * H2 database, schema and rows, over each replica. Between calls the replicas lag behind.
+ */
+public final class H2Replicator {
+
+    private final JdbcTemplate primary;
+    private final List<JdbcTemplate> replicas;
+
+    public H2Replicator(String primaryUrl, List<String> replicaUrls) {
+        this.primary = jdbcTemplate(primaryUrl);
+        this.replicas = replicaUrls.stream().map(H2Replicator::jdbcTemplate).toList();
+    }
+
+    public void replicate() {
+        List<String> script = primary.queryForList("SCRIPT", String.class);
+        for (JdbcTemplate replica : replicas) {
+            replica.execute("DROP ALL OBJECTS");
+            script.forEach(replica::execute);
+        }
+    }
+
+    public JdbcTemplate replica(int index) {
+        return replicas.get(index);
+    }
+
+    private static JdbcTemplate jdbcTemplate(String url) {
+        return new JdbcTemplate(new SimpleDriverDataSource(new org.h2.Driver(), url, "sa", ""));
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.urlshortener.support;
+
+import org.example.urlshortener.model.ExpiringMappingView;
+import org.example.urlshortener.model.ShortCodeView;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Map-backed {@link UrlMappingStore} for benchmarks and tests that need mappings without a
+ * database.
+ */
+public final class InMemoryUrlMappingStore implements UrlMappingStore {
+
+    private static final Comparator<UrlMappingEntity> BY_EXPIRY =
+            Comparator.comparing(UrlMappingEntity::getExpiresAt).thenComparing(UrlMappingEntity::getId);
+
+    private final AtomicLong ids = new AtomicLong();
+    private final ConcurrentSkipListMap<Long, UrlMappingEntity> byId = new ConcurrentSkipListMap<>();
+    private final Map<String, UrlMappingEntity> byShortCode = new ConcurrentHashMap<>();
+    private final Map<String, UrlMappingEntity> byUrlDigest = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<UrlMappingEntity> findByShortCode(String shortCode) {
+        return Optional.ofNullable(byShortCode.get(shortCode));
+    }
+
+    @Override
+    public Optional<UrlMappingEntity> findByUrlDigest(String urlDigest) {
+        return Optional.ofNullable(byUrlDigest.get(urlDigest));
+    }
+
+    @Override
+    public List<UrlMappingEntity> findByShortCodeIn(Collection<String> shortCodes) {
+        return lookup(byShortCode, shortCodes);
+    }
+
+    @Override
+    public List<UrlMappingEntity> findByUrlDigestIn(Collection<String> urlDigests) {
+        return lookup(byUrlDigest, urlDigests);
+    }
+
+    @Override
+    public List<ShortCodeView> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable) {
+        return new ArrayList<>(views(findAllByIdGreaterThanOrderByIdAsc(afterId, pageable)));
+    }
+
+    @Override
+    public List<UrlMappingEntity> findAllByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable) {
+        return byId.tailMap(afterId, false).values().stream().limit(pageable.getPageSize()).toList();
+    }
+
+    @Override
+    public List<ExpiringMappingView> findByExpiresAtLessThanEqualOrderByExpiresAtAscIdAsc(LocalDateTime cutoff,
+                                                                                          Pageable pageable) {
+        return new ArrayList<>(views(byId.values().stream()
+                .filter(mapping -> mapping.isExpiredAt(cutoff))
+                .sorted(BY_EXPIRY)
+                .limit(pageable.getPageSize())
+                .toList()));
+    }
+
+    @Override
+    public List<ExpiringMappingView> findExpiredAfter(LocalDateTime cutoff, LocalDateTime afterExpiresAt, Long afterId,
+                                                      Pageable pageable) {
+        return new ArrayList<>(views(byId.values().stream()
+                .filter(mapping -> mapping.isExpiredAt(cutoff))
+                .filter(mapping -> mapping.getExpiresAt().isAfter(afterExpiresAt)
+                        || mapping.getExpiresAt().isEqual(afterExpiresAt) && mapping.getId() > afterId)
+                .sorted(BY_EXPIRY)
+                .limit(pageable.getPageSize())
+                .toList()));
+    }
+
+    @Override
+    public int deleteExpiredByIdIn(Collection<Long> ids, LocalDateTime cutoff) {
+        int deleted = 0;
+        for (Long id : ids) {
+            UrlMappingEntity mapping = byId.get(id);
+            if (mapping != null && mapping.isExpiredAt(cutoff) && byId.remove(id, mapping)) {
+                byShortCode.remove(mapping.getShortCode());
+                byUrlDigest.remove(mapping.getUrlDigest());
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public int updateExpiresAt(Long id, LocalDateTime expiresAt) {
+        UrlMappingEntity mapping = byId.get(id);
+        if (mapping == null) {
+            return 0;
+        }
+        mapping.setExpiresAt(expiresAt);
+        return 1;
+    }
+
+    @Override
+    public <S extends UrlMappingEntity> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        for (S entity : entities) {
+            saved.add(saveAndFlush(entity));
+        }
+        return saved;
+    }
+
+    @Override
+    public <S extends UrlMappingEntity> S saveAndFlush(S entity) {
+        ReflectionTestUtils.setField(entity, "id", ids.incrementAndGet());
+        byId.put(entity.getId(), entity);
+        byShortCode.put(entity.getShortCode(), entity);
+        byUrlDigest.put(entity.getUrlDigest(), entity);
+        return entity;
+    }
+
+    private static List<UrlMappingEntity> lookup(Map<String, UrlMappingEntity> index, Collection<String> keys) {
+        List<UrlMappingEntity> found = new ArrayList<>();
+        for (String key : keys) {
+            UrlMappingEntity entity = index.get(key);
+            if (entity != null) {
+                found.add(entity);
+            }
+        }
+        return found;
+    }
+
+    private static List<View> views(List<UrlMappingEntity> mappings) {
+        return mappings.stream().map(View::new).toList();
+    }
+
+    private record View(UrlMappingEntity mapping) implements ShortCodeView, ExpiringMappingView {
+
+        @Override
+        public Long getId() {
+            return mapping.getId();
+        }
+
+        @Override
+        public String getShortCode() {
+            return mapping.getShortCode();
+        }
+
+        @Override
+        public LocalDateTime getExpiresAt() {
+            return mapping.getExpiresAt();
+        }
+    }
+}
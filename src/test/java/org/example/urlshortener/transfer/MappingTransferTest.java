@@ -0,0 +1,177 @@
+package org.example.urlshortener.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.model.ImportResponse;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.service.URLShortenerService;
+import org.example.urlshortener.util.UrlCanonicalizer;
+import org.example.urlshortener.util.UrlDigest;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MappingTransferTest {
+
+    private static final LocalDateTime CREATED = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_456_000);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final UrlMappingStore repository = mock(UrlMappingStore.class);
+    private final URLShortenerService service = mock(URLShortenerService.class);
+    private final List<UrlMappingEntity> imported = new ArrayList<>();
+
+    @Test
+    @DisplayName("an NDJSON export walks the table in keyset pages and imports back unchanged")
+    void ndjson_roundTrips() throws IOException {
+        List<UrlMappingEntity> table = table();
+        when(repository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(table.subList(0, 2));
+        when(repository.findAllByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class))).thenReturn(table.subList(2, 3));
+        MappingTransfer transfer = transfer(2);
+
+        byte[] exported = export(transfer, MappingFormat.NDJSON);
+        ImportResponse response = importing(transfer, exported, MappingFormat.NDJSON);
+
+        assertThat(new String(exported, StandardCharsets.UTF_8).lines()).hasSize(3)
+                .first().asString().contains("\"shortCode\":\"code1\"", "\"createdAt\":\"2024-05-01T12:00:00.123456\"");
+        assertThat(response.imported()).isEqualTo(3);
+        assertSameMappings(imported, table);
+        assertThat(transfer.exportedCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("the binary format imports back unchanged and is smaller than NDJSON")
+    void binary_roundTrips() throws IOException {
+        List<UrlMappingEntity> table = table();
+        when(repository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(table);
+        MappingTransfer transfer = transfer(10);
+
+        byte[] binary = export(transfer, MappingFormat.BINARY);
+        ImportResponse response = importing(transfer, binary, MappingFormat.BINARY);
+
+        assertThat(binary.length).isLessThan(export(transfer, MappingFormat.NDJSON).length);
+        assertThat(response.imported()).isEqualTo(3);
+        assertSameMappings(imported, table);
+    }
+
+    @Test
+    @DisplayName("unreadable lines and invalid mappings are rejected, existing ones skipped, the rest imported")
+    void import_countsRejectedAndSkipped() throws IOException {
+        String ndjson = """
+                {"shortCode":"ok1","originalUrl":"https://example.com/1","createdAt":"2024-05-01T12:00:00"}
+                not json
+                {"shortCode":"bad","originalUrl":"ftp://example.com","createdAt":"2024-05-01T12:00:00"}
+
+                {"shortCode":"ok2","originalUrl":"https://example.com/2","createdAt":"2024-05-01T12:00:00"}
+                {"shortCode":"","originalUrl":"https://example.com/3","createdAt":"2024-05-01T12:00:00"}
+                """;
+        MappingTransfer transfer = transfer(10);
+        when(service.importMappings(anyList())).thenReturn(1);
+
+        ImportResponse response = transfer.importMappings(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), MappingFormat.NDJSON);
+
+        assertThat(response.imported()).isEqualTo(1);
+        assertThat(response.skipped()).isEqualTo(1);
+        assertThat(response.rejected()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("imported URLs are stored in canonical form, Unicode host names included")
+    void import_canonicalizesUrls() throws IOException {
+        String ndjson = """
+                {"shortCode":"idn1","originalUrl":"http://Bücher.example/Regal","createdAt":"2024-05-01T12:00:00"}
+                {"shortCode":"case1","originalUrl":"HTTPS://Example.COM:443/a","createdAt":"2024-05-01T12:00:00"}
+                """;
+        MappingTransfer transfer = transfer(10);
+
+        ImportResponse response = transfer.importMappings(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), MappingFormat.NDJSON);
+
+        assertThat(response.imported()).isEqualTo(2);
+        assertThat(imported).extracting(UrlMappingEntity::getOriginalUrl, UrlMappingEntity::getUrlDigest).containsExactly(
+                tuple("http://xn--bcher-kva.example/Regal", UrlDigest.of("http://xn--bcher-kva.example/Regal")),
+                tuple("https://example.com/a", UrlDigest.of("https://example.com/a")));
+    }
+
+    @Test
+    @DisplayName("a binary stream cut off mid-record fails the import after writing the batches before it")
+    void binary_truncatedStreamFails() throws IOException {
+        when(repository.findAllByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(table());
+        MappingTransfer transfer = transfer(1);
+        byte[] binary = export(transfer, MappingFormat.BINARY);
+
+        assertThatThrownBy(() -> importing(transfer, Arrays.copyOf(binary, binary.length - 10), MappingFormat.BINARY))
+                .isInstanceOfSatisfying(URLShortenerServiceException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThat(imported).extracting(UrlMappingEntity::getShortCode).containsExactly("code1", "code2");
+    }
+
+    @Test
+    @DisplayName("a failing insert fails the import with its error")
+    void import_propagatesWriteFailure() {
+        MappingTransfer transfer = transfer(2);
+        when(service.importMappings(anyList())).thenThrow(new IllegalStateException("database down"));
+        byte[] ndjson = "{\"shortCode\":\"a\",\"originalUrl\":\"https://example.com\",\"createdAt\":\"2024-05-01T12:00:00\"}\n"
+                .repeat(10).getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> transfer.importMappings(new ByteArrayInputStream(ndjson), MappingFormat.NDJSON))
+                .isInstanceOf(IllegalStateException.class).hasMessage("database down");
+    }
+
+    private MappingTransfer transfer(int batchSize) {
+        when(service.importMappings(anyList())).thenAnswer(invocation -> {
+            List<UrlMappingEntity> batch = invocation.getArgument(0);
+            imported.addAll(batch);
+            return batch.size();
+        });
+        return new MappingTransfer(repository, service, objectMapper, new UrlCanonicalizer(false, List.of()),
+                batchSize, batchSize, 1);
+    }
+
+    private static byte[] export(MappingTransfer transfer, MappingFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        transfer.export(out, format);
+        return out.toByteArray();
+    }
+
+    private static ImportResponse importing(MappingTransfer transfer, byte[] data, MappingFormat format)
+            throws IOException {
+        return transfer.importMappings(new ByteArrayInputStream(data), format);
+    }
+
+    private static void assertSameMappings(List<UrlMappingEntity> actual, List<UrlMappingEntity> expected) {
+        assertThat(actual).usingRecursiveFieldByFieldElementComparatorIgnoringFields("id").isEqualTo(expected);
+    }
+
+    private static List<UrlMappingEntity> table() {
+        List<UrlMappingEntity> table = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            UrlMappingEntity mapping = new UrlMappingEntity("https://example.com/" + i + "?q=%C3%A9", "code" + i,
+                    CREATED, i == 2 ? CREATED.plusDays(30) : null);
+            mapping.setId((long) i);
+            table.add(mapping);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.urlshortener.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShortCodeAlphabetTest {
+
+    @Test
+    @DisplayName("encode and decode round-trip for both alphabets")
+    void encodeDecode_roundTrip() {
+        for (ShortCodeAlphabet alphabet : ShortCodeAlphabet.values()) {
+            for (long value : new long[]{0, 1, 57, 58, 61, 62, 123_456_789L, alphabet.capacity(8) - 1}) {
+                String code = alphabet.encode(value, 8);
+                assertThat(code).hasSize(8);
+                assertThat(alphabet.decode(code)).isEqualTo(value);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("base58 never emits look-alike characters")
+    void base58_excludesLookAlikes() {
+        for (long value = 0; value < 10_000; value += 7) {
+            assertThat(ShortCodeAlphabet.BASE58.encode(value * 104_729L, 8)).doesNotContain("0", "O", "I", "l");
+        }
+    }
+
+    @Test
+    @DisplayName("encode rejects values that do not fit in the requested width")
+    void encode_overflow_throws() {
+        long capacity = ShortCodeAlphabet.BASE62.capacity(8);
+        assertThatThrownBy(() -> ShortCodeAlphabet.BASE62.encode(capacity, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
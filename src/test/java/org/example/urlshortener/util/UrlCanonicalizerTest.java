@@ -0,0 +1,299 @@
+package org.example.urlshortener.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UrlCanonicalizerTest {
+
+    private static final List<String> TRACKING = List.of("utm_*", "gclid", "fbclid");
+
+    private final UrlCanonicalizer rfc = new UrlCanonicalizer(false, List.of());
+    private final UrlCanonicalizer full = new UrlCanonicalizer(true, TRACKING);
+
+    @Test
+    @DisplayName("spellings that differ in case, default port and parameter order share one canonical form")
+    void canonicalize_equivalentSpellings_sameForm() {
+        assertThat(full.canonicalize("HTTP://Example.com:80/a?b=1&a=2")).isEqualTo("http://example.com/a?a=2&b=1");
+        assertThat(full.canonicalize("http://example.com/a?a=2&b=1")).isEqualTo("http://example.com/a?a=2&b=1");
+        // Parameter order is kept unless sorting is configured
+        assertThat(rfc.canonicalize("HTTP://Example.com:80/a?b=1&a=2")).isEqualTo("http://example.com/a?b=1&a=2");
+    }
+
+    @Test
+    @DisplayName("the normalizations of RFC 3986 are applied to every URL")
+    void canonicalize_rfc3986Normalizations() {
+        assertThat(rfc.canonicalize("HTTPS://WWW.Example.COM")).isEqualTo("https://www.example.com/");
+        assertThat(rfc.canonicalize("https://example.com:443/x")).isEqualTo("https://example.com/x");
+        assertThat(rfc.canonicalize("https://example.com:80/x")).isEqualTo("https://example.com:80/x");
+        assertThat(rfc.canonicalize("http://example.com:/x")).isEqualTo("http://example.com/x");
+        assertThat(rfc.canonicalize("http://example.com:08080/x")).isEqualTo("http://example.com:8080/x");
+        assertThat(rfc.canonicalize("http://example.com/%7euser/%2fa%2F?q=%41%3d#%62")).isEqualTo(
+                "http://example.com/~user/%2Fa%2F?q=A%3D#b");
+        assertThat(rfc.canonicalize("http://example.com/a/./b/../c/%2E%2E/d/.")).isEqualTo("http://example.com/a/d/");
+        assertThat(rfc.canonicalize("http://example.com/../a")).isEqualTo("http://example.com/a");
+        assertThat(rfc.canonicalize("http://example.com/café?q=😀")).isEqualTo(
+                "http://example.com/caf%C3%A9?q=%F0%9F%98%80");
+        assertThat(rfc.canonicalize("http://[2001:DB8::1]:80/")).isEqualTo("http://[2001:db8::1]/");
+        assertThat(rfc.canonicalize("http://User%3a@Example.com/")).isEqualTo("http://User%3A@example.com/");
+    }
+
+    @Test
+    @DisplayName("a stored URL matches the canonical form it canonicalizes to, and settings name the options")
+    void matchesAndSettings() {
+        assertThat(rfc.matches("HTTPS://Example.COM:443/a", "https://example.com/a")).isTrue();
+        assertThat(rfc.matches("https://example.com/a", "https://example.com/a")).isTrue();
+        assertThat(rfc.matches("https://example.com/b", "https://example.com/a")).isFalse();
+        assertThat(full.settings()).isEqualTo(new UrlCanonicalizer(true, List.of("gclid", " fbclid", "utm_*")).settings())
+                .isEqualTo("sort-query=true;strip-params=fbclid,gclid,utm_*");
+        assertThat(rfc.settings()).isNotEqualTo(full.settings());
+    }
+
+    @Test
+    @DisplayName("Unicode host names are converted to punycode, so both spellings of an IDN share a form")
+    void canonicalize_internationalizedDomainName() {
+        assertThat(rfc.canonicalize("http://Bücher.example/Regal")).isEqualTo("http://xn--bcher-kva.example/Regal");
+        assertThat(rfc.canonicalize("http://XN--BCHER-KVA.example/Regal")).isEqualTo("http://xn--bcher-kva.example/Regal");
+        assertThat(rfc.canonicalize("http://例。テスト/")).isEqualTo("http://xn--fsq.xn--zckzah/");
+    }
+
+    @Test
+    @DisplayName("configured parameters are removed, and a query left empty is dropped with its '?'")
+    void canonicalize_stripsTrackingParameters() {
+        assertThat(full.canonicalize("https://example.com/p?utm_source=x&id=7&gclid=abc&utm_medium=y#top"))
+                .isEqualTo("https://example.com/p?id=7#top");
+        assertThat(full.canonicalize("https://example.com/p?utm_source=x&&fbclid=1")).isEqualTo("https://example.com/p");
+        assertThat(full.canonicalize("https://example.com/p?utm%5Fsource=x&b=2&b=1&a"))
+                .isEqualTo("https://example.com/p?a&b=2&b=1");
+        // Names match exactly, not by prefix, unless they end in '*'
+        assertThat(full.canonicalize("https://example.com/p?gclid2=1")).isEqualTo("https://example.com/p?gclid2=1");
+    }
+
+    @Test
+    @DisplayName("invalid URLs have no canonical form")
+    void canonicalize_invalid_null() {
+        assertThat(rfc.canonicalize(null)).isNull();
+        assertThat(rfc.canonicalize("")).isNull();
+        assertThat(rfc.canonicalize("ftp://example.com/")).isNull();
+        assertThat(rfc.canonicalize("HTTP://Example.com/a b")).isNull();
+        assertThat(rfc.canonicalize("http://bücher..example/")).isNull();
+    }
+
+    @Test
+    @DisplayName("property: canonical forms are valid, fixed points, and returned as the same instance")
+    void canonicalize_isIdempotent() {
+        for (UrlCanonicalizer canonicalizer : List.of(rfc, full)) {
+            Random random = new Random(20250612L);
+            for (int i = 0; i < 20_000; i++) {
+                String url = respell(random, randomUrl(random), true);
+                String canonical = canonicalizer.canonicalize(url);
+
+                assertThat(canonical).as(url).isNotNull();
+                assertThat(UrlValidationUtil.check(canonical)).as(canonical).isNull();
+                assertThat(canonicalizer.canonicalize(canonical)).as(url).isSameAs(canonical);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("property: every respelling of a URL canonicalizes to the canonical form of the URL")
+    void canonicalize_respellings_converge() {
+        Random random = new Random(20250613L);
+        for (int i = 0; i < 10_000; i++) {
+            String url = randomUrl(random);
+            String canonical = full.canonicalize(url);
+            for (int j = 0; j < 4; j++) {
+                String respelled = respell(random, url, true);
+                assertThat(full.canonicalize(respelled)).as(respelled).isEqualTo(canonical);
+            }
+            String reordered = respell(random, url, false);
+            assertThat(rfc.canonicalize(reordered)).as(reordered).isEqualTo(rfc.canonicalize(url));
+        }
+    }
+
+    @Test
+    @DisplayName("property: without the optional rewrites the canonical form names the same resource as the input")
+    void canonicalize_preservesResource() {
+        Random random = new Random(20250614L);
+        for (int i = 0; i < 20_000; i++) {
+            String url = respell(random, randomUrl(random), false);
+            if (UrlValidationUtil.check(url) != null) {
+                // A Unicode host, which URI does not parse
+                continue;
+            }
+            URI before = URI.create(url).normalize();
+            URI after = URI.create(rfc.canonicalize(url));
+
+            assertThat(after.getScheme()).isEqualTo(before.getScheme().toLowerCase(Locale.ROOT));
+            assertThat(after.getHost()).isEqualTo(before.getHost().toLowerCase(Locale.ROOT));
+            assertThat(after.getPath()).as(url).isEqualTo(before.getPath().isEmpty() ? "/" : before.getPath());
+            assertThat(after.getQuery()).as(url).isEqualTo(before.getQuery());
+            assertThat(after.getFragment()).as(url).isEqualTo(before.getFragment());
+        }
+    }
+
+    @Test
+    @DisplayName("URLs that are canonical already are passed through without allocating")
+    void canonicalize_canonical_doesNotAllocate() {
+        Random random = new Random(20250615L);
+        List<String> canonical = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            canonical.add(full.canonicalize(randomUrl(random)));
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int calls = 0;
+        for (String url : canonical) {
+            calls += full.canonicalize(url) == url ? 1 : 0;
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int round = 0; round < 100; round++) {
+            for (String url : canonical) {
+                calls += full.canonicalize(url) == url ? 1 : 0;
+            }
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertThat(calls).isEqualTo(101 * canonical.size());
+        // Well under one byte a call; one allocation a call would be 16 or more
+        assertThat(allocated).isLessThan(canonical.size() * 100L);
+    }
+
+    private static final String[] HOSTS = {"example.com", "www.example.org", "bücher.example", "xn--bcher-kva.de",
+            "sub.domain.example.co.uk", "10.0.0.1", "[2001:db8::a]", "localhost"};
+    private static final String[] PATH_CHARS = {"a", "Z", "0", "-", "_", "~", ".", "!", "$", "'", "(", ")", "*", "+",
+            ",", ";", "=", ":", "@", "%2F", "%20", "%3F", "%25", "é", "中"};
+    private static final String[] NAMES = {"id", "q", "page", "sort", "a", "b", "utm_source", "utm_campaign", "gclid"};
+
+    /**
+     * A valid URL in canonical spelling apart from the order of its query parameters and its
+     * tracking parameters.
+     */
+    private static String randomUrl(Random random) {
+        StringBuilder url = new StringBuilder(random.nextBoolean() ? "http://" : "https://");
+        url.append(HOSTS[random.nextInt(HOSTS.length)]);
+        if (random.nextInt(4) == 0) {
+            url.append(':').append(1 + random.nextInt(65_000));
+        }
+        int segments = random.nextInt(4);
+        for (int s = 0; s < segments; s++) {
+            url.append('/');
+            int length = 1 + random.nextInt(6);
+            for (int c = 0; c < length; c++) {
+                url.append(PATH_CHARS[random.nextInt(PATH_CHARS.length)]);
+            }
+        }
+        if (segments == 0 || random.nextInt(5) == 0) {
+            url.append('/');
+        }
+        int params = random.nextInt(5);
+        for (int p = 0; p < params; p++) {
+            url.append(p == 0 ? '?' : '&').append(NAMES[random.nextInt(NAMES.length)]);
+            if (random.nextInt(4) != 0) {
+                url.append('=').append(random.nextInt(100));
+            }
+        }
+        if (random.nextInt(5) == 0) {
+            url.append("#frag").append(random.nextInt(10));
+        }
+        return url.toString().replace("/.", "/x.");
+    }
+
+    /**
+     * Spells {@code url} differently without changing the resource: case of scheme and host,
+     * explicit default ports, escaped unreserved characters, lowercase hex and dot segments. With
+     * {@code optional}, also shuffles the query and adds tracking parameters.
+     */
+    private static String respell(Random random, String url, boolean optional) {
+        int schemeEnd = url.indexOf(':');
+        int hostStart = schemeEnd + 3;
+        int pathStart = url.indexOf('/', hostStart);
+        int queryStart = url.indexOf('?') < 0 ? url.length() : url.indexOf('?');
+        int fragmentStart = url.indexOf('#') < 0 ? url.length() : url.indexOf('#');
+        queryStart = Math.min(queryStart, fragmentStart);
+
+        StringBuilder out = new StringBuilder(randomCase(random, url.substring(0, schemeEnd))).append("://");
+        String authority = url.substring(hostStart, pathStart);
+        out.append(authority.startsWith("[") ? authority : randomCase(random, authority));
+        if (authority.indexOf(':') < 0 && random.nextInt(3) == 0) {
+            out.append(':').append(url.startsWith("https") ? 443 : 80);
+        }
+        String path = url.substring(pathStart, queryStart);
+        if (random.nextInt(3) == 0) {
+            path = "/./x/.." + path;
+        }
+        out.append(respellEscapes(random, path));
+
+        if (queryStart < fragmentStart) {
+            List<String> params = new ArrayList<>(List.of(url.substring(queryStart + 1, fragmentStart).split("&")));
+            if (optional) {
+                if (random.nextBoolean()) {
+                    params.add(random.nextInt(params.size() + 1), "utm_medium=email");
+                }
+                sortStable(random, params);
+            }
+            out.append('?').append(respellEscapes(random, String.join("&", params)));
+        } else if (optional && random.nextInt(3) == 0) {
+            out.append("?fbclid=").append(random.nextInt(1000));
+        }
+        out.append(respellEscapes(random, url.substring(fragmentStart)));
+        return out.toString();
+    }
+
+    // Shuffles, then restores the order within each name, which the canonical form keeps
+    private static void sortStable(Random random, List<String> params) {
+        List<String> names = new ArrayList<>();
+        for (String param : params) {
+            String name = param.split("=", 2)[0];
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+        }
+        Collections.shuffle(names, random);
+        List<String> reordered = new ArrayList<>();
+        for (String name : names) {
+            for (String param : params) {
+                if (param.split("=", 2)[0].equals(name)) {
+                    reordered.add(param);
+                }
+            }
+        }
+        params.clear();
+        params.addAll(reordered);
+    }
+
+    private static String respellEscapes(Random random, String s) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '%') {
+                String hex = s.substring(i + 1, i + 3);
+                out.append('%').append(random.nextBoolean() ? hex.toLowerCase(Locale.ROOT) : hex);
+                i += 2;
+            } else if ((Character.isLetterOrDigit(c) && c < 128 || c == '~' || c == '_') && random.nextInt(8) == 0) {
+                out.append(String.format(random.nextBoolean() ? "%%%02x" : "%%%02X", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String randomCase(Random random, String s) {
+        StringBuilder out = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            out.append(random.nextBoolean() ? Character.toUpperCase(c) : c);
+        }
+        return out.toString();
+    }
+}
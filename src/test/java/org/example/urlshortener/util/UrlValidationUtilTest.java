@@ -6,7 +6,15 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 
@@ -59,4 +67,142 @@ class UrlValidationUtilTest {
                     assertThat(use.getMessage()).contains(url);
                 });
     }
+
+    @Test
+    @DisplayName("validate should throw a stackless exception")
+    void validate_invalidUrl_stacklessException() {
+        assertThatThrownBy(() -> UrlValidationUtil.validate("ftp://example.com"))
+                .isInstanceOf(URLShortenerServiceException.class)
+                .satisfies(ex -> assertThat(ex.getStackTrace()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("check should map each policy violation to its preallocated exception")
+    void check_policyViolations() {
+        assertThat(UrlValidationUtil.check(null)).isEqualTo(UrlValidationUtil.Violation.MISSING_SCHEME);
+        assertThat(UrlValidationUtil.check("ftp://example.com")).isEqualTo(UrlValidationUtil.Violation.UNSUPPORTED_SCHEME);
+        assertThat(UrlValidationUtil.check("https://example.com:65536/")).isEqualTo(UrlValidationUtil.Violation.INVALID_PORT);
+        assertThat(UrlValidationUtil.check("https://" + "a".repeat(64) + ".com")).isEqualTo(UrlValidationUtil.Violation.INVALID_HOST);
+        assertThat(UrlValidationUtil.check("https://example.com/" + "a".repeat(UrlValidationUtil.MAX_LENGTH)))
+                .isEqualTo(UrlValidationUtil.Violation.TOO_LONG);
+        assertThat(UrlValidationUtil.check("https://example.com/a b")).isEqualTo(UrlValidationUtil.Violation.INVALID_CHARACTER);
+        assertThat(UrlValidationUtil.check("HTTPS://example.com:65535/")).isNull();
+
+        URLShortenerServiceException exception = UrlValidationUtil.Violation.INVALID_HOST.exception();
+        assertThat(exception).isSameAs(UrlValidationUtil.Violation.INVALID_HOST.exception());
+        assertThat(exception.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(exception.getStackTrace()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("check should accept well-formed punycode hosts and reject malformed ones")
+    void check_punycodeHosts() {
+        assertThat(UrlValidationUtil.check("https://xn--bcher-kva.example/")).isNull();
+        assertThat(UrlValidationUtil.check("https://xn--fsqu00a.xn--0zwm56d/")).isNull();
+        assertThat(UrlValidationUtil.check("https://XN--LS8H.la/")).isNull();
+
+        assertThat(UrlValidationUtil.check("https://xn--a.com/")).isEqualTo(UrlValidationUtil.Violation.INVALID_HOST);
+        assertThat(UrlValidationUtil.check("https://xn--99999999999.com/")).isEqualTo(UrlValidationUtil.Violation.INVALID_HOST);
+        assertThat(UrlValidationUtil.check("https://xn---abc.com/")).isEqualTo(UrlValidationUtil.Violation.INVALID_HOST);
+        assertThat(UrlValidationUtil.check("https://bücher.example/")).isEqualTo(UrlValidationUtil.Violation.INVALID_HOST);
+    }
+
+    @Test
+    @DisplayName("check should agree with java.net.URI plus the service policy on a fuzz corpus")
+    void check_fuzzCorpus_sameVerdictsAsUri() {
+        List<String> corpus = fuzzCorpus(new Random(20250419L), 200_000);
+        for (String url : corpus) {
+            boolean expected = referenceVerdict(url);
+            boolean actual = UrlValidationUtil.check(url) == null;
+            if (expected != actual) {
+                fail("Verdict mismatch for [%s]: URI says %s, validator says %s", url, expected, actual);
+            }
+        }
+    }
+
+    private static final String[] SEEDS = {
+            "http://www.example.com/path?query=1",
+            "https://originenergy.com.au",
+            "https://user:pw@example.com:8443/a/b;c?d=e&f=g#frag",
+            "http://127.0.0.1:8080/",
+            "http://[::1]/",
+            "http://[2001:db8::ff00:42:8329]:80/x",
+            "http://[::ffff:192.0.2.128]/",
+            "http://[fe80::1%eth0]/",
+            "http://example.com./?a=[1]",
+            "https://a-b.c-d.example/%41%62?%7e#top",
+            "http://123/",
+            "http://example.com/café?q=中",
+            "http:///nohost",
+            "://bad!url",
+            "www.example.com/path",
+    };
+
+    private static final String[] FRAGMENTS = {
+            "a", "Z", "0", "9", "-", ".", "_", "~", ":", "/", "?", "#", "[", "]", "@", "!", "$", "&", "'", "(",
+            ")", "*", "+", ",", ";", "=", "%", "%4", "%41", "%zz", " ", "\t", "\"", "<", ">", "\\", "^", "`",
+            "{", "|", "}", "é", " ", "\u0080", "\u0085", "中", " ", "::", "255", "256",
+            "65535", "65536", "1.2.3.4", "999999999999", "http://", "HTTPS://", "ftp://", "//", "ffff",
+    };
+
+    private static List<String> fuzzCorpus(Random random, int size) {
+        List<String> corpus = new ArrayList<>(size);
+        while (corpus.size() < size) {
+            StringBuilder url = new StringBuilder(SEEDS[random.nextInt(SEEDS.length)]);
+            int mutations = 1 + random.nextInt(3);
+            for (int m = 0; m < mutations; m++) {
+                int at = random.nextInt(url.length() + 1);
+                String fragment = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+                switch (random.nextInt(3)) {
+                    case 0 -> url.insert(at, fragment);
+                    case 1 -> url.replace(at, Math.min(url.length(), at + 1), fragment);
+                    default -> url.delete(at, Math.min(url.length(), at + 1 + random.nextInt(3)));
+                }
+            }
+            String candidate = url.toString();
+            // xn-- labels are decoded by the validator, which URI does not do; covered above
+            if (!candidate.toLowerCase(Locale.ROOT).contains("xn--")) {
+                corpus.add(candidate);
+            }
+        }
+        return corpus;
+    }
+
+    /**
+     * The verdict of the URI-based check this validator replaced, narrowed by the documented policy.
+     */
+    private static boolean referenceVerdict(String url) {
+        if (url.length() > UrlValidationUtil.MAX_LENGTH) {
+            return false;
+        }
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException | RuntimeException e) {
+            return false;
+        }
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        if (scheme == null || host == null) {
+            return false;
+        }
+        if (!scheme.equalsIgnoreCase("http") && !scheme.equalsIgnoreCase("https")) {
+            return false;
+        }
+        if (uri.getPort() > 65_535) {
+            return false;
+        }
+        if (!host.startsWith("[")) {
+            String name = host.endsWith(".") ? host.substring(0, host.length() - 1) : host;
+            if (name.length() > 253) {
+                return false;
+            }
+            for (String label : name.split("\\.")) {
+                if (label.length() > 63) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,177 @@
+package org.example.urlshortener.writebehind;
+
+import org.example.urlshortener.exception.handler.URLShortenerServiceException;
+import org.example.urlshortener.model.UrlMappingEntity;
+import org.example.urlshortener.repository.UrlMappingRepository;
+import org.example.urlshortener.repository.UrlMappingStore;
+import org.example.urlshortener.storage.MappingJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class WriteBehindWriterTest {
+
+    @Autowired
+    private UrlMappingRepository repository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @TempDir
+    Path directory;
+
+    private WriteBehindWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null && writer.isRunning()) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("a submitted mapping is served from the pending index until it is written")
+    void submit_isPendingThenWritten() {
+        writer = start(Duration.ofMillis(200), 100);
+        UrlMappingEntity mapping = mapping("pend0001", "https://example.com/pending", null);
+
+        assertThat(writer.submit(mapping)).isNull();
+
+        assertThat(writer.findByShortCode("pend0001")).isSameAs(mapping);
+        assertThat(writer.findByUrlDigest(mapping.getUrlDigest())).isSameAs(mapping);
+        awaitWritten();
+        assertThat(writer.findByShortCode("pend0001")).isNull();
+        assertThat(repository.findByShortCode("pend0001")).get()
+                .extracting(UrlMappingEntity::getOriginalUrl).isEqualTo("https://example.com/pending");
+        assertThat(writer.persistedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("a mapping whose URL or short code is already pending is refused with the holder")
+    void submit_losesToPendingHolder() {
+        writer = start(Duration.ofSeconds(10), 100);
+        UrlMappingEntity first = mapping("code0001", "https://example.com/a", null);
+        writer.submit(first);
+
+        List<UrlMappingEntity> results = writer.submitAll(List.of(
+                mapping("code0002", "https://example.com/a", null),
+                mapping("code0001", "https://example.com/b", null),
+                mapping("code0003", "https://example.com/c", null)));
+
+        assertThat(results.get(0)).isSameAs(first);
+        assertThat(results.get(1)).isSameAs(first);
+        assertThat(results.get(2)).isNull();
+        assertThat(writer.findByUrlDigest(mapping("x", "https://example.com/b", null).getUrlDigest())).isNull();
+        assertThat(writer.pendingCount()).isEqualTo(2);
+        assertThat(writer.journalSyncCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("submissions beyond the pending limit are refused with 503, and stop writes the rest")
+    void submit_overPendingLimit_isRefused() {
+        writer = start(Duration.ofSeconds(10), 2);
+        writer.submit(mapping("full0001", "https://example.com/1", null));
+        writer.submit(mapping("full0002", "https://example.com/2", null));
+
+        assertThatThrownBy(() -> writer.submit(mapping("full0003", "https://example.com/3", null)))
+                .isInstanceOf(URLShortenerServiceException.class)
+                .extracting("status").isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(writer.refusedCount()).isEqualTo(1);
+
+        writer.stop();
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("start replays the journal once, never shortening an expiry already written")
+    void start_replaysJournal() throws IOException {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        repository.save(mapping("done0001", "https://example.com/done", now.plusDays(7)));
+        MappingJournal previousRun = new MappingJournal(directory, 1 << 20);
+        previousRun.append(List.of(mapping("done0001", "https://example.com/done", now.plusDays(1)),
+                mapping("lost0001", "https://example.com/lost", now.plusDays(1))));
+        previousRun.append(List.of(mapping("lost0001", "https://example.com/lost", now.plusDays(2))));
+        previousRun.close();
+
+        writer = start(Duration.ofMillis(10), 100);
+
+        assertThat(repository.count()).isEqualTo(2);
+        assertThat(repository.findByShortCode("done0001")).get()
+                .extracting(UrlMappingEntity::getExpiresAt).isEqualTo(now.plusDays(7));
+        assertThat(repository.findByShortCode("lost0001")).get()
+                .extracting(UrlMappingEntity::getExpiresAt).isEqualTo(now.plusDays(2));
+        assertThat(writer.pendingCount()).isZero();
+        writer.stop();
+
+        writer = start(Duration.ofMillis(10), 100);
+        assertThat(writer.persistedCount()).isZero();
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("start fails once replay exceeds its timeout, keeping the journal for the next start")
+    void start_replayTimesOut_failsAndKeepsJournal() throws IOException {
+        MappingJournal previousRun = new MappingJournal(directory, 1 << 20);
+        previousRun.append(List.of(mapping("down0001", "https://example.com/down", null)));
+        previousRun.close();
+        UrlMappingStore unreachable = mock(UrlMappingStore.class);
+        when(unreachable.findByShortCodeIn(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("Database is down"));
+        writer = new WriteBehindWriter(new MappingJournal(directory, 1 << 20), unreachable, transactionTemplate,
+                null, 100, Duration.ofMillis(10), 100, Duration.ofMillis(50), Duration.ofMillis(300));
+
+        assertThatThrownBy(writer::start)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("1 of 1 mapping(s) not yet written");
+
+        assertThat(writer.isRunning()).isFalse();
+        writer = start(Duration.ofMillis(10), 100);
+        assertThat(repository.findByShortCode("down0001")).isPresent();
+    }
+
+    private WriteBehindWriter start(Duration flushInterval, int maxPending) {
+        WriteBehindWriter started = new WriteBehindWriter(new MappingJournal(directory, 1 << 20), repository,
+                transactionTemplate, null, 100, flushInterval, maxPending, Duration.ofMillis(50),
+                Duration.ofSeconds(30));
+        started.start();
+        return started;
+    }
+
+    private void awaitWritten() {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (writer.pendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(writer.pendingCount()).isZero();
+    }
+
+    private static UrlMappingEntity mapping(String shortCode, String originalUrl, LocalDateTime expiresAt) {
+        return new UrlMappingEntity(originalUrl, shortCode, LocalDateTime.now(), expiresAt);
+    }
+}